@@ -0,0 +1,369 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimaw-books.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib;
+
+import java.util.Vector;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Arrays;
+
+/**
+ * Flat lookup table of the effective category codes.
+ * This caches the category codes that have been explicitly
+ * assigned in the {@link TeXSettings} objects managed by
+ * {@link Scoping} so that the category code for a character can
+ * be found without searching each scope. Characters in the Basic
+ * Multilingual Plane are stored in a byte array. Other characters
+ * are stored in a map. The <code>TeXSettings</code> objects are
+ * still the definitive record. This table is simply updated when
+ * they change.
+ *
+ * Each local scope has an associated save list that records the
+ * previous value of each character whose category code was
+ * changed within that scope. Ending the scope restores those
+ * values, so the cost is proportional to the number of changes
+ * rather than the size of the table.
+ */
+public class CategoryCodeTable
+{
+   public CategoryCodeTable()
+   {
+      bmp = new byte[BMP_SIZE];
+      saveStack = new Vector<SaveList>();
+   }
+
+   /**
+    * Gets the category code that has been explicitly assigned to
+    * the given character.
+    * @param codePoint the character's code point
+    * @return the category code or null if not assigned
+    */
+   public CategoryCode get(int codePoint)
+   {
+      int value = getValue(codePoint);
+
+      return value == UNSET ? null : CATEGORY_CODES[value-1];
+   }
+
+   /**
+    * Gets the category code for the given character, falling back on
+    * the default category code if none has been assigned.
+    * @param codePoint the character's code point
+    * @return the category code
+    */
+   public CategoryCode getOrDefault(int codePoint)
+   {
+      int value = getValue(codePoint);
+
+      return value == UNSET ? getDefaultCategoryCode(codePoint)
+        : CATEGORY_CODES[value-1];
+   }
+
+   /**
+    * Sets the category code for the given character within the
+    * current scope.
+    * @param codePoint the character's code point
+    * @param catCode the category code or null to clear
+    */
+   public void setLocal(int codePoint, CategoryCode catCode)
+   {
+      if (!saveStack.isEmpty())
+      {
+         saveStack.lastElement().save(codePoint, getValue(codePoint));
+      }
+
+      setValue(codePoint, catCode == null ? UNSET : catCode.ordinal()+1);
+   }
+
+   /**
+    * Sets the category code for the given character in every
+    * scope. Any saved values for the character are replaced with the
+    * new value so that ending a scope won't undo the assignment.
+    * @param codePoint the character's code point
+    * @param catCode the category code or null to clear
+    */
+   public void setGlobal(int codePoint, CategoryCode catCode)
+   {
+      int value = (catCode == null ? UNSET : catCode.ordinal()+1);
+
+      for (SaveList list : saveStack)
+      {
+         list.replace(codePoint, value);
+      }
+
+      setValue(codePoint, value);
+   }
+
+   /**
+    * Updates the entry for the given character from the given
+    * scopes. This is used when the category code may have been changed
+    * in any of the scopes (for example, as a side-effect of
+    * defining or removing an active character). Each scope's save list
+    * is also updated.
+    * @param codePoint the character's code point
+    * @param globalSettings the global settings
+    * @param scopingList the local scopes, outermost first
+    */
+   public void sync(int codePoint, TeXSettings globalSettings,
+     Vector<TeXSettings> scopingList)
+   {
+      CategoryCode catCode = globalSettings.getCategoryCode(codePoint);
+      int value = (catCode == null ? UNSET : catCode.ordinal()+1);
+
+      int n = Math.min(scopingList.size(), saveStack.size());
+
+      for (int i = 0; i < n; i++)
+      {
+         saveStack.get(i).put(codePoint, value);
+
+         catCode = scopingList.get(i).getCategoryCode(codePoint);
+
+         if (catCode != null)
+         {
+            value = catCode.ordinal()+1;
+         }
+      }
+
+      setValue(codePoint, value);
+   }
+
+   /**
+    * Starts a new scope.
+    */
+   public void startGroup()
+   {
+      saveStack.add(new SaveList());
+   }
+
+   /**
+    * Ends the current scope and restores any category codes that were
+    * changed within it.
+    */
+   public void endGroup()
+   {
+      if (!saveStack.isEmpty())
+      {
+         saveStack.remove(saveStack.size()-1).restore(this);
+      }
+   }
+
+   /**
+    * Clears all entries and saved scopes.
+    */
+   public void clear()
+   {
+      modCount++;
+      Arrays.fill(bmp, (byte)UNSET);
+      astral = null;
+      saveStack.clear();
+   }
+
+   /**
+    * Rebuilds the table from the given scopes.
+    * @param globalSettings the global settings
+    * @param scopingList the local scopes, outermost first
+    */
+   public void rebuild(TeXSettings globalSettings, Vector<TeXSettings> scopingList)
+   {
+      clear();
+
+      copy(globalSettings);
+
+      for (TeXSettings settings : scopingList)
+      {
+         startGroup();
+         copy(settings);
+      }
+   }
+
+   private void copy(TeXSettings settings)
+   {
+      if (settings.catCodes != null)
+      {
+         for (Iterator<Integer> it = settings.catCodes.keySet().iterator();
+              it.hasNext(); )
+         {
+            Integer codePoint = it.next();
+
+            setLocal(codePoint.intValue(), settings.catCodes.get(codePoint));
+         }
+      }
+   }
+
+   /**
+    * Gets the default category code for a character that hasn't
+    * been assigned one.
+    * @param codePoint the character's code point
+    * @return letter if the character is alphabetic, space if the
+    * character is whitespace, otherwise other
+    */
+   public static CategoryCode getDefaultCategoryCode(int codePoint)
+   {
+      if (Character.isAlphabetic(codePoint))
+      {
+         return CategoryCode.LETTER;
+      }
+      else if (Character.isWhitespace(codePoint))
+      {
+         return CategoryCode.SPACE;
+      }
+      else
+      {
+         return CategoryCode.OTHER;
+      }
+   }
+
+   /**
+    * Gets the number of times an entry in this table has changed.
+    * Assignments and scope endings that leave a character's
+    * category code unchanged aren't counted.
+    * @return the modification count
+    */
+   public long getModificationCount()
+   {
+      return modCount;
+   }
+
+   private int getValue(int codePoint)
+   {
+      if (codePoint >= 0 && codePoint < BMP_SIZE)
+      {
+         return bmp[codePoint];
+      }
+
+      if (astral == null)
+      {
+         return UNSET;
+      }
+
+      Byte value = astral.get(Integer.valueOf(codePoint));
+
+      return value == null ? UNSET : value.intValue();
+   }
+
+   private void setValue(int codePoint, int value)
+   {
+      if (getValue(codePoint) != value)
+      {
+         modCount++;
+      }
+
+      if (codePoint >= 0 && codePoint < BMP_SIZE)
+      {
+         bmp[codePoint] = (byte)value;
+      }
+      else if (value == UNSET)
+      {
+         if (astral != null)
+         {
+            astral.remove(Integer.valueOf(codePoint));
+         }
+      }
+      else
+      {
+         if (astral == null)
+         {
+            astral = new HashMap<Integer,Byte>();
+         }
+
+         astral.put(Integer.valueOf(codePoint), Byte.valueOf((byte)value));
+      }
+   }
+
+   /**
+    * The values saved at the start of a scope. Only the first
+    * change to a given character within the scope is recorded.
+    */
+   private static class SaveList
+   {
+      void save(int codePoint, int value)
+      {
+         for (int i = 0; i < size; i++)
+         {
+            if (codePoints[i] == codePoint)
+            {
+               return;
+            }
+         }
+
+         if (codePoints == null)
+         {
+            codePoints = new int[8];
+            values = new byte[8];
+         }
+         else if (size == codePoints.length)
+         {
+            codePoints = Arrays.copyOf(codePoints, 2*size);
+            values = Arrays.copyOf(values, 2*size);
+         }
+
+         codePoints[size] = codePoint;
+         values[size] = (byte)value;
+         size++;
+      }
+
+      void put(int codePoint, int value)
+      {
+         for (int i = 0; i < size; i++)
+         {
+            if (codePoints[i] == codePoint)
+            {
+               values[i] = (byte)value;
+               return;
+            }
+         }
+
+         save(codePoint, value);
+      }
+
+      void replace(int codePoint, int value)
+      {
+         for (int i = 0; i < size; i++)
+         {
+            if (codePoints[i] == codePoint)
+            {
+               values[i] = (byte)value;
+               return;
+            }
+         }
+      }
+
+      void restore(CategoryCodeTable table)
+      {
+         for (int i = size-1; i >= 0; i--)
+         {
+            table.setValue(codePoints[i], values[i]);
+         }
+      }
+
+      int[] codePoints;
+      byte[] values;
+      int size=0;
+   }
+
+   private static final int BMP_SIZE = 0x10000;
+   private static final int UNSET = 0;
+
+   private static final CategoryCode[] CATEGORY_CODES = CategoryCode.values();
+
+   private byte[] bmp;
+   private HashMap<Integer,Byte> astral;
+   private Vector<SaveList> saveStack;
+   private long modCount = 0;
+}
@@ -78,11 +78,60 @@ public abstract class CharObject extends AbstractTeXObject implements SingleToke
       return charCode;
    }
 
+   /**
+    * Sets the character code. This isn't permitted if this object is
+    * shared.
+    * @param charCode the character code
+    * @throws UnsupportedOperationException if this object is
+    * shared
+    * @see #getModifiable()
+    */
    public void setCharCode(int charCode)
    {
+      if (shared)
+      {
+         throw new UnsupportedOperationException(
+           "Can't modify shared character token "+toString());
+      }
+
       this.charCode = charCode;
    }
 
+   /**
+    * Indicates whether or not this object is shared. Shared
+    * character tokens are created when the listener has interned
+    * character tokens enabled. They can't be modified.
+    * @return true if this object is shared
+    * @see TeXParserListener#setInternCharTokens(boolean)
+    */
+   public boolean isShared()
+   {
+      return shared;
+   }
+
+   /**
+    * Marks this object as shared. This can't be undone. Shared
+    * tokens may appear in any number of lists, so
+    * {@link TeXObjectList#clone()} shares them instead of copying
+    * them. A subclass that has additional
+    * modifiable state should override this method to do nothing, in
+    * which case it will always be cloned.
+    */
+   public void setShared()
+   {
+      shared = true;
+   }
+
+   /**
+    * Gets an object that may be modified. If this object is
+    * shared, a copy is returned, otherwise this object is returned.
+    * @return a modifiable object equivalent to this
+    */
+   public CharObject getModifiable()
+   {
+      return shared ? (CharObject)clone() : this;
+   }
+
    public int getMappedCharCode(TeXParser parser)
    {
       int code = parser.getScoping().getCharCode(charCode);
@@ -104,4 +153,6 @@ public abstract class CharObject extends AbstractTeXObject implements SingleToke
    }
 
    protected int charCode;
+
+   private boolean shared = false;
 }
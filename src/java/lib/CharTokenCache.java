@@ -0,0 +1,123 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimaw-books.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib;
+
+import java.util.HashMap;
+
+/**
+ * Cache of shared character tokens, identified by category code
+ * and code point. This is used by {@link TeXParserListener} when
+ * interned character tokens have been enabled. Characters in the
+ * Basic Multilingual Plane are stored in arrays, which are
+ * allocated in blocks of 256 as needed. Other characters are stored
+ * in a map.
+ */
+public class CharTokenCache
+{
+   public CharTokenCache()
+   {
+      pages = new TeXObject[CATEGORY_COUNT][][];
+   }
+
+   /**
+    * Gets the cached token.
+    * @param catCode the category code
+    * @param codePoint the character's code point
+    * @return the cached token or null if not found
+    */
+   public TeXObject get(CategoryCode catCode, int codePoint)
+   {
+      if (codePoint >= 0 && codePoint < BMP_SIZE)
+      {
+         TeXObject[][] catPages = pages[catCode.ordinal()];
+
+         if (catPages == null)
+         {
+            return null;
+         }
+
+         TeXObject[] page = catPages[codePoint >> PAGE_SHIFT];
+
+         return page == null ? null : page[codePoint & PAGE_MASK];
+      }
+
+      return astral == null ? null : astral.get(getKey(catCode, codePoint));
+   }
+
+   /**
+    * Adds a token to the cache.
+    * @param catCode the category code
+    * @param codePoint the character's code point
+    * @param token the token
+    */
+   public void put(CategoryCode catCode, int codePoint, TeXObject token)
+   {
+      if (codePoint >= 0 && codePoint < BMP_SIZE)
+      {
+         TeXObject[][] catPages = pages[catCode.ordinal()];
+
+         if (catPages == null)
+         {
+            catPages = new TeXObject[BMP_SIZE >> PAGE_SHIFT][];
+            pages[catCode.ordinal()] = catPages;
+         }
+
+         TeXObject[] page = catPages[codePoint >> PAGE_SHIFT];
+
+         if (page == null)
+         {
+            page = new TeXObject[PAGE_MASK+1];
+            catPages[codePoint >> PAGE_SHIFT] = page;
+         }
+
+         page[codePoint & PAGE_MASK] = token;
+      }
+      else
+      {
+         if (astral == null)
+         {
+            astral = new HashMap<Long,TeXObject>();
+         }
+
+         astral.put(getKey(catCode, codePoint), token);
+      }
+   }
+
+   /**
+    * Removes all cached tokens.
+    */
+   public void clear()
+   {
+      pages = new TeXObject[CATEGORY_COUNT][][];
+      astral = null;
+   }
+
+   private static Long getKey(CategoryCode catCode, int codePoint)
+   {
+      return Long.valueOf((((long)catCode.ordinal()) << 32) | codePoint);
+   }
+
+   private static final int BMP_SIZE = 0x10000;
+   private static final int PAGE_SHIFT = 8;
+   private static final int PAGE_MASK = 0xFF;
+   private static final int CATEGORY_COUNT = CategoryCode.values().length;
+
+   private TeXObject[][][] pages;
+   private HashMap<Long,TeXObject> astral;
+}
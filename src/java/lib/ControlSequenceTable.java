@@ -0,0 +1,177 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimaw-books.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib;
+
+import java.util.Arrays;
+
+/**
+ * Master table of the visible control sequences and registers.
+ * This caches the entries in the {@link TeXSettings} objects managed
+ * by {@link Scoping} so that a control sequence can be found without
+ * searching each scope. The table is indexed by the identifier
+ * assigned by {@link CsSymbolTable}.
+ *
+ * Each identifier has a stack of bindings, one for each scope level
+ * that has an entry for the name, with the innermost level at the
+ * top. The global scope is level 0 and the outermost local scope is
+ * level 1. The visible control sequence is at the top of the stack.
+ * A new binding is normally pushed onto the top of the stack, and
+ * ending a scope pops only the bindings made in that scope, so the
+ * cost is proportional to the number of changes rather than the
+ * depth of nesting. The <code>TeXSettings</code> objects are still
+ * the definitive record. This table is simply updated when they
+ * change.
+ */
+public class ControlSequenceTable
+{
+   public ControlSequenceTable()
+   {
+      bindings = new Binding[INITIAL_CAPACITY];
+   }
+
+   /**
+    * Gets the visible control sequence or register.
+    * @param id the name's identifier
+    * @return the control sequence or null if not found
+    */
+   public ControlSequence get(int id)
+   {
+      Binding binding = (id >= 0 && id < bindings.length ? bindings[id] : null);
+
+      return binding == null ? null : binding.cs;
+   }
+
+   /**
+    * Gets the level of the scope that provides the visible control
+    * sequence or register.
+    * @param id the name's identifier
+    * @return the level (0 for the global scope) or -1 if not found
+    */
+   public int getLevel(int id)
+   {
+      Binding binding = (id >= 0 && id < bindings.length ? bindings[id] : null);
+
+      return binding == null ? -1 : binding.level;
+   }
+
+   /**
+    * Gets the levels of the local scopes that have an entry for the
+    * given name, innermost first.
+    * @param id the name's identifier
+    * @return the local levels (may be empty)
+    */
+   public int[] getLocalLevels(int id)
+   {
+      int n = 0;
+
+      Binding binding = (id >= 0 && id < bindings.length ? bindings[id] : null);
+
+      for (Binding b = binding; b != null && b.level > 0; b = b.next)
+      {
+         n++;
+      }
+
+      int[] levels = new int[n];
+
+      n = 0;
+
+      for (Binding b = binding; b != null && b.level > 0; b = b.next)
+      {
+         levels[n++] = b.level;
+      }
+
+      return levels;
+   }
+
+   /**
+    * Sets the entry for the given name at the given scope level.
+    * @param id the name's identifier
+    * @param level the scope level
+    * @param cs the control sequence or register or null if the
+    * scope no longer has an entry for the name
+    */
+   public void set(int id, int level, ControlSequence cs)
+   {
+      if (id >= bindings.length)
+      {
+         if (cs == null)
+         {
+            return;
+         }
+
+         bindings = Arrays.copyOf(bindings,
+           Math.max(id+1, 2*bindings.length));
+      }
+
+      Binding prev = null;
+      Binding binding = bindings[id];
+
+      while (binding != null && binding.level > level)
+      {
+         prev = binding;
+         binding = binding.next;
+      }
+
+      if (binding != null && binding.level == level)
+      {
+         if (cs != null)
+         {
+            binding.cs = cs;
+            return;
+         }
+
+         binding = binding.next;
+      }
+      else if (cs != null)
+      {
+         binding = new Binding(cs, level, binding);
+      }
+      else
+      {
+         return;
+      }
+
+      if (prev == null)
+      {
+         bindings[id] = binding;
+      }
+      else
+      {
+         prev.next = binding;
+      }
+   }
+
+   private static class Binding
+   {
+      Binding(ControlSequence cs, int level, Binding next)
+      {
+         this.cs = cs;
+         this.level = level;
+         this.next = next;
+      }
+
+      ControlSequence cs;
+      int level;
+      Binding next;
+   }
+
+   private static final int INITIAL_CAPACITY = 1024;
+
+   private Binding[] bindings;
+}
@@ -0,0 +1,110 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimaw-books.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib;
+
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Symbol table that maps control sequence names to small integer
+ * identifiers. The identifiers are allocated sequentially from 0
+ * when a name is first encountered and are never reused, so they
+ * may be used as array indexes. Each {@link Scoping} object has its
+ * own table so the table is discarded along with the parser. Since
+ * control sequence references may be passed from one parser to
+ * another, an identifier is only meaningful with the table that
+ * allocated it.
+ */
+public class CsSymbolTable
+{
+   public CsSymbolTable()
+   {
+   }
+
+   /**
+    * Gets the identifier for the given control sequence name,
+    * allocating a new one if the name hasn't been encountered
+    * before.
+    * @param name the control sequence name (without the leading
+    * backslash)
+    * @return the identifier
+    */
+   public int getId(String name)
+   {
+      Integer id = ids.get(name);
+
+      if (id == null)
+      {
+         synchronized (names)
+         {
+            id = ids.get(name);
+
+            if (id == null)
+            {
+               id = Integer.valueOf(names.size());
+               names.add(name);
+               ids.put(name, id);
+            }
+         }
+      }
+
+      return id.intValue();
+   }
+
+   /**
+    * Gets the identifier for the given control sequence name
+    * without allocating a new one.
+    * @param name the control sequence name
+    * @return the identifier or -1 if the name hasn't been
+    * encountered
+    */
+   public int findId(String name)
+   {
+      Integer id = ids.get(name);
+
+      return id == null ? -1 : id.intValue();
+   }
+
+   /**
+    * Gets the control sequence name associated with the given
+    * identifier.
+    * @param id the identifier
+    * @return the name
+    * @throws ArrayIndexOutOfBoundsException if the identifier hasn't
+    * been allocated
+    */
+   public String getName(int id)
+   {
+      return names.get(id);
+   }
+
+   /**
+    * Gets the number of identifiers that have been allocated.
+    * @return the number of names in the table
+    */
+   public int size()
+   {
+      return names.size();
+   }
+
+   private final ConcurrentHashMap<String,Integer> ids
+     = new ConcurrentHashMap<String,Integer>();
+
+   private final Vector<String> names = new Vector<String>();
+}
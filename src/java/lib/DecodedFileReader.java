@@ -0,0 +1,298 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimaw-books.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib;
+
+import java.io.Reader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reader that decodes its entire input once and then reads from
+ * the decoded characters. This is used by {@link TeXReader} for
+ * files so that the per-character read doesn't have to go through
+ * layers of synchronized readers. Marking and resetting simply
+ * save and restore the current position, so there's no limit on
+ * the read ahead.
+ *
+ * As with <code>LineNumberReader</code>, line terminators (carriage
+ * return, line feed or carriage return followed by line feed) are
+ * compressed into a single line feed character. The positions of
+ * the line feeds are recorded when the input is decoded, so the line
+ * number is found with a binary search rather than being counted as
+ * each character is read.
+ *
+ * This class isn't synchronized.
+ */
+public class DecodedFileReader extends Reader
+{
+   /**
+    * Creates a new reader containing the entire contents of the
+    * given reader. The given reader is closed once it has been
+    * read.
+    * @param in the reader supplying the content
+    * @param sizeHint the expected number of characters (used to
+    * size the initial buffer) or 0 if unknown
+    * @throws IOException if an I/O error occurs
+    */
+   public DecodedFileReader(Reader in, long sizeHint)
+     throws IOException
+   {
+      int capacity = (int)Math.min(Math.max(sizeHint, 16), MAX_ARRAY_SIZE);
+
+      char[] block = new char[BLOCK_SIZE];
+
+      buffer = new char[capacity];
+      lineEnds = new int[16];
+
+      boolean pendingCR = false;
+
+      try
+      {
+         int n;
+
+         while ((n = in.read(block, 0, BLOCK_SIZE)) != -1)
+         {
+            for (int i = 0; i < n; i++)
+            {
+               char c = block[i];
+
+               if (c == '\n' && pendingCR)
+               {
+                  // already added as part of the CR
+                  pendingCR = false;
+                  continue;
+               }
+
+               pendingCR = (c == '\r');
+
+               if (pendingCR || c == '\n')
+               {
+                  addLineEnd(length);
+                  c = '\n';
+               }
+
+               if (length == buffer.length)
+               {
+                  buffer = Arrays.copyOf(buffer, grow(buffer.length));
+               }
+
+               buffer[length++] = c;
+            }
+         }
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+   private void addLineEnd(int index)
+   {
+      if (lineCount == lineEnds.length)
+      {
+         lineEnds = Arrays.copyOf(lineEnds, grow(lineEnds.length));
+      }
+
+      lineEnds[lineCount++] = index;
+   }
+
+   private static int grow(int size)
+   {
+      if (size >= MAX_ARRAY_SIZE)
+      {
+         throw new OutOfMemoryError("Input too large");
+      }
+
+      return (int)Math.min(2L*size, MAX_ARRAY_SIZE);
+   }
+
+   private void ensureOpen() throws IOException
+   {
+      if (closed)
+      {
+         throw new IOException("Stream closed");
+      }
+   }
+
+   /**
+    * Gets the current line number. As with
+    * <code>LineNumberReader</code>, this starts at 0 and is
+    * incremented each time a line terminator is read.
+    * @return the current line number
+    */
+   public int getLineNumber()
+   {
+      int idx = Arrays.binarySearch(lineEnds, 0, lineCount, pos);
+
+      // If the current position is a line end, that line end
+      // hasn't been read yet.
+      return idx >= 0 ? idx : -(idx+1);
+   }
+
+   /**
+    * Gets the current position.
+    * @return the index of the next character to be read
+    */
+   public int getPosition()
+   {
+      return pos;
+   }
+
+   /**
+    * Gets the total number of characters.
+    * @return the number of decoded characters (after line
+    * terminators have been compressed)
+    */
+   public int length()
+   {
+      return length;
+   }
+
+   /**
+    * Gets the decoded characters. This is still available after
+    * the reader has been closed.
+    * @return the decoded characters
+    */
+   public String getDecodedContent()
+   {
+      return new String(buffer, 0, length);
+   }
+
+   /**
+    * Gets the positions of the line terminators. This is still
+    * available after the reader has been closed.
+    * @return a new array containing the index of each line feed
+    */
+   public int[] getLineEnds()
+   {
+      return Arrays.copyOf(lineEnds, lineCount);
+   }
+
+   @Override
+   public int read() throws IOException
+   {
+      ensureOpen();
+
+      return pos < length ? buffer[pos++] : -1;
+   }
+
+   @Override
+   public int read(char[] cbuf, int off, int len) throws IOException
+   {
+      ensureOpen();
+
+      if (off < 0 || len < 0 || off + len > cbuf.length)
+      {
+         throw new IndexOutOfBoundsException();
+      }
+
+      if (len == 0)
+      {
+         return 0;
+      }
+
+      if (pos >= length)
+      {
+         return -1;
+      }
+
+      int n = Math.min(len, length-pos);
+
+      System.arraycopy(buffer, pos, cbuf, off, n);
+      pos += n;
+
+      return n;
+   }
+
+   @Override
+   public long skip(long n) throws IOException
+   {
+      ensureOpen();
+
+      if (n < 0L)
+      {
+         throw new IllegalArgumentException("skip value is negative");
+      }
+
+      int k = (int)Math.min(n, length-pos);
+
+      pos += k;
+
+      return k;
+   }
+
+   @Override
+   public boolean ready() throws IOException
+   {
+      ensureOpen();
+
+      return true;
+   }
+
+   @Override
+   public boolean markSupported()
+   {
+      return true;
+   }
+
+   /**
+    * Marks the current position. Since the entire content is held
+    * in memory, the read ahead limit is ignored.
+    * @param readAheadLimit ignored
+    * @throws IOException if the reader has been closed
+    */
+   @Override
+   public void mark(int readAheadLimit) throws IOException
+   {
+      ensureOpen();
+
+      markPos = pos;
+   }
+
+   @Override
+   public void reset() throws IOException
+   {
+      ensureOpen();
+
+      if (markPos < 0)
+      {
+         throw new IOException("Stream not marked");
+      }
+
+      pos = markPos;
+   }
+
+   @Override
+   public void close()
+   {
+      closed = true;
+   }
+
+   private static final int BLOCK_SIZE = 8192;
+   private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+   private char[] buffer;
+   private int length = 0;
+   private int pos = 0;
+   private int markPos = -1;
+   private boolean closed = false;
+
+   private int[] lineEnds;
+   private int lineCount = 0;
+}
@@ -0,0 +1,276 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimaw-books.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Vector;
+
+/**
+ * Application wrapper for parsers that run in a background thread,
+ * such as the bib worker parsers and the aux prefetch. The messages,
+ * warnings and errors are buffered so that they can be passed on to
+ * the real application from the thread that started the parse, in
+ * the place where they would have occurred if the file had been
+ * parsed there. Everything else is passed straight through.
+ */
+public class DeferredTeXApp implements TeXApp
+{
+   public DeferredTeXApp(TeXApp texApp)
+   {
+      this.texApp = texApp;
+   }
+
+   /**
+    * Passes the buffered messages, warnings and errors to the
+    * application in the order in which they occurred. This should
+    * be called from the thread that started the parse.
+    */
+   public void replay()
+   {
+      Vector<Deferred> list;
+
+      synchronized (buffer)
+      {
+         list = new Vector<Deferred>(buffer);
+         buffer.clear();
+      }
+
+      for (Deferred deferred : list)
+      {
+         switch (deferred.type)
+         {
+            case MESSAGE:
+               texApp.message(deferred.message);
+            break;
+            case WARNING:
+               texApp.warning(deferred.parser, deferred.message);
+            break;
+            case ERROR:
+               texApp.error(deferred.exception);
+            break;
+            case SUBSTITUTING:
+               texApp.substituting(deferred.parser, deferred.message,
+                 deferred.replacement);
+            break;
+         }
+      }
+   }
+
+   /**
+    * Discards the buffered messages, warnings and errors. Any that
+    * are subsequently issued are also discarded. This should be
+    * used if the background parse is no longer required.
+    */
+   public void discard()
+   {
+      synchronized (buffer)
+      {
+         discarded = true;
+         buffer.clear();
+      }
+   }
+
+   private void defer(Deferred deferred)
+   {
+      synchronized (buffer)
+      {
+         if (!discarded)
+         {
+            buffer.add(deferred);
+         }
+      }
+   }
+
+   @Override
+   public void message(String text)
+   {
+      defer(new Deferred(MESSAGE, null, text, null, null));
+   }
+
+   @Override
+   public void warning(TeXParser parser, String message)
+   {
+      defer(new Deferred(WARNING, parser, message, null, null));
+   }
+
+   @Override
+   public void error(Exception excpt)
+   {
+      defer(new Deferred(ERROR, null, null, null, excpt));
+   }
+
+   @Override
+   public void substituting(TeXParser parser, String original, String replacement)
+   {
+      defer(new Deferred(SUBSTITUTING, parser, original, replacement, null));
+   }
+
+   @Override
+   public String kpsewhich(String arg)
+     throws IOException,InterruptedException
+   {
+      return texApp.kpsewhich(arg);
+   }
+
+   @Override
+   public void epstopdf(File epsFile, File pdfFile)
+     throws IOException,InterruptedException
+   {
+      texApp.epstopdf(epsFile, pdfFile);
+   }
+
+   @Override
+   public void wmftoeps(File wmfFile, File epsFile)
+     throws IOException,InterruptedException
+   {
+      texApp.wmftoeps(wmfFile, epsFile);
+   }
+
+   @Override
+   public void convertimage(int inPage, String[] inOptions, File inFile,
+     String[] outOptions, File outFile)
+     throws IOException,InterruptedException
+   {
+      texApp.convertimage(inPage, inOptions, inFile, outOptions, outFile);
+   }
+
+   @Override
+   public String getMessage(String label, Object... params)
+   {
+      return texApp.getMessage(label, params);
+   }
+
+   @Override
+   public String requestUserInput(String message)
+     throws IOException
+   {
+      return texApp.requestUserInput(message);
+   }
+
+   @Override
+   public void progress(int percentage)
+   {
+      texApp.progress(percentage);
+   }
+
+   @Override
+   public void copyFile(File orgFile, File newFile)
+     throws IOException,InterruptedException
+   {
+      texApp.copyFile(orgFile, newFile);
+   }
+
+   @Override
+   public boolean isReadAccessAllowed(TeXPath path)
+   {
+      return texApp.isReadAccessAllowed(path);
+   }
+
+   @Override
+   public boolean isReadAccessAllowed(File file)
+   {
+      return texApp.isReadAccessAllowed(file);
+   }
+
+   @Override
+   public boolean isWriteAccessAllowed(TeXPath path)
+   {
+      return texApp.isWriteAccessAllowed(path);
+   }
+
+   @Override
+   public boolean isWriteAccessAllowed(File file)
+   {
+      return texApp.isWriteAccessAllowed(file);
+   }
+
+   @Override
+   public Charset getDefaultCharset()
+   {
+      return texApp.getDefaultCharset();
+   }
+
+   @Override
+   public Locale getDefaultLocale()
+   {
+      return texApp.getDefaultLocale();
+   }
+
+   @Override
+   public Locale getDefaultLocale(Locale.Category category)
+   {
+      return texApp.getDefaultLocale(category);
+   }
+
+   @Override
+   public BufferedReader createBufferedReader(Path path,
+     Charset charset) throws IOException, SecurityException
+   {
+      return texApp.createBufferedReader(path, charset);
+   }
+
+   @Override
+   public BufferedWriter createBufferedWriter(Path path,
+     Charset charset) throws IOException, SecurityException
+   {
+      return texApp.createBufferedWriter(path, charset);
+   }
+
+   @Override
+   public String getApplicationName()
+   {
+      return texApp.getApplicationName();
+   }
+
+   @Override
+   public String getApplicationVersion()
+   {
+      return texApp.getApplicationVersion();
+   }
+
+   private static class Deferred
+   {
+      Deferred(int type, TeXParser parser, String message,
+        String replacement, Exception exception)
+      {
+         this.type = type;
+         this.parser = parser;
+         this.message = message;
+         this.replacement = replacement;
+         this.exception = exception;
+      }
+
+      final int type;
+      final TeXParser parser;
+      final String message, replacement;
+      final Exception exception;
+   }
+
+   private static final int MESSAGE=0, WARNING=1, ERROR=2, SUBSTITUTING=3;
+
+   private final TeXApp texApp;
+   private final Vector<Deferred> buffer = new Vector<Deferred>();
+   private boolean discarded = false;
+}
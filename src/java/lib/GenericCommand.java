@@ -203,8 +203,6 @@ public class GenericCommand extends Command
          }
       }
 
-      TeXObjectList stack = new TeXObjectList(definition.size());
-
       if (n != numArgs)
       {
          throw new TeXSyntaxException(parser,
@@ -212,25 +210,7 @@ public class GenericCommand extends Command
            toString(parser));
       }
 
-      for (TeXObject obj : definition)
-      {
-         if (obj instanceof Param)
-         {
-            stack.add(args[((Param)obj).getDigit()-1]);
-         }
-         else if (obj instanceof DoubleParam)
-         {
-            stack.add(((DoubleParam)obj).next());
-         }
-         else if (obj instanceof TeXObjectList)
-         {
-            stack.add(replaceList(parser, ((TeXObjectList)obj), args));
-         }
-         else
-         {
-            stack.add(obj);
-         }
-      }
+      TeXObjectList stack = getTemplate().expand(args, false);
 
       if (parser.isDebugMode(TeXParser.DEBUG_EXPANSION_ONCE_LIST))
       {
@@ -294,8 +274,6 @@ public class GenericCommand extends Command
          }
       }
 
-      TeXObjectList stack = new TeXObjectList(definition.size());
-
       if (n != numArgs)
       {
          throw new TeXSyntaxException(parser,
@@ -303,25 +281,7 @@ public class GenericCommand extends Command
            toString(parser));
       }
 
-      for (TeXObject obj : definition)
-      {
-         if (obj instanceof Param)
-         {
-            stack.add(args[((Param)obj).getDigit()-1]);
-         }
-         else if (obj instanceof DoubleParam)
-         {
-            stack.add(((DoubleParam)obj).next());
-         }
-         else if (obj instanceof TeXObjectList)
-         {
-            stack.add(replaceList(parser, ((TeXObjectList)obj), args));
-         }
-         else
-         {
-            stack.add(obj);
-         }
-      }
+      TeXObjectList stack = getTemplate().expand(args, false);
 
       if (parser.isDebugMode(TeXParser.DEBUG_EXPANSION_ONCE_LIST))
       {
@@ -336,6 +296,48 @@ public class GenericCommand extends Command
       return stack;
    }
 
+   /**
+    * Gets the compiled template for this command's definition. The
+    * template is compiled the first time it's needed and recompiled
+    * if the definition has since been modified.
+    * @return the template
+    */
+   protected MacroTemplate getTemplate()
+   {
+      MacroTemplate t = template;
+
+      if (t == null || !t.isCurrent())
+      {
+         t = new MacroTemplate(definition);
+         template = t;
+      }
+
+      return t;
+   }
+
+   /**
+    * Expands this command's definition with the given arguments
+    * using the compiled template.
+    * @param args the arguments (may be null if there are none)
+    * @param cloneTokens true if each token and argument should be
+    * cloned
+    * @return the replacement text or null if the definition
+    * references a parameter that doesn't have a corresponding
+    * argument
+    */
+   protected TeXObjectList expandTemplate(TeXObject[] args,
+     boolean cloneTokens)
+   {
+      MacroTemplate t = getTemplate();
+
+      if (t.getMaxParam() > (args == null ? 0 : args.length))
+      {
+         return null;
+      }
+
+      return t.expand(args, cloneTokens);
+   }
+
    protected TeXObject replaceList(TeXParser parser,
      TeXObjectList list, TeXObject[] args)
    {
@@ -458,4 +460,5 @@ public class GenericCommand extends Command
    }
 
    private TeXObjectList definition;
+   private MacroTemplate template = null;
 }
@@ -0,0 +1,1016 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimaw-books.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib;
+
+import java.util.Vector;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.ConcurrentModificationException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A vector that keeps free space at both ends of its array.
+ * The parser treats {@link TeXObjectList} as a stack, with the
+ * top of the stack at index 0, so items are frequently removed
+ * from or inserted at the start of the list. With
+ * <code>java.util.Vector</code> each of those operations has to
+ * shift the entire array. This class stores the elements in the
+ * region starting at a head index, so removing or inserting
+ * at the start (or end) is normally just an index change. Insertions
+ * and removals elsewhere shift whichever side of the array is
+ * shorter. When there's no room on the required side, the elements
+ * are recentred (or the array is enlarged) so that there's free space
+ * at both ends.
+ *
+ * This class is still a <code>Vector</code> so that existing code
+ * that uses <code>TeXObjectList</code> (or any other subclass) as
+ * a <code>Vector</code> or <code>List</code> will still work.
+ * However, the storage inherited from <code>Vector</code> isn't used
+ * and the methods aren't synchronized. Subclasses must not access the
+ * protected <code>elementData</code> or <code>elementCount</code>
+ * fields directly (use the public methods instead). Subclasses that
+ * override any of the list methods should call the corresponding
+ * <code>super</code> method as usual.
+ */
+public class HeadIndexedVector<E> extends Vector<E>
+{
+   public HeadIndexedVector()
+   {
+      this(DEFAULT_CAPACITY);
+   }
+
+   public HeadIndexedVector(int capacity)
+   {
+      super(0);
+
+      if (capacity < 0)
+      {
+         throw new IllegalArgumentException("Illegal capacity: "+capacity);
+      }
+
+      data = new Object[capacity];
+      head = 0;
+      count = 0;
+   }
+
+   public HeadIndexedVector(Collection<? extends E> collection)
+   {
+      this(collection.size());
+
+      Object[] array = collection.toArray();
+
+      System.arraycopy(array, 0, data, 0, array.length);
+      head = 0;
+      count = array.length;
+   }
+
+   @SuppressWarnings("unchecked")
+   private E element(int index)
+   {
+      return (E)data[head+index];
+   }
+
+   private void checkIndex(int index)
+   {
+      if (index < 0 || index >= count)
+      {
+         throw new ArrayIndexOutOfBoundsException(
+          "Index "+index+" out of bounds for length "+count);
+      }
+   }
+
+   private void checkInsertIndex(int index)
+   {
+      if (index < 0 || index > count)
+      {
+         throw new ArrayIndexOutOfBoundsException(
+          "Index "+index+" out of bounds for length "+count);
+      }
+   }
+
+   /**
+    * Opens a gap of the given length at the given index. The
+    * elements in the gap are left unset, and the element count
+    * includes the gap.
+    * @param index the index of the gap
+    * @param n the length of the gap
+    */
+   private void openGap(int index, int n)
+   {
+      modCount++;
+      version++;
+
+      if (n == 0)
+      {
+         return;
+      }
+
+      int rightLen = count-index;
+
+      // Shift whichever side is shorter, if there's room.
+
+      if (index <= rightLen && head >= n)
+      {
+         System.arraycopy(data, head, data, head-n, index);
+         head -= n;
+      }
+      else if (index > rightLen && head+count+n <= data.length)
+      {
+         System.arraycopy(data, head+index, data, head+index+n, rightLen);
+      }
+      else
+      {
+         // Not enough space on the required side. Either recentre
+         // or reallocate, leaving free space at both ends.
+
+         int newCount = count+n;
+         Object[] newData = data;
+
+         if (2*newCount > data.length)
+         {
+            newData = new Object[Math.max(2*data.length, newCount+DEFAULT_CAPACITY)];
+         }
+
+         int newHead = (newData.length-newCount)/2;
+
+         if (newData == data)
+         {
+            // Move within the same array. The ranges overlap so move
+            // the left and right parts in the appropriate order.
+
+            if (newHead < head)
+            {
+               System.arraycopy(data, head, data, newHead, index);
+               System.arraycopy(data, head+index, data, newHead+index+n, rightLen);
+            }
+            else
+            {
+               System.arraycopy(data, head+index, data, newHead+index+n, rightLen);
+               System.arraycopy(data, head, data, newHead, index);
+            }
+
+            clear(0, newHead);
+            clear(newHead+newCount, data.length);
+         }
+         else
+         {
+            System.arraycopy(data, head, newData, newHead, index);
+            System.arraycopy(data, head+index, newData, newHead+index+n, rightLen);
+            data = newData;
+         }
+
+         head = newHead;
+      }
+
+      count += n;
+   }
+
+   /**
+    * Removes the elements from index <code>from</code> (inclusive)
+    * to index <code>to</code> (exclusive).
+    */
+   private void closeGap(int from, int to)
+   {
+      modCount++;
+      version++;
+
+      int n = to-from;
+
+      if (n == 0)
+      {
+         return;
+      }
+
+      int rightLen = count-to;
+
+      if (from < rightLen)
+      {
+         System.arraycopy(data, head, data, head+n, from);
+         clear(head, head+n);
+         head += n;
+      }
+      else
+      {
+         System.arraycopy(data, head+to, data, head+from, rightLen);
+         clear(head+count-n, head+count);
+      }
+
+      count -= n;
+
+      if (count == 0)
+      {
+         head = 0;
+      }
+   }
+
+   private void clear(int from, int to)
+   {
+      for (int i = from; i < to; i++)
+      {
+         data[i] = null;
+      }
+   }
+
+   /**
+    * Gets the version of this list's content. The version changes
+    * whenever an element is added, removed or replaced, so it can be
+    * used to check whether information derived from the list is
+    * still current. (Unlike the modification count, the version also
+    * changes when an element is replaced.)
+    * @return the content version
+    */
+   public int getVersion()
+   {
+      return version;
+   }
+
+   @Override
+   public int size()
+   {
+      return count;
+   }
+
+   @Override
+   public boolean isEmpty()
+   {
+      return count == 0;
+   }
+
+   @Override
+   public int capacity()
+   {
+      return data.length;
+   }
+
+   @Override
+   public void ensureCapacity(int minCapacity)
+   {
+      if (minCapacity > data.length)
+      {
+         modCount++;
+         Object[] newData = new Object[minCapacity];
+         int newHead = (minCapacity-count)/2;
+         System.arraycopy(data, head, newData, newHead, count);
+         data = newData;
+         head = newHead;
+      }
+   }
+
+   @Override
+   public void trimToSize()
+   {
+      modCount++;
+
+      if (count < data.length)
+      {
+         data = Arrays.copyOfRange(data, head, head+count);
+         head = 0;
+      }
+   }
+
+   @Override
+   public void setSize(int newSize)
+   {
+      if (newSize < 0)
+      {
+         throw new ArrayIndexOutOfBoundsException(newSize);
+      }
+
+      if (newSize > count)
+      {
+         int oldSize = count;
+         openGap(oldSize, newSize-oldSize);
+         clear(head+oldSize, head+newSize);
+      }
+      else
+      {
+         closeGap(newSize, count);
+      }
+   }
+
+   @Override
+   public E get(int index)
+   {
+      checkIndex(index);
+      return element(index);
+   }
+
+   @Override
+   public E elementAt(int index)
+   {
+      return get(index);
+   }
+
+   @Override
+   public E firstElement()
+   {
+      if (count == 0)
+      {
+         throw new NoSuchElementException();
+      }
+
+      return element(0);
+   }
+
+   @Override
+   public E lastElement()
+   {
+      if (count == 0)
+      {
+         throw new NoSuchElementException();
+      }
+
+      return element(count-1);
+   }
+
+   @Override
+   public E set(int index, E element)
+   {
+      checkIndex(index);
+      E old = element(index);
+      data[head+index] = element;
+      version++;
+      return old;
+   }
+
+   @Override
+   public void setElementAt(E element, int index)
+   {
+      set(index, element);
+   }
+
+   @Override
+   public boolean add(E element)
+   {
+      openGap(count, 1);
+      data[head+count-1] = element;
+      return true;
+   }
+
+   @Override
+   public void addElement(E element)
+   {
+      add(element);
+   }
+
+   @Override
+   public void add(int index, E element)
+   {
+      checkInsertIndex(index);
+      openGap(index, 1);
+      data[head+index] = element;
+   }
+
+   @Override
+   public void insertElementAt(E element, int index)
+   {
+      add(index, element);
+   }
+
+   @Override
+   public boolean addAll(Collection<? extends E> collection)
+   {
+      return addAll(count, collection);
+   }
+
+   @Override
+   public boolean addAll(int index, Collection<? extends E> collection)
+   {
+      checkInsertIndex(index);
+
+      Object[] array = collection.toArray();
+
+      openGap(index, array.length);
+      System.arraycopy(array, 0, data, head+index, array.length);
+
+      return array.length > 0;
+   }
+
+   @Override
+   public E remove(int index)
+   {
+      checkIndex(index);
+      E old = element(index);
+      closeGap(index, index+1);
+      return old;
+   }
+
+   @Override
+   public void removeElementAt(int index)
+   {
+      remove(index);
+   }
+
+   @Override
+   public boolean remove(Object obj)
+   {
+      int index = indexOf(obj);
+
+      if (index < 0)
+      {
+         return false;
+      }
+
+      closeGap(index, index+1);
+
+      return true;
+   }
+
+   @Override
+   public boolean removeElement(Object obj)
+   {
+      return remove(obj);
+   }
+
+   @Override
+   protected void removeRange(int fromIndex, int toIndex)
+   {
+      if (fromIndex < 0 || toIndex > count || fromIndex > toIndex)
+      {
+         throw new IndexOutOfBoundsException();
+      }
+
+      closeGap(fromIndex, toIndex);
+   }
+
+   @Override
+   public void clear()
+   {
+      modCount++;
+      version++;
+      clear(head, head+count);
+      count = 0;
+      head = 0;
+   }
+
+   @Override
+   public void removeAllElements()
+   {
+      clear();
+   }
+
+   @Override
+   public boolean removeAll(Collection<?> collection)
+   {
+      if (collection == null)
+      {
+         throw new NullPointerException();
+      }
+
+      return removeIf(e -> collection.contains(e));
+   }
+
+   @Override
+   public boolean retainAll(Collection<?> collection)
+   {
+      if (collection == null)
+      {
+         throw new NullPointerException();
+      }
+
+      return removeIf(e -> !collection.contains(e));
+   }
+
+   @Override
+   public boolean removeIf(Predicate<? super E> filter)
+   {
+      if (filter == null)
+      {
+         throw new NullPointerException();
+      }
+
+      int expectedModCount = modCount;
+      int j = 0;
+
+      for (int i = 0; i < count; i++)
+      {
+         E element = element(i);
+
+         if (!filter.test(element))
+         {
+            data[head+j] = element;
+            j++;
+         }
+      }
+
+      if (modCount != expectedModCount)
+      {
+         throw new ConcurrentModificationException();
+      }
+
+      if (j == count)
+      {
+         return false;
+      }
+
+      clear(head+j, head+count);
+      count = j;
+      modCount++;
+      version++;
+
+      return true;
+   }
+
+   @Override
+   public int indexOf(Object obj)
+   {
+      return indexOf(obj, 0);
+   }
+
+   @Override
+   public int indexOf(Object obj, int index)
+   {
+      for (int i = index; i < count; i++)
+      {
+         if (obj == null ? data[head+i] == null : obj.equals(data[head+i]))
+         {
+            return i;
+         }
+      }
+
+      return -1;
+   }
+
+   @Override
+   public int lastIndexOf(Object obj)
+   {
+      return lastIndexOf(obj, count-1);
+   }
+
+   @Override
+   public int lastIndexOf(Object obj, int index)
+   {
+      if (index >= count)
+      {
+         throw new IndexOutOfBoundsException(index + " >= "+ count);
+      }
+
+      for (int i = index; i >= 0; i--)
+      {
+         if (obj == null ? data[head+i] == null : obj.equals(data[head+i]))
+         {
+            return i;
+         }
+      }
+
+      return -1;
+   }
+
+   @Override
+   public boolean contains(Object obj)
+   {
+      return indexOf(obj, 0) >= 0;
+   }
+
+   @Override
+   public void copyInto(Object[] array)
+   {
+      System.arraycopy(data, head, array, 0, count);
+   }
+
+   @Override
+   public Object[] toArray()
+   {
+      return Arrays.copyOfRange(data, head, head+count);
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public <T> T[] toArray(T[] array)
+   {
+      if (array.length < count)
+      {
+         return (T[])Arrays.copyOfRange(data, head, head+count, array.getClass());
+      }
+
+      System.arraycopy(data, head, array, 0, count);
+
+      if (array.length > count)
+      {
+         array[count] = null;
+      }
+
+      return array;
+   }
+
+   @Override
+   public void forEach(Consumer<? super E> action)
+   {
+      if (action == null)
+      {
+         throw new NullPointerException();
+      }
+
+      int expectedModCount = modCount;
+
+      for (int i = 0; i < count && modCount == expectedModCount; i++)
+      {
+         action.accept(element(i));
+      }
+
+      if (modCount != expectedModCount)
+      {
+         throw new ConcurrentModificationException();
+      }
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public void replaceAll(UnaryOperator<E> operator)
+   {
+      if (operator == null)
+      {
+         throw new NullPointerException();
+      }
+
+      int expectedModCount = modCount;
+
+      for (int i = 0; i < count; i++)
+      {
+         data[head+i] = operator.apply(element(i));
+      }
+
+      if (modCount != expectedModCount)
+      {
+         throw new ConcurrentModificationException();
+      }
+
+      modCount++;
+      version++;
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public void sort(Comparator<? super E> comparator)
+   {
+      int expectedModCount = modCount;
+
+      Arrays.sort((E[])data, head, head+count, comparator);
+
+      if (modCount != expectedModCount)
+      {
+         throw new ConcurrentModificationException();
+      }
+
+      modCount++;
+      version++;
+   }
+
+   @Override
+   public Enumeration<E> elements()
+   {
+      return new Enumeration<E>()
+      {
+         public boolean hasMoreElements()
+         {
+            return index < count;
+         }
+
+         public E nextElement()
+         {
+            if (index < count)
+            {
+               return element(index++);
+            }
+
+            throw new NoSuchElementException();
+         }
+
+         int index = 0;
+      };
+   }
+
+   @Override
+   public Iterator<E> iterator()
+   {
+      return new Itr(0);
+   }
+
+   /**
+    * Gets a spliterator over the elements. This has to be
+    * overridden since the inherited version reads the unused
+    * <code>elementData</code> array, which would make
+    * <code>stream()</code> always empty.
+    */
+   @Override
+   public Spliterator<E> spliterator()
+   {
+      return new Split(0, -1, 0);
+   }
+
+   @Override
+   public ListIterator<E> listIterator()
+   {
+      return new Itr(0);
+   }
+
+   @Override
+   public ListIterator<E> listIterator(int index)
+   {
+      if (index < 0 || index > count)
+      {
+         throw new IndexOutOfBoundsException("Index: "+index);
+      }
+
+      return new Itr(index);
+   }
+
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (obj == this)
+      {
+         return true;
+      }
+
+      if (!(obj instanceof List))
+      {
+         return false;
+      }
+
+      List<?> list = (List<?>)obj;
+
+      if (list.size() != count)
+      {
+         return false;
+      }
+
+      Iterator<?> it = list.iterator();
+
+      for (int i = 0; i < count; i++)
+      {
+         Object other = it.next();
+         Object element = data[head+i];
+
+         if (!(element == null ? other == null : element.equals(other)))
+         {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   @Override
+   public int hashCode()
+   {
+      int hashCode = 1;
+
+      for (int i = 0; i < count; i++)
+      {
+         Object element = data[head+i];
+         hashCode = 31*hashCode + (element == null ? 0 : element.hashCode());
+      }
+
+      return hashCode;
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public Object clone()
+   {
+      HeadIndexedVector<E> copy = (HeadIndexedVector<E>)super.clone();
+      copy.data = Arrays.copyOf(data, data.length);
+
+      return copy;
+   }
+
+   private class Itr implements ListIterator<E>
+   {
+      Itr(int index)
+      {
+         cursor = index;
+      }
+
+      public boolean hasNext()
+      {
+         return cursor < count;
+      }
+
+      public E next()
+      {
+         checkForComodification();
+
+         if (cursor >= count)
+         {
+            throw new NoSuchElementException();
+         }
+
+         lastRet = cursor;
+         cursor++;
+
+         return element(lastRet);
+      }
+
+      public boolean hasPrevious()
+      {
+         return cursor > 0;
+      }
+
+      public E previous()
+      {
+         checkForComodification();
+
+         if (cursor <= 0)
+         {
+            throw new NoSuchElementException();
+         }
+
+         cursor--;
+         lastRet = cursor;
+
+         return element(lastRet);
+      }
+
+      public int nextIndex()
+      {
+         return cursor;
+      }
+
+      public int previousIndex()
+      {
+         return cursor-1;
+      }
+
+      public void remove()
+      {
+         if (lastRet == -1)
+         {
+            throw new IllegalStateException();
+         }
+
+         checkForComodification();
+
+         HeadIndexedVector.this.remove(lastRet);
+         cursor = lastRet;
+         lastRet = -1;
+         expectedModCount = modCount;
+      }
+
+      public void set(E element)
+      {
+         if (lastRet == -1)
+         {
+            throw new IllegalStateException();
+         }
+
+         checkForComodification();
+
+         HeadIndexedVector.this.set(lastRet, element);
+      }
+
+      public void add(E element)
+      {
+         checkForComodification();
+
+         HeadIndexedVector.this.add(cursor, element);
+         cursor++;
+         lastRet = -1;
+         expectedModCount = modCount;
+      }
+
+      final void checkForComodification()
+      {
+         if (modCount != expectedModCount)
+         {
+            throw new ConcurrentModificationException();
+         }
+      }
+
+      int cursor;
+      int lastRet = -1;
+      int expectedModCount = modCount;
+   }
+
+   /**
+    * Index-based spliterator. The fence (end index) is bound when
+    * the spliterator is first used.
+    */
+   private class Split implements Spliterator<E>
+   {
+      Split(int index, int fence, int expectedModCount)
+      {
+         this.index = index;
+         this.fence = fence;
+         this.expectedModCount = expectedModCount;
+      }
+
+      private int getFence()
+      {
+         if (fence < 0)
+         {
+            expectedModCount = modCount;
+            fence = count;
+         }
+
+         return fence;
+      }
+
+      public Spliterator<E> trySplit()
+      {
+         int hi = getFence();
+         int lo = index;
+         int mid = (lo + hi) >>> 1;
+
+         if (lo >= mid)
+         {
+            return null;
+         }
+
+         index = mid;
+
+         return new Split(lo, mid, expectedModCount);
+      }
+
+      public boolean tryAdvance(Consumer<? super E> action)
+      {
+         if (action == null)
+         {
+            throw new NullPointerException();
+         }
+
+         int hi = getFence();
+
+         if (index >= hi)
+         {
+            return false;
+         }
+
+         checkForComodification();
+
+         action.accept(element(index++));
+
+         return true;
+      }
+
+      public void forEachRemaining(Consumer<? super E> action)
+      {
+         if (action == null)
+         {
+            throw new NullPointerException();
+         }
+
+         int hi = getFence();
+
+         while (index < hi)
+         {
+            checkForComodification();
+
+            action.accept(element(index++));
+         }
+
+         checkForComodification();
+      }
+
+      public long estimateSize()
+      {
+         return getFence() - index;
+      }
+
+      public int characteristics()
+      {
+         return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+      }
+
+      final void checkForComodification()
+      {
+         if (modCount != expectedModCount)
+         {
+            throw new ConcurrentModificationException();
+         }
+      }
+
+      int index, fence, expectedModCount;
+   }
+
+   private static final int DEFAULT_CAPACITY=10;
+
+   private Object[] data;
+   private int head, count;
+   private int version = 0;
+}
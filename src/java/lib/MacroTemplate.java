@@ -0,0 +1,186 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimaw-books.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib;
+
+/**
+ * Precompiled form of a macro's replacement text. Each list in the
+ * definition is flattened into an array of tokens with a parallel
+ * array identifying the parameter slots, double parameters and
+ * nested lists, so that expanding the macro doesn't need to test
+ * the class of each token.
+ *
+ * The template records the content version of each list it was
+ * compiled from (see {@link HeadIndexedVector#getVersion()}). If the
+ * definition is subsequently modified, {@link #isCurrent()} returns
+ * false and the template should be recompiled.
+ *
+ * Templates are immutable, so they may be shared between threads.
+ */
+public class MacroTemplate
+{
+   /**
+    * Compiles the given definition.
+    * @param definition the macro's replacement text
+    */
+   public MacroTemplate(TeXObjectList definition)
+   {
+      source = definition;
+      version = definition.getVersion();
+
+      int n = definition.size();
+
+      tokens = new TeXObject[n];
+      kinds = new byte[n];
+
+      MacroTemplate[] lists = null;
+      int maxDigit = 0;
+
+      for (int i = 0; i < n; i++)
+      {
+         TeXObject obj = definition.get(i);
+
+         tokens[i] = obj;
+
+         if (obj instanceof Param)
+         {
+            kinds[i] = PARAM;
+
+            maxDigit = Math.max(maxDigit, ((Param)obj).getDigit());
+         }
+         else if (obj instanceof DoubleParam)
+         {
+            kinds[i] = DOUBLE_PARAM;
+         }
+         else if (obj instanceof TeXObjectList)
+         {
+            kinds[i] = LIST;
+
+            if (lists == null)
+            {
+               lists = new MacroTemplate[n];
+            }
+
+            lists[i] = new MacroTemplate((TeXObjectList)obj);
+
+            maxDigit = Math.max(maxDigit, lists[i].maxParam);
+         }
+         else
+         {
+            kinds[i] = LITERAL;
+         }
+      }
+
+      subTemplates = lists;
+      maxParam = maxDigit;
+   }
+
+   /**
+    * Checks if none of the lists that this template was compiled
+    * from have been modified since.
+    * @return true if the template is still current
+    */
+   public boolean isCurrent()
+   {
+      if (source.getVersion() != version)
+      {
+         return false;
+      }
+
+      if (subTemplates != null)
+      {
+         for (int i = 0; i < subTemplates.length; i++)
+         {
+            if (subTemplates[i] != null && !subTemplates[i].isCurrent())
+            {
+               return false;
+            }
+         }
+      }
+
+      return true;
+   }
+
+   /**
+    * Gets the highest parameter number referenced in the template.
+    * @return the highest parameter number or 0 if there are no
+    * parameters
+    */
+   public int getMaxParam()
+   {
+      return maxParam;
+   }
+
+   /**
+    * Expands the template. The top level of the result is a plain
+    * {@link TeXObjectList}. Each nested list is recreated using its
+    * {@link TeXObjectList#createList()} method. Parameter slots
+    * are filled with the corresponding argument. If
+    * <code>cloneTokens</code> is true, each token and argument is
+    * cloned, otherwise they're shared with the definition and argument
+    * array.
+    * @param args the arguments (may be null if there are no
+    * parameters)
+    * @param cloneTokens true if the tokens should be cloned
+    * @return the replacement
+    */
+   public TeXObjectList expand(TeXObject[] args, boolean cloneTokens)
+   {
+      TeXObjectList list = new TeXObjectList(Math.max(1, tokens.length));
+
+      fill(list, args, cloneTokens);
+
+      return list;
+   }
+
+   private void fill(TeXObjectList list, TeXObject[] args, boolean cloneTokens)
+   {
+      for (int i = 0; i < tokens.length; i++)
+      {
+         TeXObject obj;
+
+         switch (kinds[i])
+         {
+            case PARAM:
+               obj = args[((Param)tokens[i]).getDigit()-1];
+            break;
+            case DOUBLE_PARAM:
+               obj = ((DoubleParam)tokens[i]).next();
+            break;
+            case LIST:
+               TeXObjectList subList = ((TeXObjectList)tokens[i]).createList();
+               subTemplates[i].fill(subList, args, cloneTokens);
+               list.add(subList);
+            continue;
+            default:
+               obj = tokens[i];
+         }
+
+         list.add(cloneTokens ? (TeXObject)obj.clone() : obj);
+      }
+   }
+
+   private static final byte LITERAL=0, PARAM=1, DOUBLE_PARAM=2, LIST=3;
+
+   private final TeXObjectList source;
+   private final int version;
+   private final TeXObject[] tokens;
+   private final byte[] kinds;
+   private final MacroTemplate[] subTemplates;
+   private final int maxParam;
+}
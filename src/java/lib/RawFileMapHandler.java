@@ -0,0 +1,59 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimaw-books.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib;
+
+import java.io.IOException;
+
+/**
+ * A FileMapHandler that can process the characters of each line
+ * instead of a list of tokens. This avoids creating a token for
+ * every character in the file when the handler only needs the
+ * characters.
+ */
+public interface RawFileMapHandler extends FileMapHandler
+{
+   /**
+     Determines whether TeXParser.fileMap(TeXPath,FileMapType,FileMapHandler)
+     should use processRawLine instead of processLine. This is only
+     called for FileMapType.VERBATIM and
+     FileMapType.VERBATIM_EXCEPT_ESC_SYM.
+     @param parser the calling parser
+     @param mapType how the file should be parsed
+     @return true if the raw lines should be used
+    */
+   public boolean isRawLineSupported(TeXParser parser, FileMapType mapType);
+
+   /**
+     Handler function used by TeXParser.fileMap(TeXPath,FileMapType,FileMapHandler)
+     to process each line of the file, if isRawLineSupported
+     returned true. The line doesn't include the line break
+     except with FileMapType.VERBATIM_EXCEPT_ESC_SYM where an escape
+     character occurs at the end of the line. In that case, the line
+     break characters follow the escape character (and mark the end
+     of the line). If the escape character is at the end of the
+     file, it's the last character of the line.
+     Parsing can be prematurely stopped by throwing EOFException.
+     @param parser the calling parser
+     @param line the characters in the line
+     @param lineNumber the number of lines read so far
+    */
+   public void processRawLine(TeXParser parser, CharSequence line,
+      int lineNumber)
+      throws IOException;
+}
@@ -42,6 +42,11 @@ public class Scoping
       scopingList = new Vector<TeXSettings>();
 
       globalSettings = new TeXSettings(parser);
+      globalSettings.scoping = this;
+
+      catCodeTable = new CategoryCodeTable();
+      symbols = new CsSymbolTable();
+      csTable = new ControlSequenceTable();
    }
 
    /**
@@ -53,8 +58,11 @@ public class Scoping
    public TeXSettings startGroup()
    {
       TeXSettings settings = new TeXSettings(parser);
+      settings.scoping = this;
 
       scopingList.add(settings);
+      settings.scopeLevel = scopingList.size();
+      catCodeTable.startGroup();
 
       if (parser.isDebugMode(TeXParser.DEBUG_SETTINGS))
       {
@@ -81,6 +89,16 @@ public class Scoping
       }
 
       TeXSettings settings = scopingList.remove(scopingList.size()-1);
+      settings.scoping = null;
+      catCodeTable.endGroup();
+
+      if (settings.hasControlSequences())
+      {
+         for (String csname : settings.getControlSequenceNames())
+         {
+            csTable.set(symbols.getId(csname), settings.scopeLevel, null);
+         }
+      }
 
       if (parser.isDebugMode(TeXParser.DEBUG_SETTINGS))
       {
@@ -92,6 +110,28 @@ public class Scoping
       return settings;
    }
 
+   /**
+    * Called by a {@link TeXSettings} object belonging to this
+    * scoping when its entry for the given name has changed.
+    * @param settings the settings that have changed
+    * @param csname the control sequence name
+    */
+   void controlSequenceChanged(TeXSettings settings, String csname)
+   {
+      csTable.set(symbols.getId(csname), settings.scopeLevel,
+        settings.getControlSequence(csname));
+   }
+
+   /**
+    * Gets the local scope at the given level.
+    * @param level the level (1 for the outermost local scope)
+    * @return the local scope
+    */
+   private TeXSettings getLocalSettings(int level)
+   {
+      return scopingList.get(level-1);
+   }
+
    /**
     * Gets the current settings.
     * @return the current settings or the global settings if no
@@ -126,21 +166,9 @@ public class Scoping
     */
    public boolean isControlSequenceDefined(String csname)
    {
-      for (int i = scopingList.size()-1; i >= 0; i--)
-      {
-         ControlSequence cs = scopingList.get(i).getControlSequence(csname);
+      ControlSequence cs = csTable.get(symbols.findId(csname));
 
-         if (cs instanceof Undefined)
-         {
-            return false;
-         }
-         else if (cs != null)
-         {
-            return true;
-         }
-      }
-
-      return globalSettings.isDefinedInCurrentScope(csname);
+      return cs != null && !(cs instanceof Undefined);
    }
 
    /**
@@ -172,23 +200,11 @@ public class Scoping
          }
       }
 
-      for (int i = scopingList.size()-1; i >= 0; i--)
-      {
-         TeXSettings settings = scopingList.get(i);
-
-         settings.removeControlSequence(csname);
-
-         if (endname != null)
-         {
-            settings.removeControlSequence(endname);
-         }
-      }
-
-      globalSettings.removeControlSequence(csname);
+      removeControlSequence(csname);
 
       if (endname != null)
       {
-         globalSettings.removeControlSequence(endname);
+         removeControlSequence(endname);
       }
    }
 
@@ -204,11 +220,11 @@ public class Scoping
    {
       ControlSequence controlSeq = null;
 
-      for (int i = scopingList.size()-1; i >= 0; i--)
-      {
-         TeXSettings settings = scopingList.get(i);
+      int[] levels = csTable.getLocalLevels(symbols.findId(csname));
 
-         ControlSequence cs = settings.removeControlSequence(csname);
+      for (int level : levels)
+      {
+         ControlSequence cs = getLocalSettings(level).removeControlSequence(csname);
 
          if (controlSeq == null && cs != null)
          {
@@ -308,18 +324,11 @@ public class Scoping
       }
       else
       {
-         String csname = cs.getName();
+         removeLocalControlSequences(cs.getName());
 
-         for (int i = scopingList.size()-1; i >= 0; i--)
+         if (endDecl != null)
          {
-            TeXSettings settings = scopingList.get(i);
-
-            settings.removeControlSequence(csname);
-
-            if (endDecl != null)
-            {
-               settings.removeControlSequence(endDecl.getName());
-            }
+            removeLocalControlSequences(endDecl.getName());
          }
 
          if (parser.isDebugMode(TeXParser.DEBUG_CS))
@@ -341,6 +350,21 @@ public class Scoping
       }
    }
 
+   /**
+    * Removes the control sequence or register with the given name
+    * from every local scope that has an entry for it.
+    * @param csname the control sequence name
+    */
+   private void removeLocalControlSequences(String csname)
+   {
+      int[] levels = csTable.getLocalLevels(symbols.findId(csname));
+
+      for (int level : levels)
+      {
+         getLocalSettings(level).removeControlSequence(csname);
+      }
+   }
+
    /**
     * Gets a control sequence by name.
     * This method starts by searching the local scopes and then
@@ -355,35 +379,53 @@ public class Scoping
     */
    public ControlSequence getControlSequence(String csname)
    {
-      ControlSequence cs = null;
+      int id = symbols.findId(csname);
 
-      for (int i = scopingList.size()-1; i >= 0; i--)
+      ControlSequence cs = csTable.get(id);
+
+      if (parser.isDebugMode(TeXParser.DEBUG_CS))
       {
-         cs = scopingList.get(i).getControlSequence(csname);
+         logFetched(csname, cs, csTable.getLevel(id));
+      }
 
-         if (cs != null)
-         {
-            if (parser.isDebugMode(TeXParser.DEBUG_CS))
-            {
-               parser.logMessage("Fetched LOCAL control sequence: "+cs);
-            }
+      return cs;
+   }
 
-            return cs;
-         }
+   private void logFetched(String csname, ControlSequence cs, int level)
+   {
+      if (cs == null)
+      {
+         parser.logMessage("No control sequence found for: "+csname);
+      }
+      else if (level > 0)
+      {
+         parser.logMessage("Fetched LOCAL control sequence: "+cs);
+      }
+      else
+      {
+         parser.logMessage("Fetched GLOBAL control sequence: "+cs);
       }
+   }
+
+   /**
+    * Gets the control sequence identified by the given reference.
+    * This returns the same result as
+    * <code>getControlSequence(ref.getName())</code> but uses the
+    * reference's symbol table identifier so the name doesn't need
+    * to be looked up.
+    * @param ref the control sequence reference
+    * @return the first control sequence or register found with the
+    * given name or null if not found
+    */
+   public ControlSequence getControlSequence(TeXCsRef ref)
+   {
+      int id = ref.getId(symbols);
 
-      cs = globalSettings.getControlSequence(csname);
+      ControlSequence cs = csTable.get(id);
 
       if (parser.isDebugMode(TeXParser.DEBUG_CS))
       {
-         if (cs == null)
-         {
-            parser.logMessage("No control sequence found for: "+csname);
-         }
-         else
-         {
-            parser.logMessage("Fetched GLOBAL control sequence: "+cs);
-         }
+         logFetched(ref.getName(), cs, csTable.getLevel(id));
       }
 
       return cs;
@@ -1133,6 +1175,31 @@ public class Scoping
          activeChar = ac;
       }
 
+      catCodeTable.sync(character.intValue(), globalSettings, scopingList);
+
+      return activeChar;
+   }
+
+   /**
+    * Removes character from the active character tables. If local,
+    * the character is only removed from the current scope.
+    * Otherwise this is the same as removeActiveChar(Integer).
+    * @param isLocal true if local
+    * @param character the character identified by its code point
+    * @return the removed instance or null if the character was not
+    * present
+    */
+   public ActiveChar removeActiveChar(boolean isLocal, Integer character)
+   {
+      if (!isLocal)
+      {
+         return removeActiveChar(character);
+      }
+
+      ActiveChar activeChar = getCurrentSettings().removeActiveChar(character);
+
+      catCodeTable.sync(character.intValue(), globalSettings, scopingList);
+
       return activeChar;
    }
 
@@ -1151,6 +1218,7 @@ public class Scoping
       {
          CategoryCode catCode = getCategoryCode(character);
          getCurrentSettings().removeActiveChar(character);
+         catCodeTable.sync(character.intValue(), globalSettings, scopingList);
 
          if (catCode == CategoryCode.ACTIVE)
          {
@@ -1226,6 +1294,8 @@ public class Scoping
 
          globalSettings.putActiveChar(activeChar);
       }
+
+      catCodeTable.sync(activeChar.getCharCode(), globalSettings, scopingList);
    }
 
    /**
@@ -1297,6 +1367,7 @@ public class Scoping
          }
 
          getCurrentSettings().setCategoryCode(character, catCode);
+         catCodeTable.setLocal(character.intValue(), catCode);
       }
       else
       {
@@ -1312,9 +1383,29 @@ public class Scoping
          }
 
          globalSettings.setCategoryCode(character, catCode);
+         catCodeTable.setGlobal(character.intValue(), catCode);
       }
    }
 
+   /**
+    * Sets the default category codes in the global settings.
+    */
+   public void setDefaultCategoryCodes()
+   {
+      globalSettings.setDefaultCategoryCodes();
+      refreshCategoryCodes();
+   }
+
+   /**
+    * Rebuilds the category code lookup table. This only needs to
+    * be used if category codes have been changed directly in one of
+    * the {@link TeXSettings} objects rather than through this class.
+    */
+   public void refreshCategoryCodes()
+   {
+      catCodeTable.rebuild(globalSettings, scopingList);
+   }
+
    /**
     * Gets the category code for the given character.
     * @param codePoint the character's code point
@@ -1322,7 +1413,16 @@ public class Scoping
     */
    public CategoryCode getCategoryCode(int codePoint)
    {
-      return getCategoryCode(Integer.valueOf(codePoint));
+      CategoryCode catCode = catCodeTable.get(codePoint);
+
+      if (catCode == null
+           || (catCode != CategoryCode.BG && catCode != CategoryCode.EG
+                && isDetokenizing()))
+      {
+         catCode = CategoryCodeTable.getDefaultCategoryCode(codePoint);
+      }
+
+      return catCode;
    }
 
    /**
@@ -1332,48 +1432,18 @@ public class Scoping
     */
    public CategoryCode getCategoryCode(Integer character)
    {
-      CategoryCode catCode = null;
-
-      for (int i = scopingList.size()-1; i >= 0; i--)
-      {
-         TeXSettings settings = scopingList.get(i);
-
-         catCode = settings.getCategoryCode(character);
-
-         if (catCode != null) break;
-      }
-
-      if (catCode == null)
-      {
-         catCode = globalSettings.getCategoryCode(character);
-      }
-
-      if (
-           catCode != null
-           && !(catCode == CategoryCode.BG || catCode == CategoryCode.EG)
-           && isDetokenizing()
-         )
-      {
-         catCode = null;
-      }
-
-      if (catCode == null)
-      {
-         if (Character.isAlphabetic(character.intValue()))
-         {
-            catCode = CategoryCode.LETTER;
-         }
-         else if (Character.isWhitespace(character.intValue()))
-         {
-            catCode = CategoryCode.SPACE;
-         }
-         else
-         {
-            catCode = CategoryCode.OTHER;
-         }
-      }
+      return getCategoryCode(character.intValue());
+   }
 
-      return catCode;
+   /**
+    * Gets a count that changes whenever the effective category code
+    * of a character changes (whether by assignment or because a
+    * scope has ended).
+    * @return the modification count
+    */
+   public long getCategoryCodeModificationCount()
+   {
+      return catCodeTable.getModificationCount();
    }
 
    /**
@@ -2705,4 +2775,7 @@ public class Scoping
    Vector<TeXSettings> scopingList;
    TeXParser parser;
    TeXSettings globalSettings;
+   CategoryCodeTable catCodeTable;
+   CsSymbolTable symbols;
+   ControlSequenceTable csTable;
 }
@@ -37,11 +37,58 @@ public class Space extends WhiteSpace
       setSpace(spaceCodePoint);
    }
 
+   /**
+    * Sets the space character. This isn't permitted if this object is
+    * shared.
+    * @param spaceCodePoint the character code
+    * @throws UnsupportedOperationException if this object is
+    * shared
+    * @see #getModifiable()
+    */
    public void setSpace(int spaceCodePoint)
    {
+      if (shared)
+      {
+         throw new UnsupportedOperationException(
+           "Can't modify shared space token "+toString());
+      }
+
       charCode = spaceCodePoint;
    }
 
+   /**
+    * Indicates whether or not this object is shared.
+    * @return true if this object is shared
+    * @see TeXParserListener#setInternCharTokens(boolean)
+    */
+   public boolean isShared()
+   {
+      return shared;
+   }
+
+   /**
+    * Marks this object as shared. This can't be undone. Shared
+    * tokens may appear in any number of lists, so
+    * {@link TeXObjectList#clone()} shares them instead of copying
+    * them. A subclass that has additional
+    * modifiable state should override this method to do nothing, in
+    * which case it will always be cloned.
+    */
+   public void setShared()
+   {
+      shared = true;
+   }
+
+   /**
+    * Gets an object that may be modified. If this object is
+    * shared, a copy is returned, otherwise this object is returned.
+    * @return a modifiable object equivalent to this
+    */
+   public Space getModifiable()
+   {
+      return shared ? (Space)clone() : this;
+   }
+
    public int getSpace()
    {
       return charCode;
@@ -80,6 +127,8 @@ public class Space extends WhiteSpace
 
    private int charCode;
 
+   private boolean shared = false;
+
    public static final int SPACE=0x0020;
    public static final int NO_BREAK_SPACE=0x00A0;
    public static final int OGHAM_SPACE_MARK=0x1680;
@@ -21,6 +21,8 @@ package com.dickimawbooks.texparserlib;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
@@ -114,6 +116,100 @@ public interface TeXApp
      String[] outOptions, File outFile)
      throws IOException,InterruptedException;
 
+   /**
+    * Runs {@link #kpsewhich(String)} using the application's
+    * {@link TeXAppExecutor} pool. If the pool size is 0, the
+    * query is run in the current thread.
+    *
+    * @param arg the argument to pass to kpsewhich
+    * @return the future result of kpsewhich
+    */
+   public default CompletableFuture<String> kpsewhichAsync(final String arg)
+   {
+      return TeXAppExecutor.submit(this, new Callable<String>()
+       {
+          @Override
+          public String call() throws IOException,InterruptedException
+          {
+             return kpsewhich(arg);
+          }
+       });
+   }
+
+   /**
+    * Runs {@link #epstopdf(File,File)} using the application's
+    * {@link TeXAppExecutor} pool. If the pool size is 0, the
+    * conversion is run in the current thread.
+    *
+    * @param epsFile the source EPS file
+    * @param pdfFile the destination PDF file
+    * @return the future completed when the conversion has finished
+    */
+   public default CompletableFuture<Void> epstopdfAsync(final File epsFile,
+     final File pdfFile)
+   {
+      return TeXAppExecutor.submit(this, new Callable<Void>()
+       {
+          @Override
+          public Void call() throws IOException,InterruptedException
+          {
+             epstopdf(epsFile, pdfFile);
+             return null;
+          }
+       });
+   }
+
+   /**
+    * Runs {@link #wmftoeps(File,File)} using the application's
+    * {@link TeXAppExecutor} pool. If the pool size is 0, the
+    * conversion is run in the current thread.
+    *
+    * @param wmfFile the source WMF file
+    * @param epsFile the destination EPS file
+    * @return the future completed when the conversion has finished
+    */
+   public default CompletableFuture<Void> wmftoepsAsync(final File wmfFile,
+     final File epsFile)
+   {
+      return TeXAppExecutor.submit(this, new Callable<Void>()
+       {
+          @Override
+          public Void call() throws IOException,InterruptedException
+          {
+             wmftoeps(wmfFile, epsFile);
+             return null;
+          }
+       });
+   }
+
+   /**
+    * Runs {@link #convertimage(int,String[],File,String[],File)}
+    * using the application's {@link TeXAppExecutor} pool. If the
+    * pool size is 0, the conversion is run in the current thread.
+    *
+    * @param inPage the required page number if the source file
+    * contains multiple pages
+    * @param inOptions a list of ImageMagick input options
+    * @param inFile the source image file
+    * @param outOptions a list of ImageMagick output options
+    * @param outFile the destination file
+    * @return the future completed when the conversion has finished
+    */
+   public default CompletableFuture<Void> convertimageAsync(final int inPage,
+     final String[] inOptions, final File inFile,
+     final String[] outOptions, final File outFile)
+   {
+      return TeXAppExecutor.submit(this, new Callable<Void>()
+       {
+          @Override
+          public Void call() throws IOException,InterruptedException
+          {
+             convertimage(inPage, inOptions, inFile, outOptions, outFile);
+             return null;
+          }
+       });
+   }
+
    /**
     * Reports to the user that the listener
     * has substitute some source code. This is typically
@@ -0,0 +1,315 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimaw-books.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib;
+
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Worker pool used by the asynchronous methods of {@link TeXApp},
+ * such as {@link TeXApp#epstopdfAsync(java.io.File,java.io.File)}. The blocking
+ * methods (which typically spawn a process and wait for it to
+ * finish) are run in one of a fixed number of daemon threads so
+ * that the parser doesn't have to wait for each conversion.
+ *
+ * There's one pool per {@link TeXApp}. The maximum number of
+ * threads applies to all pools and is 0 by default, in which case
+ * tasks are run in the calling thread and the returned future has
+ * already completed. If a timeout has been set, a task that takes
+ * longer has its thread interrupted and its future completed with
+ * a {@link TimeoutException}.
+ */
+public class TeXAppExecutor
+{
+   protected TeXAppExecutor(int numThreads)
+   {
+      final String name = "texapp worker";
+
+      executor = new ThreadPoolExecutor(numThreads, numThreads,
+        KEEP_ALIVE, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory()
+        {
+           @Override
+           public Thread newThread(Runnable r)
+           {
+              Thread thread = new Thread(r, name);
+              thread.setDaemon(true);
+              return thread;
+           }
+        });
+
+      // idle threads aren't kept once the conversions are done
+      executor.allowCoreThreadTimeOut(true);
+   }
+
+   /**
+    * Gets the pool associated with the given application, creating
+    * it if it doesn't already exist.
+    * @param texApp the application
+    * @return the pool or null if the pool size is 0
+    */
+   public static TeXAppExecutor getExecutor(TeXApp texApp)
+   {
+      int numThreads = poolSize;
+
+      if (numThreads <= 0)
+      {
+         return null;
+      }
+
+      synchronized (executors)
+      {
+         TeXAppExecutor pool = executors.get(texApp);
+
+         if (pool == null || pool.getMaxThreads() != numThreads)
+         {
+            if (pool != null)
+            {
+               pool.shutdown();
+            }
+
+            pool = new TeXAppExecutor(numThreads);
+            executors.put(texApp, pool);
+         }
+
+         return pool;
+      }
+   }
+
+   /**
+    * Runs the given task for the given application. If there's no
+    * pool (because the pool size is 0), the task
+    * is run immediately in the current thread.
+    * @param texApp the application
+    * @param task the task
+    * @return the future result of the task
+    */
+   public static <T> CompletableFuture<T> submit(TeXApp texApp,
+     Callable<T> task)
+   {
+      TeXAppExecutor pool = getExecutor(texApp);
+
+      if (pool == null)
+      {
+         CompletableFuture<T> future = new CompletableFuture<T>();
+
+         try
+         {
+            future.complete(task.call());
+         }
+         catch (Throwable e)
+         {
+            future.completeExceptionally(e);
+         }
+
+         return future;
+      }
+
+      return pool.submit(task);
+   }
+
+   /**
+    * Queues the given task.
+    * @param task the task
+    * @return the future result of the task
+    */
+   public <T> CompletableFuture<T> submit(Callable<T> task)
+   {
+      Task<T> runner = new Task<T>(task, timeout);
+
+      executor.execute(runner);
+
+      return runner.future;
+   }
+
+   public int getMaxThreads()
+   {
+      return executor.getMaximumPoolSize();
+   }
+
+   /**
+    * Gets the number of tasks that have been queued but haven't
+    * yet finished.
+    */
+   public long getPendingCount()
+   {
+      return executor.getTaskCount() - executor.getCompletedTaskCount();
+   }
+
+   /**
+    * Stops accepting new tasks. Tasks that have already been queued
+    * are still run.
+    */
+   public void shutdown()
+   {
+      executor.shutdown();
+   }
+
+   /**
+    * Sets the maximum number of worker threads for each application.
+    * @param numThreads the maximum number of threads or 0 if tasks
+    * should be run in the calling thread
+    */
+   public static void setPoolSize(int numThreads)
+   {
+      poolSize = Math.max(0, numThreads);
+   }
+
+   public static int getPoolSize()
+   {
+      return poolSize;
+   }
+
+   /**
+    * Sets the maximum time a queued task may run before its thread
+    * is interrupted. This applies to tasks queued after the timeout
+    * is set.
+    * @param millis the timeout in milliseconds or 0 for no timeout
+    */
+   public static void setTimeout(long millis)
+   {
+      timeout = Math.max(0L, millis);
+   }
+
+   public static long getTimeout()
+   {
+      return timeout;
+   }
+
+   private static synchronized ScheduledThreadPoolExecutor getTimer()
+   {
+      if (timer == null)
+      {
+         timer = new ScheduledThreadPoolExecutor(1,
+           new ThreadFactory()
+           {
+              @Override
+              public Thread newThread(Runnable r)
+              {
+                 Thread thread = new Thread(r, "texapp timeout");
+                 thread.setDaemon(true);
+                 return thread;
+              }
+           });
+
+         timer.setRemoveOnCancelPolicy(true);
+      }
+
+      return timer;
+   }
+
+   /**
+    * Runs a task and completes its future. The thread running the
+    * task is only interrupted while the task is still running.
+    */
+   private static class Task<T> implements Runnable
+   {
+      Task(Callable<T> callable, long timeout)
+      {
+         this.callable = callable;
+         this.timeout = timeout;
+      }
+
+      @Override
+      public void run()
+      {
+         ScheduledFuture<?> timeoutTask = null;
+
+         synchronized (this)
+         {
+            thread = Thread.currentThread();
+         }
+
+         try
+         {
+            if (timeout > 0L)
+            {
+               timeoutTask = getTimer().schedule(new Runnable()
+               {
+                  @Override
+                  public void run()
+                  {
+                     timedOut();
+                  }
+               }, timeout, TimeUnit.MILLISECONDS);
+            }
+
+            T result = callable.call();
+
+            future.complete(result);
+         }
+         catch (Throwable e)
+         {
+            future.completeExceptionally(e);
+         }
+         finally
+         {
+            if (timeoutTask != null)
+            {
+               timeoutTask.cancel(false);
+            }
+
+            synchronized (this)
+            {
+               thread = null;
+            }
+
+            // clear the interrupted flag before the next task
+            Thread.interrupted();
+         }
+      }
+
+      private synchronized void timedOut()
+      {
+         if (thread != null)
+         {
+            future.completeExceptionally(new TimeoutException(
+              String.format("Task timed out after %dms", timeout)));
+
+            thread.interrupt();
+         }
+      }
+
+      private final Callable<T> callable;
+      private final long timeout;
+      private Thread thread;
+      final CompletableFuture<T> future = new CompletableFuture<T>();
+   }
+
+   private final ThreadPoolExecutor executor;
+
+   private static final long KEEP_ALIVE = 10000L;
+
+   private static volatile int poolSize = 0;
+   private static volatile long timeout = 0L;
+
+   private static ScheduledThreadPoolExecutor timer = null;
+
+   private static final WeakHashMap<TeXApp,TeXAppExecutor> executors
+     = new WeakHashMap<TeXApp,TeXAppExecutor>();
+}
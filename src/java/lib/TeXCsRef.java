@@ -22,6 +22,13 @@ import java.io.IOException;
 
 import com.dickimawbooks.texparserlib.primitives.Undefined;
 
+/**
+ * Reference to a control sequence by name. The reference is
+ * resolved when it's expanded or processed. The name is interned in
+ * the parser's {@link CsSymbolTable} on first use and the resulting
+ * identifier is used to look up the control sequence in the
+ * {@link Scoping} master table.
+ */
 public class TeXCsRef extends ControlSequence implements Expandable,Resolvable
 {
    public TeXCsRef(String name)
@@ -29,6 +36,34 @@ public class TeXCsRef extends ControlSequence implements Expandable,Resolvable
       super(name);
    }
 
+   @Override
+   public void setName(String name)
+   {
+      super.setName(name);
+      cachedId = null;
+   }
+
+   /**
+    * Gets the identifier of this reference's name in the given symbol
+    * table. The identifier is cached for the most recently used
+    * table.
+    * @param table the symbol table
+    * @return the identifier
+    */
+   public int getId(CsSymbolTable table)
+   {
+      CachedId cached = cachedId;
+
+      if (cached == null || cached.table != table)
+      {
+         cached = new CachedId(table, table.getId(getName()));
+         cachedId = cached;
+      }
+
+      return cached.id;
+   }
+
+
    @Override
    public boolean canExpand()
    {
@@ -37,7 +72,7 @@ public class TeXCsRef extends ControlSequence implements Expandable,Resolvable
 
    public ControlSequence getControlSequenceIfDefined(TeXParser parser)
    {
-      ControlSequence cs = parser.getListener().getControlSequence(getName());
+      ControlSequence cs = parser.getListener().getControlSequence(this);
 
       if (cs == null || (cs instanceof Undefined))
       {
@@ -136,7 +171,7 @@ public class TeXCsRef extends ControlSequence implements Expandable,Resolvable
    public void process(TeXParser parser)
       throws IOException
    {
-      ControlSequence cs = parser.getListener().getControlSequence(getName());
+      ControlSequence cs = parser.getListener().getControlSequence(this);
 
       cs.process(parser);
    }
@@ -145,7 +180,7 @@ public class TeXCsRef extends ControlSequence implements Expandable,Resolvable
    public void process(TeXParser parser, TeXObjectList stack)
       throws IOException
    {
-      ControlSequence cs = parser.getListener().getControlSequence(getName());
+      ControlSequence cs = parser.getListener().getControlSequence(this);
 
       cs.process(parser, stack);
    }
@@ -166,5 +201,18 @@ public class TeXCsRef extends ControlSequence implements Expandable,Resolvable
       return getName().equals(((TeXCsRef)other).getName());
    }
 
+   private static class CachedId
+   {
+      CachedId(CsSymbolTable table, int id)
+      {
+         this.table = table;
+         this.id = id;
+      }
+
+      final CsSymbolTable table;
+      final int id;
+   }
+
+   private volatile CachedId cachedId = null;
 }
 
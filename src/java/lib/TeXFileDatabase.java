@@ -0,0 +1,391 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimaw-books.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib;
+
+import java.io.File;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Vector;
+
+/**
+ * In-memory index of the files in one or more TEXMF trees. This
+ * provides a way for a {@link TeXApp} to implement
+ * {@link TeXApp#kpsewhich(String)} without spawning a process for
+ * each lookup. Each tree is indexed using its <code>ls-R</code>
+ * database, if it has one, otherwise the tree is searched.
+ *
+ * As with kpathsea, the trees are searched in the order in which
+ * they were added and only the subtrees appropriate to the file's
+ * extension are searched (for example, <code>bibtex/bib</code> for
+ * <code>.bib</code> files). Files that aren't otherwise identified
+ * are searched for using the default LaTeX input path
+ * (<code>tex/latex//</code>, <code>tex/generic//</code> and then
+ * <code>tex//</code>). This class doesn't implement the other
+ * kpathsea path variables, so applications that need to honour
+ * customised search paths should fall back on kpsewhich if a file
+ * isn't found. Likewise, if more than one file matches in the same
+ * path element, kpathsea's choice depends on the order in which the
+ * directories are listed, so applications should fall back on
+ * kpsewhich if {@link #findCandidates(String)} returns more than
+ * one file.
+ *
+ * The trees should all be added before the database is queried.
+ * Once populated, the database may be queried from multiple
+ * threads.
+ */
+public class TeXFileDatabase
+{
+   public TeXFileDatabase()
+   {
+      index = new HashMap<String,Vector<Entry>>();
+      treeCount = 0;
+   }
+
+   /**
+    * Adds a TEXMF tree. If the tree has an <code>ls-R</code> file,
+    * that's used to index the tree, otherwise the tree is searched.
+    * Directories that don't exist are ignored.
+    * @param root the root of the tree
+    * @return true if the tree was indexed
+    * @throws IOException if an I/O error occurs
+    */
+   public boolean addTree(File root) throws IOException
+   {
+      if (!root.isDirectory())
+      {
+         return false;
+      }
+
+      String rootPath = root.getAbsolutePath();
+
+      File lsR = new File(root, "ls-R");
+
+      if (!lsR.isFile())
+      {
+         lsR = new File(root, "ls-r");
+      }
+
+      if (lsR.isFile())
+      {
+         readLsR(rootPath, lsR);
+      }
+      else
+      {
+         walk(rootPath, root, "");
+      }
+
+      treeCount++;
+
+      return true;
+   }
+
+   /**
+    * Gets the number of trees that have been indexed.
+    * @return the number of trees
+    */
+   public int getTreeCount()
+   {
+      return treeCount;
+   }
+
+   private void readLsR(String rootPath, File lsR) throws IOException
+   {
+      BufferedReader reader = null;
+
+      try
+      {
+         reader = Files.newBufferedReader(lsR.toPath(),
+           StandardCharsets.UTF_8);
+
+         String dir = null;
+         String line;
+
+         while ((line = reader.readLine()) != null)
+         {
+            if (line.isEmpty() || line.startsWith("%"))
+            {
+               continue;
+            }
+
+            if (line.endsWith(":"))
+            {
+               dir = getRelativeDir(rootPath, line.substring(0, line.length()-1));
+            }
+            else if (dir != null && !line.startsWith("."))
+            {
+               add(line, rootPath, dir);
+            }
+         }
+      }
+      finally
+      {
+         if (reader != null)
+         {
+            reader.close();
+         }
+      }
+   }
+
+   /**
+    * Converts a directory heading in an ls-R file to a path relative
+    * to the tree root (without leading or trailing slashes).
+    */
+   private static String getRelativeDir(String rootPath, String dir)
+   {
+      dir = dir.replace('\\', '/');
+
+      String prefix = rootPath.replace('\\', '/');
+
+      if (dir.startsWith(prefix))
+      {
+         dir = dir.substring(prefix.length());
+      }
+      else if (dir.startsWith("."))
+      {
+         dir = dir.substring(1);
+      }
+
+      int start = 0;
+      int end = dir.length();
+
+      while (start < end && dir.charAt(start) == '/')
+      {
+         start++;
+      }
+
+      while (end > start && dir.charAt(end-1) == '/')
+      {
+         end--;
+      }
+
+      return dir.substring(start, end);
+   }
+
+   private void walk(String rootPath, File dir, String relDir)
+   {
+      File[] files = dir.listFiles();
+
+      if (files == null)
+      {
+         return;
+      }
+
+      for (File file : files)
+      {
+         String name = file.getName();
+
+         if (name.startsWith("."))
+         {
+            continue;
+         }
+
+         if (file.isDirectory())
+         {
+            walk(rootPath, file,
+              relDir.isEmpty() ? name : relDir + "/" + name);
+         }
+         else
+         {
+            add(name, rootPath, relDir);
+         }
+      }
+   }
+
+   private void add(String name, String rootPath, String relDir)
+   {
+      Vector<Entry> entries = index.get(name);
+
+      if (entries == null)
+      {
+         entries = new Vector<Entry>(1);
+         index.put(name, entries);
+      }
+
+      entries.add(new Entry(rootPath, relDir));
+   }
+
+   /**
+    * Finds a file. The name may include a relative path, in which
+    * case the file's directory must end with that path.
+    * @param name the file name
+    * @return the absolute path of the first match or null if not
+    * found
+    * @see #findCandidates(String)
+    */
+   public String find(String name)
+   {
+      Vector<String> candidates = findCandidates(name);
+
+      return candidates.isEmpty() ? null : candidates.firstElement();
+   }
+
+   /**
+    * Finds the files that kpsewhich would choose between. The trees
+    * are searched in order and, within each tree, the directories
+    * in the search path for the file's type are searched in order.
+    * The files in the first tree and path element that contain a
+    * match are returned. If there's only one, that's the file that
+    * kpsewhich would find. The name may include a relative path, in
+    * which case the file's directory must end with that path.
+    * @param name the file name
+    * @return the absolute paths of the candidates (empty if not
+    * found)
+    */
+   public Vector<String> findCandidates(String name)
+   {
+      name = name.replace('\\', '/');
+
+      int idx = name.lastIndexOf('/');
+
+      String baseName = (idx == -1 ? name : name.substring(idx+1));
+      String subPath = (idx == -1 ? null : name.substring(0, idx));
+
+      Vector<String> candidates = new Vector<String>();
+
+      Vector<Entry> entries = index.get(baseName);
+
+      if (entries == null)
+      {
+         return candidates;
+      }
+
+      String[] formatPath = getFormatPath(baseName);
+
+      // The entries are in the order the trees were added so each
+      // tree's entries form a contiguous block.
+
+      int start = 0;
+      int n = entries.size();
+
+      while (start < n)
+      {
+         String rootPath = entries.get(start).rootPath;
+         int end = start+1;
+
+         while (end < n && entries.get(end).rootPath.equals(rootPath))
+         {
+            end++;
+         }
+
+         for (String formatDir : formatPath)
+         {
+            for (int i = start; i < end; i++)
+            {
+               Entry entry = entries.get(i);
+
+               if (!entry.relDir.equals(formatDir)
+                    && !entry.relDir.startsWith(formatDir+"/"))
+               {
+                  continue;
+               }
+
+               if (subPath != null && !entry.relDir.equals(subPath)
+                    && !entry.relDir.endsWith("/"+subPath))
+               {
+                  continue;
+               }
+
+               File file = new File(entry.rootPath,
+                 entry.relDir.isEmpty() ? baseName : entry.relDir + "/" + baseName);
+
+               // ls-R also lists subdirectories
+
+               if (file.isFile())
+               {
+                  candidates.add(file.getPath());
+               }
+            }
+
+            if (!candidates.isEmpty())
+            {
+               return candidates;
+            }
+         }
+
+         start = end;
+      }
+
+      return candidates;
+   }
+
+   /**
+    * Gets the subdirectories of a TEXMF tree that kpsewhich's
+    * default search path for the file's type would search, in the
+    * order in which they're searched. Each subdirectory is searched
+    * recursively.
+    * @param name the file name
+    * @return the subdirectories relative to the tree root
+    */
+   public static String[] getFormatPath(String name)
+   {
+      int idx = name.lastIndexOf('.');
+
+      if (idx != -1)
+      {
+         String dir = FORMAT_DIRECTORIES.get(name.substring(idx+1));
+
+         if (dir != null)
+         {
+            return new String[] {dir};
+         }
+      }
+
+      return TEX_INPUTS_PATH;
+   }
+
+   private static class Entry
+   {
+      Entry(String rootPath, String relDir)
+      {
+         this.rootPath = rootPath;
+         this.relDir = relDir;
+      }
+
+      final String rootPath, relDir;
+   }
+
+   // default TEXINPUTS.latex path: $TEXMF/tex/{latex,generic,}//
+   private static final String[] TEX_INPUTS_PATH
+     = new String[] {"tex/latex", "tex/generic", "tex"};
+
+   private static final HashMap<String,String> FORMAT_DIRECTORIES;
+
+   static
+   {
+      FORMAT_DIRECTORIES = new HashMap<String,String>();
+
+      FORMAT_DIRECTORIES.put("bib", "bibtex/bib");
+      FORMAT_DIRECTORIES.put("bst", "bibtex/bst");
+      FORMAT_DIRECTORIES.put("ist", "makeindex");
+      FORMAT_DIRECTORIES.put("xdy", "xindy");
+      FORMAT_DIRECTORIES.put("tfm", "fonts/tfm");
+      FORMAT_DIRECTORIES.put("afm", "fonts/afm");
+      FORMAT_DIRECTORIES.put("pfb", "fonts/type1");
+      FORMAT_DIRECTORIES.put("otf", "fonts/opentype");
+      FORMAT_DIRECTORIES.put("ttf", "fonts/truetype");
+      FORMAT_DIRECTORIES.put("map", "fonts/map");
+      FORMAT_DIRECTORIES.put("enc", "fonts/enc");
+   }
+
+   private final HashMap<String,Vector<Entry>> index;
+   private int treeCount;
+}
@@ -0,0 +1,1352 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimaw-books.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.WeakHashMap;
+
+/**
+ * Cache of the tokens read from files that are input by the
+ * parser. Packages and files that are input more than once (or
+ * that are input each time a document is converted) are otherwise
+ * read and tokenized every time. The cache stores the tokens
+ * obtained from a file, keyed by the file's path, modification
+ * time, size and encoding, the listener class and the category
+ * codes of the characters that occur in the file. When the
+ * file is next input with matching category codes, the tokens are
+ * replayed by the file's {@link TeXReader} instead of being read
+ * from the file.
+ *
+ * Files may change category codes while they are being read, so
+ * the replay checks {@link TeXParser#getTokenizerModificationCount()}
+ * before each batch of tokens. If something has changed that
+ * affects the characters in the file, the reader opens the
+ * file at the corresponding position and tokenizes the rest of it
+ * in the usual way. The same happens if anything needs to read the
+ * file's characters directly (such as a verbatim environment).
+ *
+ * There's one cache per {@link TeXApp}. The cache is disabled by
+ * default. If a directory has been set, the tokens are also saved
+ * in that directory so that they can be reused by later runs.
+ * Otherwise a file is only tokenized in advance the second time
+ * it's input, since there's no benefit for files that are only
+ * input once. Only files that are input from another file are
+ * cached, and only files that are small enough to be decoded in
+ * one go (see {@link TeXReader#setMaxDecodedFileSize(long)}).
+ */
+public class TeXFileTokenCache
+{
+   protected TeXFileTokenCache()
+   {
+      entries = new HashMap<String,Entry>();
+   }
+
+   /**
+    * Gets the cache associated with the given parser's application.
+    * @param parser the parser
+    * @return the cache or null if the parser is null, has no
+    * application or caching hasn't been enabled
+    */
+   public static TeXFileTokenCache getCache(TeXParser parser)
+   {
+      if (!enabled || parser == null || parser.getListener() == null)
+      {
+         return null;
+      }
+
+      TeXApp texApp = parser.getListener().getTeXApp();
+
+      if (texApp == null)
+      {
+         return null;
+      }
+
+      return getCache(texApp);
+   }
+
+   /**
+    * Gets the cache associated with the given application, creating
+    * it if it doesn't already exist.
+    * @param texApp the application
+    * @return the cache or null if caching hasn't been enabled
+    */
+   public static TeXFileTokenCache getCache(TeXApp texApp)
+   {
+      if (!enabled)
+      {
+         return null;
+      }
+
+      synchronized (caches)
+      {
+         TeXFileTokenCache cache = caches.get(texApp);
+
+         if (cache == null)
+         {
+            cache = new TeXFileTokenCache();
+            caches.put(texApp, cache);
+         }
+
+         return cache;
+      }
+   }
+
+   /**
+    * Enables or disables the token cache for all applications.
+    * @param on true if tokens should be cached
+    */
+   public static void setEnabled(boolean on)
+   {
+      enabled = on;
+   }
+
+   public static boolean isEnabled()
+   {
+      return enabled;
+   }
+
+   /**
+    * Sets the directory in which to save the cached tokens.
+    * @param dir the directory or null if the tokens should only be
+    * kept in memory
+    */
+   public static void setDirectory(File dir)
+   {
+      directory = dir;
+   }
+
+   public static File getDirectory()
+   {
+      return directory;
+   }
+
+   /**
+    * Removes all entries from memory. Any saved files aren't
+    * affected.
+    */
+   public synchronized void clear()
+   {
+      entries.clear();
+   }
+
+   /**
+    * Gets the number of times a file's tokens were found in the
+    * cache.
+    * @return the number of hits
+    */
+   public synchronized long getHits()
+   {
+      return hits;
+   }
+
+   /**
+    * Gets the number of times a file's tokens weren't found in the
+    * cache (or were found but were no longer current).
+    * @return the number of misses
+    */
+   public synchronized long getMisses()
+   {
+      return misses;
+   }
+
+   /**
+    * Gets the number of files in the cache.
+    * @return the number of entries
+    */
+   public synchronized int size()
+   {
+      return entries.size();
+   }
+
+   /**
+    * Creates a reader that replays the cached tokens for the given
+    * file. If the file hasn't been cached with the current category
+    * codes, it's tokenized first (unless it hasn't been input
+    * before and there's no cache directory).
+    * @param parser the parser
+    * @param parent the parent reader
+    * @param file the file
+    * @param charset the file encoding
+    * @return the reader or null if the file can't be replayed
+    * @throws IOException if an I/O error occurs
+    */
+   public TeXReader createReader(TeXParser parser, TeXReader parent,
+     File file, Charset charset)
+    throws IOException
+   {
+      long length = file.length();
+
+      if (length > TeXReader.getMaxDecodedFileSize()
+           || parser.getScoping().isDetokenizing())
+      {
+         return null;
+      }
+
+      long lastModified = file.lastModified();
+      String key = getKey(parser, file, charset);
+      File saveDir = directory;
+
+      Entry entry;
+
+      synchronized (this)
+      {
+         entry = entries.get(key);
+
+         if (entry != null && !entry.matches(lastModified, length))
+         {
+            entry = null;
+         }
+
+         if (entry == null && saveDir != null)
+         {
+            entry = load(getSaveFile(saveDir, key), key, lastModified, length);
+         }
+
+         if (entry == null)
+         {
+            entry = new Entry(key, lastModified, length);
+         }
+
+         entries.put(key, entry);
+         entry.uses++;
+      }
+
+      Tokens tokens = entry.find(parser);
+
+      if (tokens == null)
+      {
+         synchronized (this)
+         {
+            misses++;
+         }
+
+         if (saveDir == null && entry.uses < 2)
+         {
+            return null;
+         }
+
+         tokens = tokenize(parser, parent, file, charset, entry);
+
+         if (tokens == null)
+         {
+            return null;
+         }
+
+         if (saveDir != null)
+         {
+            try
+            {
+               entry.write(getSaveFile(saveDir, key));
+            }
+            catch (IOException e)
+            {
+               parser.debugMessage(TeXParser.DEBUG_IO,
+                 "Can't save tokens for "+file+": "+e.getMessage());
+            }
+         }
+      }
+      else
+      {
+         synchronized (this)
+         {
+            hits++;
+         }
+
+         parser.debugMessage(TeXParser.DEBUG_IO, "Replaying cached tokens for "+file);
+      }
+
+      return new TeXReader(parser.getTeXApp(), parent, file, charset,
+        new Replay(parser, entry, tokens));
+   }
+
+   private static String getKey(TeXParser parser, File file, Charset charset)
+   {
+      String path;
+
+      try
+      {
+         path = file.getCanonicalPath();
+      }
+      catch (IOException e)
+      {
+         path = file.getAbsolutePath();
+      }
+
+      return String.format("%s%c%s%c%s", path, '\0', charset.name(), '\0',
+        parser.getListener().getClass().getName());
+   }
+
+   private static File getSaveFile(File dir, String key) throws IOException
+   {
+      MessageDigest md;
+
+      try
+      {
+         md = MessageDigest.getInstance("SHA-256");
+      }
+      catch (NoSuchAlgorithmException e)
+      {
+         throw new IOException(e);
+      }
+
+      byte[] digest = md.digest(key.getBytes(StandardCharsets.UTF_8));
+
+      StringBuilder builder = new StringBuilder();
+
+      for (byte b : digest)
+      {
+         builder.append(String.format("%02x", b));
+      }
+
+      builder.append(TOKENS_EXTENSION);
+
+      return new File(dir, builder.toString());
+   }
+
+   /**
+    * Tokenizes the file with the current category codes and adds
+    * the tokens to the entry.
+    */
+   private Tokens tokenize(TeXParser parser, TeXReader parent, File file,
+     Charset charset, Entry entry)
+    throws IOException
+   {
+      TeXReader fileReader = new TeXReader(parser.getTeXApp(), parent, file,
+        charset);
+
+      Reader reader = fileReader.getReader();
+
+      if (!(reader instanceof DecodedFileReader))
+      {
+         fileReader.close();
+         return null;
+      }
+
+      DecodedFileReader decoded = (DecodedFileReader)reader;
+
+      Recorder recorder = new Recorder(parser, fileReader, decoded);
+
+      try
+      {
+         parser.tokenize(fileReader, recorder);
+      }
+      catch (IOException e)
+      {
+         // The rest of the file will be tokenized when it's
+         // input so that the error occurs in the right place.
+
+         parser.debugMessage(TeXParser.DEBUG_IO,
+           "Stopped caching tokens for "+file+": "+e.getMessage());
+      }
+      finally
+      {
+         fileReader.close();
+      }
+
+      synchronized (entry)
+      {
+         if (entry.codePoints == null)
+         {
+            entry.codePoints = getCodePoints(decoded.getDecodedContent());
+            entry.lineEnds = decoded.getLineEnds();
+         }
+      }
+
+      Tokens tokens = recorder.getTokens(entry);
+
+      synchronized (entry)
+      {
+         entry.tokens.add(tokens);
+      }
+
+      return tokens;
+   }
+
+   private static int[] getCodePoints(String content)
+   {
+      boolean[] bmp = new boolean[0x10000];
+      TreeSet<Integer> astral = null;
+      int count = 0;
+
+      for (int i = 0; i < content.length(); )
+      {
+         int cp = content.codePointAt(i);
+         i += Character.charCount(cp);
+
+         if (cp < bmp.length)
+         {
+            if (!bmp[cp])
+            {
+               bmp[cp] = true;
+               count++;
+            }
+         }
+         else
+         {
+            if (astral == null)
+            {
+               astral = new TreeSet<Integer>();
+            }
+
+            astral.add(Integer.valueOf(cp));
+         }
+      }
+
+      int[] codePoints = new int[count + (astral == null ? 0 : astral.size())];
+      int idx = 0;
+
+      for (int cp = 0; cp < bmp.length; cp++)
+      {
+         if (bmp[cp])
+         {
+            codePoints[idx++] = cp;
+         }
+      }
+
+      if (astral != null)
+      {
+         for (Integer cp : astral)
+         {
+            codePoints[idx++] = cp.intValue();
+         }
+      }
+
+      return codePoints;
+   }
+
+   /**
+    * Gets the current category codes of the given characters.
+    */
+   private static String getRegime(TeXParser parser, int[] codePoints)
+   {
+      StringBuilder builder = new StringBuilder(codePoints.length);
+
+      for (int cp : codePoints)
+      {
+         builder.append((char)('A'+parser.getCategoryCode(cp).ordinal()));
+      }
+
+      return builder.toString();
+   }
+
+   private static Entry load(File saveFile, String key, long lastModified,
+     long length)
+   {
+      if (!saveFile.exists())
+      {
+         return null;
+      }
+
+      try
+      {
+         ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(saveFile.toPath()));
+
+         if (buf.getInt() != MAGIC || buf.getInt() != FORMAT
+              || !TeXParser.VERSION.equals(readString(buf))
+              || !key.equals(readString(buf))
+              || buf.getLong() != lastModified || buf.getLong() != length)
+         {
+            return null;
+         }
+
+         Entry entry = new Entry(key, lastModified, length);
+
+         entry.codePoints = readInts(buf);
+         entry.lineEnds = readInts(buf);
+
+         for (int i = buf.getInt(); i > 0; i--)
+         {
+            String regime = readString(buf);
+            boolean inVerbatim = (buf.get() != 0);
+            boolean complete = (buf.get() != 0);
+
+            String[] csNames = new String[buf.getInt()];
+            boolean[] verb = new boolean[csNames.length];
+
+            for (int j = 0; j < csNames.length; j++)
+            {
+               csNames[j] = readString(buf);
+               verb[j] = (buf.get() != 0);
+            }
+
+            byte[] data = new byte[buf.getInt()];
+            buf.get(data);
+
+            entry.tokens.add(new Tokens(regime, inVerbatim, csNames, verb,
+              data, complete));
+         }
+
+         return entry;
+      }
+      catch (IOException e)
+      {
+         return null;
+      }
+      catch (BufferUnderflowException e)
+      {
+         return null;
+      }
+      catch (RuntimeException e)
+      {
+         return null;
+      }
+   }
+
+   private static String readString(ByteBuffer buf)
+   {
+      byte[] bytes = new byte[buf.getInt()];
+      buf.get(bytes);
+
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+   private static int[] readInts(ByteBuffer buf)
+   {
+      int[] values = new int[buf.getInt()];
+
+      for (int i = 0; i < values.length; i++)
+      {
+         values[i] = buf.getInt();
+      }
+
+      return values;
+   }
+
+   private static void writeString(DataOutputStream out, String str)
+     throws IOException
+   {
+      byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+   }
+
+   private static void writeInts(DataOutputStream out, int[] values)
+     throws IOException
+   {
+      out.writeInt(values.length);
+
+      for (int value : values)
+      {
+         out.writeInt(value);
+      }
+   }
+
+   /**
+    * Encodes a token. Tokens are identified by the part they play
+    * (rather than their class) since the listener may create
+    * subclasses. They're recreated with the listener's factory
+    * methods when they're replayed.
+    * @return false if the token isn't supported
+    */
+   private static boolean writeToken(DataOutputStream out, TeXObject obj,
+     TreeSet<String> csNames)
+    throws IOException
+   {
+      if (obj instanceof ActiveChar)
+      {
+         out.writeByte(TOKEN_ACTIVE);
+         out.writeInt(((ActiveChar)obj).getCharCode());
+      }
+      else if (obj.getClass() == TeXCsRef.class)
+      {
+         String name = ((TeXCsRef)obj).getName();
+
+         out.writeByte(TOKEN_CS);
+         writeString(out, name);
+
+         csNames.add(name);
+      }
+      else if (obj instanceof SkippedSpaces)
+      {
+         SkippedSpaces spaces = (SkippedSpaces)obj;
+
+         out.writeByte(TOKEN_SKIPPED_SPACES);
+         out.writeInt(spaces.size());
+
+         for (int i = 0; i < spaces.size(); i++)
+         {
+            out.writeInt(spaces.get(i).getSpace());
+         }
+      }
+      else if (obj instanceof SkippedEols)
+      {
+         SkippedEols eols = (SkippedEols)obj;
+
+         out.writeByte(TOKEN_SKIPPED_EOLS);
+         out.writeInt(eols.size());
+
+         for (int i = 0; i < eols.size(); i++)
+         {
+            writeString(out, eols.get(i).getEol());
+         }
+      }
+      else if (obj instanceof Par)
+      {
+         Vector<WhiteSpace> spaces = ((Par)obj).getContents();
+
+         out.writeByte(TOKEN_PAR);
+         out.writeInt(spaces.size());
+
+         for (WhiteSpace ws : spaces)
+         {
+            if (ws instanceof Eol)
+            {
+               out.writeByte(TOKEN_EOL);
+               writeString(out, ((Eol)ws).getEol());
+            }
+            else if (ws instanceof Space)
+            {
+               out.writeByte(TOKEN_SPACE);
+               out.writeInt(((Space)ws).getSpace());
+            }
+            else
+            {
+               return false;
+            }
+         }
+      }
+      else if (obj instanceof Comment)
+      {
+         out.writeByte(TOKEN_COMMENT);
+         writeString(out, ((Comment)obj).getText());
+      }
+      else if (obj instanceof MathGroup || obj.getClass() == TeXObjectList.class)
+      {
+         TeXObjectList list = (TeXObjectList)obj;
+
+         if (obj instanceof MathGroup)
+         {
+            out.writeByte(TOKEN_MATH_GROUP);
+            out.writeBoolean(((MathGroup)obj).isInLine());
+         }
+         else
+         {
+            out.writeByte(TOKEN_LIST);
+         }
+
+         out.writeInt(list.size());
+
+         for (int i = 0; i < list.size(); i++)
+         {
+            if (!writeToken(out, list.get(i), csNames))
+            {
+               return false;
+            }
+         }
+      }
+      else if (obj instanceof Eol)
+      {
+         out.writeByte(TOKEN_EOL);
+         writeString(out, ((Eol)obj).getEol());
+      }
+      else if (obj instanceof Space)
+      {
+         out.writeByte(TOKEN_SPACE);
+         out.writeInt(((Space)obj).getSpace());
+      }
+      else if (obj instanceof Letter)
+      {
+         out.writeByte(TOKEN_LETTER);
+         out.writeInt(((Letter)obj).getCharCode());
+      }
+      else if (obj instanceof Other)
+      {
+         out.writeByte(TOKEN_OTHER);
+         out.writeInt(((Other)obj).getCharCode());
+      }
+      else if (obj instanceof BgChar)
+      {
+         out.writeByte(TOKEN_BG);
+         out.writeInt(((BgChar)obj).getCharCode());
+      }
+      else if (obj instanceof EgChar)
+      {
+         out.writeByte(TOKEN_EG);
+         out.writeInt(((EgChar)obj).getCharCode());
+      }
+      else if (obj instanceof SpChar)
+      {
+         out.writeByte(TOKEN_SP);
+         out.writeInt(((SpChar)obj).getCharCode());
+      }
+      else if (obj instanceof SbChar)
+      {
+         out.writeByte(TOKEN_SB);
+         out.writeInt(((SbChar)obj).getCharCode());
+      }
+      else if (obj instanceof Tab)
+      {
+         out.writeByte(TOKEN_TAB);
+         out.writeInt(((Tab)obj).getCharCode());
+      }
+      else if (obj instanceof ParameterToken)
+      {
+         return writeParam(out, (ParameterToken)obj);
+      }
+      else if (obj.getClass() == SpecialToken.class)
+      {
+         SpecialToken token = (SpecialToken)obj;
+
+         if (!(token.getObject() instanceof ParameterToken))
+         {
+            return false;
+         }
+
+         out.writeByte(TOKEN_SPECIAL);
+         out.writeInt(token.getCharCode());
+         out.writeInt(token.getCategoryCode().getId());
+
+         return writeParam(out, (ParameterToken)token.getObject());
+      }
+      else
+      {
+         return false;
+      }
+
+      return true;
+   }
+
+   private static boolean writeParam(DataOutputStream out, ParameterToken param)
+     throws IOException
+   {
+      if (param instanceof Param)
+      {
+         out.writeByte(TOKEN_PARAM);
+         out.writeInt(((Param)param).getDigit());
+         out.writeInt(param.getCharCode());
+      }
+      else if (param instanceof DoubleParam)
+      {
+         out.writeByte(TOKEN_DOUBLE_PARAM);
+         out.writeInt(param.getCharCode());
+
+         return writeParam(out, ((DoubleParam)param).next());
+      }
+      else
+      {
+         return false;
+      }
+
+      return true;
+   }
+
+   /**
+    * Recreates a token.
+    * @return the token or null if an active character is no
+    * longer defined
+    */
+   private static TeXObject readToken(ByteBuffer buf, TeXParserListener listener)
+     throws IOException
+   {
+      byte type = buf.get();
+      int n;
+
+      switch (type)
+      {
+         case TOKEN_ACTIVE:
+            return listener.getActiveChar(buf.getInt());
+         case TOKEN_CS:
+            return new TeXCsRef(readString(buf));
+         case TOKEN_SKIPPED_SPACES:
+            SkippedSpaces spaces = listener.createSkippedSpaces();
+
+            for (n = buf.getInt(); n > 0; n--)
+            {
+               spaces.add(listener.getSpace(buf.getInt()));
+            }
+
+            return spaces;
+         case TOKEN_SKIPPED_EOLS:
+            SkippedEols eols = listener.createSkippedEols();
+
+            for (n = buf.getInt(); n > 0; n--)
+            {
+               eols.add(createEol(listener, readString(buf)));
+            }
+
+            return eols;
+         case TOKEN_PAR:
+            Par par = listener.getPar();
+
+            for (n = buf.getInt(); n > 0; n--)
+            {
+               if (buf.get() == TOKEN_EOL)
+               {
+                  par.add(createEol(listener, readString(buf)));
+               }
+               else
+               {
+                  par.add(listener.getSpace(buf.getInt()));
+               }
+            }
+
+            return par;
+         case TOKEN_COMMENT:
+            Comment comment = listener.createComment();
+            comment.appendText(readString(buf));
+
+            return comment;
+         case TOKEN_MATH_GROUP:
+         case TOKEN_LIST:
+            TeXObjectList list;
+
+            if (type == TOKEN_MATH_GROUP)
+            {
+               MathGroup math = listener.createMathGroup();
+               math.setInLine(buf.get() != 0);
+               list = math;
+            }
+            else
+            {
+               list = new TeXObjectList();
+            }
+
+            for (n = buf.getInt(); n > 0; n--)
+            {
+               TeXObject obj = readToken(buf, listener);
+
+               if (obj == null)
+               {
+                  return null;
+               }
+
+               list.add(obj);
+            }
+
+            return list;
+         case TOKEN_EOL:
+            return createEol(listener, readString(buf));
+         case TOKEN_SPACE:
+            return listener.getSpace(buf.getInt());
+         case TOKEN_LETTER:
+            return listener.getLetter(buf.getInt());
+         case TOKEN_OTHER:
+            return listener.getOther(buf.getInt());
+         case TOKEN_BG:
+            return listener.getBgChar(buf.getInt());
+         case TOKEN_EG:
+            return listener.getEgChar(buf.getInt());
+         case TOKEN_SP:
+            return listener.createSpChar(buf.getInt());
+         case TOKEN_SB:
+            return listener.createSbChar(buf.getInt());
+         case TOKEN_TAB:
+            return listener.getTab(buf.getInt());
+         case TOKEN_PARAM:
+         case TOKEN_DOUBLE_PARAM:
+            buf.position(buf.position()-1);
+            return (TeXObject)readParam(buf, listener);
+         case TOKEN_SPECIAL:
+            int charCode = buf.getInt();
+            CategoryCode catCode = CategoryCode.valueOf(buf.getInt());
+
+            return new SpecialToken((MultiToken)readParam(buf, listener),
+              charCode, catCode);
+      }
+
+      throw new IOException("Unknown token type "+type);
+   }
+
+   private static Eol createEol(TeXParserListener listener, String str)
+   {
+      Eol eol = listener.getEol();
+
+      if (!str.equals(eol.getEol()))
+      {
+         eol.setEol(str);
+      }
+
+      return eol;
+   }
+
+   private static ParameterToken readParam(ByteBuffer buf,
+     TeXParserListener listener)
+     throws IOException
+   {
+      byte type = buf.get();
+
+      if (type == TOKEN_PARAM)
+      {
+         Param param = listener.getParam(buf.getInt());
+         param.setCharCode(buf.getInt());
+
+         return param;
+      }
+      else if (type == TOKEN_DOUBLE_PARAM)
+      {
+         int charCode = buf.getInt();
+         DoubleParam param = listener.getDoubleParam(readParam(buf, listener));
+         param.setCharCode(charCode);
+
+         return param;
+      }
+
+      throw new IOException("Unknown parameter token type "+type);
+   }
+
+   /**
+    * Tests if a recreated token is equivalent to the original.
+    */
+   private static boolean isEquivalent(TeXObject original, TeXObject copy)
+   {
+      if (original.getClass() != copy.getClass())
+      {
+         return false;
+      }
+
+      if (original instanceof TeXObjectList)
+      {
+         TeXObjectList list1 = (TeXObjectList)original;
+         TeXObjectList list2 = (TeXObjectList)copy;
+
+         if (list1.size() != list2.size())
+         {
+            return false;
+         }
+
+         for (int i = 0; i < list1.size(); i++)
+         {
+            if (!isEquivalent(list1.get(i), list2.get(i)))
+            {
+               return false;
+            }
+         }
+
+         return !(original instanceof MathGroup)
+           || ((MathGroup)original).isInLine() == ((MathGroup)copy).isInLine();
+      }
+
+      return original.toString().equals(copy.toString());
+   }
+
+   /**
+    * Records the tokens fetched while a file is tokenized.
+    */
+   static class Recorder
+   {
+      private Recorder(TeXParser parser, TeXReader fileReader,
+        DecodedFileReader decoded)
+      {
+         this.parser = parser;
+         this.fileReader = fileReader;
+         this.decoded = decoded;
+
+         csNames = new TreeSet<String>();
+         buffer = new ByteArrayOutputStream();
+         out = new DataOutputStream(buffer);
+         inVerbatim = parser.getScoping().inVerbatim();
+      }
+
+      /**
+       * Records the tokens fetched by one call to
+       * <code>TeXParser.fetchNext</code>.
+       * @param list the fetched tokens
+       * @param result the value returned by <code>fetchNext</code>
+       * @return true if tokenizing should continue
+       */
+      boolean fetched(TeXObjectList list, boolean result)
+        throws IOException
+      {
+         if (fileReader.hasPendingChar())
+         {
+            return false;
+         }
+
+         ByteArrayOutputStream tokenBuffer = new ByteArrayOutputStream();
+         DataOutputStream tokenOut = new DataOutputStream(tokenBuffer);
+
+         for (int i = 0; i < list.size(); i++)
+         {
+            if (!writeToken(tokenOut, list.get(i), csNames))
+            {
+               return false;
+            }
+         }
+
+         tokenOut.flush();
+
+         byte[] data = tokenBuffer.toByteArray();
+         ByteBuffer buf = ByteBuffer.wrap(data);
+
+         for (int i = 0; i < list.size(); i++)
+         {
+            TeXObject copy = readToken(buf, parser.getListener());
+
+            if (copy == null || !isEquivalent(list.get(i), copy))
+            {
+               return false;
+            }
+         }
+
+         out.writeInt(decoded.getPosition());
+         out.writeByte((result ? FLAG_RESULT : 0)
+                     | (fileReader.isEnded() ? FLAG_EOF : 0));
+         out.writeInt(list.size());
+         out.write(data);
+
+         if (!result)
+         {
+            complete = true;
+         }
+
+         return true;
+      }
+
+      Tokens getTokens(Entry entry) throws IOException
+      {
+         out.flush();
+
+         String[] names = csNames.toArray(new String[csNames.size()]);
+         boolean[] verb = new boolean[names.length];
+
+         for (int i = 0; i < names.length; i++)
+         {
+            verb[i] = parser.isVerbCommand(names[i]);
+         }
+
+         return new Tokens(getRegime(parser, entry.codePoints), inVerbatim,
+           names, verb, buffer.toByteArray(), complete);
+      }
+
+      private final TeXParser parser;
+      private final TeXReader fileReader;
+      private final DecodedFileReader decoded;
+      private final TreeSet<String> csNames;
+      private final ByteArrayOutputStream buffer;
+      private final DataOutputStream out;
+      private final boolean inVerbatim;
+      private boolean complete = false;
+   }
+
+   /**
+    * Replays the tokens for a file.
+    */
+   static class Replay
+   {
+      private Replay(TeXParser parser, Entry entry, Tokens tokens)
+      {
+         this.entry = entry;
+         this.tokens = tokens;
+
+         buffer = ByteBuffer.wrap(tokens.data);
+         modCount = parser.getTokenizerModificationCount();
+      }
+
+      /**
+       * Adds the tokens fetched by the next call to
+       * <code>TeXParser.fetchNext</code> to the list.
+       * @return the value returned by that call or null if the
+       * remaining tokens can't be replayed
+       */
+      Boolean next(TeXParser parser, TeXObjectList list)
+        throws IOException
+      {
+         if (!buffer.hasRemaining())
+         {
+            return tokens.complete ? Boolean.FALSE : null;
+         }
+
+         Scoping scoping = parser.getScoping();
+
+         if (scoping.isDetokenizing() || scoping.inVerbatim() != tokens.inVerbatim)
+         {
+            return null;
+         }
+
+         long count = parser.getTokenizerModificationCount();
+
+         if (count != modCount)
+         {
+            if (!tokens.matches(parser, entry))
+            {
+               return null;
+            }
+
+            modCount = count;
+         }
+
+         int start = buffer.position();
+         int endPosition = buffer.getInt();
+         byte flags = buffer.get();
+         int n = buffer.getInt();
+
+         TeXParserListener listener = parser.getListener();
+         int size = list.size();
+
+         for (int i = 0; i < n; i++)
+         {
+            TeXObject obj = readToken(buffer, listener);
+
+            if (obj == null)
+            {
+               while (list.size() > size)
+               {
+                  list.remove(list.size()-1);
+               }
+
+               buffer.position(start);
+               return null;
+            }
+
+            list.add(obj);
+         }
+
+         position = endPosition;
+         ended = ((flags & FLAG_EOF) != 0);
+
+         return Boolean.valueOf((flags & FLAG_RESULT) != 0);
+      }
+
+      /**
+       * Gets the position in the file of the end of the tokens that
+       * have been replayed.
+       */
+      int getPosition()
+      {
+         return position;
+      }
+
+      boolean isEnded()
+      {
+         return ended;
+      }
+
+      int getLineNumber()
+      {
+         int idx = Arrays.binarySearch(entry.lineEnds, position);
+
+         return idx >= 0 ? idx : -(idx+1);
+      }
+
+      private final Entry entry;
+      private final Tokens tokens;
+      private final ByteBuffer buffer;
+      private long modCount;
+      private int position = 0;
+      private boolean ended = false;
+   }
+
+   /**
+    * The tokens obtained from a file with particular category codes.
+    */
+   private static class Tokens
+   {
+      Tokens(String regime, boolean inVerbatim, String[] csNames,
+        boolean[] verb, byte[] data, boolean complete)
+      {
+         this.regime = regime;
+         this.inVerbatim = inVerbatim;
+         this.csNames = csNames;
+         this.verb = verb;
+         this.data = data;
+         this.complete = complete;
+      }
+
+      boolean matches(TeXParser parser, Entry entry)
+      {
+         if (!regime.equals(getRegime(parser, entry.codePoints)))
+         {
+            return false;
+         }
+
+         for (int i = 0; i < csNames.length; i++)
+         {
+            if (parser.isVerbCommand(csNames[i]) != verb[i])
+            {
+               return false;
+            }
+         }
+
+         return true;
+      }
+
+      final String regime;
+      final boolean inVerbatim;
+      final String[] csNames;
+      final boolean[] verb;
+      final byte[] data;
+      final boolean complete;
+   }
+
+   /**
+    * The cached tokens for a file.
+    */
+   private static class Entry
+   {
+      Entry(String key, long lastModified, long length)
+      {
+         this.key = key;
+         this.lastModified = lastModified;
+         this.length = length;
+
+         tokens = new Vector<Tokens>();
+      }
+
+      boolean matches(long lastModified, long length)
+      {
+         return this.lastModified == lastModified && this.length == length;
+      }
+
+      synchronized Tokens find(TeXParser parser)
+      {
+         if (codePoints == null)
+         {
+            return null;
+         }
+
+         boolean inVerbatim = parser.getScoping().inVerbatim();
+
+         for (Tokens t : tokens)
+         {
+            if (t.inVerbatim == inVerbatim && t.matches(parser, this))
+            {
+               return t;
+            }
+         }
+
+         return null;
+      }
+
+      synchronized void write(File saveFile) throws IOException
+      {
+         Path target = saveFile.toPath();
+         Path dir = saveFile.getAbsoluteFile().getParentFile().toPath();
+
+         Files.createDirectories(dir);
+
+         // The cache directory may be shared by concurrent runs, so
+         // use a unique temporary file to avoid overwriting another
+         // writer's partial file.
+
+         Path tmp = Files.createTempFile(dir, saveFile.getName()+".", ".tmp");
+
+         OutputStream stream = null;
+
+         try
+         {
+            stream = Files.newOutputStream(tmp);
+
+            DataOutputStream dataOut = new DataOutputStream(stream);
+
+            dataOut.writeInt(MAGIC);
+            dataOut.writeInt(FORMAT);
+            writeString(dataOut, TeXParser.VERSION);
+            writeString(dataOut, key);
+            dataOut.writeLong(lastModified);
+            dataOut.writeLong(length);
+            writeInts(dataOut, codePoints);
+            writeInts(dataOut, lineEnds);
+            dataOut.writeInt(tokens.size());
+
+            for (Tokens t : tokens)
+            {
+               writeString(dataOut, t.regime);
+               dataOut.writeBoolean(t.inVerbatim);
+               dataOut.writeBoolean(t.complete);
+               dataOut.writeInt(t.csNames.length);
+
+               for (int i = 0; i < t.csNames.length; i++)
+               {
+                  writeString(dataOut, t.csNames[i]);
+                  dataOut.writeBoolean(t.verb[i]);
+               }
+
+               dataOut.writeInt(t.data.length);
+               dataOut.write(t.data);
+            }
+
+            dataOut.flush();
+            stream.close();
+            stream = null;
+
+            try
+            {
+               Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING,
+                 StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+               Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            tmp = null;
+         }
+         finally
+         {
+            if (stream != null)
+            {
+               stream.close();
+            }
+
+            if (tmp != null)
+            {
+               Files.deleteIfExists(tmp);
+            }
+         }
+      }
+
+      final String key;
+      final long lastModified, length;
+      final Vector<Tokens> tokens;
+      int[] codePoints, lineEnds;
+      int uses = 0;
+   }
+
+   private final HashMap<String,Entry> entries;
+   private long hits = 0, misses = 0;
+
+   private static volatile boolean enabled = false;
+   private static volatile File directory = null;
+
+   private static final WeakHashMap<TeXApp,TeXFileTokenCache> caches
+     = new WeakHashMap<TeXApp,TeXFileTokenCache>();
+
+   public static final String TOKENS_EXTENSION = ".tokens";
+
+   private static final int MAGIC = 0x5450544b;
+   private static final int FORMAT = 1;
+
+   private static final byte FLAG_RESULT=1, FLAG_EOF=2;
+
+   private static final byte TOKEN_LETTER=0, TOKEN_OTHER=1, TOKEN_SPACE=2,
+     TOKEN_SKIPPED_SPACES=3, TOKEN_CS=4, TOKEN_LIST=5, TOKEN_MATH_GROUP=6,
+     TOKEN_SP=7, TOKEN_SB=8, TOKEN_TAB=9, TOKEN_PARAM=10,
+     TOKEN_DOUBLE_PARAM=11, TOKEN_SPECIAL=12, TOKEN_ACTIVE=13,
+     TOKEN_BG=14, TOKEN_EG=15, TOKEN_EOL=16, TOKEN_SKIPPED_EOLS=17,
+     TOKEN_PAR=18, TOKEN_COMMENT=19;
+}
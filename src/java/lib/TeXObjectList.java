@@ -25,7 +25,16 @@ import java.util.ArrayDeque;
 import com.dickimawbooks.texparserlib.primitives.*;
 import com.dickimawbooks.texparserlib.generic.*;
 
-public class TeXObjectList extends Vector<TeXObject>
+/**
+ * A list of TeX objects. This is also used as a stack, where
+ * the top of the stack is the first element. The list is a
+ * {@link HeadIndexedVector} so pushing and popping are
+ * constant time. Subclasses (such as {@link Group}, 
+ * {@link DataObjectList} and {@link TeXParser}) inherit this and
+ * don't need to change, provided they use the list methods rather
+ * than the protected <code>Vector</code> fields.
+ */
+public class TeXObjectList extends HeadIndexedVector<TeXObject>
   implements TeXObject,Expandable,CaseChangeable
 {
    public TeXObjectList()
@@ -2195,13 +2204,21 @@ public class TeXObjectList extends Vector<TeXObject>
       return new TeXObjectList(capacity());
    }
 
+   /**
+    * Creates a deep copy of this list. Character and space tokens
+    * that have already been marked as shared (such as interned
+    * tokens) are immutable so they're shared with the copy rather
+    * than cloned. The tokens in this list aren't modified.
+    * @return the copy
+    */
+   @Override
    public Object clone()
    {
       TeXObjectList list = createList();
 
       for (TeXObject object : this)
       {
-         list.add((TeXObject)object.clone());
+         list.add(cloneToken(object));
       }
 
       for (Declaration dec : declarations)
@@ -3406,6 +3423,37 @@ public class TeXObjectList extends Vector<TeXObject>
       return builder.toString();
    }
 
+   /**
+    * Clones the given object unless it's a character or space token
+    * that has already been marked as shared. The object itself
+    * isn't modified.
+    * @param object the object to clone
+    * @return the clone or the original token if it's shared
+    */
+   public static TeXObject cloneToken(TeXObject object)
+   {
+      if (isSharedToken(object))
+      {
+         return object;
+      }
+
+      return (TeXObject)object.clone();
+   }
+
+   private static boolean isSharedToken(TeXObject object)
+   {
+      if (object instanceof CharObject)
+      {
+         return ((CharObject)object).isShared();
+      }
+      else if (object instanceof Space)
+      {
+         return ((Space)object).isShared();
+      }
+
+      return false;
+   }
+
    private Vector<Declaration> declarations
      = new Vector<Declaration>();
 
@@ -273,7 +273,7 @@ public class TeXParser extends TeXObjectList
 
    private void initDefCatCodes()
    {
-      scoping.getGlobalSettings().setDefaultCategoryCodes();
+      scoping.setDefaultCategoryCodes();
    }
 
    /**
@@ -999,6 +999,45 @@ public class TeXParser extends TeXObjectList
       reader = orgReader;
    }
 
+   /**
+    * Tokenizes the content of another reader using the current
+    * category codes without processing any of it. The tokens from
+    * each call to {@link #fetchNext(TeXObjectList)} are passed to
+    * the recorder along with the result. Tokenizing stops at the
+    * end of the reader or when the recorder returns false. This is
+    * used by {@link TeXFileTokenCache}.
+    * @param otherReader the reader to tokenize
+    * @param recorder the recorder
+    * @throws IOException if I/O or parsing error occurs
+    */
+   void tokenize(TeXReader otherReader, TeXFileTokenCache.Recorder recorder)
+     throws IOException
+   {
+      TeXReader orgReader = reader;
+      reader = otherReader;
+
+      try
+      {
+         boolean result = true;
+
+         while (result)
+         {
+            TeXObjectList list = new TeXObjectList();
+
+            result = fetchNext(list);
+
+            if (!recorder.fetched(list, result))
+            {
+               break;
+            }
+         }
+      }
+      finally
+      {
+         reader = orgReader;
+      }
+   }
+
    /**
     * Reads a line from some other reader.
     * This method is provided to read a line in from another source.
@@ -1177,6 +1216,7 @@ public class TeXParser extends TeXObjectList
    public void addVerbCommand(String csname)
    {
       verbatim.add(csname);
+      verbatimModCount++;
    }
 
    /**
@@ -1192,6 +1232,17 @@ public class TeXParser extends TeXObjectList
       return verbatim.contains(csname);
    }
 
+   /**
+    * Gets a count that changes whenever anything that affects the
+    * way characters are tokenized changes. That is, whenever a
+    * category code changes or a verbatim command is added.
+    * @return the modification count
+    */
+   public long getTokenizerModificationCount()
+   {
+      return scoping.getCategoryCodeModificationCount() + verbatimModCount;
+   }
+
    private boolean parseEOL(int c, TeXObjectList list)
      throws IOException
    {
@@ -1484,15 +1535,16 @@ public class TeXParser extends TeXObjectList
 
       while ((c = read()) != -1)
       {
-         if (!(isCategoryCode(CategoryCode.SPACE, c)
-              || (incEols && isCategoryCode(CategoryCode.EOL, c))))
+         CategoryCode catCode = getCategoryCode(c);
+
+         if (!(catCode == CategoryCode.SPACE
+              || (incEols && catCode == CategoryCode.EOL)))
          {
             reset();
             break;
          }
 
-         Space space = listener.getSpace();
-         space.setSpace(c);
+         Space space = listener.getSpace(c);
 
          if (inVerb)
          {// assume pseudo-verbatim
@@ -1736,7 +1788,9 @@ public class TeXParser extends TeXObjectList
          return false;
       }
 
-      if (isCategoryCode(CategoryCode.PARAM, c))
+      CategoryCode catCode = getCategoryCode(c);
+
+      if (catCode == CategoryCode.PARAM)
       {
          DoubleParam dblParam = listener.getDoubleParam(paramToken);
          dblParam.setCharCode(c);
@@ -1750,7 +1804,7 @@ public class TeXParser extends TeXObjectList
             paramToken.tail().setDigit(c-'0');
             list.add(paramToken);
          }
-         else if (isCategoryCode(CategoryCode.BG, c))
+         else if (catCode == CategoryCode.BG)
          {
             paramToken.tail().setDigit(-1);
             list.add(paramToken);
@@ -1782,7 +1836,9 @@ public class TeXParser extends TeXObjectList
          return false;
       }
 
-      if (isCategoryCode(CategoryCode.PARAM, c))
+      CategoryCode catCode = getCategoryCode(c);
+
+      if (catCode == CategoryCode.PARAM)
       {
          DoubleParam dblParam = listener.getDoubleParam(param);
          dblParam.setCharCode(c);
@@ -1794,7 +1850,7 @@ public class TeXParser extends TeXObjectList
          param.setDigit(c-'0');
          list.add(param);
       }
-      else if (isCategoryCode(CategoryCode.BG, c))
+      else if (catCode == CategoryCode.BG)
       {
          param.setDigit(-1);
          list.add(param);
@@ -2289,11 +2345,13 @@ public class TeXParser extends TeXObjectList
 
       while ((c = read()) != -1)
       {
-         if (!isLetter(c))
+         CategoryCode catCode = getCategoryCode(c);
+
+         if (catCode != CategoryCode.LETTER)
          {
             TeXCsRef cs;
 
-            if (isCategoryCode(CategoryCode.EOL, c))
+            if (catCode == CategoryCode.EOL)
             {
                // Control sequence ended with EOL.
 
@@ -2319,7 +2377,7 @@ public class TeXParser extends TeXObjectList
 
                list.add(cs);
             }
-            else if (isCategoryCode(CategoryCode.SPACE, c))
+            else if (catCode == CategoryCode.SPACE)
             {
                // Control word ended by a space
 
@@ -2487,79 +2545,72 @@ public class TeXParser extends TeXObjectList
          return false;
       }
 
-      int c = read();
-
-      if (c == -1) return false;
-
-      if (isCategoryCode(CategoryCode.EOL, c))
+      if (reader.isReplaying())
       {
-         parseEOL(c, list);
-      }
-      else if (isCategoryCode(CategoryCode.ESC, c))
-      {
-        return readControlSequence(list);
-      }
-      else if (isCategoryCode(CategoryCode.COMMENT, c))
-      {
-         return readComment(list);
-      }
-      else if (isCategoryCode(CategoryCode.PARAM, c))
-      {
-         return readParam(list, c);
-      }
-      else if (isCategoryCode(CategoryCode.ACTIVE, c))
-      {
-         TeXObject obj = listener.getActiveChar(c);
+         Boolean result = reader.replay(this, list);
 
-         if (obj == null)
+         if (result != null)
          {
-            throw new TeXSyntaxException(this, 
-              TeXSyntaxException.ERROR_UNDEFINED_CHAR, 
-              new String(Character.toChars(c)));
+            return result.booleanValue();
          }
-
-         list.add(obj);
-      }
-      else if (isCategoryCode(CategoryCode.SP, c))
-      {
-         list.add(listener.createSpChar(c));
-      }
-      else if (isCategoryCode(CategoryCode.SB, c))
-      {
-         list.add(listener.createSbChar(c));
       }
-      else if (isCategoryCode(CategoryCode.TAB, c))
-      {
-         list.add(listener.getTab(c));
-      }
-      else if (isCategoryCode(CategoryCode.MATH, c))
-      {
-         MathGroup math = listener.createMathGroup();
-         list.add(math);
-         readMath(math);
-      }
-      else if (isCategoryCode(CategoryCode.BG, c))
-      {
-         list.add(listener.getBgChar(c));
-      }
-      else if (isCategoryCode(CategoryCode.EG, c))
-      {
-         list.add(listener.getEgChar(c));
-      }
-      else if (isCategoryCode(CategoryCode.SPACE, c))
-      {
-         Space space = listener.getSpace();
-         space.setSpace(c);
-         list.add(space);
-         return skipNextSpaces(list);
-      }
-      else if (isLetter(c))
-      {
-         list.add(listener.getLetter(c));
-      }
-      else
+
+      int c = read();
+
+      if (c == -1) return false;
+
+      switch (getCategoryCode(c))
       {
-         list.add(listener.getOther(c));
+         case EOL:
+            parseEOL(c, list);
+         break;
+         case ESC:
+            return readControlSequence(list);
+         case COMMENT:
+            return readComment(list);
+         case PARAM:
+            return readParam(list, c);
+         case ACTIVE:
+            TeXObject obj = listener.getActiveChar(c);
+
+            if (obj == null)
+            {
+               throw new TeXSyntaxException(this, 
+                 TeXSyntaxException.ERROR_UNDEFINED_CHAR, 
+                 new String(Character.toChars(c)));
+            }
+
+            list.add(obj);
+         break;
+         case SP:
+            list.add(listener.createSpChar(c));
+         break;
+         case SB:
+            list.add(listener.createSbChar(c));
+         break;
+         case TAB:
+            list.add(listener.getTab(c));
+         break;
+         case MATH:
+            MathGroup math = listener.createMathGroup();
+            list.add(math);
+            readMath(math);
+         break;
+         case BG:
+            list.add(listener.getBgChar(c));
+         break;
+         case EG:
+            list.add(listener.getEgChar(c));
+         break;
+         case SPACE:
+            Space space = listener.getSpace(c);
+            list.add(space);
+            return skipNextSpaces(list);
+         case LETTER:
+            list.add(listener.getLetter(c));
+         break;
+         default:
+            list.add(listener.getOther(c));
       }
 
       try
@@ -2947,13 +2998,34 @@ public class TeXParser extends TeXObjectList
          }
       }
 
+      if (this.reader == null)
+      {
+         // new top-level parse
+         TeXPathCache.invalidate(this);
+      }
+
       try
       {
          debugMessage(DEBUG_IO, "PARSE FILE: "+file);
          listener.beginParse(file, charset);
 
-         TeXReader nextReader
-            = new TeXReader(texApp, this.reader, file, charset);
+         TeXReader nextReader = null;
+
+         if (this.reader != null)
+         {
+            TeXFileTokenCache tokenCache = TeXFileTokenCache.getCache(this);
+
+            if (tokenCache != null)
+            {
+               nextReader = tokenCache.createReader(this, this.reader,
+                 file, charset);
+            }
+         }
+
+         if (nextReader == null)
+         {
+            nextReader = new TeXReader(texApp, this.reader, file, charset);
+         }
 
          if (stack != null && stack != this && !stack.isEmpty())
          {
@@ -3037,6 +3109,12 @@ public class TeXParser extends TeXObjectList
          }
       }
 
+      if (this.reader == null)
+      {
+         // new top-level parse
+         TeXPathCache.invalidate(this);
+      }
+
       try
       {
          listener.beginParse(file, charset);
@@ -3120,13 +3198,30 @@ public class TeXParser extends TeXObjectList
 
          texApp.message(texApp.getMessage(TeXApp.MESSAGE_READING, texPath));
 
-         TeXObjectList line;
+         if ((mapType == FileMapType.VERBATIM
+                || mapType == FileMapType.VERBATIM_EXCEPT_ESC_SYM)
+             && handler instanceof RawFileMapHandler
+             && ((RawFileMapHandler)handler).isRawLineSupported(this, mapType))
+         {
+            RawFileMapHandler rawHandler = (RawFileMapHandler)handler;
+            StringBuilder builder = new StringBuilder();
 
-         while ((line = fileMapReadLine(mapType)) != null)
+            while (fileMapReadRawLine(mapType, builder))
+            {
+               rawHandler.processRawLine(this, builder, lineNum);
+               lineNum++;
+            }
+         }
+         else
          {
-            handler.processLine(this, line, lineNum);
-            lineNum++;
-         } 
+            TeXObjectList line;
+
+            while ((line = fileMapReadLine(mapType)) != null)
+            {
+               handler.processLine(this, line, lineNum);
+               lineNum++;
+            } 
+         }
 
          handler.processCompleted(this);
       }
@@ -3165,6 +3260,99 @@ public class TeXParser extends TeXObjectList
       }
    }
 
+   /**
+    * Reads the characters of the next line for
+    * {@link RawFileMapHandler}. The line breaks are identified in
+    * the same way as {@link #fileMapReadLine(FileMapType)}. This is
+    * only valid for FileMapType.VERBATIM and
+    * FileMapType.VERBATIM_EXCEPT_ESC_SYM.
+    * @param mapType how the file should be parsed
+    * @param line the buffer to put the line in (cleared first)
+    * @return false if the end of file has been reached
+    */
+   protected boolean fileMapReadRawLine(FileMapType mapType, StringBuilder line)
+    throws IOException
+   {
+      line.setLength(0);
+
+      int c = read();
+
+      if (c == -1) return false;
+
+      boolean escSym = (mapType == FileMapType.VERBATIM_EXCEPT_ESC_SYM);
+
+      while (c != -1)
+      {
+         boolean eol = isCategoryCode(CategoryCode.EOL, c);
+
+         if (eol || (escSym && isCategoryCode(CategoryCode.ESC, c)))
+         {
+            if (!eol)
+            {
+               // The escape character and the following character
+               // form a control symbol, which ends the line if it's
+               // a line break.
+
+               line.appendCodePoint(c);
+
+               c = read();
+
+               if (c == -1)
+               {
+                  break;
+               }
+               else if (!isCategoryCode(CategoryCode.EOL, c))
+               {
+                  line.appendCodePoint(c);
+                  c = read();
+                  continue;
+               }
+
+               line.appendCodePoint(c);
+            }
+
+            if (c == '\r')
+            {
+               mark();
+
+               c = read();
+
+               if (c != '\n')
+               {
+                  reset();
+               }
+               else if (!eol)
+               {
+                  line.append('\n');
+               }
+            }
+            else if (c == '\n')
+            {
+               mark();
+
+               c = read();
+
+               if (c != '\r')
+               {
+                  reset();
+               }
+               else if (!eol)
+               {
+                  line.append('\r');
+               }
+            }
+
+            break;
+         }
+
+         line.appendCodePoint(c);
+
+         c = read();
+      }
+
+      return true;
+   }
+
    protected TeXObjectList fileMapReadLine(FileMapType mapType)
     throws IOException
    {
@@ -3394,143 +3582,132 @@ public class TeXParser extends TeXObjectList
             break;
             case TEX:
 
-               if (isCategoryCode(CategoryCode.ESC, c))
-               {
-                  /*
-                     The actual line ending will be skipped
-                     so the following line will be treated as a
-                     continuation of this line (unless EOF).
-                   */
-
-                  eol = !readControlSequence(line);
-               }
-               else if (isCategoryCode(CategoryCode.COMMENT, c))
-               {
-                  /*
-                     The actual line ending will be skipped
-                     so the following line will be treated as a
-                     continuation of this line (unless EOF).
-                   */
-
-                  eol = !readComment(line);
-               }
-               else if (isCategoryCode(CategoryCode.PARAM, c))
+               switch (getCategoryCode(c))
                {
-                  eol = !readParam(line, c);
-               }
-               else if (isCategoryCode(CategoryCode.ACTIVE, c))
-               {
-                  TeXObject obj = listener.getActiveChar(c);
+                  case ESC:
+                     /*
+                        The actual line ending will be skipped
+                        so the following line will be treated as a
+                        continuation of this line (unless EOF).
+                      */
+
+                     eol = !readControlSequence(line);
+                  break;
+                  case COMMENT:
+                     /*
+                        The actual line ending will be skipped
+                        so the following line will be treated as a
+                        continuation of this line (unless EOF).
+                      */
+
+                     eol = !readComment(line);
+                  break;
+                  case PARAM:
+                     eol = !readParam(line, c);
+                  break;
+                  case ACTIVE:
+                     TeXObject obj = listener.getActiveChar(c);
 
-                  if (obj == null)
-                  {
-                     throw new TeXSyntaxException(this, 
-                       TeXSyntaxException.ERROR_UNDEFINED_CHAR, 
-                       new String(Character.toChars(c)));
-                  }
+                     if (obj == null)
+                     {
+                        throw new TeXSyntaxException(this, 
+                          TeXSyntaxException.ERROR_UNDEFINED_CHAR, 
+                          new String(Character.toChars(c)));
+                     }
 
-                  line.add(obj);
-               }
-               else if (isCategoryCode(CategoryCode.SP, c))
-               {
-                  line.add(listener.createSpChar(c));
-               }
-               else if (isCategoryCode(CategoryCode.SB, c))
-               {
-                  line.add(listener.createSbChar(c));
-               }
-               else if (isCategoryCode(CategoryCode.TAB, c))
-               {
-                  line.add(listener.getTab(c));
-               }
-               else if (isCategoryCode(CategoryCode.MATH, c))
-               {
-                  MathGroup math = listener.createMathGroup();
-                  line.add(math);
-                  readMath(math);
-               }
-               else if (isCategoryCode(CategoryCode.BG, c))
-               {
-                  /*
-                    EOL within a group is considered part of the same line.
-                   */
+                     line.add(obj);
+                  break;
+                  case SP:
+                     line.add(listener.createSpChar(c));
+                  break;
+                  case SB:
+                     line.add(listener.createSbChar(c));
+                  break;
+                  case TAB:
+                     line.add(listener.getTab(c));
+                  break;
+                  case MATH:
+                     MathGroup math = listener.createMathGroup();
+                     line.add(math);
+                     readMath(math);
+                  break;
+                  case BG:
+                     /*
+                       EOL within a group is considered part of the same line.
+                      */
  
-                  Group grp = listener.createGroup();
-                  line.add(grp);
+                     Group grp = listener.createGroup();
+                     line.add(grp);
 
-                  eol = !readGroup(grp, false);
-               }
-               else if (isCategoryCode(CategoryCode.EG, c))
-               {
-                  line.add(listener.getEgChar(c));
-               }
-               else if (isCategoryCode(CategoryCode.SPACE, c))
-               {
-                  Space space = listener.getSpace();
-                  space.setSpace(c);
-                  line.add(space);
-
-                  // skip following spaces unless EOL
+                     eol = !readGroup(grp, false);
+                  break;
+                  case EG:
+                     line.add(listener.getEgChar(c));
+                  break;
+                  case SPACE:
+                     Space space = listener.getSpace(c);
+                     line.add(space);
 
-                  boolean isSpace = true;
-                  SkippedSpaces skipped = null;
+                     // skip following spaces unless EOL
 
-                  while (isSpace)
-                  {
-                     mark();
-                     c = read();
+                     boolean isSpace = true;
+                     SkippedSpaces skipped = null;
 
-                     if (isCategoryCode(CategoryCode.EOL, c))
+                     while (isSpace)
                      {
-                        eol = true;
-                        isSpace = false;
+                        mark();
+                        c = read();
 
-                        if (c == '\r')
+                        CategoryCode catCode = getCategoryCode(c);
+
+                        if (catCode == CategoryCode.EOL)
                         {
-                           mark();
+                           eol = true;
+                           isSpace = false;
 
-                           if (read() != '\n')
+                           if (c == '\r')
                            {
-                              reset();
+                              mark();
+
+                              if (read() != '\n')
+                              {
+                                 reset();
+                              }
+                           }
+                           else if (c == '\n')
+                           {
+                              mark();
+
+                              if (read() != '\r')
+                              {
+                                 reset();
+                              }
                            }
                         }
-                        else if (c == '\n')
+                        else if (catCode == CategoryCode.SPACE)
                         {
-                           mark();
+                           space = listener.getSpace(c);
 
-                           if (read() != '\r')
+                           if (skipped == null)
                            {
-                              reset();
+                              skipped = new SkippedSpaces();
+                              line.add(skipped);
                            }
-                        }
-                     }
-                     else if (isCategoryCode(CategoryCode.SPACE, c))
-                     {
-                        space = listener.getSpace();
-                        space.setSpace(c);
 
-                        if (skipped == null)
+                           skipped.add(space);
+                        }
+                        else
                         {
-                           skipped = new SkippedSpaces();
-                           line.add(skipped);
+                           isSpace = false;
+                           reset();
                         }
-
-                        skipped.add(space);
                      }
-                     else
-                     {
-                        isSpace = false;
-                        reset();
-                     }
-                  }
-               }
-               else if (isLetter(c))
-               {
-                  line.add(listener.getLetter(c));
-               }
-               else
-               {
-                  line.add(listener.getOther(c));
+                  break;
+                  case LETTER:
+                     line.add(listener.getLetter(c));
+                  break;
+                  default:
+                     line.add(listener.getOther(c));
                }
 
             break;
@@ -4646,6 +4823,18 @@ public class TeXParser extends TeXObjectList
       return scoping.getControlSequence(name);
    }
 
+   /**
+    * Gets the control sequence identified by the given reference.
+    * This is equivalent to <code>getControlSequence(ref.getName())</code>
+    * but uses the reference's symbol table identifier.
+    * @param ref the control sequence reference
+    * @return the control sequence or register or null if not found
+    */
+   public ControlSequence getControlSequence(TeXCsRef ref)
+   {
+      return scoping.getControlSequence(ref);
+   }
+
    public void undefControlSequence(boolean isLocal, String csname)
    {
       scoping.undefControlSequence(isLocal, csname);
@@ -4674,16 +4863,7 @@ public class TeXParser extends TeXObjectList
    @Deprecated
    public ActiveChar removeActiveChar(boolean isLocal, int code)
    {
-      Integer character = Integer.valueOf(code);
-
-      if (isLocal)
-      {
-         return scoping.getCurrentSettings().removeActiveChar(character);
-      }
-      else
-      {
-         return removeActiveChar(character);
-      }
+      return scoping.removeActiveChar(isLocal, Integer.valueOf(code));
    }
 
    public void putActiveChar(ActiveChar activeChar)
@@ -5235,6 +5415,7 @@ public class TeXParser extends TeXObjectList
    //private CatCodeList[] catcodes;
 
    private Vector<String> verbatim;
+   private long verbatimModCount = 0;
 
    private String jobname = null;
 
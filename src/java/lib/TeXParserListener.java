@@ -48,6 +48,46 @@ public abstract class TeXParserListener
       return cs == null ? createUndefinedCs(name) : cs;
    }
 
+   // Gets the control sequence identified by the given reference.
+   // This uses the reference's identifier unless
+   // isControlSequenceLookupOverridden() returns true, in which case
+   // getControlSequence(String) is used instead so that a subclass's
+   // behaviour is retained.
+
+   public ControlSequence getControlSequence(TeXCsRef ref)
+   {
+      if (isControlSequenceLookupOverridden())
+      {
+         return getControlSequence(ref.getName());
+      }
+
+      ControlSequence cs = getParser().getControlSequence(ref);
+
+      return cs == null ? createUndefinedCs(ref.getName()) : cs;
+   }
+
+   // Determines whether getControlSequence(String) has been
+   // overridden. This is checked once when the listener is
+   // constructed.
+
+   protected boolean isControlSequenceLookupOverridden()
+   {
+      return controlSequenceLookupOverridden;
+   }
+
+   private static boolean isControlSequenceLookupOverridden(Class<?> cls)
+   {
+      try
+      {
+         return cls.getMethod("getControlSequence", String.class)
+           .getDeclaringClass() != TeXParserListener.class;
+      }
+      catch (NoSuchMethodException | SecurityException e)
+      {
+         return true;
+      }
+   }
+
    public abstract ControlSequence createUndefinedCs(String name);
 
    // Gets active character identified by charCode.
@@ -71,6 +111,35 @@ public abstract class TeXParserListener
 
    public abstract Space getSpace();
 
+   /**
+    * Gets a space token for the given character. If interned
+    * character tokens are enabled, the returned object will be shared
+    * and can't be modified.
+    * @param spaceCodePoint the space character
+    * @return the space token
+    */
+   public Space getSpace(int spaceCodePoint)
+   {
+      if (charTokenCache == null)
+      {
+         Space space = getSpace();
+         space.setSpace(spaceCodePoint);
+         return space;
+      }
+
+      Space space = (Space)charTokenCache.get(CategoryCode.SPACE, spaceCodePoint);
+
+      if (space == null)
+      {
+         space = getSpace();
+         space.setSpace(spaceCodePoint);
+         space.setShared();
+         charTokenCache.put(CategoryCode.SPACE, spaceCodePoint, space);
+      }
+
+      return space;
+   }
+
    public abstract Spacer getSpacer(Direction direction, TeXDimension size, 
      boolean inline);
 
@@ -85,9 +154,110 @@ public abstract class TeXParserListener
       return getTab(parser.getTabChar());
    }
 
-   public abstract Letter getLetter(int charCode);
+   /**
+    * Gets a letter token. If interned character tokens are enabled,
+    * the returned object will be shared and can't be modified.
+    * Otherwise a new object is created.
+    * @param charCode the character code
+    * @return the letter token
+    */
+   public Letter getLetter(int charCode)
+   {
+      if (charTokenCache == null)
+      {
+         return createLetter(charCode);
+      }
 
-   public abstract Other getOther(int charCode);
+      Letter letter = (Letter)charTokenCache.get(CategoryCode.LETTER, charCode);
+
+      if (letter == null)
+      {
+         letter = createLetter(charCode);
+         letter.setShared();
+         charTokenCache.put(CategoryCode.LETTER, charCode, letter);
+      }
+
+      return letter;
+   }
+
+   /**
+    * Gets an other token. If interned character tokens are enabled,
+    * the returned object will be shared and can't be modified.
+    * Otherwise a new object is created.
+    * @param charCode the character code
+    * @return the other token
+    */
+   public Other getOther(int charCode)
+   {
+      if (charTokenCache == null)
+      {
+         return createOther(charCode);
+      }
+
+      Other other = (Other)charTokenCache.get(CategoryCode.OTHER, charCode);
+
+      if (other == null)
+      {
+         other = createOther(charCode);
+         other.setShared();
+         charTokenCache.put(CategoryCode.OTHER, charCode, other);
+      }
+
+      return other;
+   }
+
+   /**
+    * Creates a new letter token.
+    * @param charCode the character code
+    * @return the new letter token
+    */
+   public Letter createLetter(int charCode)
+   {
+      return new Letter(charCode);
+   }
+
+   /**
+    * Creates a new other token.
+    * @param charCode the character code
+    * @return the new other token
+    */
+   public Other createOther(int charCode)
+   {
+      return new Other(charCode);
+   }
+
+   /**
+    * Enables or disables interned character tokens. If enabled,
+    * {@link #getLetter(int)}, {@link #getOther(int)} and
+    * {@link #getSpace(int)} return shared immutable objects rather than
+    * creating a new object each time. Code that needs to modify
+    * a token should use {@link CharObject#getModifiable()} or
+    * {@link Space#getModifiable()}.
+    * @param on true if character tokens should be interned
+    */
+   public void setInternCharTokens(boolean on)
+   {
+      if (on)
+      {
+         if (charTokenCache == null)
+         {
+            charTokenCache = new CharTokenCache();
+         }
+      }
+      else
+      {
+         charTokenCache = null;
+      }
+   }
+
+   /**
+    * Indicates whether or not character tokens are interned.
+    * @return true if character tokens are interned
+    */
+   public boolean isInternCharTokens()
+   {
+      return charTokenCache != null;
+   }
 
    public abstract BigOperator createBigOperator(String name, int code1, int code2);
 
@@ -424,6 +594,11 @@ public abstract class TeXParserListener
 
    protected TeXParser parser;
 
+   private CharTokenCache charTokenCache = null;
+
    private int normalFontSize = 10;// in pt
    private UserDimension normalFontDimension = new UserDimension(10, TeXUnit.PT);
+
+   private final boolean controlSequenceLookupOverridden
+      = isControlSequenceLookupOverridden(getClass());
 }
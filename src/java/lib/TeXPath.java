@@ -257,6 +257,29 @@ public class TeXPath
    private void init(TeXParser parser, String texPath,
      boolean useKpsewhich, boolean useL3SearchPath, String... defExt)
      throws IOException
+   {
+      TeXPathCache cache = TeXPathCache.getCache(parser);
+
+      if (cache == null)
+      {
+         resolve(parser, texPath, useKpsewhich, useL3SearchPath, defExt);
+         return;
+      }
+
+      String key = cache.getKey(parser, getDefaultBaseDir(parser), texPath,
+         useKpsewhich, useL3SearchPath, defExt);
+
+      if (!cache.get(key, this))
+      {
+         resolve(parser, texPath, useKpsewhich, useL3SearchPath, defExt);
+
+         cache.put(key, base, relative, foundByKpsewhich);
+      }
+   }
+
+   private void resolve(TeXParser parser, String texPath,
+     boolean useKpsewhich, boolean useL3SearchPath, String... defExt)
+     throws IOException
    {
       File parent = getDefaultBaseDir(parser);
 
@@ -431,7 +454,7 @@ public class TeXPath
                {
                   foundByKpsewhich = true;
 
-                  init(parser, loc, false, "");
+                  resolve(parser, loc, false, true, "");
                }
             }
             catch (IOException|InterruptedException e)
@@ -514,7 +537,7 @@ public class TeXPath
                {
                   foundByKpsewhich = true;
 
-                  init(parser, loc, false, "");
+                  resolve(parser, loc, false, true, "");
 
                   return true;
                }
@@ -764,6 +787,16 @@ public class TeXPath
       foundByKpsewhich = false;
    }
 
+   /**
+    * Sets the result of a search found in the {@link TeXPathCache}.
+    */
+   void setResolved(Path base, Path relative, boolean foundByKpsewhich)
+   {
+      this.base = base;
+      this.relative = relative;
+      this.foundByKpsewhich = foundByKpsewhich;
+   }
+
    private Path base, relative;
 
    private boolean foundByKpsewhich = false;
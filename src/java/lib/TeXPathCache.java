@@ -0,0 +1,345 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimaw-books.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+import com.dickimawbooks.texparserlib.latex.latex3.SequenceCommand;
+
+/**
+ * Cache of the paths found by {@link TeXPath}. Resolving a path may
+ * involve checking for the file with each default extension, then
+ * searching the LaTeX3 file search path and then running kpsewhich,
+ * so documents that refer to the same file many times (for example,
+ * an image in a loop) can spend a lot of time repeating the same
+ * search. The cache stores the result of the search, whether or not
+ * the file was found, keyed by the base directory, the path name,
+ * the default extensions and the search options.
+ *
+ * The cache is disabled by default and must be enabled with
+ * {@link #setEnabled(boolean)}. There's one cache per {@link TeXApp}.
+ * The cache is cleared when a new top-level parse starts, if the
+ * LaTeX3 file search path (<code>\l_file_search_path_seq</code>) or
+ * the graphics path changes, and when a file is written by the
+ * parser (since it may later be read). A cached miss is discarded
+ * if the file has since been created where it was last looked for.
+ * If freshness checking is enabled, the modification time of the
+ * resolved file is also checked each time the entry is used.
+ */
+public class TeXPathCache
+{
+   protected TeXPathCache()
+   {
+      entries = new HashMap<String,Entry>();
+   }
+
+   /**
+    * Gets the cache associated with the given parser's application.
+    * @param parser the parser
+    * @return the cache or null if the parser is null, has no
+    * application or caching has been disabled
+    */
+   public static TeXPathCache getCache(TeXParser parser)
+   {
+      if (parser == null || parser.getListener() == null)
+      {
+         return null;
+      }
+
+      TeXApp texApp = parser.getListener().getTeXApp();
+
+      if (texApp == null)
+      {
+         return null;
+      }
+
+      return getCache(texApp);
+   }
+
+   /**
+    * Gets the cache associated with the given application, creating
+    * it if it doesn't already exist.
+    * @param texApp the application
+    * @return the cache or null if caching has been disabled
+    */
+   public static TeXPathCache getCache(TeXApp texApp)
+   {
+      if (!enabled)
+      {
+         return null;
+      }
+
+      synchronized (caches)
+      {
+         TeXPathCache cache = caches.get(texApp);
+
+         if (cache == null)
+         {
+            cache = new TeXPathCache();
+            caches.put(texApp, cache);
+         }
+
+         return cache;
+      }
+   }
+
+   /**
+    * Enables or disables the path cache for all applications. The
+    * cache is disabled by default.
+    * @param on true if paths should be cached
+    */
+   public static void setEnabled(boolean on)
+   {
+      enabled = on;
+   }
+
+   public static boolean isEnabled()
+   {
+      return enabled;
+   }
+
+   /**
+    * Clears the cache associated with the given parser's
+    * application, if there is one.
+    * @param parser the parser
+    */
+   public static void invalidate(TeXParser parser)
+   {
+      TeXPathCache cache = getCache(parser);
+
+      if (cache != null)
+      {
+         cache.clear();
+      }
+   }
+
+   /**
+    * Enables or disables checking the modification time of the
+    * resolved file each time a cached entry is used. This picks up
+    * files that have been created, removed or replaced outside of
+    * the parser, but only for the file that the entry resolved to.
+    * @param on true if the modification time should be checked
+    */
+   public synchronized void setStatCheck(boolean on)
+   {
+      statCheck = on;
+   }
+
+   public synchronized boolean isStatCheckOn()
+   {
+      return statCheck;
+   }
+
+   /**
+    * Removes all entries.
+    */
+   public synchronized void clear()
+   {
+      entries.clear();
+   }
+
+   /**
+    * Gets the number of times a path was found in the cache.
+    * @return the number of hits
+    */
+   public synchronized long getHits()
+   {
+      return hits;
+   }
+
+   /**
+    * Gets the number of times a path wasn't found in the cache (or
+    * was found but was no longer current).
+    * @return the number of misses
+    */
+   public synchronized long getMisses()
+   {
+      return misses;
+   }
+
+   /**
+    * Gets the number of entries in the cache.
+    * @return the number of entries
+    */
+   public synchronized int size()
+   {
+      return entries.size();
+   }
+
+   /**
+    * Gets the key identifying a search. This also clears the cache
+    * if the LaTeX3 search path has changed since the last search
+    * that used it.
+    */
+   String getKey(TeXParser parser, File baseDir, String texPath,
+     boolean useKpsewhich, boolean useL3SearchPath, String... defExt)
+   {
+      if (useL3SearchPath)
+      {
+         checkSearchPath(parser);
+      }
+
+      StringBuilder builder = new StringBuilder();
+
+      if (baseDir != null)
+      {
+         builder.append(baseDir.getPath());
+      }
+
+      builder.append('\0');
+      builder.append(texPath);
+      builder.append('\0');
+      builder.append(useKpsewhich ? '1' : '0');
+      builder.append(useL3SearchPath ? '1' : '0');
+
+      for (String ext : defExt)
+      {
+         builder.append('\0');
+         builder.append(ext);
+      }
+
+      return builder.toString();
+   }
+
+   private void checkSearchPath(TeXParser parser)
+   {
+      ControlSequence cs = parser.getControlSequence("l_file_search_path_seq");
+
+      TeXObjectList content = null;
+      int version = 0;
+
+      if (cs instanceof SequenceCommand)
+      {
+         content = ((SequenceCommand)cs).getContent();
+         version = content.getVersion();
+      }
+
+      synchronized (this)
+      {
+         if (content != searchPathContent || version != searchPathVersion)
+         {
+            entries.clear();
+            searchPathContent = content;
+            searchPathVersion = version;
+         }
+      }
+   }
+
+   /**
+    * Copies the cached result into the given path.
+    * @return true if found
+    */
+   synchronized boolean get(String key, TeXPath texPath)
+   {
+      Entry entry = entries.get(key);
+
+      if (entry != null && isStale(entry))
+      {
+         entries.remove(key);
+         entry = null;
+      }
+
+      if (entry == null)
+      {
+         misses++;
+         return false;
+      }
+
+      hits++;
+
+      texPath.setResolved(entry.base, entry.relative, entry.foundByKpsewhich);
+
+      return true;
+   }
+
+   synchronized void put(String key, Path base, Path relative,
+     boolean foundByKpsewhich)
+   {
+      File file = getFile(base, relative);
+
+      boolean exists = (file != null && file.exists());
+
+      entries.put(key, new Entry(base, relative, foundByKpsewhich, exists,
+        exists && statCheck ? file.lastModified() : 0L));
+   }
+
+   /**
+    * Checks if the file system has changed in a way that affects
+    * the given entry. Misses are always checked (which only requires
+    * checking whether or not the file now exists). Hits are only
+    * checked if freshness checking is on.
+    */
+   private boolean isStale(Entry entry)
+   {
+      File file = getFile(entry.base, entry.relative);
+
+      if (!entry.exists)
+      {
+         return file != null && file.exists();
+      }
+
+      return statCheck && file.lastModified() != entry.lastModified;
+   }
+
+   private static File getFile(Path base, Path relative)
+   {
+      if (relative == null)
+      {
+         return null;
+      }
+
+      Path path = (base == null ? relative : base.resolve(relative));
+
+      return path.toFile();
+   }
+
+   private static class Entry
+   {
+      Entry(Path base, Path relative, boolean foundByKpsewhich,
+        boolean exists, long lastModified)
+      {
+         this.base = base;
+         this.relative = relative;
+         this.foundByKpsewhich = foundByKpsewhich;
+         this.exists = exists;
+         this.lastModified = lastModified;
+      }
+
+      final Path base, relative;
+      final boolean foundByKpsewhich, exists;
+      final long lastModified;
+   }
+
+   private HashMap<String,Entry> entries;
+
+   private boolean statCheck = false;
+
+   private long hits = 0L, misses = 0L;
+
+   private TeXObjectList searchPathContent = null;
+   private int searchPathVersion = 0;
+
+   private static volatile boolean enabled = false;
+
+   private static final WeakHashMap<TeXApp,TeXPathCache> caches
+     = new WeakHashMap<TeXApp,TeXPathCache>();
+}
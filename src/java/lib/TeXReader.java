@@ -78,15 +78,47 @@ public class TeXReader implements Readable,Closeable
          }
       }
 
-      reader = new LineNumberReader(
-        new LineNumberReader(texApp.createBufferedReader(file.toPath(),
-         charset)));
+      BufferedReader in = texApp.createBufferedReader(file.toPath(), charset);
+
+      long size = file.length();
+
+      if (size <= maxDecodedFileSize)
+      {
+         reader = new DecodedFileReader(in, size);
+      }
+      else
+      {
+         reader = new LineNumberReader(new LineNumberReader(in));
+      }
 
       this.charset = charset;
 
       isOpen = true;
    }
 
+   /**
+    * Creates a reader that replays the tokens that have been cached
+    * for the given file. The file itself is only opened if its
+    * characters need to be read (for example, if the category codes
+    * change so that the cached tokens are no longer valid).
+    * @param texApp the application
+    * @param parent the parent reader (may be null)
+    * @param file the file
+    * @param charset the file encoding
+    * @param replay the cached tokens
+    */
+   TeXReader(TeXApp texApp, TeXReader parent, File file, Charset charset,
+     TeXFileTokenCache.Replay replay)
+   {
+      this.parent = parent;
+      this.source = file;
+      this.texApp = texApp;
+      this.charset = charset;
+      this.replay = replay;
+
+      isOpen = true;
+   }
+
    public TeXReader(TeXReader parent, File file)
     throws IOException
    {
@@ -105,8 +137,40 @@ public class TeXReader implements Readable,Closeable
       this(texApp, null, file, charset);
    }
 
+   /**
+    * Sets the maximum size of a file that will be decoded into
+    * memory in one go when the reader is created. Larger files are
+    * read through a stream instead.
+    * @param size the maximum file size in bytes (0 or negative to
+    * always use a stream)
+    */
+   public static void setMaxDecodedFileSize(long size)
+   {
+      maxDecodedFileSize = size;
+   }
+
+   /**
+    * Gets the maximum size of a file that will be decoded into
+    * memory in one go.
+    * @return the maximum file size in bytes
+    */
+   public static long getMaxDecodedFileSize()
+   {
+      return maxDecodedFileSize;
+   }
+
    public int getLineNumber()
    {
+      if (replay != null)
+      {
+         return replay.getLineNumber();
+      }
+
+      if (reader instanceof DecodedFileReader)
+      {
+         return ((DecodedFileReader)reader).getLineNumber();
+      }
+
       if (reader instanceof LineNumberReader)
       {
          return ((LineNumberReader)reader).getLineNumber();
@@ -115,13 +179,74 @@ public class TeXReader implements Readable,Closeable
       return -1;
    }
 
+   /**
+    * Tests if this reader is replaying cached tokens.
+    * @return true if the next tokens should be obtained from
+    * {@link #replay(TeXParser,TeXObjectList)}
+    */
+   public boolean isReplaying()
+   {
+      return replay != null;
+   }
+
+   /**
+    * Adds the next batch of cached tokens to the given list. If
+    * the cached tokens can't be used, the file is opened at the
+    * corresponding position so that the characters can be read
+    * instead.
+    * @param parser the parser
+    * @param list the list in which to put the tokens
+    * @return the result that <code>TeXParser.fetchNext</code>
+    * should return or null if the tokens can no longer be replayed
+    * @throws IOException if the file can't be opened
+    */
+   Boolean replay(TeXParser parser, TeXObjectList list) throws IOException
+   {
+      Boolean result = replay.next(parser, list);
+
+      if (result == null)
+      {
+         stopReplaying();
+      }
+      else if (replay.isEnded())
+      {
+         eofFound = true;
+      }
+
+      return result;
+   }
+
+   private void stopReplaying() throws IOException
+   {
+      int position = replay.getPosition();
+      File file = (File)source;
+
+      replay = null;
+
+      reader = new DecodedFileReader(
+        texApp.createBufferedReader(file.toPath(), charset), file.length());
+
+      reader.skip(position);
+      reader.mark(2);
+   }
+
    public void mark(int readAheadLimit) throws IOException
    {
+      if (replay != null)
+      {
+         stopReplaying();
+      }
+
       reader.mark(readAheadLimit);
    }
 
    public void reset() throws IOException
    {
+      if (replay != null)
+      {
+         stopReplaying();
+      }
+
       reader.reset();
    }
 
@@ -129,6 +254,11 @@ public class TeXReader implements Readable,Closeable
    {
       int c;
 
+      if (replay != null)
+      {
+         stopReplaying();
+      }
+
       if (pendingChar != -1)
       {
          c = pendingChar;
@@ -169,6 +299,11 @@ public class TeXReader implements Readable,Closeable
    {
       if (isClosed()) return -1;
 
+      if (replay != null)
+      {
+         stopReplaying();
+      }
+
       int result = reader.read(cbuf);
 
       if (result == -1)
@@ -183,6 +318,11 @@ public class TeXReader implements Readable,Closeable
    {
       if (isClosed()) return -1;
 
+      if (replay != null)
+      {
+         stopReplaying();
+      }
+
       int result = reader.read(cbuf, off, len);
 
       if (result == -1)
@@ -197,6 +337,11 @@ public class TeXReader implements Readable,Closeable
    {
       if (isClosed()) return -1;
 
+      if (replay != null)
+      {
+         stopReplaying();
+      }
+
       int result = reader.read(cb);
 
       if (result == -1)
@@ -209,18 +354,33 @@ public class TeXReader implements Readable,Closeable
 
    public long skip(long n) throws IOException
    {
+      if (replay != null)
+      {
+         stopReplaying();
+      }
+
       return reader.skip(n);
    }
 
    public boolean ready() throws IOException
    {
+      if (replay != null)
+      {
+         stopReplaying();
+      }
+
       return reader.ready();
    }
 
    public void close() throws IOException
    {
       isOpen = false;
-      reader.close();
+      replay = null;
+
+      if (reader != null)
+      {
+         reader.close();
+      }
    }
 
    public boolean isClosed()
@@ -233,6 +393,16 @@ public class TeXReader implements Readable,Closeable
       return eofFound;
    }
 
+   /**
+    * Tests if the low surrogate of the last character read has
+    * been kept back because it wasn't part of a surrogate pair.
+    * @return true if there's a pending character
+    */
+   boolean hasPendingChar()
+   {
+      return pendingChar != -1;
+   }
+
    /** Forcibly closes this and all ancestors and clear any pending
        stacks.
     */
@@ -272,6 +442,12 @@ public class TeXReader implements Readable,Closeable
       return parent.getBaseReader();
    }
 
+   /**
+    * Gets the underlying reader. This will be null if the
+    * reader is replaying cached tokens and the file hasn't been
+    * opened.
+    * @return the underlying reader
+    */
    public Reader getReader()
    {
       return reader;
@@ -306,12 +482,7 @@ public class TeXReader implements Readable,Closeable
    @Override
    public String toString()
    {
-      int line = -1;
-
-      if (reader instanceof LineNumberReader)
-      {
-         line = ((LineNumberReader)reader).getLineNumber();
-      }
+      int line = getLineNumber();
 
       return String.format("%s[source=%s,line=%d,pending=%s,isOpen=%s,eofFound=%s,parent=%s]", 
         getClass().getSimpleName(), source, line, pending, isOpen, eofFound,
@@ -351,4 +522,7 @@ public class TeXReader implements Readable,Closeable
    private int pendingChar = -1;
    private Charset charset;
    private boolean isOpen = false, eofFound=false;
+   private TeXFileTokenCache.Replay replay;
+
+   private static long maxDecodedFileSize = 64L*1024L*1024L;
 }
@@ -22,6 +22,7 @@ import java.awt.Color;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Vector;
 
 import com.dickimawbooks.texparserlib.primitives.Undefined;
 
@@ -1420,6 +1421,8 @@ public class TeXSettings
       }
 
       csTable.put(cs.getName(), cs);
+
+      controlSequenceChanged(cs.getName());
    }
 
    @Deprecated
@@ -1443,6 +1446,11 @@ public class TeXSettings
          cs = reg;
       }
 
+      if (cs != null)
+      {
+         controlSequenceChanged(name);
+      }
+
       return cs;
    }
 
@@ -1653,6 +1661,8 @@ public class TeXSettings
       }
 
       localRegisters.put(register.getName(), register);
+
+      controlSequenceChanged(register.getName());
    }
 
    @Deprecated
@@ -1831,7 +1841,59 @@ public class TeXSettings
     */
    public Register removeRegister(String name)
    {
-      return localRegisters == null ? null : localRegisters.remove(name);
+      Register reg = localRegisters == null ? null : localRegisters.remove(name);
+
+      if (reg != null)
+      {
+         controlSequenceChanged(name);
+      }
+
+      return reg;
+   }
+
+   /**
+    * Checks if this scope has any control sequence or register
+    * entries.
+    * @return true if either table is not empty
+    */
+   boolean hasControlSequences()
+   {
+      return (csTable != null && !csTable.isEmpty())
+        || (localRegisters != null && !localRegisters.isEmpty());
+   }
+
+   /**
+    * Gets the names of all the control sequence and register
+    * entries in this scope.
+    * @return list of names (may contain duplicates)
+    */
+   Vector<String> getControlSequenceNames()
+   {
+      Vector<String> names = new Vector<String>();
+
+      if (csTable != null)
+      {
+         names.addAll(csTable.keySet());
+      }
+
+      if (localRegisters != null)
+      {
+         names.addAll(localRegisters.keySet());
+      }
+
+      return names;
+   }
+
+   /**
+    * Notifies the scoping that owns this object (if any) that the
+    * entry for the given name has changed.
+    */
+   private void controlSequenceChanged(String name)
+   {
+      if (scoping != null)
+      {
+         scoping.controlSequenceChanged(this, name);
+      }
    }
 
    @Deprecated
@@ -1839,6 +1901,11 @@ public class TeXSettings
    {
       Register cs = localRegisters == null ? null : localRegisters.remove(name);
 
+      if (cs != null)
+      {
+         controlSequenceChanged(name);
+      }
+
       putControlSequence(parser.getListener().createUndefinedCs(name));
 
       return cs;
@@ -2502,6 +2569,12 @@ public class TeXSettings
    /**
     * Sets the category code for the given character.
     * The character is identified by its code point.
+    * Note that the parser looks up category codes in the
+    * {@link Scoping} lookup table, so category codes should normally
+    * be changed via {@link Scoping#setCategoryCode(boolean,int,CategoryCode)}.
+    * If this method is used directly on settings that are in the
+    * current scope, {@link Scoping#refreshCategoryCodes()} will need
+    * to be called afterwards.
     * @param codePoint the character's code point
     * @param catCode the category code
     * @throws IllegaArgumentException if the category code is
@@ -3846,6 +3919,11 @@ public class TeXSettings
 
    private TeXParser parser;
 
+   // the scoping this object currently belongs to (if any) and its
+   // level within that scoping (0 for the global settings)
+   Scoping scoping = null;
+   int scopeLevel = 0;
+
    private HashMap<String,Register> localRegisters;
 
    protected HashMap<String,ControlSequence> csTable;
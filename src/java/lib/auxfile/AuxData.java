@@ -103,8 +103,11 @@ public class AuxData
       return builder.toString();
    }
 
-   public static TeXObject getReference(Vector<AuxData> auxData,
-    TeXParser parser, TeXObject object)
+   /**
+    * Gets the label string from the given object, expanding it if
+    * necessary.
+    */
+   public static String getLabelString(TeXParser parser, TeXObject object)
     throws IOException
    {
       TeXObjectList expanded = null;
@@ -119,44 +122,76 @@ public class AuxData
          expanded = ((Expandable)object).expandfully(parser);
       }
 
-      String label = (expanded == null ?
-                      object.toString(parser) : 
-                      expanded.toString(parser));
-
-      return getReference(auxData, parser, label);
+      return (expanded == null ?
+              object.toString(parser) : 
+              expanded.toString(parser));
    }
 
-   public static TeXObject getReference(Vector<AuxData> auxData,
-     TeXParser parser, String label)
-   throws IOException
+   /**
+    * Gets the given field from the second argument of
+    * <code>\newlabel</code>. Field 0 is the reference, field 1 is
+    * the page, field 2 is the title and field 3 is the hyperlink
+    * target. If the argument isn't a list or doesn't have the field,
+    * the entire argument is returned.
+    */
+   public static TeXObject getNewLabelField(AuxData data, int field)
    {
-      for (AuxData data : auxData)
+      TeXObject params = data.getArg(1);
+
+      if (params instanceof TeXObjectList
+       && (field == 0 || ((TeXObjectList)params).size() > field))
       {
-         if (data.getName().equals("newlabel"))
+         TeXObject ref = ((TeXObjectList)params).get(field);
+
+         if (ref instanceof Group)
          {
-            TeXObject arg = data.getArg(0);
+            return ((Group)ref).toList();
+         }
 
-            if (label.equals(arg.toString(parser)))
-            {
-               TeXObject params = data.getArg(1);
+         return ref;
+      }
+
+      return params;
+   }
+
+   /**
+    * Gets the target field from the second argument of
+    * <code>\newlabel</code>, fully expanded.
+    * @return the target or null if not available
+    */
+   public static String getNewLabelTarget(TeXParser parser, AuxData data)
+    throws IOException
+   {
+      TeXObject params = data.getArg(1);
 
-               if (params instanceof TeXObjectList)
-               {
-                  TeXObject ref = ((TeXObjectList)params).firstElement();
+      if (params instanceof TeXObjectList
+      && (((TeXObjectList)params).size() > 3))
+      {
+         TeXObject ref = ((TeXObjectList)params).get(3);
 
-                  if (ref instanceof Group)
-                  {
-                     return ((Group)ref).toList();
-                  }
+         if (ref instanceof Group)
+         {
+            ref = ((Group)ref).toList();
+         }
 
-                  return ref;
-               }
+         if (ref instanceof Expandable)
+         {
+            TeXObjectList expanded=((Expandable)ref).expandfully(parser);
 
-               return params;
+            if (expanded != null)
+            {
+               ref = expanded;
             }
          }
+
+         return ref.toString(parser);
       }
 
+      return null;
+   }
+
+   public static TeXObject createUnknownReference(TeXParser parser, String label)
+   {
       TeXParserListener listener = parser.getListener();
 
       if (listener instanceof LaTeXParserListener)
@@ -167,25 +202,40 @@ public class AuxData
       return new UnknownReference(listener, label);
    }
 
-   public static TeXObject getPageReference(Vector<AuxData> auxData,
+   public static TeXObject getReference(Vector<AuxData> auxData,
     TeXParser parser, TeXObject object)
     throws IOException
    {
-      TeXObjectList expanded = null;
+      String label = getLabelString(parser, object);
 
-      if (object instanceof Group)
-      {
-         object = ((Group)object).toList();
-      }
+      return getReference(auxData, parser, label);
+   }
 
-      if (object instanceof Expandable)
+   public static TeXObject getReference(Vector<AuxData> auxData,
+     TeXParser parser, String label)
+   throws IOException
+   {
+      for (AuxData data : auxData)
       {
-         expanded = ((Expandable)object).expandfully(parser);
+         if (data.getName().equals("newlabel"))
+         {
+            TeXObject arg = data.getArg(0);
+
+            if (label.equals(arg.toString(parser)))
+            {
+               return getNewLabelField(data, 0);
+            }
+         }
       }
 
-      String label = (expanded == null ?
-                      object.toString(parser) : 
-                      expanded.toString(parser));
+      return createUnknownReference(parser, label);
+   }
+
+   public static TeXObject getPageReference(Vector<AuxData> auxData,
+    TeXParser parser, TeXObject object)
+    throws IOException
+   {
+      String label = getLabelString(parser, object);
 
       return getPageReference(auxData, parser, label);
    }
@@ -202,55 +252,19 @@ public class AuxData
 
             if (label.equals(arg.toString(parser)))
             {
-               TeXObject params = data.getArg(1);
-
-               if (params instanceof TeXObjectList
-               && (((TeXObjectList)params).size() > 1))
-               {
-                  TeXObject ref = ((TeXObjectList)params).get(1);
-
-                  if (ref instanceof Group)
-                  {
-                     return ((Group)ref).toList();
-                  }
-
-                  return ref;
-               }
-
-               return params;
+               return getNewLabelField(data, 1);
             }
          }
       }
 
-      TeXParserListener listener = parser.getListener();
-
-      if (listener instanceof LaTeXParserListener)
-      {
-         return ((LaTeXParserListener)listener).createUnknownReference(label);
-      }
-
-      return new UnknownReference(listener, label);
+      return createUnknownReference(parser, label);
    }
 
    public static TeXObject getNameReference(Vector<AuxData> auxData,
     TeXParser parser, TeXObject object)
     throws IOException
    {
-      TeXObjectList expanded = null;
-
-      if (object instanceof Group)
-      {
-         object = ((Group)object).toList();
-      }
-
-      if (object instanceof Expandable)
-      {
-         expanded = ((Expandable)object).expandfully(parser);
-      }
-
-      String label = (expanded == null ?
-                      object.toString(parser) : 
-                      expanded.toString(parser));
+      String label = getLabelString(parser, object);
 
       return getNameReference(auxData, parser, label);
    }
@@ -267,34 +281,12 @@ public class AuxData
 
             if (label.equals(arg.toString(parser)))
             {
-               TeXObject params = data.getArg(1);
-
-               if (params instanceof TeXObjectList
-               && (((TeXObjectList)params).size() > 2))
-               {
-                  TeXObject ref = ((TeXObjectList)params).get(2);
-
-                  if (ref instanceof Group)
-                  {
-                     return ((Group)ref).toList();
-                  }
-
-                  return ref;
-               }
-
-               return params;
+               return getNewLabelField(data, 2);
             }
          }
       }
 
-      TeXParserListener listener = parser.getListener();
-
-      if (listener instanceof LaTeXParserListener)
-      {
-         return ((LaTeXParserListener)listener).createUnknownReference(label);
-      }
-
-      return new UnknownReference(listener, label);
+      return createUnknownReference(parser, label);
    }
 
    @Deprecated
@@ -302,23 +294,7 @@ public class AuxData
      TeXParser parser, TeXObject link)
    throws IOException
    {
-      TeXObjectList expanded = null;
-
-      if (link instanceof Group)
-      {
-         link = ((Group)link).toList();
-      }
-
-      if (link instanceof Expandable)
-      {
-         expanded = ((Expandable)link).expandfully(parser);
-      }
-
-      String linkLabel = (expanded == null ?
-                      link.toString(parser) : 
-                      expanded.toString(parser));
-
-      return getLabelForLink(auxData, parser, linkLabel);
+      return getLabelForLink(auxData, parser, getLabelString(parser, link));
    }
 
    public static TeXObject getLabelForLink(Vector<AuxData> auxData,
@@ -327,38 +303,10 @@ public class AuxData
    {
       for (AuxData data : auxData)
       {
-         if (data.getName().equals("newlabel"))
+         if (data.getName().equals("newlabel")
+              && link.equals(getNewLabelTarget(parser, data)))
          {
-            TeXObject arg = data.getArg(0);
-            TeXObject params = data.getArg(1);
-
-            if (params instanceof TeXObjectList
-            && (((TeXObjectList)params).size() > 3))
-            {
-               TeXObject ref = ((TeXObjectList)params).get(3);
-
-               if (ref instanceof Group)
-               {
-                  ref = ((Group)ref).toList();
-               }
-
-               if (ref instanceof Expandable)
-               {
-                  TeXObjectList expanded=((Expandable)ref).expandfully(parser);
-
-                  if (expanded != null)
-                  {
-                     ref = expanded;
-                  }
-               }
-
-               String refString = ref.toString(parser);
-
-               if (refString.equals(link))
-               {
-                  return arg;
-               }
-            }
+            return data.getArg(0);
          }
       }
 
@@ -369,21 +317,7 @@ public class AuxData
     TeXParser parser, TeXObject object)
     throws IOException
    {
-      TeXObjectList expanded = null;
-
-      if (object instanceof Group)
-      {
-         object = ((Group)object).toList();
-      }
-
-      if (object instanceof Expandable)
-      {
-         expanded = ((Expandable)object).expandfully(parser);
-      }
-
-      String label = (expanded == null ?
-                      object.toString(parser) : 
-                      expanded.toString(parser));
+      String label = getLabelString(parser, object);
 
       return getHyperReference(auxData, parser, label);
    }
@@ -400,55 +334,19 @@ public class AuxData
 
             if (label.equals(arg.toString(parser)))
             {
-               TeXObject params = data.getArg(1);
-
-               if (params instanceof TeXObjectList
-               && (((TeXObjectList)params).size() > 3))
-               {
-                  TeXObject ref = ((TeXObjectList)params).get(3);
-
-                  if (ref instanceof Group)
-                  {
-                     return ((Group)ref).toList();
-                  }
-
-                  return ref;
-               }
-
-               return params;
+               return getNewLabelField(data, 3);
             }
          }
       }
 
-      TeXParserListener listener = parser.getListener();
-
-      if (listener instanceof LaTeXParserListener)
-      {
-         return ((LaTeXParserListener)listener).createUnknownReference(label);
-      }
-
-      return new UnknownReference(listener, label);
+      return createUnknownReference(parser, label);
    }
 
    public static TeXObject getCitation(Vector<AuxData> auxData,
     TeXParser parser, TeXObject object)
     throws IOException
    {
-      TeXObjectList expanded = null;
-
-      if (object instanceof Group)
-      {
-         object = ((Group)object).toList();
-      }
-
-      if (object instanceof Expandable)
-      {
-         expanded = ((Expandable)object).expandfully(parser);
-      }
-
-      String label = (expanded == null ?
-                      object.toString(parser) : 
-                      expanded.toString(parser));
+      String label = getLabelString(parser, object);
 
       return getCitation(auxData, parser, label);
    }
@@ -470,14 +368,7 @@ public class AuxData
          }
       }
 
-      TeXParserListener listener = parser.getListener();
-
-      if (listener instanceof LaTeXParserListener)
-      {
-         return ((LaTeXParserListener)listener).createUnknownReference(label);
-      }
-
-      return new UnknownReference(listener, label);
+      return createUnknownReference(parser, label);
    }
 
    private String name;
@@ -0,0 +1,344 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimaw-books.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib.auxfile;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Vector;
+
+import com.dickimawbooks.texparserlib.*;
+
+/**
+ * Index of aux data. This provides the same lookups as the static
+ * methods in {@link AuxData} (and the division lookups in
+ * {@link AuxParser}) but uses hash maps instead of searching the
+ * list each time. As with the static methods, if there's more than
+ * one match, the first is used.
+ *
+ * The index doesn't take a copy of the lists. Entries appended to
+ * the aux data list are indexed the next time the index is used. If
+ * an entry is removed or replaced, {@link #clear()} should be used.
+ * The division index is rebuilt if either list changes size, since
+ * labels are assigned to divisions as the aux data is added.
+ */
+public class AuxIndex
+{
+   /**
+    * Creates an index for the given aux data.
+    * @param auxData the aux data
+    * @param parser the parser used to obtain the label strings
+    */
+   public AuxIndex(Vector<AuxData> auxData, TeXParser parser)
+   {
+      this(auxData, null, parser);
+   }
+
+   /**
+    * Creates an index for the given aux and division data.
+    * @param auxData the aux data
+    * @param divisionData the division data (may be null)
+    * @param parser the parser used to obtain the label strings
+    */
+   public AuxIndex(Vector<AuxData> auxData, Vector<DivisionInfo> divisionData,
+     TeXParser parser)
+   {
+      this.auxData = auxData;
+      this.divisionData = divisionData;
+      this.parser = parser;
+
+      clear();
+   }
+
+   public Vector<AuxData> getAuxData()
+   {
+      return auxData;
+   }
+
+   public Vector<DivisionInfo> getDivisionData()
+   {
+      return divisionData;
+   }
+
+   /**
+    * Discards the index. It will be rebuilt when next used.
+    */
+   public void clear()
+   {
+      byName = new HashMap<String,Vector<AuxData>>();
+      byLabel = new HashMap<String,AuxData>();
+      linkLabels = null;
+      indexedCount = 0;
+
+      divisionsByTarget = null;
+      divisionsByLabel = null;
+   }
+
+   private void update()
+   {
+      int n = auxData.size();
+
+      if (n < indexedCount)
+      {
+         clear();
+      }
+
+      for (int i = indexedCount; i < n; i++)
+      {
+         AuxData data = auxData.get(i);
+
+         String name = data.getName();
+
+         Vector<AuxData> list = byName.get(name);
+
+         if (list == null)
+         {
+            list = new Vector<AuxData>();
+            byName.put(name, list);
+         }
+
+         list.add(data);
+
+         if (data.getNumArgs() > 0)
+         {
+            String key = getKey(name, data.getArg(0).toString(parser));
+
+            if (!byLabel.containsKey(key))
+            {
+               byLabel.put(key, data);
+            }
+         }
+      }
+
+      indexedCount = n;
+   }
+
+   private static String getKey(String name, String label)
+   {
+      return name + "\u0000" + label;
+   }
+
+   /**
+    * Gets all the entries for the given command.
+    * @param name the command name (without the leading backslash)
+    * @return a new list of the matching entries (may be empty)
+    */
+   public Vector<AuxData> getAuxData(String name)
+   {
+      update();
+
+      Vector<AuxData> list = byName.get(name);
+
+      return list == null ? new Vector<AuxData>() : new Vector<AuxData>(list);
+   }
+
+   /**
+    * Gets the first entry for the given command whose first argument
+    * is the given label.
+    * @param name the command name (without the leading backslash)
+    * @param label the label
+    * @return the entry or null if not found
+    */
+   public AuxData getAuxData(String name, String label)
+   {
+      update();
+
+      return byLabel.get(getKey(name, label));
+   }
+
+   private TeXObject getNewLabelField(String label, int field)
+   {
+      AuxData data = getAuxData("newlabel", label);
+
+      return data == null ? AuxData.createUnknownReference(parser, label)
+        : AuxData.getNewLabelField(data, field);
+   }
+
+   public TeXObject getReference(String label)
+   {
+      return getNewLabelField(label, 0);
+   }
+
+   public TeXObject getReference(TeXObject label) throws IOException
+   {
+      return getReference(AuxData.getLabelString(parser, label));
+   }
+
+   public TeXObject getPageReference(String label)
+   {
+      return getNewLabelField(label, 1);
+   }
+
+   public TeXObject getPageReference(TeXObject label) throws IOException
+   {
+      return getPageReference(AuxData.getLabelString(parser, label));
+   }
+
+   public TeXObject getNameReference(String label)
+   {
+      return getNewLabelField(label, 2);
+   }
+
+   public TeXObject getNameReference(TeXObject label) throws IOException
+   {
+      return getNameReference(AuxData.getLabelString(parser, label));
+   }
+
+   public TeXObject getHyperReference(String label)
+   {
+      return getNewLabelField(label, 3);
+   }
+
+   public TeXObject getHyperReference(TeXObject label) throws IOException
+   {
+      return getHyperReference(AuxData.getLabelString(parser, label));
+   }
+
+   public TeXObject getCitation(String label)
+   {
+      AuxData data = getAuxData("bibcite", label);
+
+      return data == null ? AuxData.createUnknownReference(parser, label)
+        : data.getArg(1);
+   }
+
+   public TeXObject getCitation(TeXObject label) throws IOException
+   {
+      return getCitation(AuxData.getLabelString(parser, label));
+   }
+
+   /**
+    * Gets the label whose hyperlink target is the given link. The
+    * targets are expanded the first time this method is used.
+    * @param link the hyperlink target
+    * @return the label or null if not found
+    */
+   public TeXObject getLabelForLink(String link) throws IOException
+   {
+      update();
+
+      Vector<AuxData> list = byName.get("newlabel");
+
+      if (list == null)
+      {
+         return null;
+      }
+
+      if (linkLabels == null)
+      {
+         linkLabels = new HashMap<String,TeXObject>();
+         linkCount = 0;
+      }
+
+      for (; linkCount < list.size(); linkCount++)
+      {
+         AuxData data = list.get(linkCount);
+
+         String target = AuxData.getNewLabelTarget(parser, data);
+
+         if (target != null && !linkLabels.containsKey(target))
+         {
+            linkLabels.put(target, data.getArg(0));
+         }
+      }
+
+      return linkLabels.get(link);
+   }
+
+   public TeXObject getLabelForLink(TeXObject link) throws IOException
+   {
+      return getLabelForLink(AuxData.getLabelString(parser, link));
+   }
+
+   private void updateDivisions()
+   {
+      if (divisionsByTarget != null
+           && divisionCount == divisionData.size()
+           && divisionAuxCount == auxData.size())
+      {
+         return;
+      }
+
+      divisionsByTarget = new HashMap<String,DivisionInfo>();
+      divisionsByLabel = new HashMap<String,DivisionInfo>();
+
+      for (DivisionInfo divData : divisionData)
+      {
+         String target = divData.getTarget();
+
+         if (target != null && !divisionsByTarget.containsKey(target))
+         {
+            divisionsByTarget.put(target, divData);
+         }
+
+         String label = divData.getLabel();
+
+         if (label != null && !divisionsByLabel.containsKey(label))
+         {
+            divisionsByLabel.put(label, divData);
+         }
+      }
+
+      divisionCount = divisionData.size();
+      divisionAuxCount = auxData.size();
+   }
+
+   /**
+    * Gets the first division with the given target.
+    * @param target the hyperlink target
+    * @return the division or null if not found or if there's no
+    * division data
+    */
+   public DivisionInfo getDivisionByTarget(String target)
+   {
+      if (divisionData == null) return null;
+
+      updateDivisions();
+
+      return divisionsByTarget.get(target);
+   }
+
+   /**
+    * Gets the first division whose first label is the given label.
+    * @param label the label
+    * @return the division or null if not found or if there's no
+    * division data
+    */
+   public DivisionInfo getDivisionByLabel(String label)
+   {
+      if (divisionData == null) return null;
+
+      updateDivisions();
+
+      return divisionsByLabel.get(label);
+   }
+
+   private final Vector<AuxData> auxData;
+   private final Vector<DivisionInfo> divisionData;
+   private final TeXParser parser;
+
+   private HashMap<String,Vector<AuxData>> byName;
+   private HashMap<String,AuxData> byLabel;
+   private int indexedCount;
+
+   private HashMap<String,TeXObject> linkLabels;
+   private int linkCount;
+
+   private HashMap<String,DivisionInfo> divisionsByTarget, divisionsByLabel;
+   private int divisionCount, divisionAuxCount;
+}
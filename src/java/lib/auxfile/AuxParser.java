@@ -100,10 +100,125 @@ public class AuxParser extends DefaultTeXParserListener
          this.charset=charset;
       }
 
+      if (snapshotEnabled
+            && AuxSnapshot.load(this, auxFile, getSnapshotSignature()))
+      {
+         return;
+      }
+
+      AuxSnapshot recorder = null;
+
+      if (snapshotEnabled)
+      {
+         recorder = new AuxSnapshot(getSnapshotSignature());
+         snapshot = recorder;
+      }
+
       CategoryCode catCode = parser.getCategoryCode('@');
       parser.setCategoryCode('@', CategoryCode.LETTER);
-      parser.parse(auxFile);
+
+      try
+      {
+         parser.parse(auxFile);
+      }
+      finally
+      {
+         snapshot = null;
+      }
+
       parser.setCategoryCode('@', catCode);
+
+      if (recorder != null && recorder.isValid() && isSnapshotWriteAllowed())
+      {
+         File snapshotFile = AuxSnapshot.getSnapshotFile(auxFile);
+
+         try
+         {
+            recorder.write(snapshotFile);
+         }
+         catch (IOException e)
+         {
+            parser.debugMessage(TeXParser.DEBUG_IO,
+              "Can't write AUX snapshot "+snapshotFile+": "+e.getMessage());
+         }
+      }
+   }
+
+   /**
+    * Determines whether the snapshot recorded while parsing the aux
+    * file may be written. This is only checked if snapshots are
+    * enabled and the recorded data is valid.
+    * @return true if the snapshot may be written
+    */
+   protected boolean isSnapshotWriteAllowed()
+   {
+      return true;
+   }
+
+   /**
+    * Sets whether or not to use a binary snapshot of the aux data.
+    * If enabled, the data gathered when an aux file is parsed is
+    * saved in a file alongside it (see {@link AuxSnapshot}) and
+    * the snapshot is used instead of parsing the aux file the next
+    * time, provided that it's still current. Must be set before
+    * parsing to have an effect.
+    */
+   public void setSnapshotEnabled(boolean enabled)
+   {
+      snapshotEnabled = enabled;
+   }
+
+   public boolean isSnapshotEnabled()
+   {
+      return snapshotEnabled;
+   }
+
+   /**
+    * Gets a string identifying the settings that affect the
+    * gathered data: the encoding, whether or not catcode changing
+    * commands are allowed and the aux commands.
+    */
+   protected String getSnapshotSignature()
+   {
+      StringBuilder builder = new StringBuilder();
+
+      builder.append(getCharSet());
+      builder.append('\0');
+      builder.append(allowCatChangers);
+
+      for (String cmd : auxCommandSignatures)
+      {
+         builder.append('\0');
+         builder.append(cmd);
+      }
+
+      return builder.toString();
+   }
+
+   @Override
+   public void putControlSequence(ControlSequence cs)
+   {
+      addAuxCommandSignature(cs);
+      super.putControlSequence(cs);
+   }
+
+   @Override
+   public void putControlSequence(boolean isLocal, ControlSequence cs)
+   {
+      addAuxCommandSignature(cs);
+      super.putControlSequence(isLocal, cs);
+   }
+
+   private void addAuxCommandSignature(ControlSequence cs)
+   {
+      if (cs instanceof AuxCommand)
+      {
+         AuxCommand auxCommand = (AuxCommand)cs;
+
+         auxCommandSignatures.add(String.format("%s/%s/%d/%s",
+           auxCommand.getClass().getName(), auxCommand.getName(),
+           auxCommand.getNumArgs(), auxCommand.labelPrefix));
+      }
    }
 
    public String getLabelPrefix()
@@ -354,6 +469,21 @@ public class AuxParser extends DefaultTeXParserListener
    @Override
    public void beginParse(File file, Charset encoding)
       throws IOException
+   {
+      if (snapshot != null)
+      {
+         snapshot.addFile(file, encoding);
+      }
+
+      readingFile(file, encoding);
+   }
+
+   /**
+    * Writes the messages identifying the file that's about to be
+    * read.
+    */
+   protected void readingFile(File file, Charset encoding)
+      throws IOException
    {
       getParser().message(TeXApp.MESSAGE_READING, file);
 
@@ -363,8 +493,29 @@ public class AuxParser extends DefaultTeXParserListener
       }
    }
 
+   @Override
+   public boolean input(TeXPath path, TeXObjectList stack)
+     throws IOException
+   {
+      boolean found = super.input(path, stack);
+
+      if (!found && snapshot != null)
+      {
+         // the file may exist next time
+
+         snapshot.invalidate();
+      }
+
+      return found;
+   }
+
    public void addAuxData(AuxData data)
    {
+      if (snapshot != null)
+      {
+         snapshot.addAuxData(data);
+      }
+
       if (getParser().isDebugMode(TeXParser.DEBUG_STY_DATA))
       {
          getParser().logMessage("AuxData: "+data.toString(parser));
@@ -620,15 +771,7 @@ public class AuxParser extends DefaultTeXParserListener
    {
       if (divisionData == null) return null;
 
-      for (DivisionInfo divData : divisionData)
-      {
-         if (target.equals(divData.getTarget()))
-         {
-            return divData;
-         }
-      }
-
-      return null;
+      return getAuxIndex().getDivisionByTarget(target);
    }
 
    /**
@@ -641,15 +784,7 @@ public class AuxParser extends DefaultTeXParserListener
    {
       if (divisionData == null) return null;
 
-      for (DivisionInfo divData : divisionData)
-      {
-         if (label.equals(divData.getLabel()))
-         {
-            return divData;
-         }
-      }
-
-      return null;
+      return getAuxIndex().getDivisionByLabel(label);
    }
 
    /**
@@ -693,17 +828,21 @@ public class AuxParser extends DefaultTeXParserListener
     */ 
    public Vector<AuxData> getAuxData(String name)
    {
-      Vector<AuxData> list = new Vector<AuxData>();
+      return getAuxIndex().getAuxData(name);
+   }
 
-      for (AuxData data : auxData)
+   /**
+    * Gets the index of the information obtained from parsing the
+    * aux file. The index is updated as new information is added.
+    */ 
+   public AuxIndex getAuxIndex()
+   {
+      if (auxIndex == null || auxIndex.getDivisionData() != divisionData)
       {
-         if (data.getName().equals(name))
-         {
-            list.add(data);
-         }
+         auxIndex = new AuxIndex(auxData, divisionData, getParser());
       }
 
-      return list;
+      return auxIndex;
    }
 
    /**
@@ -761,6 +900,7 @@ public class AuxParser extends DefaultTeXParserListener
    }
 
    private Vector<AuxData> auxData;
+   private AuxIndex auxIndex;
 
    private HashMap<String,DivisionInfo> tpLabels;
 
@@ -779,4 +919,8 @@ public class AuxParser extends DefaultTeXParserListener
    private Charset charset=null;
    private String labelPrefix = null;
    private boolean allowCatChangers = true;
+
+   private boolean snapshotEnabled = false;
+   private AuxSnapshot snapshot = null;
+   private Vector<String> auxCommandSignatures = new Vector<String>();
 }
@@ -0,0 +1,719 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimaw-books.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib.auxfile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Vector;
+
+import com.dickimawbooks.texparserlib.*;
+
+/**
+ * Binary snapshot of the data gathered by an {@link AuxParser}.
+ * While an aux file is parsed, the arguments of each
+ * {@link AuxData} object are recorded as they are passed to
+ * {@link AuxParser#addAuxData(AuxData)} (before any of them are
+ * consumed by the division information) together with the files
+ * that were read. The snapshot is saved alongside the aux file. The
+ * next time the aux file is parsed with the same settings, if the
+ * library version and the content of each file that was read are
+ * unchanged, the recorded data is added to the aux parser without
+ * tokenizing the files again. The label, citation and division
+ * information is rebuilt from the replayed data in the usual way.
+ *
+ * Only the token types that the aux parser produces while reading
+ * are supported. If an argument contains anything else, or if
+ * an <code>\@input</code> file couldn't be found, no snapshot is
+ * saved.
+ */
+public class AuxSnapshot
+{
+   /**
+    * Creates a new snapshot recorder.
+    * @param signature the aux parser settings that affect the data
+    */
+   protected AuxSnapshot(String signature)
+   {
+      this.signature = signature;
+      files = new Vector<FileInfo>();
+      buffer = new ByteArrayOutputStream();
+      out = new DataOutputStream(buffer);
+   }
+
+   /**
+    * Gets the snapshot file associated with the given aux file.
+    * @param auxFile the aux file
+    * @return the snapshot file
+    */
+   public static File getSnapshotFile(File auxFile)
+   {
+      return new File(auxFile.getAbsoluteFile().getParentFile(),
+        auxFile.getName()+SNAPSHOT_EXTENSION);
+   }
+
+   /**
+    * Indicates that the snapshot can't be saved.
+    */
+   protected void invalidate()
+   {
+      valid = false;
+   }
+
+   public boolean isValid()
+   {
+      return valid;
+   }
+
+   /**
+    * Records that the given file is about to be parsed.
+    */
+   protected void addFile(File file, Charset encoding)
+   {
+      if (!valid) return;
+
+      try
+      {
+         files.add(new FileInfo(file.getPath(), file.length(), digest(file)));
+
+         out.writeByte(EVENT_FILE);
+         out.writeInt(files.size()-1);
+         writeString(encoding == null ? "" : encoding.name());
+      }
+      catch (IOException e)
+      {
+         valid = false;
+      }
+   }
+
+   /**
+    * Records the given data. This must be called before any of the
+    * arguments are modified.
+    */
+   protected void addAuxData(AuxData data)
+   {
+      if (!valid) return;
+
+      try
+      {
+         out.writeByte(EVENT_DATA);
+         writeString(data.getName());
+
+         int n = data.getNumArgs();
+
+         out.writeInt(n);
+
+         for (int i = 0; i < n && valid; i++)
+         {
+            writeToken(data.getArg(i));
+         }
+      }
+      catch (IOException e)
+      {
+         valid = false;
+      }
+   }
+
+   private void writeString(String str) throws IOException
+   {
+      byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+   }
+
+   private void writeToken(TeXObject obj) throws IOException
+   {
+      Class<?> cls = obj.getClass();
+
+      if (cls == Letter.class)
+      {
+         out.writeByte(TOKEN_LETTER);
+         out.writeInt(((Letter)obj).getCharCode());
+      }
+      else if (cls == Other.class)
+      {
+         out.writeByte(TOKEN_OTHER);
+         out.writeInt(((Other)obj).getCharCode());
+      }
+      else if (cls == Space.class)
+      {
+         out.writeByte(TOKEN_SPACE);
+         out.writeInt(((Space)obj).getSpace());
+      }
+      else if (cls == SkippedSpaces.class)
+      {
+         SkippedSpaces spaces = (SkippedSpaces)obj;
+
+         out.writeByte(TOKEN_SKIPPED_SPACES);
+         out.writeInt(spaces.size());
+
+         for (int i = 0; i < spaces.size(); i++)
+         {
+            Space sp = spaces.get(i);
+
+            if (sp.getClass() != Space.class)
+            {
+               valid = false;
+               return;
+            }
+
+            out.writeInt(sp.getSpace());
+         }
+      }
+      else if (cls == TeXCsRef.class)
+      {
+         out.writeByte(TOKEN_CS);
+         writeString(((TeXCsRef)obj).getName());
+      }
+      else if (cls == TeXObjectList.class || cls == Group.class
+                || cls == MathGroup.class)
+      {
+         TeXObjectList list = (TeXObjectList)obj;
+
+         if (cls == TeXObjectList.class)
+         {
+            out.writeByte(TOKEN_LIST);
+         }
+         else if (cls == Group.class)
+         {
+            out.writeByte(TOKEN_GROUP);
+         }
+         else
+         {
+            out.writeByte(TOKEN_MATH_GROUP);
+            out.writeBoolean(((MathGroup)list).isInLine());
+         }
+
+         out.writeInt(list.size());
+
+         for (int i = 0; i < list.size() && valid; i++)
+         {
+            writeToken(list.get(i));
+         }
+      }
+      else if (cls == SpChar.class)
+      {
+         out.writeByte(TOKEN_SP);
+         out.writeInt(((SpChar)obj).getCharCode());
+      }
+      else if (cls == SbChar.class)
+      {
+         out.writeByte(TOKEN_SB);
+         out.writeInt(((SbChar)obj).getCharCode());
+      }
+      else if (cls == Tab.class)
+      {
+         out.writeByte(TOKEN_TAB);
+         out.writeInt(((Tab)obj).getCharCode());
+      }
+      else if (cls == Param.class || cls == DoubleParam.class)
+      {
+         writeParam((ParameterToken)obj);
+      }
+      else if (cls == SpecialToken.class)
+      {
+         SpecialToken token = (SpecialToken)obj;
+
+         if (!(token.getObject() instanceof ParameterToken))
+         {
+            valid = false;
+            return;
+         }
+
+         out.writeByte(TOKEN_SPECIAL);
+         out.writeInt(token.getCharCode());
+         out.writeInt(token.getCategoryCode().getId());
+         writeParam((ParameterToken)token.getObject());
+      }
+      else if (obj instanceof ActiveChar)
+      {
+         out.writeByte(TOKEN_ACTIVE);
+         out.writeInt(((ActiveChar)obj).getCharCode());
+         writeString(cls.getName());
+      }
+      else
+      {
+         valid = false;
+      }
+   }
+
+   private void writeParam(ParameterToken param) throws IOException
+   {
+      if (param.getClass() == Param.class)
+      {
+         out.writeByte(TOKEN_PARAM);
+         out.writeInt(((Param)param).getDigit());
+         out.writeInt(param.getCharCode());
+      }
+      else if (param.getClass() == DoubleParam.class)
+      {
+         out.writeByte(TOKEN_DOUBLE_PARAM);
+         out.writeInt(param.getCharCode());
+         writeParam(((DoubleParam)param).next());
+      }
+      else
+      {
+         valid = false;
+      }
+   }
+
+   /**
+    * Saves the snapshot. The file is written to a new temporary file
+    * in the same directory first and then moved into place.
+    * @param snapshotFile the snapshot file
+    * @throws IOException if an I/O error occurs
+    */
+   protected void write(File snapshotFile) throws IOException
+   {
+      if (!valid || files.isEmpty())
+      {
+         return;
+      }
+
+      out.flush();
+
+      Path target = snapshotFile.toPath();
+
+      // Use a unique temporary file in the same directory so that
+      // concurrent writers (such as a cancelled aux prefetch and the
+      // document parser) don't overwrite each other's partial files
+      // and the final move can be atomic.
+
+      Path tmp = Files.createTempFile(
+        snapshotFile.getAbsoluteFile().getParentFile().toPath(),
+        snapshotFile.getName()+".", ".tmp");
+
+      OutputStream stream = null;
+
+      try
+      {
+         stream = Files.newOutputStream(tmp);
+
+         DataOutputStream dataOut = new DataOutputStream(stream);
+
+         dataOut.writeInt(MAGIC);
+         dataOut.writeInt(FORMAT);
+         writeString(dataOut, TeXParser.VERSION);
+         writeString(dataOut, signature);
+         dataOut.writeInt(files.size());
+
+         for (FileInfo info : files)
+         {
+            writeString(dataOut, info.path);
+            dataOut.writeLong(info.length);
+            dataOut.writeInt(info.digest.length);
+            dataOut.write(info.digest);
+         }
+
+         buffer.writeTo(dataOut);
+         dataOut.flush();
+         stream.close();
+         stream = null;
+
+         try
+         {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+         }
+         catch (AtomicMoveNotSupportedException e)
+         {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+         }
+
+         tmp = null;
+      }
+      finally
+      {
+         if (stream != null)
+         {
+            stream.close();
+         }
+
+         if (tmp != null)
+         {
+            Files.deleteIfExists(tmp);
+         }
+      }
+   }
+
+   private static void writeString(DataOutputStream dataOut, String str)
+     throws IOException
+   {
+      byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+      dataOut.writeInt(bytes.length);
+      dataOut.write(bytes);
+   }
+
+   /**
+    * Loads the snapshot for the given aux file, if there's a current
+    * one, and adds the data to the aux parser. Nothing is added to
+    * the aux parser unless the entire snapshot can be read.
+    * @param auxParser the aux parser
+    * @param auxFile the aux file
+    * @param signature the aux parser settings that affect the data
+    * @return true if the snapshot was used or false if the aux
+    * file needs to be parsed
+    * @throws IOException if an I/O error occurs while replaying the
+    * data
+    */
+   protected static boolean load(AuxParser auxParser, File auxFile,
+     String signature)
+     throws IOException
+   {
+      File snapshotFile = getSnapshotFile(auxFile);
+
+      if (!snapshotFile.isFile())
+      {
+         return false;
+      }
+
+      TeXParser parser = auxParser.getParser();
+
+      Vector<Object> events;
+      Vector<File> fileList;
+
+      try
+      {
+         ByteBuffer buf = map(snapshotFile);
+
+         if (buf.getInt() != MAGIC || buf.getInt() != FORMAT
+              || !TeXParser.VERSION.equals(readString(buf))
+              || !signature.equals(readString(buf)))
+         {
+            return false;
+         }
+
+         int numFiles = buf.getInt();
+
+         if (numFiles < 1)
+         {
+            return false;
+         }
+
+         fileList = new Vector<File>(numFiles);
+
+         for (int i = 0; i < numFiles; i++)
+         {
+            File file = new File(readString(buf));
+            long length = buf.getLong();
+            byte[] hash = new byte[buf.getInt()];
+            buf.get(hash);
+
+            if (i == 0 && !file.getAbsoluteFile().equals(auxFile.getAbsoluteFile()))
+            {
+               return false;
+            }
+
+            if (!file.isFile() || file.length() != length
+                 || !Arrays.equals(hash, digest(file)))
+            {
+               return false;
+            }
+
+            fileList.add(file);
+         }
+
+         events = new Vector<Object>();
+
+         TeXParserListener listener = parser.getListener();
+
+         while (buf.hasRemaining())
+         {
+            byte type = buf.get();
+
+            if (type == EVENT_FILE)
+            {
+               File file = fileList.get(buf.getInt());
+               String encoding = readString(buf);
+
+               events.add(new Object[] {file,
+                 encoding.isEmpty() ? null : Charset.forName(encoding)});
+            }
+            else if (type == EVENT_DATA)
+            {
+               String name = readString(buf);
+               TeXObject[] args = new TeXObject[buf.getInt()];
+
+               for (int i = 0; i < args.length; i++)
+               {
+                  args[i] = readToken(buf, listener);
+               }
+
+               events.add(new AuxData(name, args));
+            }
+            else
+            {
+               throw new IOException("Unknown event type "+type);
+            }
+         }
+      }
+      catch (IOException | BufferUnderflowException | IndexOutOfBoundsException
+             | IllegalArgumentException e)
+      {
+         parser.debugMessage(TeXParser.DEBUG_IO,
+           "Can't use AUX snapshot "+snapshotFile+": "+e.getMessage());
+
+         return false;
+      }
+
+      parser.debugMessage(TeXParser.DEBUG_IO, "Using AUX snapshot: "+snapshotFile);
+
+      for (Object event : events)
+      {
+         if (event instanceof AuxData)
+         {
+            auxParser.addAuxData((AuxData)event);
+         }
+         else
+         {
+            Object[] fileEvent = (Object[])event;
+
+            auxParser.beginParse((File)fileEvent[0], (Charset)fileEvent[1]);
+         }
+      }
+
+      return true;
+   }
+
+   private static ByteBuffer map(File file) throws IOException
+   {
+      FileChannel channel = null;
+
+      try
+      {
+         channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+         MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+           0, channel.size());
+
+         return buf;
+      }
+      finally
+      {
+         if (channel != null)
+         {
+            channel.close();
+         }
+      }
+   }
+
+   private static String readString(ByteBuffer buf)
+   {
+      byte[] bytes = new byte[buf.getInt()];
+      buf.get(bytes);
+
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+   private static TeXObject readToken(ByteBuffer buf, TeXParserListener listener)
+     throws IOException
+   {
+      byte type = buf.get();
+
+      switch (type)
+      {
+         case TOKEN_LETTER:
+            return listener.getLetter(buf.getInt());
+         case TOKEN_OTHER:
+            return listener.getOther(buf.getInt());
+         case TOKEN_SPACE:
+            return listener.getSpace(buf.getInt());
+         case TOKEN_SKIPPED_SPACES:
+            SkippedSpaces spaces = new SkippedSpaces();
+
+            for (int i = buf.getInt(); i > 0; i--)
+            {
+               spaces.add(listener.getSpace(buf.getInt()));
+            }
+
+            return spaces;
+         case TOKEN_CS:
+            return new TeXCsRef(readString(buf));
+         case TOKEN_LIST:
+         case TOKEN_GROUP:
+         case TOKEN_MATH_GROUP:
+            TeXObjectList list;
+
+            if (type == TOKEN_LIST)
+            {
+               list = new TeXObjectList();
+            }
+            else if (type == TOKEN_GROUP)
+            {
+               list = listener.createGroup();
+            }
+            else
+            {
+               MathGroup math = listener.createMathGroup();
+               math.setInLine(buf.get() != 0);
+               list = math;
+            }
+
+            for (int i = buf.getInt(); i > 0; i--)
+            {
+               list.add(readToken(buf, listener));
+            }
+
+            return list;
+         case TOKEN_SP:
+            return listener.createSpChar(buf.getInt());
+         case TOKEN_SB:
+            return listener.createSbChar(buf.getInt());
+         case TOKEN_TAB:
+            return listener.getTab(buf.getInt());
+         case TOKEN_PARAM:
+         case TOKEN_DOUBLE_PARAM:
+            buf.position(buf.position()-1);
+            return (TeXObject)readParam(buf, listener);
+         case TOKEN_SPECIAL:
+            int charCode = buf.getInt();
+            CategoryCode catCode = CategoryCode.valueOf(buf.getInt());
+
+            return new SpecialToken((MultiToken)readParam(buf, listener),
+              charCode, catCode);
+         case TOKEN_ACTIVE:
+            ActiveChar activeChar = listener.getActiveChar(buf.getInt());
+            String className = readString(buf);
+
+            // the active character may have been defined in the aux file
+
+            if (!activeChar.getClass().getName().equals(className))
+            {
+               throw new IOException("Active character mismatch: "+className);
+            }
+
+            return activeChar;
+      }
+
+      throw new IOException("Unknown token type "+type);
+   }
+
+   private static ParameterToken readParam(ByteBuffer buf,
+     TeXParserListener listener)
+     throws IOException
+   {
+      byte type = buf.get();
+
+      if (type == TOKEN_PARAM)
+      {
+         Param param = listener.getParam(buf.getInt());
+         param.setCharCode(buf.getInt());
+
+         return param;
+      }
+      else if (type == TOKEN_DOUBLE_PARAM)
+      {
+         int charCode = buf.getInt();
+         DoubleParam param = listener.getDoubleParam(readParam(buf, listener));
+         param.setCharCode(charCode);
+
+         return param;
+      }
+
+      throw new IOException("Unknown parameter token type "+type);
+   }
+
+   private static byte[] digest(File file) throws IOException
+   {
+      MessageDigest md;
+
+      try
+      {
+         md = MessageDigest.getInstance("SHA-256");
+      }
+      catch (NoSuchAlgorithmException e)
+      {
+         throw new IOException(e);
+      }
+
+      InputStream in = null;
+
+      try
+      {
+         in = Files.newInputStream(file.toPath());
+
+         byte[] buf = new byte[8192];
+         int n;
+
+         while ((n = in.read(buf)) != -1)
+         {
+            md.update(buf, 0, n);
+         }
+      }
+      finally
+      {
+         if (in != null)
+         {
+            in.close();
+         }
+      }
+
+      return md.digest();
+   }
+
+   private static class FileInfo
+   {
+      FileInfo(String path, long length, byte[] digest)
+      {
+         this.path = path;
+         this.length = length;
+         this.digest = digest;
+      }
+
+      final String path;
+      final long length;
+      final byte[] digest;
+   }
+
+   private final String signature;
+   private final Vector<FileInfo> files;
+   private final ByteArrayOutputStream buffer;
+   private final DataOutputStream out;
+   private boolean valid = true;
+
+   public static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+   private static final int MAGIC = 0x54504158;
+   private static final int FORMAT = 1;
+
+   private static final byte EVENT_FILE=0, EVENT_DATA=1;
+
+   private static final byte TOKEN_LETTER=0, TOKEN_OTHER=1, TOKEN_SPACE=2,
+     TOKEN_SKIPPED_SPACES=3, TOKEN_CS=4, TOKEN_LIST=5, TOKEN_GROUP=6,
+     TOKEN_MATH_GROUP=7, TOKEN_SP=8, TOKEN_SB=9, TOKEN_TAB=10,
+     TOKEN_PARAM=11, TOKEN_DOUBLE_PARAM=12, TOKEN_SPECIAL=13,
+     TOKEN_ACTIVE=14;
+}
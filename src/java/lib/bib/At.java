@@ -66,14 +66,14 @@ public class At extends ActiveChar
       {
          String id = ((BibEntry)data).getId();
 
-         if (bibParser.getBibEntry(id) != null)
+         if (bibParser.hasBibEntry(id))
          {
             throw new BibTeXSyntaxException(parser,
               BibTeXSyntaxException.ERROR_REPEATED_ENTRY, id);
          }
       }
 
-      bibParser.addBibData(data);
+      bibParser.addParsedBibData(data);
    }
 
    // bibtex allows () delimiters for the entry in addition to {}
@@ -67,6 +67,8 @@ public class BibEntry extends BibData
 
    public BibValueList removeField(String fieldName)
    {
+      clearContributorCache();
+
       return fields.remove(fieldName);
    }
 
@@ -84,6 +86,8 @@ public class BibEntry extends BibData
          fields.remove(key);
       }
 
+      clearContributorCache();
+
       fields.put(fieldName, contents);
    }
 
@@ -289,29 +293,130 @@ public class BibEntry extends BibData
    public Vector<Contributor> getEditors(TeXParser parser)
      throws IOException
    {
-      BibValueList field = getField("editor");
-
-      if (field == null) return null;
-
-      return parseContributors(parser, field);
+      return getContributors(parser, "editor");
    }
 
    public Vector<Contributor> getAuthors(TeXParser parser)
      throws IOException
    {
-      BibValueList field = getField("author");
+      return getContributors(parser, "author");
+   }
+
+   /**
+    * Gets the list of contributors in the given field. The field is
+    * only parsed the first time this method is used. The result is
+    * then cached until the field is replaced or removed, the field's
+    * list of values is modified, or a different parser is used.
+    * Each call returns a new list of new {@link Contributor}
+    * objects, so the caller may modify them.
+    * @param parser the parser used to expand the field
+    * @param fieldName the field name (case-insensitive)
+    * @return the list of contributors or null if the field isn't set
+    * @throws IOException if the field can't be expanded
+    */
+   public Vector<Contributor> getContributors(TeXParser parser,
+     String fieldName)
+     throws IOException
+   {
+      BibValueList field = getField(fieldName);
 
       if (field == null) return null;
 
-      return parseContributors(parser, field);
+      Vector<Contributor> contributors
+        = getCachedContributors(parser, fieldName, field);
+
+      if (contributors == null)
+      {
+         contributors = parseContributors(parser, field);
+
+         cacheContributors(parser, fieldName, field, contributors);
+      }
+
+      return copyContributors(contributors);
+   }
+
+   /**
+    * Gets the cached contributors for the given field, if the cache
+    * is current. The cached list is returned, not a copy.
+    */
+   synchronized Vector<Contributor> getCachedContributors(
+     TeXParser parser, String fieldName, BibValueList field)
+   {
+      if (contributorCache != null)
+      {
+         CachedContributors cached
+           = contributorCache.get(fieldName.toLowerCase());
+
+         if (cached != null && cached.isCurrent(parser, field))
+         {
+            return cached.contributors;
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * Caches the contributors obtained from the given field. The list
+    * and its elements must not be modified after they've been
+    * cached.
+    */
+   synchronized void cacheContributors(TeXParser parser,
+     String fieldName, BibValueList field, Vector<Contributor> contributors)
+   {
+      if (contributorCache == null)
+      {
+         contributorCache = new HashMap<String,CachedContributors>();
+      }
+
+      contributorCache.put(fieldName.toLowerCase(),
+        new CachedContributors(parser, field, contributors));
+   }
+
+   private static Vector<Contributor> copyContributors(
+     Vector<Contributor> contributors)
+   {
+      Vector<Contributor> copy = new Vector<Contributor>(contributors.size());
+
+      for (Contributor contributor : contributors)
+      {
+         copy.add((Contributor)contributor.clone());
+      }
+
+      return copy;
+   }
+
+   private synchronized void clearContributorCache()
+   {
+      contributorCache = null;
    }
 
    public static Vector<Contributor> parseContributors(TeXParser parser, BibValueList field)
       throws IOException
    {
-      Vector<Contributor> contributors = new Vector<Contributor>();
+      return parseContributors(parser, field.expand(parser),
+        parser.getListener().getSpace());
+   }
 
-      TeXObjectList list = field.expand(parser);
+   /**
+    * Splits an expanded name field into its contributors. This
+    * doesn't expand anything, so it may be called from any thread
+    * provided that the list isn't being used elsewhere (the list is
+    * emptied) and the parser isn't being used by another thread at
+    * the same time.
+    * @param parser the parser, which is only used to provide the
+    * location of any error
+    * @param list the expanded field
+    * @param space the space token to insert between the words
+    * that make up each part of a name (this is cloned, not added)
+    * @return the list of contributors
+    * @throws IOException if the field can't be split
+    */
+   public static Vector<Contributor> parseContributors(TeXParser parser,
+     TeXObjectList list, Space space)
+      throws IOException
+   {
+      Vector<Contributor> contributors = new Vector<Contributor>();
 
       TeXObjectList word = null;
 
@@ -349,7 +454,7 @@ public class BibEntry extends BibData
                       && ((CharObject)nextObj2).getCharCode() == (int)'d'
                       && nextObj3 instanceof WhiteSpace)
                      {
-                        contributors.add(parseContributor(parser, current));
+                        contributors.add(parseContributor(parser, space, current));
                         current = new Vector<TeXObjectList>();
                         continue;
                      }
@@ -409,12 +514,12 @@ public class BibEntry extends BibData
          current.add(word);
       }
 
-      contributors.add(parseContributor(parser, current));
+      contributors.add(parseContributor(parser, space, current));
 
       return contributors;
    }
 
-   private static Contributor parseContributor(TeXParser parser,
+   private static Contributor parseContributor(TeXParser parser, Space space,
      Vector<TeXObjectList> list)
     throws IOException
    {
@@ -486,15 +591,15 @@ public class BibEntry extends BibData
 
                if (surname == null && startsWithLower(word))
                {
-                  von = appendName(parser, von, word);
+                  von = appendName(space, von, word);
                }
                else if (von != null || i == lastIdx)
                {
-                  surname = appendName(parser, surname, word);
+                  surname = appendName(space, surname, word);
                }
                else
                {
-                  forenames = appendName(parser, forenames, word);
+                  forenames = appendName(space, forenames, word);
                }
             }
 
@@ -516,15 +621,15 @@ public class BibEntry extends BibData
                }
                else if (surname == null && startsWithLower(word))
                {
-                  von = appendName(parser, von, word);
+                  von = appendName(space, von, word);
                }
                else if (forenames == null)
                {
-                  surname = appendName(parser, surname, word);
+                  surname = appendName(space, surname, word);
                }
                else
                {
-                  forenames = appendName(parser, forenames, word);
+                  forenames = appendName(space, forenames, word);
                }
             }
 
@@ -553,19 +658,19 @@ public class BibEntry extends BibData
                }
                else if (surname == null && startsWithLower(word))
                {
-                  von = appendName(parser, von, word);
+                  von = appendName(space, von, word);
                }
                else if (suffix == null)
                {
-                  surname = appendName(parser, surname, word);
+                  surname = appendName(space, surname, word);
                }
                else if (forenames == null)
                {
-                  suffix = appendName(parser, suffix, word);
+                  suffix = appendName(space, suffix, word);
                }
                else
                {
-                  forenames = appendName(parser, forenames, word);
+                  forenames = appendName(space, forenames, word);
                }
             }
 
@@ -578,7 +683,7 @@ public class BibEntry extends BibData
       return new Contributor(forenames, von, surname, suffix);
    }
 
-   private static TeXObject appendName(TeXParser parser, 
+   private static TeXObject appendName(Space space,
      TeXObject name, TeXObjectList word)
    {
       if (name == null)
@@ -603,7 +708,7 @@ public class BibEntry extends BibData
 
          if (!nameList.isEmpty())
          {
-            nameList.add(parser.getListener().getSpace());
+            nameList.add((TeXObject)space.clone());
          }
 
          nameList.add(word);
@@ -678,7 +783,31 @@ public class BibEntry extends BibData
       return obj;
    }
 
+   private static class CachedContributors
+   {
+      CachedContributors(TeXParser parser, BibValueList field,
+        Vector<Contributor> contributors)
+      {
+         this.parser = parser;
+         this.field = field;
+         this.modificationCount = field.getModificationCount();
+         this.contributors = contributors;
+      }
+
+      boolean isCurrent(TeXParser parser, BibValueList field)
+      {
+         return parser == this.parser && field == this.field
+           && field.getModificationCount() == modificationCount;
+      }
+
+      final TeXParser parser;
+      final BibValueList field;
+      final int modificationCount;
+      final Vector<Contributor> contributors;
+   }
+
    private HashMap<String,BibValueList> fields;
+   private HashMap<String,CachedContributors> contributorCache;
    private String entryType;
    private String id;
    private BibValueList idValue;
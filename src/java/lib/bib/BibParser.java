@@ -22,8 +22,16 @@ import java.io.IOException;
 import java.io.EOFException;
 import java.io.File;
 import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.nio.file.Path;
 import java.nio.file.Files;
 import java.nio.charset.Charset;
@@ -68,12 +76,13 @@ public class BibParser extends DefaultTeXParserListener
       setWriteable(this);
 
       bibData = new Vector<BibData>();
+      clearIndex();
    }
 
    @Override
    public TeXApp getTeXApp()
    {
-      return texApp;
+      return deferredApp == null ? texApp : deferredApp;
    }
 
    public TeXParser parseBibFile(File bibFile)
@@ -98,6 +107,356 @@ public class BibParser extends DefaultTeXParserListener
       parseBibFile(parser, bibFile, null);
    }
 
+   /**
+    * Parses a bib file, passing each entry to the given listener
+    * as soon as it has been parsed. The entries aren't added to the
+    * bib data (but strings, preambles and comments are) so the
+    * whole file doesn't need to be held in memory. The identifiers
+    * are retained so that repeated entries can still be detected,
+    * but {@link #getBibEntry(String)} won't find streamed entries.
+    * @param parser the parser
+    * @param bibFile the bib file
+    * @param charset the file encoding or null for the default
+    * @param listener the listener that receives each entry
+    * @throws IOException if an I/O or syntax error occurs or if the
+    * listener throws an exception
+    */
+   public void parseBibFile(TeXParser parser, File bibFile, Charset charset,
+     BibEntryListener listener)
+     throws IOException
+   {
+      BibEntryListener orgListener = entryListener;
+      entryListener = listener;
+
+      if (streamedIds == null)
+      {
+         streamedIds = new HashSet<String>();
+      }
+
+      try
+      {
+         parseBibFile(parser, bibFile, charset);
+      }
+      finally
+      {
+         entryListener = orgListener;
+      }
+   }
+
+   /**
+    * Parses multiple bib files concurrently. Each file is parsed
+    * by its own bib parser (see {@link #createBibParser(Charset)})
+    * on a bounded pool of threads. The results are then added to
+    * this parser's bib data in the order the files were listed. An
+    * entry with the same identifier as an earlier entry is reported
+    * as an error and skipped, as it would be if the files were
+    * parsed one after the other. The messages, warnings and errors
+    * from each file (including the "Reading" messages) are buffered
+    * and passed on to the application as each file's data is added,
+    * so they appear in file order regardless of which thread
+    * finishes first. (Warnings don't have the worker parser's
+    * current file and line number available when they're replayed.)
+    *
+    * Strings are only resolved when a value is expanded, so a
+    * string defined in one file may be used in another, provided
+    * that the value is expanded with this parser.
+    * @param bibFiles the bib files
+    * @param charset the file encoding or null for the default
+    * @param maxThreads the maximum number of threads or 0 to use
+    * the number of available processors
+    * @return the parser associated with this listener
+    * @throws IOException if an I/O error occurs
+    */
+   public TeXParser parseBibFiles(Vector<File> bibFiles, Charset charset,
+     int maxThreads)
+     throws IOException
+   {
+      TeXParser parser = getParser();
+
+      if (parser == null)
+      {
+         parser = new TeXParser(this);
+      }
+
+      if (charset != null)
+      {
+         this.charset = charset;
+      }
+
+      if (bibFiles.isEmpty())
+      {
+         return parser;
+      }
+
+      final Charset fileCharset = charset;
+
+      ExecutorService executor = createExecutor(maxThreads, bibFiles.size());
+
+      try
+      {
+         Vector<Future<BibParser>> results
+           = new Vector<Future<BibParser>>(bibFiles.size());
+
+         // The deferred applications are created here so that a
+         // file's buffered messages can still be replayed if its
+         // parser fails.
+
+         Vector<DeferredTeXApp> deferredApps
+           = new Vector<DeferredTeXApp>(bibFiles.size());
+
+         for (final File bibFile : bibFiles)
+         {
+            final DeferredTeXApp deferredApp = new DeferredTeXApp(getTeXApp());
+            deferredApps.add(deferredApp);
+
+            results.add(executor.submit(new Callable<BibParser>()
+            {
+               @Override
+               public BibParser call() throws IOException
+               {
+                  BibParser bibParser = createBibParser(fileCharset);
+                  bibParser.deferredApp = deferredApp;
+                  bibParser.parseBibFile(new TeXParser(bibParser),
+                    bibFile, fileCharset);
+
+                  return bibParser;
+               }
+            }));
+         }
+
+         for (int i = 0; i < results.size(); i++)
+         {
+            BibParser bibParser;
+
+            try
+            {
+               bibParser = getResult(results.get(i));
+            }
+            finally
+            {
+               deferredApps.get(i).replay();
+            }
+
+            for (BibData data : bibParser.getBibData())
+            {
+               if (data instanceof BibEntry)
+               {
+                  String id = ((BibEntry)data).getId();
+
+                  if (hasBibEntry(id))
+                  {
+                     parser.error(new BibTeXSyntaxException(parser,
+                       BibTeXSyntaxException.ERROR_REPEATED_ENTRY, id));
+
+                     continue;
+                  }
+               }
+
+               addBibData(data);
+            }
+         }
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+
+      return parser;
+   }
+
+   /**
+    * Parses the name fields of all the entries. The fields are
+    * expanded one after the other by the given parser (which isn't
+    * thread-safe) and then the expanded fields are split into
+    * their contributors concurrently. Each entry caches the result
+    * (see {@link BibEntry#getContributors(TeXParser,String)}) so
+    * later calls to get the contributors don't need to parse the
+    * field again, provided that they use the same parser.
+    * @param parser the parser used to expand the fields
+    * @param maxThreads the maximum number of threads or 0 to use
+    * the number of available processors
+    * @param fieldNames the name fields or none for the default
+    * author and editor fields
+    * @throws IOException if a field can't be expanded
+    */
+   public void parseContributors(TeXParser parser, int maxThreads,
+     String... fieldNames)
+     throws IOException
+   {
+      String[] names = (fieldNames.length == 0 ? NAME_FIELDS : fieldNames);
+
+      final Vector<ExpandedNames> pending = new Vector<ExpandedNames>();
+
+      for (BibData data : getBibData())
+      {
+         if (data instanceof BibEntry)
+         {
+            BibEntry entry = (BibEntry)data;
+
+            for (String name : names)
+            {
+               BibValueList field = entry.getField(name);
+
+               if (field != null
+                    && entry.getCachedContributors(parser, name, field) == null)
+               {
+                  pending.add(new ExpandedNames(entry, name, field,
+                    field.expand(parser)));
+               }
+            }
+         }
+      }
+
+      if (pending.isEmpty())
+      {
+         return;
+      }
+
+      final TeXParser entryParser = parser;
+      final Space space = parser.getListener().getSpace();
+
+      ExecutorService executor = createExecutor(maxThreads, pending.size());
+
+      try
+      {
+         final int numTasks = Math.min(pending.size(),
+           maxThreads > 0 ? maxThreads
+                          : Runtime.getRuntime().availableProcessors());
+
+         Vector<Future<BibParser>> results
+           = new Vector<Future<BibParser>>(numTasks);
+
+         for (int i = 0; i < numTasks; i++)
+         {
+            final int start = i;
+
+            results.add(executor.submit(new Callable<BibParser>()
+            {
+               @Override
+               public BibParser call() throws IOException
+               {
+                  for (int j = start; j < pending.size(); j += numTasks)
+                  {
+                     ExpandedNames names = pending.get(j);
+
+                     names.entry.cacheContributors(entryParser,
+                       names.fieldName, names.field,
+                       BibEntry.parseContributors(entryParser,
+                         names.expanded, space));
+                  }
+
+                  return BibParser.this;
+               }
+            }));
+         }
+
+         for (Future<BibParser> result : results)
+         {
+            getResult(result);
+         }
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   /**
+    * An expanded name field that's waiting to be split into its
+    * contributors.
+    */
+   private static class ExpandedNames
+   {
+      ExpandedNames(BibEntry entry, String fieldName, BibValueList field,
+        TeXObjectList expanded)
+      {
+         this.entry = entry;
+         this.fieldName = fieldName;
+         this.field = field;
+         this.expanded = expanded;
+      }
+
+      final BibEntry entry;
+      final String fieldName;
+      final BibValueList field;
+      final TeXObjectList expanded;
+   }
+
+   /**
+    * Creates a pool of daemon threads.
+    * @param maxThreads the maximum number of threads or 0 to use
+    * the number of available processors
+    * @param numTasks the number of tasks
+    */
+   private static ExecutorService createExecutor(int maxThreads, int numTasks)
+   {
+      if (maxThreads <= 0)
+      {
+         maxThreads = Runtime.getRuntime().availableProcessors();
+      }
+
+      return Executors.newFixedThreadPool(Math.min(maxThreads, numTasks),
+        new ThreadFactory()
+        {
+           @Override
+           public Thread newThread(Runnable r)
+           {
+              Thread thread = new Thread(r, "bib parser");
+              thread.setDaemon(true);
+              return thread;
+           }
+        });
+   }
+
+   private static BibParser getResult(Future<BibParser> result)
+     throws IOException
+   {
+      try
+      {
+         return result.get();
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new IOException(e);
+      }
+      catch (ExecutionException e)
+      {
+         Throwable cause = e.getCause();
+
+         if (cause instanceof IOException)
+         {
+            throw (IOException)cause;
+         }
+         else if (cause instanceof RuntimeException)
+         {
+            throw (RuntimeException)cause;
+         }
+         else if (cause instanceof Error)
+         {
+            throw (Error)cause;
+         }
+
+         throw new IOException(cause);
+      }
+   }
+
+   /**
+    * Creates the bib parser used to parse an individual file in
+    * {@link #parseBibFiles(Vector,Charset,int)}. This may be called
+    * from any thread. Subclasses that provide their own entry
+    * handling should override this method to return an instance
+    * of the subclass.
+    * @param charset the file encoding or null for the default
+    * @return a new bib parser with the same settings as this one
+    * @throws IOException if the parser can't be created
+    */
+   protected BibParser createBibParser(Charset charset)
+     throws IOException
+   {
+      return new BibParser(getTeXApp(), charset, maketildeother);
+   }
+
    public void parseBibFile(TeXParser parser, File bibFile, Charset charset)
      throws IOException
    {
@@ -245,37 +604,133 @@ public class BibParser extends DefaultTeXParserListener
       }
    }
 
-   public void addBibData(BibData data)
+   public synchronized void addBibData(BibData data)
    {
       bibData.add(data);
+
+      updateIndex();
    }
 
-   public BibEntry getBibEntry(String id)
+   /**
+    * Adds data that has just been parsed. If the bib file is being
+    * streamed, entries are passed to the listener instead of being
+    * added to the bib data.
+    * @param data the new data
+    * @throws IOException if the listener throws an exception
+    */
+   protected void addParsedBibData(BibData data)
+     throws IOException
    {
-      for (BibData data : bibData)
+      if (entryListener != null && data instanceof BibEntry)
       {
-         if (data instanceof BibEntry 
-          && ((BibEntry)data).getId().equals(id))
-         {
-            return (BibEntry)data;
-         }
+         BibEntry entry = (BibEntry)data;
+
+         streamedIds.add(entry.getId());
+         entryListener.bibEntryParsed(this, entry);
+      }
+      else
+      {
+         addBibData(data);
       }
+   }
 
-      return null;
+   /**
+    * Determines whether or not an entry with the given identifier
+    * has been parsed. This includes entries that have been passed
+    * to a {@link BibEntryListener} rather than added to the bib data.
+    * @param id the identifier
+    * @return true if found
+    */
+   public boolean hasBibEntry(String id)
+   {
+      return getBibEntry(id) != null
+        || (streamedIds != null && streamedIds.contains(id));
    }
 
-   public BibString getBibString(String key)
+   /**
+    * Gets the first entry with the given identifier.
+    * @param id the identifier
+    * @return the entry or null if not found
+    */
+   public synchronized BibEntry getBibEntry(String id)
    {
-      for (BibData data : bibData)
+      updateIndex();
+
+      BibEntry entry = entryIndex.get(id);
+
+      if (entry != null && !id.equals(entry.getId()))
       {
-         if (data instanceof BibString 
-          && ((BibString)data).getKey().equals(key))
+         // the identifier has been changed
+
+         clearIndex();
+         updateIndex();
+
+         entry = entryIndex.get(id);
+      }
+
+      return entry;
+   }
+
+   /**
+    * Gets the first string with the given key.
+    * @param key the key
+    * @return the string or null if not found
+    */
+   public synchronized BibString getBibString(String key)
+   {
+      updateIndex();
+
+      return stringIndex.get(key);
+   }
+
+   /**
+    * Discards the entry and string indexes. They are rebuilt when
+    * next required. The indexes are updated when data is added, but
+    * this method should be used if an element of the list returned
+    * by {@link #getBibData()} is removed or replaced or if an
+    * entry's identifier is changed.
+    */
+   public synchronized void clearIndex()
+   {
+      entryIndex = new HashMap<String,BibEntry>();
+      stringIndex = new HashMap<String,BibString>();
+      indexedCount = 0;
+   }
+
+   private void updateIndex()
+   {
+      int n = bibData.size();
+
+      if (n < indexedCount)
+      {
+         clearIndex();
+      }
+
+      for (int i = indexedCount; i < n; i++)
+      {
+         BibData data = bibData.get(i);
+
+         if (data instanceof BibEntry)
          {
-            return (BibString)data;
+            String id = ((BibEntry)data).getId();
+
+            if (id != null && !entryIndex.containsKey(id))
+            {
+               entryIndex.put(id, (BibEntry)data);
+            }
+         }
+         else if (data instanceof BibString)
+         {
+            String key = ((BibString)data).getKey();
+
+            if (key != null && !stringIndex.containsKey(key))
+            {
+               stringIndex.put(key, (BibString)data);
+            }
          }
       }
 
-      return null;
+      indexedCount = n;
    }
 
    public Vector<BibData> getBibData()
@@ -317,6 +772,17 @@ public class BibParser extends DefaultTeXParserListener
    private Vector<BibData> bibData;
    private TeXApp texApp;
 
+   private HashMap<String,BibEntry> entryIndex;
+   private HashMap<String,BibString> stringIndex;
+   private int indexedCount;
+
+   private BibEntryListener entryListener = null;
+   private HashSet<String> streamedIds = null;
+
+   private DeferredTeXApp deferredApp = null;
+
+   private static final String[] NAME_FIELDS = new String[] {"author", "editor"};
+
    private Charset charset=null;
 
    protected boolean maketildeother=true;
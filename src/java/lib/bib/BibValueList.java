@@ -40,6 +40,18 @@ public class BibValueList extends Vector<BibValue> implements BibValue
       super(capacity);
    }
 
+   /**
+    * Gets the number of times this list has been structurally
+    * modified. This may be used to determine whether information
+    * derived from the list is still current. Changes to the
+    * content of the values aren't included.
+    * @return the modification count
+    */
+   public int getModificationCount()
+   {
+      return modCount;
+   }
+
    public Object clone()
    {
       BibValueList obj;
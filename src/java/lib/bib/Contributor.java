@@ -27,7 +27,7 @@ import com.dickimawbooks.texparserlib.*;
  * Author/editor contributor
  */
 
-public class Contributor
+public class Contributor implements Cloneable
 {
    public Contributor()
    {
@@ -152,6 +152,39 @@ public class Contributor
       return builder.toString();
    }
 
+   /**
+    * Creates a copy of this contributor. The name objects are also
+    * copied, so the copy may be modified without affecting this
+    * contributor.
+    * @return the copy
+    */
+   @Override
+   public Object clone()
+   {
+      Contributor copy;
+
+      try
+      {
+         copy = (Contributor)super.clone();
+      }
+      catch (CloneNotSupportedException e)
+      {
+         throw new AssertionError(e);
+      }
+
+      copy.forenamesObject = cloneObject(forenamesObject);
+      copy.surnameObject = cloneObject(surnameObject);
+      copy.vonObject = cloneObject(vonObject);
+      copy.suffixObject = cloneObject(suffixObject);
+
+      return copy;
+   }
+
+   private static TeXObject cloneObject(TeXObject object)
+   {
+      return object == null ? null : (TeXObject)object.clone();
+   }
+
    public String toString()
    {
       return String.format("%s[forenames=\"%s\",von=\"%s\",surname=\"%s\",suffix=\"%s\"]",
@@ -412,12 +412,12 @@ public abstract class DefaultTeXParserListener extends TeXParserListener
       return new Tab(charCode);
    }
 
-   public Letter getLetter(int charCode)
+   public Letter createLetter(int charCode)
    {
       return new Letter(charCode);
    }
 
-   public Other getOther(int charCode)
+   public Other createOther(int charCode)
    {
       return new Other(charCode);
    }
@@ -632,13 +632,13 @@ public class L2HConverter extends LaTeXParserListener
    }
 
    @Override
-   public Letter getLetter(int charCode)
+   public Letter createLetter(int charCode)
    {
       return new L2HLetter(charCode);
    }
 
    @Override
-   public Other getOther(int charCode)
+   public Other createOther(int charCode)
    {
       return new L2HOther(charCode);
    }
@@ -2004,11 +2004,11 @@ public class L2HConverter extends LaTeXParserListener
          return createLink(info, text);
       }
 
-      Vector<AuxData> auxData = getAuxData();
+      AuxIndex auxIndex = getAuxIndex();
 
-      if (auxData != null)
+      if (auxIndex != null)
       {
-         TeXObject label = AuxData.getLabelForLink(auxData, getParser(), anchorName);
+         TeXObject label = auxIndex.getLabelForLink(anchorName);
 
          if (label != null)
          {
@@ -0,0 +1,254 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimaw-books.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib.latex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.dickimawbooks.texparserlib.*;
+import com.dickimawbooks.texparserlib.auxfile.*;
+
+/**
+ * Parses an aux file in a background thread. The aux file is
+ * parsed by its own {@link TeXParser} and doesn't depend on the
+ * state of the document parser, so it can be read while the
+ * preamble is being processed. The settings that affect the aux
+ * parser (the file, encoding, label prefix, whether divisions are
+ * saved and the custom aux commands) are recorded when the prefetch
+ * starts. If any of them have changed by the time the data is
+ * needed, the prefetched data should be discarded.
+ *
+ * The messages, warnings and errors from the aux parser are
+ * deferred until the data is collected so that they appear in the
+ * same place in the transcript as they would if the file was parsed
+ * on demand. If the prefetch is cancelled, they're discarded, the
+ * parse stops at the start of the next file and no snapshot is
+ * written.
+ */
+public class AuxPrefetch
+{
+   public AuxPrefetch(TeXApp texApp, File auxFile, Charset charset,
+     String prefix, boolean saveDivisions, Vector<AuxCommand> customAuxCommands,
+     boolean snapshot)
+   {
+      this.deferredApp = new DeferredTeXApp(texApp);
+      this.auxFile = auxFile;
+      this.charset = charset;
+      this.prefix = prefix;
+      this.saveDivisions = saveDivisions;
+      this.snapshot = snapshot;
+      this.customAuxCommands = (customAuxCommands == null ? null
+        : new Vector<AuxCommand>(customAuxCommands));
+
+      task = new FutureTask<PrefetchAuxParser>(
+        new Callable<PrefetchAuxParser>()
+        {
+           @Override
+           public PrefetchAuxParser call() throws IOException
+           {
+              return parse();
+           }
+        });
+   }
+
+   private PrefetchAuxParser parse() throws IOException
+   {
+      PrefetchAuxParser auxListener
+        = new PrefetchAuxParser(deferredApp, charset, prefix);
+      TeXParser auxTeXParser = new TeXParser(auxListener);
+
+      if (customAuxCommands != null)
+      {
+         for (AuxCommand auxCommand : customAuxCommands)
+         {
+            auxListener.putControlSequence(auxCommand);
+         }
+      }
+
+      auxListener.enableSaveDivisions(saveDivisions);
+      auxListener.setSnapshotEnabled(snapshot);
+      auxListener.enableSaveLabels(true);
+      auxListener.enableSaveCites(true);
+      auxListener.parseAuxFile(auxTeXParser, auxFile, null);
+
+      return auxListener;
+   }
+
+   /**
+    * Starts parsing the aux file in a new daemon thread.
+    */
+   public void start()
+   {
+      Thread thread = new Thread(task, "aux prefetch");
+      thread.setDaemon(true);
+      thread.start();
+   }
+
+   /**
+    * Cancels the prefetch if it's no longer required. The result
+    * and any messages are discarded. If the background thread is
+    * still running, it stops when the aux parser next starts a file
+    * and it won't write a snapshot.
+    */
+   public void cancel()
+   {
+      cancelled = true;
+      deferredApp.discard();
+      task.cancel(true);
+   }
+
+   public File getAuxFile()
+   {
+      return auxFile;
+   }
+
+   /**
+    * Checks if the prefetched data is valid for the given settings.
+    * @return true if the settings are the same as when the prefetch
+    * started
+    */
+   public boolean matches(File auxFile, Charset charset, String prefix,
+     boolean saveDivisions, Vector<AuxCommand> customAuxCommands)
+   {
+      if (!auxFile.equals(this.auxFile) || saveDivisions != this.saveDivisions)
+      {
+         return false;
+      }
+
+      if (charset == null ? this.charset != null : !charset.equals(this.charset))
+      {
+         return false;
+      }
+
+      if (prefix == null ? this.prefix != null : !prefix.equals(this.prefix))
+      {
+         return false;
+      }
+
+      int n = (customAuxCommands == null ? 0 : customAuxCommands.size());
+
+      if (n != (this.customAuxCommands == null ? 0 : this.customAuxCommands.size()))
+      {
+         return false;
+      }
+
+      for (int i = 0; i < n; i++)
+      {
+         if (customAuxCommands.get(i) != this.customAuxCommands.get(i))
+         {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   /**
+    * Waits for the aux file to be parsed and then passes the
+    * deferred messages, warnings and errors to the application.
+    * @param parser the document parser
+    * @return the aux parser containing the data
+    * @throws IOException if the aux file couldn't be parsed
+    */
+   public AuxParser getAuxParser(TeXParser parser) throws IOException
+   {
+      PrefetchAuxParser auxListener;
+
+      try
+      {
+         auxListener = task.get();
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new IOException(e);
+      }
+      catch (ExecutionException e)
+      {
+         Throwable cause = e.getCause();
+
+         if (cause instanceof IOException)
+         {
+            throw (IOException)cause;
+         }
+         else if (cause instanceof RuntimeException)
+         {
+            throw (RuntimeException)cause;
+         }
+         else if (cause instanceof Error)
+         {
+            throw (Error)cause;
+         }
+
+         throw new IOException(cause);
+      }
+      finally
+      {
+         deferredApp.replay();
+      }
+
+      return auxListener;
+   }
+
+   /**
+    * Aux parser that stops if the prefetch has been cancelled.
+    */
+   private class PrefetchAuxParser extends AuxParser
+   {
+      PrefetchAuxParser(TeXApp texApp, Charset charset, String prefix)
+        throws IOException
+      {
+         super(texApp, charset, prefix);
+      }
+
+      @Override
+      protected void readingFile(File file, Charset encoding)
+        throws IOException
+      {
+         if (cancelled)
+         {
+            throw new InterruptedIOException("AUX prefetch cancelled");
+         }
+
+         super.readingFile(file, encoding);
+      }
+
+      @Override
+      protected boolean isSnapshotWriteAllowed()
+      {
+         return !cancelled;
+      }
+   }
+
+   private final File auxFile;
+   private final Charset charset;
+   private final String prefix;
+   private final boolean saveDivisions;
+   private final boolean snapshot;
+   private final Vector<AuxCommand> customAuxCommands;
+   private final DeferredTeXApp deferredApp;
+   private final FutureTask<PrefetchAuxParser> task;
+   private volatile boolean cancelled = false;
+}
@@ -106,7 +106,7 @@ public class CsvList extends DataObjectList
 
          for (int j = 0; j < elemList.size(); j++)
          {
-            elem = elemList.get(i);
+            elem = elemList.get(j);
 
             if (elem instanceof WhiteSpace && keyList.isEmpty())
             {
@@ -357,9 +357,15 @@ public class LaTeXGenericCommand extends GenericCommand
          }
       }
 
-      TeXObjectList replacement = new TeXObjectList();
+      TeXObjectList replacement = expandTemplate(args, true);
 
-      addReplacements(parser, replacement, args, getDefinition());
+      if (replacement == null)
+      {
+         replacement = new TeXObjectList();
+
+         // throws an error for the missing argument
+         addReplacements(parser, replacement, args, getDefinition());
+      }
 
       if (parser.isDebugMode(TeXParser.DEBUG_EXPANSION_LIST))
       {
@@ -439,9 +445,15 @@ public class LaTeXGenericCommand extends GenericCommand
          }
       }
 
-      TeXObjectList replacement = new TeXObjectList();
+      TeXObjectList replacement = expandTemplate(args, true);
 
-      addReplacements(parser, replacement, args, getDefinition());
+      if (replacement == null)
+      {
+         replacement = new TeXObjectList();
+
+         // throws an error for the missing argument
+         addReplacements(parser, replacement, args, getDefinition());
+      }
 
       if (parser.isDebugMode(TeXParser.DEBUG_EXPANSION_LIST))
       {
@@ -29,6 +29,8 @@ import java.util.Stack;
 import java.util.Iterator;
 import java.util.Properties;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 import java.text.DateFormat;
@@ -173,6 +175,11 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
    public void enableSaveDivisions(boolean enable)
    {
       saveDivisions = enable;
+
+      if (auxPrefetch != null)
+      {
+         prefetchAux();
+      }
    }
 
    public TeXObject getAnchor(String anchorName)
@@ -242,7 +249,7 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
          }
       }
 
-      return AuxData.getCitation(auxData, getParser(), label);
+      return getAuxIndex().getCitation(label);
    }
 
    public TeXObject getCitation(String label)
@@ -267,7 +274,7 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
          }
       }
 
-      return AuxData.getCitation(auxData, getParser(), label);
+      return getAuxIndex().getCitation(label);
    }
 
    public LabelInfo getLabelInfo(String label)
@@ -297,7 +304,7 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
          }
       }
 
-      return AuxData.getReference(auxData, getParser(), label);
+      return getAuxIndex().getReference(label);
    }
 
    public TeXObject getReference(String label)
@@ -322,7 +329,7 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
          }
       }
 
-      return AuxData.getReference(auxData, getParser(), label);
+      return getAuxIndex().getReference(label);
    }
 
    public TeXObject getPageReference(TeXObject label)
@@ -347,7 +354,7 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
          }
       }
 
-      return AuxData.getPageReference(auxData, getParser(), label);
+      return getAuxIndex().getPageReference(label);
    }
 
    public TeXObject getPageReference(String label)
@@ -372,7 +379,7 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
          }
       }
 
-      return AuxData.getPageReference(auxData, getParser(), label);
+      return getAuxIndex().getPageReference(label);
    }
 
    public TeXObject getNameReference(TeXObject label)
@@ -397,7 +404,7 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
          }
       }
 
-      return AuxData.getNameReference(auxData, getParser(), label);
+      return getAuxIndex().getNameReference(label);
    }
 
    public TeXObject getNameReference(String label)
@@ -422,7 +429,7 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
          }
       }
 
-      return AuxData.getNameReference(auxData, getParser(), label);
+      return getAuxIndex().getNameReference(label);
    }
 
    public TeXObject getHyperReference(TeXObject label)
@@ -447,7 +454,7 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
          }
       }
 
-      return AuxData.getHyperReference(auxData, getParser(), label);
+      return getAuxIndex().getHyperReference(label);
    }
 
    public TeXObject getHyperReference(String label)
@@ -472,7 +479,7 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
          }
       }
 
-      return AuxData.getHyperReference(auxData, getParser(), label);
+      return getAuxIndex().getHyperReference(label);
    }
 
    @Deprecated
@@ -498,7 +505,7 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
          return label == null ? null : createString(label);
       }
 
-      return AuxData.getLabelForLink(auxData, getParser(), link);
+      return getAuxIndex().getLabelForLink(link);
    }
 
    public TeXObject getLabelForLink(String link)
@@ -521,7 +528,7 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
          return label == null ? null : createString(label);
       }
 
-      return AuxData.getLabelForLink(auxData, getParser(), link);
+      return getAuxIndex().getLabelForLink(link);
    }
 
    public String getStringLabelForLink(String link)
@@ -542,7 +549,9 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
          return linkLabelMap.get(link);
       }
 
-      return AuxData.getLabelForLink(auxData, getParser(), link).toString(getParser());
+      TeXObject label = getAuxIndex().getLabelForLink(link);
+
+      return label == null ? null : label.toString(getParser());
    }
 
    protected void createLinkLabelMap()
@@ -1974,6 +1983,93 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
       return documentEnded;
    }
 
+   /**
+    * Adds a conversion started by one of the asynchronous
+    * {@link TeXApp} methods, such as
+    * {@link TeXApp#epstopdfAsync(File,File)}. If the conversion has
+    * already finished (which is always the case if
+    * {@link TeXAppExecutor} has no pool), any error is thrown
+    * now. Otherwise the conversion is checked by
+    * {@link #waitForConversions()}.
+    * @param future the conversion
+    */
+   public void addPendingConversion(CompletableFuture<?> future)
+     throws IOException,InterruptedException
+   {
+      if (future.isDone())
+      {
+         waitForConversion(future);
+      }
+      else
+      {
+         if (pendingConversions == null)
+         {
+            pendingConversions = new Vector<CompletableFuture<?>>();
+         }
+
+         pendingConversions.add(future);
+      }
+   }
+
+   /**
+    * Waits for all pending conversions to finish. This is called
+    * at the end of the document. Any errors are reported via the
+    * parser.
+    */
+   public void waitForConversions()
+   {
+      if (pendingConversions == null)
+      {
+         return;
+      }
+
+      while (!pendingConversions.isEmpty())
+      {
+         CompletableFuture<?> future = pendingConversions.remove(0);
+
+         try
+         {
+            waitForConversion(future);
+         }
+         catch (IOException | InterruptedException e)
+         {
+            parser.error(e);
+         }
+      }
+   }
+
+   protected void waitForConversion(CompletableFuture<?> future)
+     throws IOException,InterruptedException
+   {
+      try
+      {
+         future.get();
+      }
+      catch (ExecutionException e)
+      {
+         Throwable cause = e.getCause();
+
+         if (cause instanceof IOException)
+         {
+            throw (IOException)cause;
+         }
+         else if (cause instanceof InterruptedException)
+         {
+            throw (InterruptedException)cause;
+         }
+         else if (cause instanceof RuntimeException)
+         {
+            throw (RuntimeException)cause;
+         }
+         else if (cause instanceof Error)
+         {
+            throw (Error)cause;
+         }
+
+         throw new IOException(cause);
+      }
+   }
+
    public void atBeginDoc(TeXObject... code)
    {
       ControlSequence cs = parser.getControlSequence(
@@ -2012,23 +2108,48 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
       {
          if (auxFile != null && auxFile.exists())
          {
-            parser.debugMessage(TeXParser.DEBUG_IO, "Parsing AUX file: "+auxFile);
+            AuxParser auxListener = null;
 
-            AuxParser auxListener = new AuxParser(getTeXApp(), getCharSet(), prefix);
-            TeXParser auxTeXParser = new TeXParser(auxListener);
-
-            if (customAuxCommands != null)
+            if (auxPrefetch != null && auxFile.equals(auxPrefetch.getAuxFile()))
             {
-               for (AuxCommand auxCommand : customAuxCommands)
+               AuxPrefetch prefetch = auxPrefetch;
+               auxPrefetch = null;
+
+               if (prefetch.matches(auxFile, getCharSet(), prefix,
+                     saveDivisions, customAuxCommands))
                {
-                  auxListener.putControlSequence(auxCommand);
+                  parser.debugMessage(TeXParser.DEBUG_IO,
+                     "Using prefetched AUX file: "+auxFile);
+
+                  auxListener = prefetch.getAuxParser(parser);
+               }
+               else
+               {
+                  prefetch.cancel();
                }
             }
 
-            auxListener.enableSaveDivisions(saveDivisions);
-            auxListener.enableSaveLabels(true);
-            auxListener.enableSaveCites(true);
-            auxListener.parseAuxFile(auxTeXParser, auxFile, null);
+            if (auxListener == null)
+            {
+               parser.debugMessage(TeXParser.DEBUG_IO, "Parsing AUX file: "+auxFile);
+
+               auxListener = new AuxParser(getTeXApp(), getCharSet(), prefix);
+               TeXParser auxTeXParser = new TeXParser(auxListener);
+
+               if (customAuxCommands != null)
+               {
+                  for (AuxCommand auxCommand : customAuxCommands)
+                  {
+                     auxListener.putControlSequence(auxCommand);
+                  }
+               }
+
+               auxListener.enableSaveDivisions(saveDivisions);
+               auxListener.setSnapshotEnabled(auxSnapshot);
+               auxListener.enableSaveLabels(true);
+               auxListener.enableSaveCites(true);
+               auxListener.parseAuxFile(auxTeXParser, auxFile, null);
+            }
 
             Vector<AuxData> data = auxListener.getAuxData();
 
@@ -2098,6 +2219,70 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
 
    }
 
+   /**
+    * Starts parsing the aux file in a background thread, if aux
+    * prefetching and aux parsing are both enabled and the aux file
+    * exists. The data is collected when the document environment
+    * starts. This is called once the document class has been
+    * loaded and again if any of the aux parser settings change
+    * before the document environment starts, in which case the
+    * previous prefetch is cancelled.
+    */
+   protected void prefetchAux()
+   {
+      if (auxPrefetch != null)
+      {
+         auxPrefetch.cancel();
+         auxPrefetch = null;
+      }
+
+      if (prefetchAux && isParseAuxEnabled() && !isInDocEnv())
+      {
+         File auxFile = getAuxFile();
+
+         if (auxFile != null && auxFile.exists())
+         {
+            parser.debugMessage(TeXParser.DEBUG_IO, "Prefetching AUX file: "+auxFile);
+
+            auxPrefetch = new AuxPrefetch(getTeXApp(), auxFile, getCharSet(),
+              null, saveDivisions, customAuxCommands, auxSnapshot);
+            auxPrefetch.start();
+         }
+      }
+   }
+
+   /**
+    * Sets whether or not the aux file should be parsed in a
+    * background thread while the preamble is processed. Only
+    * applicable if aux parsing is enabled.
+    * @param enable true if the aux file should be prefetched
+    */
+   public void setPrefetchAuxEnabled(boolean enable)
+   {
+      prefetchAux = enable;
+   }
+
+   public boolean isPrefetchAuxEnabled()
+   {
+      return prefetchAux;
+   }
+
+   /**
+    * Sets whether or not a binary snapshot of the aux data should
+    * be saved and reused. Only applicable if aux parsing is
+    * enabled. See {@link AuxParser#setSnapshotEnabled(boolean)}.
+    * @param enable true if the aux snapshot should be used
+    */
+   public void setAuxSnapshotEnabled(boolean enable)
+   {
+      auxSnapshot = enable;
+   }
+
+   public boolean isAuxSnapshotEnabled()
+   {
+      return auxSnapshot;
+   }
+
    @Deprecated
    public void beginDocument()
      throws IOException
@@ -2192,6 +2377,8 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
          }
       }
 
+      waitForConversions();
+
       documentEnded = true;
 
       throw new EOFException();
@@ -2361,6 +2548,8 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
       {
          docCls.processOptions(stack);
       }
+
+      prefetchAux();
    }
 
    public void setNormalFontSize(KeyValList options)
@@ -3116,6 +3305,7 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
      throws IOException
    {
       graphicsPath = paths;
+      TeXPathCache.invalidate(getParser());
    }
 
    public DataObjectList getGraphicsPath()
@@ -3165,6 +3355,11 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
    public void setInputEncoding(String enc)
    {
       inputEncoding = enc;
+
+      if (auxPrefetch != null)
+      {
+         prefetchAux();
+      }
    }
 
    protected File getImageFile(String[] grpaths, TeXPath path)
@@ -3411,6 +3606,28 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
       return auxData;
    }
 
+   /**
+    * Gets the index of the aux data. The index is created when
+    * first needed and is replaced if the aux data list or the
+    * division data list is replaced.
+    * @return the index or null if there's no aux data
+    */
+   public AuxIndex getAuxIndex()
+   {
+      if (auxData == null)
+      {
+         return null;
+      }
+
+      if (auxIndex == null || auxIndex.getAuxData() != auxData
+           || auxIndex.getDivisionData() != divisionData)
+      {
+         auxIndex = new AuxIndex(auxData, divisionData, getParser());
+      }
+
+      return auxIndex;
+   }
+
    public File getAuxFile()
    {
       return getAuxFile("aux");
@@ -3430,6 +3647,11 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
       }
 
       customAuxCommands.add(auxCommand);
+
+      if (auxPrefetch != null)
+      {
+         prefetchAux();
+      }
    }
 
    public File getBblFile()
@@ -4106,8 +4328,12 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
    protected Vector<LaTeXCls> loadedClasses;
 
    private boolean parseAux = false;
+   private boolean prefetchAux = false;
+   private AuxPrefetch auxPrefetch = null;
+   private boolean auxSnapshot = false;
 
    private Vector<AuxData> auxData;
+   private AuxIndex auxIndex;
 
    protected Vector<AuxCommand> customAuxCommands;
    protected Vector<BeginDocumentListener> beginDocumentListeners;
@@ -4144,6 +4370,8 @@ public abstract class LaTeXParserListener extends DefaultTeXParserListener
 
    protected boolean documentEnded = false;
 
+   private Vector<CompletableFuture<?>> pendingConversions = null;
+
    private String inputEncoding = null;
 
    protected FontEncSty fontEncSty = null;
@@ -57,6 +57,18 @@ public abstract class Action
       {
          action = new ActionDisplay();
       }
+      else if (actionName.equals("sort"))
+      {
+         action = new ActionSort();
+      }
+      else if (actionName.equals("filter"))
+      {
+         action = new ActionFilter();
+      }
+      else if (actionName.equals("aggregate"))
+      {
+         action = new ActionAggregate();
+      }
       else
       {
          throw new LaTeXSyntaxException(parser,
@@ -159,6 +171,13 @@ public abstract class Action
          action.assignList = CsvList.getList(parser, obj);
       }
 
+      obj = options.getValue("where");
+
+      if (obj != null)
+      {
+         action.whereList = obj;
+      }
+
       obj = options.getValue("value");
 
       if (obj != null)
@@ -275,7 +294,7 @@ public abstract class Action
 
    protected CsvList optionsList, assignList;
 
-   protected TeXObject value;
+   protected TeXObject value, whereList;
 
    protected DataBase db;
 }
@@ -431,3 +450,128 @@ class ActionDisplay extends Action
    }
 }
 
+class ActionSort extends Action
+{
+   @Override
+   public void doAction() throws IOException
+   {
+      DataSorter sorter = new DataSorter(sty);
+
+      if (optionsList == null)
+      {
+         sorter.addCriterion(getColumnKey(true, false), true, null);
+      }
+      else
+      {
+         sorter.addCriteria(KeyValList.getList(parser, optionsList),
+           parser, stack);
+      }
+
+      sorter.sort(parser, getDataBaseName());
+
+      sty.setActionReturnValue("",
+        new UserNumber(getDataBase().getRowCount()));
+   }
+}
+
+class ActionFilter extends Action
+{
+   @Override
+   public void doAction() throws IOException
+   {
+      if (whereList == null)
+      {
+         throw new LaTeXSyntaxException(parser,
+           LaTeXSyntaxException.ERROR_MISSING_KEY, "where");
+      }
+
+      DataFilter filter = new DataFilter(sty);
+      filter.addConditions(whereList, parser, stack);
+
+      int rowCount = filter.filter(parser, getDataBaseName());
+
+      sty.setActionReturnValue("", new UserNumber(rowCount));
+   }
+}
+
+class ActionAggregate extends Action
+{
+   @Override
+   public void doAction() throws IOException
+   {
+      String key = getColumnKey(true, false);
+
+      String[] functions;
+
+      if (optionsList == null)
+      {
+         functions = ALL_FUNCTIONS;
+      }
+      else
+      {
+         functions = new String[optionsList.size()];
+
+         for (int i = 0; i < functions.length; i++)
+         {
+            functions[i] = parser.expandToString(
+              optionsList.getValue(i, true), stack).trim();
+         }
+      }
+
+      DataFilter filter = null;
+
+      if (whereList != null)
+      {
+         filter = new DataFilter(sty);
+         filter.addConditions(whereList, parser, stack);
+      }
+
+      DataAggregate aggregate = new DataAggregate();
+
+      String[] names = (dbNames == null ?
+         new String[] {getDataBaseName()} : dbNames);
+
+      for (String name : names)
+      {
+         DataBase database = sty.getDataBase(name);
+         DataColumnStore store = database.getColumnStore(parser);
+         DataColumn column = store.getColumn(key);
+
+         if (column == null)
+         {
+            throw new LaTeXSyntaxException(parser,
+              DataToolSty.ERROR_HEADER_DOESNT_EXIST, key);
+         }
+
+         aggregate.addColumn(sty, column,
+           filter == null ? null : filter.getMatches(parser, store));
+      }
+
+      TeXParserListener listener = parser.getListener();
+
+      sty.setActionReturnValue("", new UserNumber(aggregate.getCount()));
+
+      for (String function : functions)
+      {
+         if (function.isEmpty())
+         {
+            continue;
+         }
+
+         Number num = aggregate.getValue(function);
+
+         if (num == null)
+         {
+            throw new LaTeXSyntaxException(parser,
+              LaTeXSyntaxException.ERROR_INVALID_OPTION_VALUE,
+              "options", function);
+         }
+
+         sty.setActionReturnValue(function,
+           listener.createString(DataAggregate.format(num)));
+      }
+   }
+
+   static final String[] ALL_FUNCTIONS = new String[]
+    {"count", "sum", "mean", "variance", "sd", "min", "max"};
+}
@@ -72,7 +72,7 @@ import com.dickimawbooks.texparserlib.latex.latex3.PropertyCommand;
  * Since LaTeX3 regular expressions aren't currently implemented in
  * the TeX Parser Library, the mappings are handled differently.
  */
-public class CsvReadHandler implements FileMapHandler
+public class CsvReadHandler implements RawFileMapHandler
 {
    public CsvReadHandler(DataBase database, boolean appending, IOSettings settings)
    {
@@ -103,60 +103,74 @@ public class CsvReadHandler implements FileMapHandler
       this.parser = parser;
       currentStack = line;
 
-      if (rowIdx == 0)
+      if (rowIdx == 0 && settings.getSkipLines() >= lineNumber)
       {
-         if (settings.getSkipLines() < lineNumber)
-         {
-            DataObjectList row = splitRow(line);
+         return;
+      }
 
-            if (row != null)
-            {
-               if (isRowEmpty(row))
-               {
-                  switch (settings.getCsvBlankOption())
-                  {
-                     case IGNORE: return;
-                     case END:
-                        throw new EOFException();
-                  }
-               }
+      processRow(splitRow(line));
+   }
 
-               if (settings.isHeaderIncluded())
-               {
-                  parseHeader(row);
-                  rowIdx = 1;
-               }
-               else if (sty.acceptNewRowRead(settings, database, row))
-               {
-                  parseRow(row);
-                  rowIdx++;
-               }
-            }
-         }
+   /**
+    * Determines whether the characters in each line can be split
+    * directly, which is the case with csv-content=literal. This
+    * avoids creating a token for each character. The cells are
+    * only tokenized when they are processed. This can't be used if
+    * there are any NewRowReadListeners as they expect the row to
+    * contain the tokens read from the file.
+    */
+   @Override
+   public boolean isRawLineSupported(TeXParser parser, FileMapType mapType)
+   {
+      return mapType == FileMapType.VERBATIM_EXCEPT_ESC_SYM
+          && settings.isCsvLiteral()
+          && !sty.hasNewRowReadListeners();
+   }
+
+   @Override
+   public void processRawLine(TeXParser parser, CharSequence line,
+      int lineNumber)
+   throws IOException
+   {
+      this.parser = parser;
+      currentStack = parser.getListener().createStack();
+
+      if (rowIdx == 0 && settings.getSkipLines() >= lineNumber)
+      {
+         return;
       }
-      else
+
+      processRow(splitRawRow(line));
+   }
+
+   protected void processRow(DataObjectList row)
+   throws IOException
+   {
+      if (row == null)
       {
-         DataObjectList row = splitRow(line);
+         return;
+      }
 
-         if (row != null)
+      if (isRowEmpty(row))
+      {
+         switch (settings.getCsvBlankOption())
          {
-            if (isRowEmpty(row))
-            {
-               switch (settings.getCsvBlankOption())
-               {
-                  case IGNORE: return;
-                  case END:
-                     throw new EOFException();
-               }
-            }
-
-            if (sty.acceptNewRowRead(settings, database, row))
-            {
-               parseRow(row);
-               rowIdx++;
-            }
+            case IGNORE: return;
+            case END:
+               throw new EOFException();
          }
       }
+
+      if (rowIdx == 0 && settings.isHeaderIncluded())
+      {
+         parseHeader(row);
+         rowIdx = 1;
+      }
+      else if (sty.acceptNewRowRead(settings, database, row))
+      {
+         parseRow(row);
+         rowIdx++;
+      }
    }
 
    protected boolean isRowEmpty(DataObjectList row)
@@ -397,27 +411,36 @@ public class CsvReadHandler implements FileMapHandler
    {
       if (settings.isCsvLiteral())
       {
-         StringBuilder builder = new StringBuilder();
-
-         TeXObjectList list;
+         String literal;
 
-         if (parser.isStack(obj))
+         if (obj instanceof LiteralCell)
          {
-            list = (TeXObjectList)obj;
-
-            for (int i = 0; i < list.size(); i++)
-            {
-               processLiteralToken(list.get(i), builder);
-            }
+            literal = ((LiteralCell)obj).getLiteral();
          }
          else
          {
-            processLiteralToken(obj, builder);
+            StringBuilder builder = new StringBuilder();
+
+            if (parser.isStack(obj))
+            {
+               TeXObjectList list = (TeXObjectList)obj;
+
+               for (int i = 0; i < list.size(); i++)
+               {
+                  processLiteralToken(list.get(i), builder);
+               }
+            }
+            else
+            {
+               processLiteralToken(obj, builder);
+            }
+
+            literal = builder.toString();
          }
 
-         list = parser.getListener().createStack();
+         TeXObjectList list = parser.getListener().createStack();
 
-         parser.scan(builder.toString(), list);
+         scanLiteral(literal, list);
 
 // TODO apply user mappings
 
@@ -442,6 +465,48 @@ public class CsvReadHandler implements FileMapHandler
       return obj;
    }
 
+   /**
+    * Tokenizes the literal content of a cell. If all the characters
+    * are letters or other characters, the tokens are created
+    * directly rather than via a reader.
+    */
+   protected void scanLiteral(String literal, TeXObjectList list)
+   throws IOException
+   {
+      int n = literal.length();
+
+      for (int i = 0; i < n; )
+      {
+         int cp = literal.codePointAt(i);
+         i += Character.charCount(cp);
+
+         CategoryCode catCode = parser.getCategoryCode(cp);
+
+         if (catCode != CategoryCode.LETTER && catCode != CategoryCode.OTHER)
+         {
+            parser.scan(literal, list);
+            return;
+         }
+      }
+
+      TeXParserListener listener = parser.getListener();
+
+      for (int i = 0; i < n; )
+      {
+         int cp = literal.codePointAt(i);
+         i += Character.charCount(cp);
+
+         if (parser.isCategoryCode(CategoryCode.LETTER, cp))
+         {
+            list.add(listener.getLetter(cp));
+         }
+         else
+         {
+            list.add(listener.getOther(cp));
+         }
+      }
+   }
+
    protected void processLiteralToken(TeXObject obj, StringBuilder builder)
    {
       if (obj instanceof ControlSequence)
@@ -458,15 +523,7 @@ public class CsvReadHandler implements FileMapHandler
          }
          else
          {
-            String str = obj.toString(parser);
-
-            for (int i = 0; i < str.length(); )
-            {
-               int cp = str.codePointAt(i);
-               i += Character.charCount(cp);
-
-               sty.appendCsvLiteral(cp, builder);
-            }
+            appendLiteral(obj.toString(parser), builder);
          }
       }
       else if (obj instanceof SingleToken)
@@ -489,26 +546,58 @@ public class CsvReadHandler implements FileMapHandler
       }
    }
 
+   protected void appendLiteral(String str, StringBuilder builder)
+   {
+      for (int i = 0; i < str.length(); )
+      {
+         int cp = str.codePointAt(i);
+         i += Character.charCount(cp);
+
+         sty.appendCsvLiteral(cp, builder);
+      }
+   }
+
+   /**
+    * Splits the characters of a line into cells. This is
+    * equivalent to {@link #splitRow(TeXObjectList)} applied to the
+    * tokens that would be read from the line with
+    * FileMapType.VERBATIM_EXCEPT_ESC_SYM, but each cell just
+    * contains the literal content that {@link #processCell(TeXObject)}
+    * would create from those tokens.
+    */
+   protected DataObjectList splitRawRow(CharSequence line)
+   throws IOException
+   {
+      return splitRow(new RawRowReader(line));
+   }
+
    protected DataObjectList splitRow(TeXObjectList line)
    throws IOException
+   {
+      return splitRow(new TokenRowReader(line));
+   }
+
+   /**
+    * Splits a line into cells. The reader supplies the content of
+    * the line and builds the cells, so the same quote, separator
+    * and escape handling is used whether the line has been
+    * tokenized or not.
+    * @return the row or null if the line ends within a delimited
+    * cell, in which case the cell is continued on the next line
+    */
+   private DataObjectList splitRow(RowReader reader)
+   throws IOException
    {
       int delimiter = settings.getDelimiter();
       int separator = settings.getSeparator();
+      EscapeCharsOption escOpt = settings.getEscapeCharsOption();
       boolean needsClosingDelim = false;
 
-      if (pendingCell != null)
+      if (reader.hasCell())
       {
          // continue parsing from previous line
 
-         if (pendingCell.isEmpty())
-         {
-            pendingCell.add(parser.getListener().getControlSequence("DTLpar"));
-         }
-         else if (!(pendingCell.lastElement() instanceof Comment))
-         {
-            pendingCell.add(parser.getListener().getEol());
-         }
-
+         reader.continueCell();
          needsClosingDelim = true;
       }
 
@@ -519,83 +608,59 @@ public class CsvReadHandler implements FileMapHandler
 
       boolean ignoreTrailing = false;
 
-      while (!line.isEmpty())
+      while (reader.next())
       {
-         TeXObject obj = line.pop();
-
-         if (obj instanceof CharObject)
+         if (reader.kind == RowReader.CHAR)
          {
-            int cp = ((CharObject)obj).getCharCode();
+            int cp = reader.cp;
 
             if (needsClosingDelim)
             {
                if (cp == delimiter)
                {
-                  TeXObject nextObj
-                     = line.peekStack(TeXObjectList.POP_IGNORE_LEADING_SPACE);
-
-                  if (nextObj == null)
+                  if (reader.isEndAfterDelimiter())
                   {
                      // end of row
-                     pendingRow.add(pendingCell);
+                     reader.endCell(false);
                      DataObjectList row = pendingRow;
-
-                     pendingCell = null;
                      pendingRow = null;
-                     needsClosingDelim = false;
 
                      return row;
                   }
-                  else if ((nextObj instanceof CharObject)
-                            && (((CharObject)nextObj).getCharCode()) == separator)
+                  else if (reader.skipSeparatorAfterDelimiter())
                   {
                      // Closing delimiter followed by separator.
                      // End of cell
-                     pendingRow.add(pendingCell);
-                     pendingCell = null;
+                     reader.endCell(false);
                      needsClosingDelim = false;
-                     line.popStack(parser, TeXObjectList.POP_IGNORE_LEADING_SPACE);
+                  }
+                  else if (escOpt == EscapeCharsOption.DOUBLE_DELIM
+                            && reader.skipIfNext(delimiter))
+                  {
+                     // double delimiter
+                     reader.addCurrent();
+                  }
+                  else if (settings.isCsvStrictQuotes())
+                  {
+                     /*
+                      Delimiter not followed by separator or
+                      eol or (with csv-escape-chars=double-delim)
+                      another delimiter.
+                     */ 
+
+                     // End of cell
+                     reader.endCell(false);
+                     needsClosingDelim = false;
+                     ignoreTrailing = true;
                   }
                   else
                   {
-                     nextObj = line.peekStack();
-
-                     if (nextObj instanceof CharObject
-                          && ((CharObject)nextObj).getCharCode() == delimiter
-                          && (settings.getEscapeCharsOption()
-                                  == EscapeCharsOption.DOUBLE_DELIM))
-                     {
-                        // double delimiter
-
-                        pendingCell.add(obj);
-                        line.popStack(parser);
-                     }
-                     else
-                     {
-                        /*
-                         Delimiter not followed by separator or
-                         eol or (with csv-escape-chars=double-delim)
-                         another delimiter.
-                        */ 
-
-                        if (settings.isCsvStrictQuotes())
-                        {
-                           // End of cell
-                           pendingRow.add(pendingCell);
-                           pendingCell = null;
-                           needsClosingDelim = false;
-                           ignoreTrailing = true;
-                        }
-                        else
-                        {
-                           pendingCell.add(obj);
-                        }
-                     }
+                     reader.addCurrent();
                   }
                }
                else
                {
-                  pendingCell.add(obj);
+                  reader.addCurrent();
                }
             }
             else if (ignoreTrailing && cp != separator)
@@ -604,19 +669,19 @@ public class CsvReadHandler implements FileMapHandler
             }
             else if (cp == delimiter)
             {
-               if (pendingCell == null)
+               if (!reader.hasCell())
                {
-                  pendingCell = parser.getListener().createStack();
+                  reader.newCell();
                   needsClosingDelim = true;
                }
-               else if (pendingCell.isBlank() || settings.isCsvStrictQuotes())
+               else if (reader.isCellBlank() || settings.isCsvStrictQuotes())
                {
-                  pendingCell.clear();
+                  reader.clearCell();
                   needsClosingDelim = true;
                }
                else
                {
-                  pendingCell.add(obj);
+                  reader.addCurrent();
                }
             }
             else if (cp == separator)
@@ -625,109 +690,84 @@ public class CsvReadHandler implements FileMapHandler
 
                ignoreTrailing = false;
 
-               if (pendingCell != null)
+               if (reader.hasCell())
                {
-                  if (!settings.isCsvLiteral())
-                  {
-                     pendingCell = TeXParserUtils.removeGroup(pendingCell);
-                  }
-
-                  if (settings.isTrimElementOn())
-                  {
-                     pendingCell.trimTrailing();
-                  }
-
-                  pendingRow.add(pendingCell);
-                  pendingCell = null;
+                  reader.endCell(true);
                }
                else
                {
-                  pendingRow.add(parser.getListener().createStack());
+                  reader.addEmptyCell();
                }
             }
             else if (parser.isCategoryCode(CategoryCode.SPACE, cp))
             {
-               Space space = parser.getListener().getSpace();
-               space.setSpace(cp);
-
-               if (pendingCell == null)
+               if (!reader.hasCell())
                {
                   if (!settings.isTrimElementOn())
                   {
-                     pendingCell = parser.getListener().createStack();
-                     pendingCell.add(space);
+                     reader.newCell();
+                     reader.addSpace();
                   }
                }
                else
                {
-                  pendingCell.add(space);
+                  reader.addSpace();
                }
             }
             else
             {
-               if (pendingCell == null)
+               if (!reader.hasCell())
                {
-                  pendingCell = parser.getListener().createStack();
+                  reader.newCell();
                }
 
-               pendingCell.add(obj);
+               reader.addCurrent();
             }
          }
-         else if (obj instanceof WhiteSpace || obj instanceof Ignoreable)
+         else if (reader.kind == RowReader.WHITE_SPACE)
          {
-            if (pendingCell == null)
+            if (!reader.hasCell())
             {
                if (!settings.isTrimElementOn())
                {
-                  pendingCell = parser.getListener().createStack();
-                  pendingCell.add(obj);
+                  reader.newCell();
+                  reader.addCurrent();
                }
             }
             else
             {
-               pendingCell.add(obj);
+               reader.addCurrent();
             }
          }
-         else if (obj instanceof ControlSequence)
+         else if (reader.kind == RowReader.CONTROL_SEQUENCE)
          {
-            if (pendingCell == null)
+            if (!reader.hasCell())
             {
-               pendingCell = parser.getListener().createStack();
+               reader.newCell();
             }
 
-            if (settings.getEscapeCharsOption() == EscapeCharsOption.DOUBLE_DELIM)
+            if (escOpt == EscapeCharsOption.DOUBLE_DELIM)
             {
-               String csname = ((ControlSequence)obj).getName();
-               int cp = csname.codePointAt(0);
-
-               pendingCell.add(obj);
+               reader.addCurrent();
 
-               if (cp == delimiter
-                   && csname.length() == Character.charCount(cp))
+               if (reader.isControlSymbol(delimiter))
                {
-                  TeXObject nextObj = line.peekStack();
-
-                  if ((nextObj instanceof CharObject)
-                   && ((CharObject)nextObj).getCharCode() == delimiter
-                     )
-                  {
-                     line.popStack(parser);
-                  }
+                  reader.skipIfNext(delimiter);
                }
             }
             else
             {
-               pendingCell.add(fromControlSequence((ControlSequence)obj));
+               reader.addEscapedControlSequence();
             }
          }
          else
          {
-            if (pendingCell == null)
+            if (!reader.hasCell())
             {
-               pendingCell = parser.getListener().createStack();
+               reader.newCell();
             }
 
-            pendingCell.add(obj);
+            reader.addCurrent();
          }
       }
 
@@ -735,9 +775,258 @@ public class CsvReadHandler implements FileMapHandler
       {
          return null;
       }
-      else
+
+      if (reader.hasCell())
+      {
+         reader.endCell(true);
+      }
+
+      DataObjectList row = pendingRow;
+      pendingRow = null;
+
+      return row;
+   }
+
+   /**
+    * Supplies the content of a line to {@link #splitRow(RowReader)}
+    * one item at a time and builds the pending cell.
+    */
+   private abstract class RowReader
+   {
+      /**
+       * Moves to the next item in the line, setting kind (and cp
+       * if it's a character).
+       * @return false if there are no more items
+       */
+      abstract boolean next()
+      throws IOException;
+
+      /**
+       * Determines if the line ends after the current closing
+       * delimiter.
+       */
+      abstract boolean isEndAfterDelimiter()
+      throws IOException;
+
+      /**
+       * Skips the separator following the current closing delimiter,
+       * if there is one.
+       * @return true if the separator was skipped
+       */
+      abstract boolean skipSeparatorAfterDelimiter()
+      throws IOException;
+
+      /**
+       * Skips the next item if it's the given character.
+       * @return true if the character was skipped
+       */
+      abstract boolean skipIfNext(int charCode)
+      throws IOException;
+
+      /**
+       * Determines if the current control sequence is a control
+       * symbol for the given character.
+       */
+      abstract boolean isControlSymbol(int charCode);
+
+      abstract boolean hasCell();
+
+      abstract void newCell();
+
+      /**
+       * Continues the pending cell from the previous line.
+       */
+      abstract void continueCell();
+
+      abstract boolean isCellBlank();
+
+      abstract void clearCell();
+
+      /**
+       * Adds the current item to the pending cell.
+       */
+      abstract void addCurrent();
+
+      /**
+       * Adds the current character (which has the space category
+       * code) to the pending cell as a space.
+       */
+      abstract void addSpace();
+
+      /**
+       * Adds the current control sequence to the pending cell,
+       * replacing an escaped delimiter or backslash according to
+       * the csv-escape-chars setting.
+       */
+      abstract void addEscapedControlSequence();
+
+      /**
+       * Adds the pending cell to the pending row.
+       * @param finish true if the cell should be finished (by
+       * removing an outer group, if applicable, and trimming
+       * trailing space, if enabled) first
+       */
+      abstract void endCell(boolean finish);
+
+      abstract void addEmptyCell();
+
+      int kind;
+      int cp;
+
+      static final int CHAR=0, WHITE_SPACE=1, CONTROL_SEQUENCE=2, OTHER=3;
+   }
+
+   /**
+    * Reads the tokens of a line into token list cells.
+    */
+   private class TokenRowReader extends RowReader
+   {
+      TokenRowReader(TeXObjectList line)
+      {
+         this.line = line;
+      }
+
+      @Override
+      boolean next()
+      throws IOException
+      {
+         if (line.isEmpty())
+         {
+            return false;
+         }
+
+         obj = line.pop();
+
+         if (obj instanceof CharObject)
+         {
+            kind = CHAR;
+            cp = ((CharObject)obj).getCharCode();
+         }
+         else if (obj instanceof WhiteSpace || obj instanceof Ignoreable)
+         {
+            kind = WHITE_SPACE;
+         }
+         else if (obj instanceof ControlSequence)
+         {
+            kind = CONTROL_SEQUENCE;
+         }
+         else
+         {
+            kind = OTHER;
+         }
+
+         return true;
+      }
+
+      @Override
+      boolean isEndAfterDelimiter()
+      throws IOException
+      {
+         return line.peekStack(TeXObjectList.POP_IGNORE_LEADING_SPACE) == null;
+      }
+
+      @Override
+      boolean skipSeparatorAfterDelimiter()
+      throws IOException
+      {
+         TeXObject nextObj
+            = line.peekStack(TeXObjectList.POP_IGNORE_LEADING_SPACE);
+
+         if ((nextObj instanceof CharObject)
+               && ((CharObject)nextObj).getCharCode() == settings.getSeparator())
+         {
+            line.popStack(parser, TeXObjectList.POP_IGNORE_LEADING_SPACE);
+
+            return true;
+         }
+
+         return false;
+      }
+
+      @Override
+      boolean skipIfNext(int charCode)
+      throws IOException
+      {
+         TeXObject nextObj = line.peekStack();
+
+         if ((nextObj instanceof CharObject)
+               && ((CharObject)nextObj).getCharCode() == charCode)
+         {
+            line.popStack(parser);
+            return true;
+         }
+
+         return false;
+      }
+
+      @Override
+      boolean isControlSymbol(int charCode)
+      {
+         String csname = ((ControlSequence)obj).getName();
+
+         return csname.codePointAt(0) == charCode
+            && csname.length() == Character.charCount(charCode);
+      }
+
+      @Override
+      boolean hasCell()
+      {
+         return pendingCell != null;
+      }
+
+      @Override
+      void newCell()
+      {
+         pendingCell = parser.getListener().createStack();
+      }
+
+      @Override
+      void continueCell()
       {
-         if (pendingCell != null)
+         if (pendingCell.isEmpty())
+         {
+            pendingCell.add(parser.getListener().getControlSequence("DTLpar"));
+         }
+         else if (!(pendingCell.lastElement() instanceof Comment))
+         {
+            pendingCell.add(parser.getListener().getEol());
+         }
+      }
+
+      @Override
+      boolean isCellBlank()
+      {
+         return pendingCell.isBlank();
+      }
+
+      @Override
+      void clearCell()
+      {
+         pendingCell.clear();
+      }
+
+      @Override
+      void addCurrent()
+      {
+         pendingCell.add(obj);
+      }
+
+      @Override
+      void addSpace()
+      {
+         pendingCell.add(parser.getListener().getSpace(cp));
+      }
+
+      @Override
+      void addEscapedControlSequence()
+      {
+         pendingCell.add(fromControlSequence((ControlSequence)obj));
+      }
+
+      @Override
+      void endCell(boolean finish)
+      {
+         if (finish)
          {
             if (!settings.isCsvLiteral())
             {
@@ -748,28 +1037,218 @@ public class CsvReadHandler implements FileMapHandler
             {
                pendingCell.trimTrailing();
             }
+         }
+
+         pendingRow.add(pendingCell);
+         pendingCell = null;
+      }
+
+      @Override
+      void addEmptyCell()
+      {
+         pendingRow.add(parser.getListener().createStack());
+      }
 
-            if (pendingRow == null)
+      private TeXObjectList line;
+      private TeXObject obj;
+   }
+
+   /**
+    * Reads the characters of a line into literal cells.
+    */
+   private class RawRowReader extends RowReader
+   {
+      RawRowReader(CharSequence line)
+      {
+         this.line = line;
+         n = line.length();
+      }
+
+      @Override
+      boolean next()
+      throws IOException
+      {
+         if (i >= n)
+         {
+            return false;
+         }
+
+         cp = Character.codePointAt(line, i);
+         i += Character.charCount(cp);
+
+         if (!parser.isCategoryCode(CategoryCode.ESC, cp))
+         {
+            kind = CHAR;
+            return true;
+         }
+
+         // control symbol
+
+         kind = CONTROL_SEQUENCE;
+
+         if (i == n)
+         {
+            csname = "\n";
+         }
+         else
+         {
+            int nextCp = Character.codePointAt(line, i);
+
+            if (parser.isCategoryCode(CategoryCode.EOL, nextCp))
             {
-               pendingRow = new DataObjectList();
+               csname = line.subSequence(i, n).toString();
+               i = n;
             }
+            else
+            {
+               csname = new String(Character.toChars(nextCp));
+               i += csname.length();
+            }
+         }
+
+         return true;
+      }
+
+      @Override
+      boolean isEndAfterDelimiter()
+      throws IOException
+      {
+         return i == n;
+      }
+
+      @Override
+      boolean skipSeparatorAfterDelimiter()
+      throws IOException
+      {
+         return skipIfNext(settings.getSeparator());
+      }
+
+      /**
+       * Skips the next character if it's the given character and
+       * isn't the escape character.
+       */
+      @Override
+      boolean skipIfNext(int charCode)
+      throws IOException
+      {
+         if (i < n && Character.codePointAt(line, i) == charCode
+              && !parser.isCategoryCode(CategoryCode.ESC, charCode))
+         {
+            i += Character.charCount(charCode);
+            return true;
+         }
+
+         return false;
+      }
+
+      @Override
+      boolean isControlSymbol(int charCode)
+      {
+         return csname.codePointAt(0) == charCode
+            && csname.length() == Character.charCount(charCode);
+      }
+
+      @Override
+      boolean hasCell()
+      {
+         return pendingLiteralCell != null;
+      }
+
+      @Override
+      void newCell()
+      {
+         pendingLiteralCell = new LiteralCell();
+      }
+
+      @Override
+      void continueCell()
+      {
+         if (pendingLiteralCell.isEmpty())
+         {
+            pendingLiteralCell.add(
+              parser.getListener().getControlSequence("DTLpar"));
+         }
+         else
+         {
+            pendingLiteralCell.add(parser.getListener().getEol());
+         }
+      }
+
+      @Override
+      boolean isCellBlank()
+      {
+         return pendingLiteralCell.isBlank();
+      }
+
+      @Override
+      void clearCell()
+      {
+         pendingLiteralCell.clear();
+      }
 
-            pendingRow.add(pendingCell);
-            pendingCell = null;
+      @Override
+      void addCurrent()
+      {
+         if (kind == CONTROL_SEQUENCE)
+         {
+            pendingLiteralCell.addControlSequence(csname);
+         }
+         else
+         {
+            pendingLiteralCell.addChar(cp, false);
          }
+      }
+
+      @Override
+      void addSpace()
+      {
+         pendingLiteralCell.addChar(cp, true);
+      }
 
-         if (pendingRow == null)
+      @Override
+      void addEscapedControlSequence()
+      {
+         EscapeCharsOption escOpt = settings.getEscapeCharsOption();
+         int delimiter = settings.getDelimiter();
+         int csCp = csname.codePointAt(0);
+         boolean isSymbol = (csname.length() == Character.charCount(csCp));
+
+         if (isSymbol && 
+              ((escOpt == EscapeCharsOption.ESC_DELIM
+                && csCp == delimiter)
+            || (escOpt == EscapeCharsOption.ESC_DELIM_BKSL
+                && (csCp == delimiter
+                 || parser.isCategoryCode(CategoryCode.ESC, csCp)))))
          {
-            return new DataObjectList();
+            pendingLiteralCell.addChar(csCp, false);
          }
          else
          {
-            DataObjectList row = pendingRow;
-            pendingRow = null;
+            pendingLiteralCell.addControlSequence(csname);
+         }
+      }
 
-            return row;
+      @Override
+      void endCell(boolean finish)
+      {
+         if (finish && settings.isTrimElementOn())
+         {
+            pendingLiteralCell.trimTrailing();
          }
+
+         pendingRow.add(pendingLiteralCell);
+         pendingLiteralCell = null;
+      }
+
+      @Override
+      void addEmptyCell()
+      {
+         pendingRow.add(new LiteralCell());
       }
+
+      private CharSequence line;
+      private int i = 0, n;
+      private String csname;
    }
 
    protected TeXObject fromControlSequence(ControlSequence cs)
@@ -815,6 +1294,137 @@ public class CsvReadHandler implements FileMapHandler
       }
    }
 
+   /**
+    * A cell read by {@link #splitRawRow(CharSequence)}. Instead of
+    * the tokens read from the file, this stores the literal content
+    * that would be obtained from those tokens along with enough
+    * information to determine if the tokens would be empty or blank
+    * and to trim trailing white space.
+    */
+   class LiteralCell extends AbstractTeXObject
+   {
+      void addChar(int cp, boolean isWhiteSpace)
+      {
+         sty.appendCsvLiteral(cp, literal);
+         tokenAdded(isWhiteSpace);
+      }
+
+      void addControlSequence(String csname)
+      {
+         if (csname.equals("f") || csname.equals("n") || csname.equals("r"))
+         {
+            literal.append(' ');
+         }
+         else if (csname.equals("t"))
+         {
+            literal.append('\t');
+         }
+         else
+         {
+            sty.appendCsvLiteral(parser.getEscChar(), literal);
+            appendLiteral(csname, literal);
+         }
+
+         tokenAdded(false);
+      }
+
+      void add(TeXObject obj)
+      {
+         processLiteralToken(obj, literal);
+         tokenAdded(obj instanceof WhiteSpace || obj instanceof Ignoreable);
+      }
+
+      private void tokenAdded(boolean isWhiteSpace)
+      {
+         numTokens++;
+
+         if (!isWhiteSpace)
+         {
+            trimmedNumTokens = numTokens;
+            trimmedLength = literal.length();
+         }
+      }
+
+      void clear()
+      {
+         literal.setLength(0);
+         numTokens = 0;
+         trimmedNumTokens = 0;
+         trimmedLength = 0;
+      }
+
+      void trimTrailing()
+      {
+         literal.setLength(trimmedLength);
+         numTokens = trimmedNumTokens;
+      }
+
+      /**
+       * Determines if the tokens would only consist of white space.
+       */
+      boolean isBlank()
+      {
+         return trimmedNumTokens == 0;
+      }
+
+      @Override
+      public boolean isEmpty()
+      {
+         return numTokens == 0;
+      }
+
+      String getLiteral()
+      {
+         return literal.toString();
+      }
+
+      @Override
+      public Object clone()
+      {
+         LiteralCell cell = new LiteralCell();
+         cell.literal.append(literal);
+         cell.numTokens = numTokens;
+         cell.trimmedNumTokens = trimmedNumTokens;
+         cell.trimmedLength = trimmedLength;
+
+         return cell;
+      }
+
+      @Override
+      public void process(TeXParser parser) throws IOException
+      {
+         TeXParserUtils.process(string(parser), parser, parser);
+      }
+
+      @Override
+      public void process(TeXParser parser, TeXObjectList stack)
+        throws IOException
+      {
+         TeXParserUtils.process(string(parser), parser, stack);
+      }
+
+      @Override
+      public String toString(TeXParser parser)
+      {
+         return getLiteral();
+      }
+
+      @Override
+      public TeXObjectList string(TeXParser parser) throws IOException
+      {
+         return parser.string(getLiteral());
+      }
+
+      @Override
+      public String format()
+      {
+         return getLiteral();
+      }
+
+      private StringBuilder literal = new StringBuilder();
+      private int numTokens = 0, trimmedNumTokens = 0, trimmedLength = 0;
+   }
+
    @Override
    public void processCompleted(TeXParser parser)
      throws IOException
@@ -827,6 +1437,7 @@ public class CsvReadHandler implements FileMapHandler
    int rowIdx = 0;
    DataObjectList pendingRow = null;
    TeXObjectList pendingCell = null;
+   LiteralCell pendingLiteralCell = null;
    TeXObjectList currentStack = null;
    Vector<DataToolHeader> headers;
    TeXParser parser;
@@ -48,6 +48,8 @@ public class DTLaction extends ControlSequence
 
       String action = popLabelString(parser, stack).trim();
 
+      sty.clearActionReturnValues();
+
       Action.getAction(action, sty, options, parser, stack).doAction();
    }
 
@@ -0,0 +1,81 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimawbooks.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib.latex.datatool;
+
+import java.io.IOException;
+
+import com.dickimawbooks.texparserlib.*;
+import com.dickimawbooks.texparserlib.latex.*;
+
+/**
+ * <code>\\DTLsumcolumn{db}{key}{cs}</code> and similar commands
+ * that define a command to an aggregate of all the numeric values
+ * in a column.
+ */
+public class DTLaggregatecolumn extends ControlSequence
+{
+   public DTLaggregatecolumn(String name, String function, DataToolSty sty)
+   {
+      super(name);
+      this.function = function;
+      this.sty = sty;
+   }
+
+   @Override
+   public Object clone()
+   {
+      return new DTLaggregatecolumn(getName(), function, sty);
+   }
+
+   @Override
+   public void process(TeXParser parser, TeXObjectList stack)
+     throws IOException
+   {
+      String dbName = popLabelString(parser, stack).trim();
+      String key = popLabelString(parser, stack).trim();
+      ControlSequence cs = TeXParserUtils.popControlSequence(parser, stack);
+
+      DataBase db = sty.getDataBase(dbName);
+
+      DataColumn column = db.getColumnStore(parser).getColumn(key);
+
+      if (column == null)
+      {
+         throw new LaTeXSyntaxException(parser,
+           DataToolSty.ERROR_HEADER_DOESNT_EXIST, key);
+      }
+
+      DataAggregate aggregate = new DataAggregate();
+      aggregate.addColumn(sty, column, null);
+
+      parser.putControlSequence(true, new GenericCommand(cs.getName(), null,
+        parser.getListener().createString(
+          DataAggregate.format(aggregate.getValue(function)))));
+   }
+
+   @Override
+   public void process(TeXParser parser)
+     throws IOException
+   {
+      process(parser, parser);
+   }
+
+   protected DataToolSty sty;
+   protected String function;
+}
@@ -0,0 +1,216 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimawbooks.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib.latex.datatool;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import com.dickimawbooks.texparserlib.*;
+import com.dickimawbooks.texparserlib.latex.*;
+import com.dickimawbooks.texparserlib.latex.ifthen.IfThenSty;
+
+/**
+ * <code>\\DTLsumforkeys[condition][assign]{db list}{key list}{cs}</code>
+ * and similar commands that define a command to an aggregate of
+ * the numeric values in the given columns of the given databases.
+ * The values are obtained from each database's DataColumnStore. If
+ * the condition is provided, it's evaluated (as with
+ * <code>\\DTLforeach</code>) for each row after the assignments
+ * have been made and only the rows that satisfy the condition are
+ * included.
+ */
+public class DTLaggregateforkeys extends ControlSequence
+{
+   public DTLaggregateforkeys(String name, String function, DataToolSty sty)
+   {
+      super(name);
+      this.function = function;
+      this.sty = sty;
+   }
+
+   @Override
+   public Object clone()
+   {
+      return new DTLaggregateforkeys(getName(), function, sty);
+   }
+
+   @Override
+   public void process(TeXParser parser, TeXObjectList stack)
+     throws IOException
+   {
+      TeXObject condition = popOptArg(parser, stack);
+      TeXObject assign = null;
+
+      if (condition != null)
+      {
+         assign = popOptArg(parser, stack);
+
+         if (condition.isEmpty())
+         {
+            condition = null;
+         }
+      }
+
+      String[] dbNames = popLabelString(parser, stack).trim().split(" *, *");
+      String[] keys = popLabelString(parser, stack).trim().split(" *, *");
+      ControlSequence cs = TeXParserUtils.popControlSequence(parser, stack);
+
+      DataAggregate aggregate = new DataAggregate();
+
+      for (String dbName : dbNames)
+      {
+         DataBase db = sty.getDataBase(dbName);
+         DataColumnStore store = db.getColumnStore(parser);
+
+         BitSet rows = null;
+
+         if (condition != null)
+         {
+            rows = getMatches(parser, store, condition, assign);
+         }
+
+         for (String key : keys)
+         {
+            DataColumn column = store.getColumn(key);
+
+            if (column == null)
+            {
+               throw new LaTeXSyntaxException(parser,
+                 DataToolSty.ERROR_HEADER_DOESNT_EXIST, key);
+            }
+
+            aggregate.addColumn(sty, column, rows);
+         }
+      }
+
+      parser.putControlSequence(true, new GenericCommand(cs.getName(), null,
+        parser.getListener().createString(
+          DataAggregate.format(aggregate.getValue(function)))));
+   }
+
+   /**
+    * Evaluates the condition for each row of the database.
+    * @return a bitmap where bit <em>i</em> is set if the condition
+    * is true for the row with index <em>i</em>+1
+    */
+   protected BitSet getMatches(TeXParser parser, DataColumnStore store,
+      TeXObject condition, TeXObject assign)
+    throws IOException
+   {
+      HashMap<String,Integer> map = new HashMap<String,Integer>();
+
+      if (assign != null && !assign.isEmpty())
+      {
+         CsvList csvList = CsvList.getList(parser, assign);
+
+         for (int i = 0; i < csvList.size(); i++)
+         {
+            TeXObject element = csvList.getValue(i, true);
+
+            if (!(element instanceof TeXObjectList))
+            {
+               throw new TeXSyntaxException(parser,
+                  TeXSyntaxException.ERROR_SYNTAX, getName());
+            }
+
+            TeXObjectList list = (TeXObjectList)element;
+
+            TeXObject object = list.popToken(
+              TeXObjectList.POP_IGNORE_LEADING_SPACE);
+
+            if (!(object instanceof ControlSequence))
+            {
+               throw new TeXSyntaxException(parser,
+                  TeXSyntaxException.ERROR_SYNTAX, getName());
+            }
+
+            String csName = ((ControlSequence)object).getName();
+
+            object = list.popToken(TeXObjectList.POP_IGNORE_LEADING_SPACE);
+
+            if (!(object instanceof CharObject
+                   && ((CharObject)object).getCharCode() == '='))
+            {
+               throw new TeXSyntaxException(parser,
+                  TeXSyntaxException.ERROR_SYNTAX, getName());
+            }
+
+            String key = parser.expandToString(list, parser).trim();
+
+            DataColumn column = store.getColumn(key);
+
+            if (column == null)
+            {
+               throw new LaTeXSyntaxException(parser,
+                 DataToolSty.ERROR_HEADER_DOESNT_EXIST, key);
+            }
+
+            map.put(csName, Integer.valueOf(column.getColumnIndex()));
+         }
+      }
+
+      int rowCount = store.getRowCount();
+      BitSet rows = new BitSet(rowCount);
+
+      IfThenSty ifThenSty = sty.getIfThenSty();
+      TeXParserListener listener = parser.getListener();
+
+      parser.startGroup();
+
+      for (int i = 0; i < rowCount; i++)
+      {
+         int rowIdx = i+1;
+
+         for (Iterator<String> it = map.keySet().iterator(); it.hasNext(); )
+         {
+            String csName = it.next();
+
+            TeXObject contents = store.getContents(rowIdx,
+               map.get(csName).intValue());
+
+            parser.putControlSequence(true, new GenericCommand(csName, null,
+              contents == null ? listener.createStack() : contents));
+         }
+
+         parser.putControlSequence(true,
+           new GenericCommand("DTLcurrentindex", null, new UserNumber(rowIdx)));
+
+         if (ifThenSty.evaluate((TeXObject)condition.clone()))
+         {
+            rows.set(i);
+         }
+      }
+
+      parser.endGroup();
+
+      return rows;
+   }
+
+   @Override
+   public void process(TeXParser parser)
+     throws IOException
+   {
+      process(parser, parser);
+   }
+
+   protected DataToolSty sty;
+   protected String function;
+}
@@ -0,0 +1,82 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimawbooks.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib.latex.datatool;
+
+import java.io.IOException;
+
+import com.dickimawbooks.texparserlib.*;
+import com.dickimawbooks.texparserlib.latex.*;
+
+/**
+ * Defines a command to a value returned by the last
+ * <code>\\DTLaction</code>. The optional argument is the property
+ * name, which is empty by default for the primary return value.
+ */
+public class DTLget extends ControlSequence
+{
+   public DTLget(DataToolSty sty)
+   {
+      this("DTLget", sty);
+   }
+
+   public DTLget(String name, DataToolSty sty)
+   {
+      super(name);
+      this.sty = sty;
+   }
+
+   @Override
+   public Object clone()
+   {
+      return new DTLget(getName(), sty);
+   }
+
+   @Override
+   public void process(TeXParser parser, TeXObjectList stack)
+     throws IOException
+   {
+      String property = TeXParserUtils.popOptLabelString(parser, stack);
+
+      ControlSequence cs = TeXParserUtils.popControlSequence(parser, stack);
+
+      TeXObject value = sty.getActionReturnValue(
+        property == null ? "" : property.trim());
+
+      if (value == null)
+      {
+         value = parser.getListener().createStack();
+      }
+      else
+      {
+         value = (TeXObject)value.clone();
+      }
+
+      parser.putControlSequence(true,
+        new GenericCommand(cs.getName(), null, value));
+   }
+
+   @Override
+   public void process(TeXParser parser)
+     throws IOException
+   {
+      process(parser, parser);
+   }
+
+   protected DataToolSty sty;
+}
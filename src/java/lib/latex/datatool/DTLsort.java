@@ -0,0 +1,91 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimawbooks.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib.latex.datatool;
+
+import java.io.IOException;
+
+import com.dickimawbooks.texparserlib.*;
+import com.dickimawbooks.texparserlib.latex.*;
+
+/**
+ * <code>\\DTLsort[replacements]{criteria}{db}</code>
+ * Sorts a database with DataSorter. The unstarred form is
+ * case-sensitive and the starred form is case-insensitive.
+ */
+public class DTLsort extends ControlSequence
+{
+   public DTLsort(DataToolSty sty)
+   {
+      this("DTLsort", sty);
+   }
+
+   public DTLsort(String name, DataToolSty sty)
+   {
+      super(name);
+      this.sty = sty;
+   }
+
+   @Override
+   public Object clone()
+   {
+      return new DTLsort(getName(), sty);
+   }
+
+   @Override
+   public void process(TeXParser parser, TeXObjectList stack)
+     throws IOException
+   {
+      boolean isStar = (popModifier(parser, stack, '*') == '*');
+
+      String replacementList = TeXParserUtils.popOptLabelString(parser, stack);
+
+      TeXObject criteria = popArg(parser, stack);
+
+      String dbName = popLabelString(parser, stack).trim();
+
+      String[] replacements = null;
+
+      if (replacementList != null)
+      {
+         replacementList = replacementList.trim();
+
+         if (!replacementList.isEmpty())
+         {
+            replacements = replacementList.split(" *, *");
+         }
+      }
+
+      DataSorter sorter = new DataSorter(sty);
+      sorter.setCaseSensitive(!isStar);
+
+      sorter.addCriteria(KeyValList.getList(parser, criteria), replacements,
+        parser, stack);
+
+      sorter.sort(parser, dbName);
+   }
+
+   @Override
+   public void process(TeXParser parser)
+     throws IOException
+   {
+      process(parser, parser);
+   }
+
+   protected DataToolSty sty;
+}
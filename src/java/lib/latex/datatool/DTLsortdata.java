@@ -0,0 +1,164 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimawbooks.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib.latex.datatool;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import com.dickimawbooks.texparserlib.*;
+import com.dickimawbooks.texparserlib.latex.*;
+
+/**
+ * <code>\\DTLsortdata[options]{db}{criteria}</code>
+ * Sorts a database with DataSorter. The supported options are
+ * "save-group-key" and "function". The function must be one of
+ * <code>\DTLsortwordhandler</code>,
+ * <code>\DTLsortwordcasehandler</code>,
+ * <code>\DTLsortletterhandler</code> or
+ * <code>\DTLsortlettercasehandler</code>. The letter handlers ignore
+ * spaces and the case handlers are case-sensitive. Any other value
+ * is an error.
+ */
+public class DTLsortdata extends ControlSequence
+{
+   public DTLsortdata(DataToolSty sty)
+   {
+      this("DTLsortdata", sty);
+   }
+
+   public DTLsortdata(String name, DataToolSty sty)
+   {
+      super(name);
+      this.sty = sty;
+   }
+
+   @Override
+   public Object clone()
+   {
+      return new DTLsortdata(getName(), sty);
+   }
+
+   @Override
+   public void process(TeXParser parser, TeXObjectList stack)
+     throws IOException
+   {
+      KeyValList options = TeXParserUtils.popOptKeyValList(parser, stack);
+
+      String dbName = popLabelString(parser, stack).trim();
+
+      TeXObject criteria = popArg(parser, stack);
+
+      DataSorter sorter = new DataSorter(sty);
+
+      if (options != null)
+      {
+         for (Iterator<String> it = options.getOrderedKeyIterator();
+              it.hasNext(); )
+         {
+            String key = it.next();
+
+            if (key.equals("save-group-key"))
+            {
+               String groupKey = options.getString(key, parser, stack);
+
+               if (groupKey != null)
+               {
+                  groupKey = groupKey.trim();
+               }
+
+               if (groupKey == null || groupKey.isEmpty())
+               {
+                  throw new LaTeXSyntaxException(parser,
+                    LaTeXSyntaxException.ERROR_MISSING_KEY_VALUE, key);
+               }
+
+               sorter.setGroupKey(groupKey);
+            }
+            else if (key.equals("function"))
+            {
+               TeXObject value = options.getValue(key);
+
+               if (value == null || value instanceof MissingValue)
+               {
+                  throw new LaTeXSyntaxException(parser,
+                    LaTeXSyntaxException.ERROR_MISSING_KEY_VALUE, key);
+               }
+
+               if (value instanceof TeXObjectList
+                    && ((TeXObjectList)value).size() == 1)
+               {
+                  value = ((TeXObjectList)value).firstElement();
+               }
+
+               String handler = null;
+
+               if (value instanceof ControlSequence)
+               {
+                  handler = ((ControlSequence)value).getName();
+               }
+
+               if ("DTLsortwordhandler".equals(handler))
+               {
+                  sorter.setIgnoreSpaces(false);
+                  sorter.setCaseSensitive(false);
+               }
+               else if ("DTLsortwordcasehandler".equals(handler))
+               {
+                  sorter.setIgnoreSpaces(false);
+                  sorter.setCaseSensitive(true);
+               }
+               else if ("DTLsortletterhandler".equals(handler))
+               {
+                  sorter.setIgnoreSpaces(true);
+                  sorter.setCaseSensitive(false);
+               }
+               else if ("DTLsortlettercasehandler".equals(handler))
+               {
+                  sorter.setIgnoreSpaces(true);
+                  sorter.setCaseSensitive(true);
+               }
+               else
+               {
+                  throw new LaTeXSyntaxException(parser,
+                    LaTeXSyntaxException.ERROR_INVALID_OPTION_VALUE,
+                    key, value.toString(parser));
+               }
+            }
+            else
+            {
+               throw new LaTeXSyntaxException(parser,
+                 LaTeXSyntaxException.ERROR_UNKNOWN_OPTION, key);
+            }
+         }
+      }
+
+      sorter.addCriteria(KeyValList.getList(parser, criteria), parser, stack);
+
+      sorter.sort(parser, dbName);
+   }
+
+   @Override
+   public void process(TeXParser parser)
+     throws IOException
+   {
+      process(parser, parser);
+   }
+
+   protected DataToolSty sty;
+}
@@ -0,0 +1,69 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimawbooks.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib.latex.datatool;
+
+import java.io.IOException;
+
+import com.dickimawbooks.texparserlib.*;
+import com.dickimawbooks.texparserlib.latex.*;
+
+/**
+ * Expands to a value returned by the last <code>\\DTLaction</code>.
+ * The argument is the property name, which is empty for the
+ * primary return value.
+ */
+public class DTLuse extends Command
+{
+   public DTLuse(DataToolSty sty)
+   {
+      this("DTLuse", sty);
+   }
+
+   public DTLuse(String name, DataToolSty sty)
+   {
+      super(name);
+      this.sty = sty;
+   }
+
+   @Override
+   public Object clone()
+   {
+      return new DTLuse(getName(), sty);
+   }
+
+   @Override
+   public TeXObjectList expandonce(TeXParser parser, TeXObjectList stack)
+     throws IOException
+   {
+      String property = popLabelString(parser, stack).trim();
+
+      TeXObjectList list = new TeXObjectList();
+
+      TeXObject value = sty.getActionReturnValue(property);
+
+      if (value != null)
+      {
+         list.add((TeXObject)value.clone(), true);
+      }
+
+      return list;
+   }
+
+   protected DataToolSty sty;
+}
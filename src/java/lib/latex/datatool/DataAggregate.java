@@ -0,0 +1,256 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimawbooks.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib.latex.datatool;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.BitSet;
+
+import com.dickimawbooks.texparserlib.*;
+
+/**
+ * Accumulates the count, sum, mean, variance, standard deviation,
+ * minimum and maximum of numeric values. Values may be added from
+ * more than one column (and more than one database). The mean and
+ * variance are updated incrementally (Welford's method) to avoid
+ * the loss of precision that can occur when subtracting the square
+ * of the mean from the mean of the squares. The variance and
+ * standard deviation are the population values (divided by the
+ * number of values).
+ */
+public class DataAggregate
+{
+   public DataAggregate()
+   {
+   }
+
+   public void add(double value)
+   {
+      count++;
+      sum += value;
+
+      double delta = value - mean;
+      mean += delta / count;
+      sumSquares += delta * (value - mean);
+
+      if (count == 1 || value < min)
+      {
+         min = value;
+      }
+
+      if (count == 1 || value > max)
+      {
+         max = value;
+      }
+   }
+
+   /**
+    * Adds the values of a column. Null values are skipped. If the
+    * column isn't numeric, each distinct string is parsed once and
+    * the rows that don't have a numeric value are skipped.
+    * @param sty the datatool package
+    * @param column the column
+    * @param rows the rows to include (bit <em>i</em> corresponds to
+    * the row index <em>i</em>+1) or null for all rows
+    */
+   public void addColumn(DataToolSty sty, DataColumn column, BitSet rows)
+    throws IOException
+   {
+      int rowCount = column.getRowCount();
+
+      if (column.isNumeric())
+      {
+         for (int i = 0; i < rowCount; i++)
+         {
+            if ((rows == null || rows.get(i)) && !column.isNull(i+1))
+            {
+               add(column.getDouble(i+1));
+            }
+         }
+
+         return;
+      }
+
+      int dictionarySize = column.getDictionarySize();
+
+      if (dictionarySize == 0)
+      {
+         return;
+      }
+
+      double[] codeValues = new double[dictionarySize];
+      boolean[] isNumeric = new boolean[dictionarySize];
+
+      TeXParserListener listener = sty.getListener();
+
+      for (int code = 0; code < dictionarySize; code++)
+      {
+         DataElement element = sty.getElement(
+           listener.createString(column.getDictionaryValue(code)));
+
+         if (element instanceof DataNumericElement
+              && element.getDatumType().isNumeric())
+         {
+            isNumeric[code] = true;
+            codeValues[code] = ((DataNumericElement)element).doubleValue();
+         }
+      }
+
+      for (int i = 0; i < rowCount; i++)
+      {
+         if (rows == null || rows.get(i))
+         {
+            int code = column.getCode(i+1);
+
+            if (code != -1 && isNumeric[code])
+            {
+               add(codeValues[code]);
+            }
+         }
+      }
+   }
+
+   public int getCount()
+   {
+      return count;
+   }
+
+   public double getSum()
+   {
+      return sum;
+   }
+
+   /**
+    * Gets the mean. Returns 0 if there are no values.
+    */
+   public double getMean()
+   {
+      return mean;
+   }
+
+   /**
+    * Gets the population variance. Returns 0 if there are no values.
+    */
+   public double getVariance()
+   {
+      return count == 0 ? 0.0 : sumSquares / count;
+   }
+
+   /**
+    * Gets the population standard deviation. Returns 0 if there are
+    * no values.
+    */
+   public double getStandardDeviation()
+   {
+      return Math.sqrt(getVariance());
+   }
+
+   /**
+    * Gets the minimum. Returns 0 if there are no values.
+    */
+   public double getMin()
+   {
+      return min;
+   }
+
+   /**
+    * Gets the maximum. Returns 0 if there are no values.
+    */
+   public double getMax()
+   {
+      return max;
+   }
+
+   /**
+    * Gets the value of the given function, which may be one of
+    * "count", "sum", "mean", "variance", "sd", "min" or "max".
+    * @param function the function name
+    * @return the value or null if the function isn't recognised
+    */
+   public Number getValue(String function)
+   {
+      if (function.equals("count"))
+      {
+         return Integer.valueOf(count);
+      }
+      else if (function.equals("sum"))
+      {
+         return Double.valueOf(getSum());
+      }
+      else if (function.equals("mean"))
+      {
+         return Double.valueOf(getMean());
+      }
+      else if (function.equals("variance"))
+      {
+         return Double.valueOf(getVariance());
+      }
+      else if (function.equals("sd"))
+      {
+         return Double.valueOf(getStandardDeviation());
+      }
+      else if (function.equals("min"))
+      {
+         return Double.valueOf(getMin());
+      }
+      else if (function.equals("max"))
+      {
+         return Double.valueOf(getMax());
+      }
+
+      return null;
+   }
+
+   /**
+    * Formats a value as a plain decimal number without any
+    * redundant trailing zeros, suitable for use in a
+    * numerical argument. The value is rounded to 15 significant
+    * digits to hide binary rounding errors (so that 1.1+2.2 is
+    * 3.3).
+    */
+   public static String format(Number value)
+   {
+      if (value instanceof Integer || value instanceof Long)
+      {
+         return value.toString();
+      }
+
+      double num = value.doubleValue();
+
+      if (Double.isNaN(num) || Double.isInfinite(num))
+      {
+         return Double.toString(num);
+      }
+
+      if (num == 0.0)
+      {
+         return "0";
+      }
+
+      return BigDecimal.valueOf(num).round(PRECISION)
+        .stripTrailingZeros().toPlainString();
+   }
+
+   private int count = 0;
+   private double sum = 0.0, mean = 0.0, sumSquares = 0.0;
+   private double min = 0.0, max = 0.0;
+
+   private static final MathContext PRECISION = new MathContext(15);
+}
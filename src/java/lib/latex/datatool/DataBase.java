@@ -59,6 +59,7 @@ public class DataBase
    {
       this.headerRow = headers;
       this.dataRows = rows;
+      columnStore = null;
    }
 
    public int getColumnCount()
@@ -96,6 +97,32 @@ public class DataBase
       return name;
    }
 
+   /**
+    * Gets a columnar copy of this database's data. The copy is
+    * created the first time it's needed and is recreated if the
+    * database has been modified since.
+    * @param parser the TeX parser
+    * @return the column store
+    */
+   public synchronized DataColumnStore getColumnStore(TeXParser parser)
+   {
+      if (columnStore == null || !columnStore.isValid())
+      {
+         columnStore = new DataColumnStore(parser, this);
+      }
+
+      return columnStore;
+   }
+
+   /**
+    * Discards the columnar copy of this database's data, if it
+    * has been created, to free its memory.
+    */
+   public synchronized void discardColumnStore()
+   {
+      columnStore = null;
+   }
+
    /**
     * Reads a file containing data. The database is globally defined.
     * If successful, <code>\\dtllastloadeddb </code> will be defined to the
@@ -924,6 +951,9 @@ public class DataBase
          {
             writer.close();
          }
+
+         // the file may be read back in
+         TeXPathCache.invalidate(parser);
       }
    }
 
@@ -1002,6 +1032,7 @@ public class DataBase
    private DataToolHeaderRow headerRow;
    private DataToolRows dataRows;
    private String name;
+   private DataColumnStore columnStore;
 
    public static Pattern FILE_IDENTIFIER = Pattern.compile("% (DBTEX|DTLTEX) ([0-9\\.]+) ([a-zA-Z0-9\\-]+)");
 
@@ -0,0 +1,301 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimawbooks.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib.latex.datatool;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Vector;
+
+import com.dickimawbooks.texparserlib.*;
+
+/**
+ * The values of a single column of a database held in a primitive
+ * array. Integer and date columns are stored as longs (the date is
+ * the Julian day), decimal, currency, time and datetime columns are
+ * stored as doubles (the temporal values are Julian times or dates)
+ * and any other column is stored as indexes into a dictionary of
+ * distinct strings. A bitmap indicates which rows have a value.
+ * Empty cells, missing cells and cells that don't have a value
+ * compatible with the column type are treated as null.
+ *
+ * Rows are identified by their row index, which starts from 1.
+ * @see DataColumnStore
+ */
+public class DataColumn
+{
+   protected DataColumn(DataToolHeader header, int rowCount)
+   {
+      columnIndex = header.getColumnIndex();
+      key = header.getColumnLabel();
+      type = header.getDataType();
+      this.rowCount = rowCount;
+
+      present = new BitSet(rowCount);
+
+      switch (type)
+      {
+         case INTEGER:
+         case DATE:
+            longValues = new long[rowCount];
+         break;
+         case DECIMAL:
+         case CURRENCY:
+         case TIME:
+         case DATETIME:
+            doubleValues = new double[rowCount];
+         break;
+         default:
+            codes = new int[rowCount];
+            dictionary = new Vector<String>();
+            dictionaryIndex = new HashMap<String,Integer>();
+      }
+   }
+
+   /**
+    * Sets the value of the given row from the contents of a cell.
+    * @param parser the TeX parser
+    * @param rowIndex the row index
+    * @param contents the cell contents or null if there's no cell
+    */
+   protected void set(TeXParser parser, int rowIndex, TeXObject contents)
+   {
+      int idx = rowIndex-1;
+
+      if (contents == null || contents.isEmpty()
+           || (contents instanceof DataElement
+               && ((DataElement)contents).getDatumType() == DatumType.UNKNOWN))
+      {
+         present.clear(idx);
+         return;
+      }
+
+      if (codes != null)
+      {
+         String value = contents.toString(parser);
+
+         Integer code = dictionaryIndex.get(value);
+
+         if (code == null)
+         {
+            code = Integer.valueOf(dictionary.size());
+            dictionary.add(value);
+            dictionaryIndex.put(value, code);
+         }
+
+         codes[idx] = code.intValue();
+         present.set(idx);
+
+         return;
+      }
+
+      if (!(contents instanceof DataNumericElement)
+          || !((DataElement)contents).getDatumType().isNumeric())
+      {
+         present.clear(idx);
+         return;
+      }
+
+      DataNumericElement element = (DataNumericElement)contents;
+      Julian julian = (type.isTemporal() ? element.getJulian() : null);
+
+      if (longValues != null)
+      {
+         longValues[idx] = (julian == null ?
+            element.longValue() : julian.getJulianDay());
+      }
+      else if (julian == null)
+      {
+         doubleValues[idx] = element.doubleValue();
+      }
+      else if (type == DatumType.TIME)
+      {
+         doubleValues[idx] = julian.getJulianTime();
+      }
+      else
+      {
+         doubleValues[idx] = julian.getJulianDate();
+      }
+
+      present.set(idx);
+   }
+
+   public int getColumnIndex()
+   {
+      return columnIndex;
+   }
+
+   public String getColumnLabel()
+   {
+      return key;
+   }
+
+   /**
+    * Gets the column data type when the column was stored. This
+    * determines which array holds the values.
+    */
+   public DatumType getDatumType()
+   {
+      return type;
+   }
+
+   public int getRowCount()
+   {
+      return rowCount;
+   }
+
+   /**
+    * Determines whether the values are numeric (stored as longs or
+    * doubles) rather than dictionary codes.
+    */
+   public boolean isNumeric()
+   {
+      return codes == null;
+   }
+
+   /**
+    * Determines whether the values are stored as longs.
+    */
+   public boolean isIntegral()
+   {
+      return longValues != null;
+   }
+
+   public boolean isNull(int rowIndex)
+   {
+      return !present.get(rowIndex-1);
+   }
+
+   /**
+    * Gets the number of rows that have a value.
+    */
+   public int getValueCount()
+   {
+      return present.cardinality();
+   }
+
+   /**
+    * Gets the numeric value of the given row. Returns 0 for a null
+    * value or if this isn't a numeric column.
+    */
+   public long getLong(int rowIndex)
+   {
+      int idx = rowIndex-1;
+
+      if (longValues != null)
+      {
+         return longValues[idx];
+      }
+
+      if (doubleValues != null)
+      {
+         return (long)doubleValues[idx];
+      }
+
+      return 0L;
+   }
+
+   /**
+    * Gets the numeric value of the given row. Returns 0 for a null
+    * value or if this isn't a numeric column.
+    */
+   public double getDouble(int rowIndex)
+   {
+      int idx = rowIndex-1;
+
+      if (doubleValues != null)
+      {
+         return doubleValues[idx];
+      }
+
+      if (longValues != null)
+      {
+         return (double)longValues[idx];
+      }
+
+      return 0.0;
+   }
+
+   /**
+    * Gets the dictionary code of the given row. Returns -1 for a
+    * null value or if this is a numeric column.
+    */
+   public int getCode(int rowIndex)
+   {
+      int idx = rowIndex-1;
+
+      if (codes == null || !present.get(idx))
+      {
+         return -1;
+      }
+
+      return codes[idx];
+   }
+
+   /**
+    * Gets the dictionary code of the given string. Returns -1 if
+    * no row has that value or if this is a numeric column.
+    */
+   public int getCode(String value)
+   {
+      if (dictionaryIndex == null)
+      {
+         return -1;
+      }
+
+      Integer code = dictionaryIndex.get(value);
+
+      return code == null ? -1 : code.intValue();
+   }
+
+   /**
+    * Gets the string value of the given row, or null if the value
+    * is null or this is a numeric column.
+    */
+   public String getString(int rowIndex)
+   {
+      int code = getCode(rowIndex);
+
+      return code == -1 ? null : dictionary.get(code);
+   }
+
+   /**
+    * Gets the number of distinct strings in a non-numeric column.
+    */
+   public int getDictionarySize()
+   {
+      return dictionary == null ? 0 : dictionary.size();
+   }
+
+   public String getDictionaryValue(int code)
+   {
+      return dictionary.get(code);
+   }
+
+   private int columnIndex;
+   private String key;
+   private DatumType type;
+   private int rowCount;
+
+   private BitSet present;
+   private long[] longValues;
+   private double[] doubleValues;
+   private int[] codes;
+   private Vector<String> dictionary;
+   private HashMap<String,Integer> dictionaryIndex;
+}
@@ -0,0 +1,248 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimawbooks.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib.latex.datatool;
+
+import java.util.HashMap;
+
+import com.dickimawbooks.texparserlib.*;
+
+/**
+ * Columnar copy of the data in a database. Each column is held in
+ * a DataColumn so that operations over a column, such as
+ * aggregates, sorting and filtering, can work on primitive arrays
+ * rather than looking up and converting each entry. The rows of the
+ * database are still the primary copy of the data and the cell
+ * contents are obtained from them when needed, such as when a cell
+ * is displayed.
+ *
+ * A store is obtained with DataBase.getColumnStore(TeXParser),
+ * which only creates it when it's first needed and creates a new
+ * one if the database has been modified since.
+ */
+public class DataColumnStore
+{
+   protected DataColumnStore(TeXParser parser, DataBase db)
+   {
+      this.db = db;
+      headerRow = db.getHeaders();
+      dataRows = db.getData();
+
+      rowCount = db.getRowCount();
+
+      if (headerRow == null)
+      {
+         columns = new DataColumn[1];
+         columnTypes = new DatumType[1];
+         headerModCount = 0;
+      }
+      else
+      {
+         columns = new DataColumn[headerRow.getMaxIndex()+1];
+         columnTypes = new DatumType[columns.length];
+         headerModCount = headerRow.getModificationCount();
+      }
+
+      keyMap = new HashMap<String,DataColumn>();
+
+      if (headerRow != null)
+      {
+         for (DataToolHeader header : headerRow)
+         {
+            int idx = header.getColumnIndex();
+
+            if (columns[idx] == null)
+            {
+               DataColumn column = new DataColumn(header, rowCount);
+
+               columns[idx] = column;
+               columnTypes[idx] = column.getDatumType();
+               keyMap.put(column.getColumnLabel(), column);
+            }
+         }
+      }
+
+      rowModCounts = new int[rowCount];
+
+      if (dataRows == null)
+      {
+         rowsModCount = 0;
+      }
+      else
+      {
+         rowsModCount = dataRows.getModificationCount();
+         sty = dataRows.getSty();
+
+         if (sty != null)
+         {
+            contentsModCount = sty.getContentsModificationCount();
+         }
+
+         for (int i = 0; i < rowCount; i++)
+         {
+            DataToolEntryRow row = dataRows.get(i);
+            int rowIndex = i+1;
+
+            rowModCounts[i] = row.getModificationCount();
+
+            for (int j = 1; j < columns.length; j++)
+            {
+               DataColumn column = columns[j];
+
+               if (column != null)
+               {
+                  DataToolEntry entry = row.getEntry(j);
+
+                  column.set(parser, rowIndex,
+                    entry == null ? null : entry.getContents());
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Determines whether this store still matches its database. The
+    * store is out of date if the header or row lists have been
+    * replaced or modified, if any row has been modified, if the
+    * contents of any entry have been set or if a column type has
+    * changed.
+    */
+   public boolean isValid()
+   {
+      if (db.getHeaders() != headerRow || db.getData() != dataRows)
+      {
+         return false;
+      }
+
+      if (headerRow != null)
+      {
+         if (headerRow.getModificationCount() != headerModCount)
+         {
+            return false;
+         }
+
+         for (DataToolHeader header : headerRow)
+         {
+            int idx = header.getColumnIndex();
+
+            if (idx >= columnTypes.length
+                 || header.getDataType() != columnTypes[idx])
+            {
+               return false;
+            }
+         }
+      }
+
+      if (dataRows != null)
+      {
+         if (dataRows.getModificationCount() != rowsModCount)
+         {
+            return false;
+         }
+
+         if (sty != null && sty.getContentsModificationCount() != contentsModCount)
+         {
+            return false;
+         }
+
+         for (int i = 0; i < rowCount; i++)
+         {
+            if (dataRows.get(i).getModificationCount() != rowModCounts[i])
+            {
+               return false;
+            }
+         }
+      }
+
+      return true;
+   }
+
+   public DataBase getDataBase()
+   {
+      return db;
+   }
+
+   public int getRowCount()
+   {
+      return rowCount;
+   }
+
+   /**
+    * Gets the column with the given index.
+    * @param columnIndex the column index
+    * @return the column or null if there's no such column
+    */
+   public DataColumn getColumn(int columnIndex)
+   {
+      if (columnIndex < 0 || columnIndex >= columns.length)
+      {
+         return null;
+      }
+
+      return columns[columnIndex];
+   }
+
+   /**
+    * Gets the column with the given label.
+    * @param key the column label
+    * @return the column or null if there's no such column
+    */
+   public DataColumn getColumn(String key)
+   {
+      return keyMap.get(key);
+   }
+
+   /**
+    * Gets the row with the given index from the database.
+    * @param rowIndex the row index (starting from 1)
+    * @return the row
+    */
+   public DataToolEntryRow getRow(int rowIndex)
+   {
+      return dataRows.get(rowIndex-1);
+   }
+
+   /**
+    * Gets the contents of a cell from the database.
+    * @param rowIndex the row index (starting from 1)
+    * @param columnIndex the column index
+    * @return the cell contents or null if the cell doesn't exist
+    */
+   public TeXObject getContents(int rowIndex, int columnIndex)
+   {
+      DataToolEntry entry = getRow(rowIndex).getEntry(columnIndex);
+
+      return entry == null ? null : entry.getContents();
+   }
+
+   private DataBase db;
+   private DataToolHeaderRow headerRow;
+   private DataToolRows dataRows;
+   private int rowCount;
+
+   private DataColumn[] columns;
+   private DatumType[] columnTypes;
+   private HashMap<String,DataColumn> keyMap;
+
+   private int headerModCount, rowsModCount;
+   private int[] rowModCounts;
+
+   private DataToolSty sty;
+   private int contentsModCount;
+}
@@ -0,0 +1,427 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimawbooks.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib.latex.datatool;
+
+import java.io.IOException;
+import java.text.Collator;
+import java.util.BitSet;
+import java.util.Vector;
+
+import com.dickimawbooks.texparserlib.*;
+import com.dickimawbooks.texparserlib.latex.*;
+
+/**
+ * Selects the rows of a database that satisfy a set of conditions.
+ * Each condition has the form <em>key</em> <em>op</em>
+ * <em>value</em>, where <em>op</em> is one of <code>=</code>,
+ * <code>!=</code> (or <code>&lt;&gt;</code>), <code>&lt;</code>,
+ * <code>&lt;=</code>, <code>&gt;</code> or <code>&gt;=</code>.
+ * A row is selected if it satisfies all the conditions.
+ * An empty value tests for a null (empty or missing) value, so
+ * <code>Key=</code> selects the rows where the column is null and
+ * <code>Key!=</code> selects the rows where it isn't. Otherwise a
+ * null value never satisfies a condition.
+ *
+ * The conditions are tested against the database's
+ * DataColumnStore. Numeric columns are compared by value and any
+ * other column is compared by string. The string comparison is only
+ * performed once for each distinct value in the column.
+ */
+public class DataFilter
+{
+   public DataFilter(DataToolSty sty)
+   {
+      this.sty = sty;
+      conditions = new Vector<Condition>();
+   }
+
+   /**
+    * Adds a condition.
+    * @param parser the TeX parser
+    * @param stack the current stack
+    * @param key the column label
+    * @param operator the comparison operator
+    * @param value the value to compare against (null or empty to
+    * test for a null value)
+    */
+   public void addCondition(TeXParser parser, TeXObjectList stack,
+      String key, String operator, TeXObject value)
+    throws IOException
+   {
+      int op = getOperator(operator);
+
+      if (op == -1)
+      {
+         throw new LaTeXSyntaxException(parser,
+           DataToolSty.ERROR_INVALID_CONDITION, key+operator
+             +(value == null ? "" : value.toString(parser)));
+      }
+
+      if (value != null && value.isEmpty())
+      {
+         value = null;
+      }
+
+      if (value == null && op != EQ && op != NE)
+      {
+         throw new LaTeXSyntaxException(parser,
+           DataToolSty.ERROR_INVALID_CONDITION, key+operator);
+      }
+
+      String str = null;
+
+      if (value != null)
+      {
+         str = parser.expandToString((TeXObject)value.clone(), stack).trim();
+      }
+
+      conditions.add(new Condition(key, op, value, str));
+   }
+
+   /**
+    * Adds a comma-separated list of conditions.
+    * @param list the list of conditions
+    * @param parser the TeX parser
+    * @param stack the current stack
+    */
+   public void addConditions(TeXObject list, TeXParser parser,
+      TeXObjectList stack)
+    throws IOException
+   {
+      CsvList csvList = CsvList.getList(parser, list);
+
+      for (int i = 0; i < csvList.size(); i++)
+      {
+         TeXObject condition = csvList.getValue(i, true);
+
+         if (condition == null || condition.isEmpty())
+         {
+            continue;
+         }
+
+         TeXObjectList tokens = TeXParserUtils.toList(
+           (TeXObject)condition.clone(), parser);
+
+         TeXObjectList keyList = parser.getListener().createStack();
+         StringBuilder operator = new StringBuilder();
+
+         while (!tokens.isEmpty())
+         {
+            TeXObject obj = tokens.firstElement();
+
+            if (obj instanceof CharObject)
+            {
+               int cp = ((CharObject)obj).getCharCode();
+
+               if (cp == '=' || cp == '<' || cp == '>' || cp == '!')
+               {
+                  operator.appendCodePoint(cp);
+                  tokens.remove(0);
+                  continue;
+               }
+            }
+
+            if (operator.length() > 0)
+            {
+               break;
+            }
+
+            keyList.add(tokens.remove(0));
+         }
+
+         if (operator.length() == 0)
+         {
+            throw new LaTeXSyntaxException(parser,
+              DataToolSty.ERROR_INVALID_CONDITION, condition.toString(parser));
+         }
+
+         String key = parser.expandToString(keyList, stack).trim();
+
+         tokens.trim();
+
+         addCondition(parser, stack, key, operator.toString(), tokens);
+      }
+   }
+
+   public int getConditionCount()
+   {
+      return conditions.size();
+   }
+
+   /**
+    * Gets the rows that satisfy all the conditions.
+    * @param parser the TeX parser
+    * @param store the database column store
+    * @return a bitmap where bit <em>i</em> is set if the row with
+    * index <em>i</em>+1 satisfies the conditions
+    */
+   public BitSet getMatches(TeXParser parser, DataColumnStore store)
+    throws IOException
+   {
+      int rowCount = store.getRowCount();
+
+      BitSet matches = new BitSet(rowCount);
+      matches.set(0, rowCount);
+
+      for (Condition condition : conditions)
+      {
+         DataColumn column = store.getColumn(condition.key);
+
+         if (column == null)
+         {
+            throw new LaTeXSyntaxException(parser,
+              DataToolSty.ERROR_HEADER_DOESNT_EXIST, condition.key);
+         }
+
+         if (condition.value == null)
+         {
+            boolean isNullTest = (condition.operator == EQ);
+
+            for (int i = matches.nextSetBit(0); i >= 0;
+                 i = matches.nextSetBit(i+1))
+            {
+               if (column.isNull(i+1) != isNullTest)
+               {
+                  matches.clear(i);
+               }
+            }
+         }
+         else if (column.isNumeric())
+         {
+            double target = getNumericValue(parser, column, condition);
+
+            for (int i = matches.nextSetBit(0); i >= 0;
+                 i = matches.nextSetBit(i+1))
+            {
+               if (column.isNull(i+1) || !condition.test(
+                     Double.compare(column.getDouble(i+1), target)))
+               {
+                  matches.clear(i);
+               }
+            }
+         }
+         else
+         {
+            String target = condition.valueString;
+
+            // test each distinct value once
+
+            boolean[] codeMatches = new boolean[column.getDictionarySize()];
+
+            for (int code = 0; code < codeMatches.length; code++)
+            {
+               String str = column.getDictionaryValue(code);
+
+               if (condition.operator == EQ || condition.operator == NE)
+               {
+                  codeMatches[code] = condition.test(str.equals(target) ? 0 : 1);
+               }
+               else
+               {
+                  codeMatches[code] = condition.test(
+                    getCollator().compare(str, target));
+               }
+            }
+
+            for (int i = matches.nextSetBit(0); i >= 0;
+                 i = matches.nextSetBit(i+1))
+            {
+               int code = column.getCode(i+1);
+
+               if (code == -1 || !codeMatches[code])
+               {
+                  matches.clear(i);
+               }
+            }
+         }
+      }
+
+      return matches;
+   }
+
+   /**
+    * Removes the rows from the given database that don't satisfy
+    * all the conditions. The remaining rows are renumbered.
+    * @param parser the TeX parser
+    * @param dbName the database name
+    * @return the number of remaining rows
+    */
+   public int filter(TeXParser parser, String dbName)
+     throws IOException
+   {
+      DataBase db = sty.getDataBase(dbName);
+
+      if (db == null)
+      {
+         throw new LaTeXSyntaxException(parser,
+           DataToolSty.ERROR_DB_DOESNT_EXIST, dbName);
+      }
+
+      DataColumnStore store = db.getColumnStore(parser);
+      BitSet matches = getMatches(parser, store);
+
+      int rowCount = store.getRowCount();
+      int matchCount = matches.cardinality();
+
+      if (matchCount < rowCount)
+      {
+         DataToolRows rows = db.getData();
+
+         Vector<DataToolEntryRow> selected
+           = new Vector<DataToolEntryRow>(matchCount);
+
+         for (int i = matches.nextSetBit(0); i >= 0;
+              i = matches.nextSetBit(i+1))
+         {
+            selected.add(rows.get(i));
+         }
+
+         rows.clear();
+         rows.addAll(selected);
+
+         sty.update(dbName, db.getHeaders(), rows);
+      }
+
+      return matchCount;
+   }
+
+   private double getNumericValue(TeXParser parser, DataColumn column,
+     Condition condition)
+    throws IOException
+   {
+      DatumType type = column.getDatumType();
+
+      DataElement element = sty.getElement((TeXObject)condition.value.clone());
+      Julian julian = null;
+
+      if (element != null && element.getDatumType().isNumeric())
+      {
+         julian = element.getJulian();
+
+         if (julian == null && !type.isTemporal())
+         {
+            return ((DataNumericElement)element).doubleValue();
+         }
+      }
+
+      if (julian == null && type.isTemporal())
+      {
+         julian = Julian.parse(condition.valueString);
+      }
+
+      if (julian != null)
+      {
+         if (type == DatumType.DATE)
+         {
+            return julian.getJulianDay();
+         }
+         else if (type == DatumType.TIME)
+         {
+            return julian.getJulianTime();
+         }
+         else if (type.isTemporal())
+         {
+            return julian.getJulianDate();
+         }
+      }
+
+      throw new LaTeXSyntaxException(parser,
+        DataToolSty.ERROR_INVALID_CONDITION, condition.key
+         + OPERATORS[condition.operator] + condition.valueString);
+   }
+
+   private Collator getCollator()
+   {
+      if (collator == null)
+      {
+         collator = Collator.getInstance(
+           sty.getDataToolBaseSty().getNumericLocale());
+         collator.setStrength(Collator.SECONDARY);
+      }
+
+      return collator;
+   }
+
+   private static int getOperator(String operator)
+   {
+      if (operator.equals("=="))
+      {
+         return EQ;
+      }
+
+      if (operator.equals("<>"))
+      {
+         return NE;
+      }
+
+      for (int i = 0; i < OPERATORS.length; i++)
+      {
+         if (OPERATORS[i].equals(operator))
+         {
+            return i;
+         }
+      }
+
+      return -1;
+   }
+
+   class Condition
+   {
+      Condition(String key, int operator, TeXObject value,
+        String valueString)
+      {
+         this.key = key;
+         this.operator = operator;
+         this.value = value;
+         this.valueString = valueString;
+      }
+
+      /**
+       * Tests the result of comparing a value with the condition's
+       * value.
+       */
+      boolean test(int result)
+      {
+         switch (operator)
+         {
+            case EQ: return result == 0;
+            case NE: return result != 0;
+            case LT: return result < 0;
+            case LE: return result <= 0;
+            case GT: return result > 0;
+            case GE: return result >= 0;
+         }
+
+         return false;
+      }
+
+      String key;
+      int operator;
+      TeXObject value;
+      String valueString;
+   }
+
+   private DataToolSty sty;
+   private Vector<Condition> conditions;
+   private Collator collator;
+
+   private static final int EQ=0, NE=1, LT=2, LE=3, GT=4, GE=5;
+   private static final String[] OPERATORS
+     = new String[] {"=", "!=", "<", "<=", ">", ">="};
+}
@@ -0,0 +1,582 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimawbooks.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package com.dickimawbooks.texparserlib.latex.datatool;
+
+import java.io.IOException;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Vector;
+
+import com.dickimawbooks.texparserlib.*;
+import com.dickimawbooks.texparserlib.latex.*;
+
+/**
+ * Sorts the rows of a database according to one or more columns.
+ * The values are obtained from the database's DataColumnStore.
+ * Numeric columns are compared by value and any other column is
+ * compared using a collator for the numeric locale. Each distinct
+ * string is only converted into a collation key once, and the rows
+ * are then sorted by the rank of their key. Empty or missing values
+ * come before any other value when sorting in ascending order.
+ */
+public class DataSorter
+{
+   public DataSorter(DataToolSty sty)
+   {
+      this.sty = sty;
+      criteria = new Vector<Criterion>();
+   }
+
+   /**
+    * Adds a sort criterion. The first criterion added is the primary
+    * sort key and each subsequent criterion is only used when the
+    * previous criteria are equal.
+    * @param key the column label
+    * @param ascending true for ascending order, false for
+    * descending
+    * @param replacements the column labels to use (in order) when
+    * the value of the given column is empty or missing, may be null
+    */
+   public void addCriterion(String key, boolean ascending,
+      String[] replacements)
+   {
+      criteria.add(new Criterion(key, ascending, replacements));
+   }
+
+   /**
+    * Adds the criteria specified by a key=value list. Each key is a
+    * column label and the value may be empty or one of "asc",
+    * "ascending", "desc" or "descending" or may be a key=value list
+    * of options, where "ascending" and "descending" set the order
+    * and "replacements" identifies a comma-separated list of
+    * replacement columns.
+    * @param criteriaList the list of criteria
+    * @param parser the TeX parser
+    * @param stack the current stack
+    */
+   public void addCriteria(KeyValList criteriaList, TeXParser parser,
+     TeXObjectList stack)
+     throws IOException
+   {
+      addCriteria(criteriaList, null, parser, stack);
+   }
+
+   /**
+    * Adds the criteria specified by a key=value list, as
+    * addCriteria(KeyValList,TeXParser,TeXObjectList) but with
+    * replacement columns for the criteria that don't specify their
+    * own.
+    * @param criteriaList the list of criteria
+    * @param defaultReplacements the replacement column labels, may
+    * be null
+    * @param parser the TeX parser
+    * @param stack the current stack
+    */
+   public void addCriteria(KeyValList criteriaList,
+     String[] defaultReplacements, TeXParser parser, TeXObjectList stack)
+     throws IOException
+   {
+      for (Iterator<String> it = criteriaList.getOrderedKeyIterator();
+           it.hasNext(); )
+      {
+         String key = it.next();
+         TeXObject value = criteriaList.getValue(key);
+
+         boolean ascending = true;
+         String[] replacements = defaultReplacements;
+
+         if (value != null && !(value instanceof MissingValue))
+         {
+            KeyValList options = KeyValList.getList(parser, value);
+
+            for (Iterator<String> optIt = options.getOrderedKeyIterator();
+                 optIt.hasNext(); )
+            {
+               String option = optIt.next();
+
+               if (option.equals("asc") || option.equals("ascending"))
+               {
+                  Boolean bool = options.getBoolean(option, parser, stack);
+                  ascending = (bool == null || bool.booleanValue());
+               }
+               else if (option.equals("desc") || option.equals("descending"))
+               {
+                  Boolean bool = options.getBoolean(option, parser, stack);
+                  ascending = !(bool == null || bool.booleanValue());
+               }
+               else if (option.equals("replacements"))
+               {
+                  String list = options.getString(option, parser, stack);
+
+                  if (list != null)
+                  {
+                     list = list.trim();
+
+                     if (!list.isEmpty())
+                     {
+                        replacements = list.split(" *, *");
+                     }
+                  }
+               }
+               else
+               {
+                  throw new LaTeXSyntaxException(parser,
+                    LaTeXSyntaxException.ERROR_UNKNOWN_OPTION, option);
+               }
+            }
+         }
+
+         addCriterion(key, ascending, replacements);
+      }
+   }
+
+   public int getCriteriaCount()
+   {
+      return criteria.size();
+   }
+
+   /**
+    * Sets whether string comparisons should be case-sensitive.
+    * The default is case-insensitive.
+    */
+   public void setCaseSensitive(boolean on)
+   {
+      caseSensitive = on;
+   }
+
+   /**
+    * Sets whether white space should be ignored when comparing
+    * strings (letter order rather than word order). The default
+    * is word order.
+    */
+   public void setIgnoreSpaces(boolean on)
+   {
+      ignoreSpaces = on;
+   }
+
+   /**
+    * Sets the column label in which to save the letter group of
+    * each row, or null if the letter group isn't required. The
+    * letter group is obtained from the first character of the
+    * primary sort value. The column will be added if it doesn't
+    * exist.
+    */
+   public void setGroupKey(String key)
+   {
+      groupKey = key;
+   }
+
+   /**
+    * Sorts the given database. The rows are renumbered to match
+    * their new position.
+    * @param parser the TeX parser
+    * @param dbName the database name
+    */
+   public void sort(TeXParser parser, String dbName)
+     throws IOException
+   {
+      DataBase db = sty.getDataBase(dbName);
+
+      if (db == null)
+      {
+         throw new LaTeXSyntaxException(parser,
+           DataToolSty.ERROR_DB_DOESNT_EXIST, dbName);
+      }
+
+      DataToolRows rows = db.getData();
+      int rowCount = db.getRowCount();
+
+      if (criteria.isEmpty() || rowCount == 0)
+      {
+         return;
+      }
+
+      DataColumnStore store = db.getColumnStore(parser);
+
+      Collator collator = Collator.getInstance(
+        sty.getDataToolBaseSty().getNumericLocale());
+
+      collator.setStrength(caseSensitive ?
+         Collator.TERTIARY : Collator.SECONDARY);
+
+      final SortKey[] sortKeys = new SortKey[criteria.size()];
+
+      for (int i = 0; i < sortKeys.length; i++)
+      {
+         sortKeys[i] = createSortKey(parser, store, criteria.get(i),
+           collator, i == 0 && groupKey != null);
+      }
+
+      Integer[] order = new Integer[rowCount];
+
+      for (int i = 0; i < rowCount; i++)
+      {
+         order[i] = Integer.valueOf(i);
+      }
+
+      // Arrays.sort is stable for objects so rows that are
+      // equal according to all criteria stay in their original
+      // order.
+
+      Arrays.sort(order, new Comparator<Integer>()
+       {
+          public int compare(Integer a, Integer b)
+          {
+             int idx1 = a.intValue();
+             int idx2 = b.intValue();
+
+             for (int i = 0; i < sortKeys.length; i++)
+             {
+                int result = sortKeys[i].compare(idx1, idx2);
+
+                if (result != 0)
+                {
+                   return result;
+                }
+             }
+
+             return 0;
+          }
+       });
+
+      DataToolHeaderRow headers = db.getHeaders();
+
+      if (groupKey != null)
+      {
+         saveGroups(parser, store, headers, sortKeys[0]);
+      }
+
+      Vector<DataToolEntryRow> sorted = new Vector<DataToolEntryRow>(rowCount);
+
+      for (int i = 0; i < rowCount; i++)
+      {
+         sorted.add(rows.get(order[i].intValue()));
+      }
+
+      rows.clear();
+      rows.addAll(sorted);
+
+      sty.update(dbName, headers, rows);
+   }
+
+   private SortKey createSortKey(TeXParser parser, DataColumnStore store,
+     Criterion criterion, Collator collator, boolean saveStrings)
+     throws IOException
+   {
+      DataColumn[] columns = new DataColumn[criterion.replacements == null ?
+        1 : criterion.replacements.length+1];
+
+      columns[0] = getColumn(parser, store, criterion.key);
+      boolean numeric = columns[0].isNumeric();
+
+      for (int i = 1; i < columns.length; i++)
+      {
+         columns[i] = getColumn(parser, store, criterion.replacements[i-1]);
+         numeric = numeric && columns[i].isNumeric();
+      }
+
+      int rowCount = store.getRowCount();
+      SortKey sortKey = new SortKey(criterion.ascending, rowCount);
+
+      if (numeric)
+      {
+         sortKey.values = new double[rowCount];
+
+         if (saveStrings)
+         {
+            sortKey.strings = new String[rowCount];
+         }
+
+         for (int i = 0; i < rowCount; i++)
+         {
+            DataColumn column = getFirstColumn(columns, i+1);
+
+            if (column == null)
+            {
+               sortKey.ranks[i] = -1;
+            }
+            else
+            {
+               sortKey.values[i] = column.getDouble(i+1);
+
+               if (saveStrings)
+               {
+                  sortKey.strings[i] = getSortString(parser,
+                    store.getContents(i+1, column.getColumnIndex()));
+               }
+            }
+         }
+
+         return sortKey;
+      }
+
+      // Find the sort string for each row. The sort string only
+      // needs to be obtained once for each distinct value in a
+      // non-numeric column.
+
+      String[][] codeStrings = new String[columns.length][];
+
+      for (int i = 0; i < columns.length; i++)
+      {
+         codeStrings[i] = new String[columns[i].getDictionarySize()];
+      }
+
+      String[] rowStrings = new String[rowCount];
+      HashMap<String,Integer> rankMap = new HashMap<String,Integer>();
+
+      for (int i = 0; i < rowCount; i++)
+      {
+         int rowIndex = i+1;
+
+         for (int j = 0; j < columns.length; j++)
+         {
+            DataColumn column = columns[j];
+
+            if (!column.isNull(rowIndex))
+            {
+               String str;
+               int code = column.getCode(rowIndex);
+
+               if (code == -1)
+               {
+                  str = getSortString(parser,
+                    store.getContents(rowIndex, column.getColumnIndex()));
+               }
+               else
+               {
+                  str = codeStrings[j][code];
+
+                  if (str == null)
+                  {
+                     str = getSortString(parser,
+                       store.getContents(rowIndex, column.getColumnIndex()));
+
+                     codeStrings[j][code] = str;
+                  }
+               }
+
+               rowStrings[i] = str;
+               rankMap.put(str, null);
+
+               break;
+            }
+         }
+      }
+
+      CollationKey[] collationKeys = new CollationKey[rankMap.size()];
+      int idx = 0;
+
+      for (Iterator<String> it = rankMap.keySet().iterator(); it.hasNext(); )
+      {
+         collationKeys[idx++] = collator.getCollationKey(it.next());
+      }
+
+      Arrays.sort(collationKeys);
+
+      int rank = 0;
+
+      for (int i = 0; i < collationKeys.length; i++)
+      {
+         if (i > 0 && collationKeys[i].compareTo(collationKeys[i-1]) != 0)
+         {
+            rank++;
+         }
+
+         rankMap.put(collationKeys[i].getSourceString(), Integer.valueOf(rank));
+      }
+
+      for (int i = 0; i < rowCount; i++)
+      {
+         sortKey.ranks[i] = (rowStrings[i] == null ?
+            -1 : rankMap.get(rowStrings[i]).intValue());
+      }
+
+      sortKey.strings = rowStrings;
+
+      return sortKey;
+   }
+
+   private DataColumn getColumn(TeXParser parser, DataColumnStore store,
+     String key)
+    throws IOException
+   {
+      DataColumn column = store.getColumn(key);
+
+      if (column == null)
+      {
+         throw new LaTeXSyntaxException(parser,
+           DataToolSty.ERROR_HEADER_DOESNT_EXIST, key);
+      }
+
+      return column;
+   }
+
+   private DataColumn getFirstColumn(DataColumn[] columns, int rowIndex)
+   {
+      for (int i = 0; i < columns.length; i++)
+      {
+         if (!columns[i].isNull(rowIndex))
+         {
+            return columns[i];
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * Gets the string used to compare the given cell contents. This
+    * is the purified contents (without any commands) unless that's
+    * empty or the contents are numeric.
+    */
+   protected String getSortString(TeXParser parser, TeXObject contents)
+   {
+      String str = null;
+
+      if (!(contents instanceof DataNumericElement))
+      {
+         str = contents.purified();
+      }
+
+      if (str == null || str.isEmpty())
+      {
+         str = contents.toString(parser);
+      }
+
+      if (ignoreSpaces)
+      {
+         str = str.replaceAll("\\s+", "");
+      }
+
+      return str;
+   }
+
+   private void saveGroups(TeXParser parser, DataColumnStore store,
+     DataToolHeaderRow headers, SortKey primary)
+    throws IOException
+   {
+      DataToolHeader header = headers.getHeader(groupKey);
+
+      if (header == null)
+      {
+         header = new DataToolHeader(sty, headers.getMaxIndex()+1, groupKey);
+         headers.add(header);
+      }
+
+      int columnIndex = header.getColumnIndex();
+      TeXParserListener listener = parser.getListener();
+
+      for (int i = 0; i < store.getRowCount(); i++)
+      {
+         String group = "";
+         String str = primary.strings[i];
+
+         if (str != null && !str.isEmpty())
+         {
+            group = new String(Character.toChars(
+              Character.toUpperCase(str.codePointAt(0))));
+         }
+
+         DataToolEntryRow row = store.getRow(i+1);
+         DataToolEntry entry = row.getEntry(columnIndex);
+
+         if (entry == null)
+         {
+            entry = new DataToolEntry(sty, columnIndex,
+              listener.createString(group));
+            row.add(entry);
+         }
+         else
+         {
+            entry.setContents(listener.createString(group));
+         }
+
+         TeXObject contents = entry.getContents();
+
+         if (contents instanceof DataElement)
+         {
+            header.updateType((DataElement)contents);
+         }
+      }
+   }
+
+   class Criterion
+   {
+      Criterion(String key, boolean ascending, String[] replacements)
+      {
+         this.key = key;
+         this.ascending = ascending;
+         this.replacements = replacements;
+      }
+
+      String key;
+      boolean ascending;
+      String[] replacements;
+   }
+
+   /**
+    * The comparison values of each row for a single criterion.
+    * A rank of -1 indicates a null value. Otherwise non-numeric
+    * values are compared by rank and numeric values are compared
+    * by value.
+    */
+   class SortKey
+   {
+      SortKey(boolean ascending, int rowCount)
+      {
+         this.ascending = ascending;
+         ranks = new int[rowCount];
+      }
+
+      int compare(int idx1, int idx2)
+      {
+         int result;
+
+         if (ranks[idx1] == -1 || ranks[idx2] == -1)
+         {
+            result = (ranks[idx1] == -1 ? 0 : 1)
+                   - (ranks[idx2] == -1 ? 0 : 1);
+         }
+         else if (values == null)
+         {
+            result = Integer.compare(ranks[idx1], ranks[idx2]);
+         }
+         else
+         {
+            result = Double.compare(values[idx1], values[idx2]);
+         }
+
+         return ascending ? result : -result;
+      }
+
+      boolean ascending;
+      int[] ranks;
+      double[] values;
+      String[] strings;
+   }
+
+   private DataToolSty sty;
+   private Vector<Criterion> criteria;
+   private boolean caseSensitive = false, ignoreSpaces = false;
+   private String groupKey = null;
+}
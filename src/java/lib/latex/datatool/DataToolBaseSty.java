@@ -19,6 +19,7 @@
 package com.dickimawbooks.texparserlib.latex.datatool;
 
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Locale;
 import java.util.Vector;
@@ -660,6 +661,7 @@ public class DataToolBaseSty extends LaTeXSty
       }
 
       currencySymbolList.add(symbol);
+      currencyCsNames = null;
    }
 
    public void addCurrencySymbol(String csName)
@@ -669,18 +671,28 @@ public class DataToolBaseSty extends LaTeXSty
 
    public boolean isCurrencySymbol(TeXObject obj)
    {
-      if (obj == null) return false;
+      if (obj == null || currencySymbolList == null) return false;
 
-      for (TeXObject symbol: currencySymbolList)
+      if (currencyCsNames == null)
       {
-         if (symbol instanceof ControlSequence 
-             && obj instanceof ControlSequence
-             && ((ControlSequence)symbol).getName().equals(
-               ((ControlSequence)obj).getName()))
-         {
-            return true;
-         }
+         updateCurrencySymbolLookup();
+      }
+
+      if (obj instanceof ControlSequence
+           && currencyCsNames.contains(((ControlSequence)obj).getName()))
+      {
+         return true;
+      }
+
+      if (obj instanceof CharObject
+           && currencyCharCodes.contains(
+                Integer.valueOf(((CharObject)obj).getCharCode())))
+      {
+         return true;
+      }
 
+      for (TeXObject symbol : otherCurrencySymbols)
+      {
          if (symbol.equals(obj))
          {
             return true;
@@ -690,6 +702,47 @@ public class DataToolBaseSty extends LaTeXSty
       return false;
    }
 
+   /**
+    * Sorts the currency symbols into control sequence names and
+    * character codes, so that isCurrencySymbol(TeXObject) doesn't
+    * have to compare the object with every symbol. Symbols that
+    * can't be matched by name or character code (such as
+    * lists) are still compared using equals.
+    */
+   private void updateCurrencySymbolLookup()
+   {
+      currencyCsNames = new HashSet<String>();
+      currencyCharCodes = new HashSet<Integer>();
+      otherCurrencySymbols = new Vector<TeXObject>();
+
+      for (TeXObject symbol : currencySymbolList)
+      {
+         if (symbol instanceof ControlSequence)
+         {
+            currencyCsNames.add(((ControlSequence)symbol).getName());
+
+            // TeXCsRef.equals only matches another reference with
+            // the same name but other control sequences may match
+            // on syntax
+
+            if (!(symbol instanceof TeXCsRef))
+            {
+               otherCurrencySymbols.add(symbol);
+            }
+         }
+         else if (symbol instanceof CharObject
+                   && !(symbol instanceof AssignedActiveChar))
+         {
+            currencyCharCodes.add(
+              Integer.valueOf(((CharObject)symbol).getCharCode()));
+         }
+         else
+         {
+            otherCurrencySymbols.add(symbol);
+         }
+      }
+   }
+
    public void setDefaultCurrency(TeXObject symbol)
    {
       String symLabel = symbol.toString(getParser());
@@ -1151,39 +1204,27 @@ public class DataToolBaseSty extends LaTeXSty
 
             // is the remainder numerical?
 
-            try
-            {
-               ControlSequence cs = parser.getControlSequence(
-                 FMT_CURRENCY_VALUE);
-
-               String str = list.toString(parser).trim();
-               double value;
+            Number num = parseNumberIfValid(FMT_CURRENCY_VALUE,
+              list.toString(parser).trim(), false);
 
-               if (cs instanceof NumericFormatter)
-               {
-                  value = ((NumericFormatter)cs).parse(str).doubleValue();
-               }
-               else
-               {
-                  value = Double.parseDouble(str);
-               }
-
-               if (useDatum)
-               {
-                  return new DatumElement(original,
-                     new TeXFloatingPoint(value), first, DatumType.CURRENCY);
-               }
-               else
-               {
-                  return new DataCurrencyElement(first, value, original);
-               }
-            }
-            catch (NumberFormatException | ParseException e)
+            if (num == null)
             {// not numeric
 
                list.add(0, first);
                return new DataStringElement(list);
             }
+
+            double value = num.doubleValue();
+
+            if (useDatum)
+            {
+               return new DatumElement(original,
+                  new TeXFloatingPoint(value), first, DatumType.CURRENCY);
+            }
+            else
+            {
+               return new DataCurrencyElement(first, value, original);
+            }
          }
 
          // does it end with a currency marker?
@@ -1205,39 +1246,27 @@ public class DataToolBaseSty extends LaTeXSty
 
             // is the remainder numerical?
 
-            try
-            {
-               ControlSequence cs = parser.getControlSequence(
-                 FMT_CURRENCY_VALUE);
-
-               String str = list.toString(parser).trim();
-               double value;
+            Number num = parseNumberIfValid(FMT_CURRENCY_VALUE,
+              list.toString(parser).trim(), false);
 
-               if (cs instanceof NumericFormatter)
-               {
-                  value = ((NumericFormatter)cs).parse(str).doubleValue();
-               }
-               else
-               {
-                  value = Double.parseDouble(str);
-               }
-
-               if (useDatum)
-               {
-                  return new DatumElement(original,
-                     new TeXFloatingPoint(value), lastObj, DatumType.CURRENCY);
-               }
-               else
-               {
-                  return new DataCurrencyElement(lastObj, value, original);
-               }
-            }
-            catch (NumberFormatException | ParseException e)
+            if (num == null)
             {// not numeric
 
                list.add(lastObj);
                return new DataStringElement(list);
             }
+
+            double value = num.doubleValue();
+
+            if (useDatum)
+            {
+               return new DatumElement(original,
+                  new TeXFloatingPoint(value), lastObj, DatumType.CURRENCY);
+            }
+            else
+            {
+               return new DataCurrencyElement(lastObj, value, original);
+            }
          }
       }
 
@@ -1245,24 +1274,18 @@ public class DataToolBaseSty extends LaTeXSty
 
       // is it scientific notation?
 
-      if (SCIENTIFIC_PATTERN.matcher(str).matches())
+      if (isScientificNotation(str))
       {
-         try
-         {
-            double value = (new BigDecimal(str)).doubleValue();
+         double value = (new BigDecimal(str)).doubleValue();
 
-            if (useDatum)
-            {
-               return new DatumElement(original, new TeXFloatingPoint(value),
-                 null, DatumType.DECIMAL);
-            }
-            else
-            {
-               return new DataRealElement(value, original);
-            }
+         if (useDatum)
+         {
+            return new DatumElement(original, new TeXFloatingPoint(value),
+              null, DatumType.DECIMAL);
          }
-         catch (NumberFormatException e)
-         {// shouldn't happen
+         else
+         {
+            return new DataRealElement(value, original);
          }
       }
 
@@ -1276,20 +1299,11 @@ public class DataToolBaseSty extends LaTeXSty
 
       // is it an integer?
 
-      try
-      {
-         ControlSequence cs = parser.getControlSequence(FMT_INTEGER_VALUE);
-
-         int value;
+      Number num = parseNumberIfValid(FMT_INTEGER_VALUE, str, true);
 
-         if (cs instanceof NumericFormatter)
-         {
-            value = ((NumericFormatter)cs).parse(str).intValue();
-         }
-         else
-         {
-            value = Integer.parseInt(str);
-         }
+      if (num != null)
+      {
+         int value = num.intValue();
 
          if (useDatum)
          {
@@ -1301,26 +1315,14 @@ public class DataToolBaseSty extends LaTeXSty
             return new DataIntElement(value, original);
          }
       }
-      catch (NumberFormatException | ParseException e)
-      {
-      }
 
       // is it a real number?
 
-      try
-      {
-         ControlSequence cs = parser.getControlSequence(FMT_DECIMAL_VALUE);
+      num = parseNumberIfValid(FMT_DECIMAL_VALUE, str, false);
 
-         double value;
-
-         if (cs instanceof NumericFormatter)
-         {
-            value = ((NumericFormatter)cs).parse(str).doubleValue();
-         }
-         else
-         {
-            value = Double.parseDouble(str);
-         }
+      if (num != null)
+      {
+         double value = num.doubleValue();
 
          if (useDatum)
          {
@@ -1332,9 +1334,6 @@ public class DataToolBaseSty extends LaTeXSty
             return new DataRealElement(value, original);
          }
       }
-      catch (NumberFormatException | ParseException e)
-      {
-      }
 
       if (useDatum)
       {
@@ -1371,19 +1370,129 @@ public class DataToolBaseSty extends LaTeXSty
       boolean useDatum, boolean reformatOriginal)
      throws IOException
    {
-      try
+      Julian julian = Julian.parse(str);
+
+      if (julian == null)
+      {
+         return null;
+      }
+
+      return julian.toDataElement(getListener(), original,
+        useDatum, reformatOriginal);
+   }
+
+   /**
+    * Parses a number using the formatter identified by the given
+    * command name without throwing an exception. If the command
+    * isn't a NumericFormatter, Integer.parseInt or
+    * Double.parseDouble is used instead.
+    * @param fmtCsName the name of the formatter command
+    * @param str the string to parse
+    * @param isInteger true if the fallback should parse an integer
+    * @return the number or null if the string isn't a number
+    */
+   protected Number parseNumberIfValid(String fmtCsName, String str,
+     boolean isInteger)
+   {
+      ControlSequence cs = getParser().getControlSequence(fmtCsName);
+
+      if (cs instanceof NumericFormatter)
       {
-         Julian julian = Julian.create(str);
+         return ((NumericFormatter)cs).parseIfValid(str);
+      }
 
-         return julian.toDataElement(getListener(), original,
-           useDatum, reformatOriginal);
+      try
+      {
+         if (isInteger)
+         {
+            return Integer.valueOf(Integer.parseInt(str));
+         }
+         else
+         {
+            return Double.valueOf(Double.parseDouble(str));
+         }
       }
-      catch (IllegalArgumentException e)
+      catch (NumberFormatException e)
       {
          return null;
       }
    }
 
+   /**
+    * Determines whether the given string matches SCIENTIFIC_PATTERN
+    * (an optional sign, digits, an optional decimal point followed
+    * by digits, E or e, an optional sign and digits) without using
+    * a regular expression.
+    * @param str the string to test
+    * @return true if the string is in scientific notation
+    */
+   public static boolean isScientificNotation(String str)
+   {
+      int n = str.length();
+      int i = 0;
+
+      if (i < n && (str.charAt(i) == '+' || str.charAt(i) == '-'))
+      {
+         i++;
+      }
+
+      int start = i;
+
+      while (i < n && isAsciiDigit(str.charAt(i)))
+      {
+         i++;
+      }
+
+      if (i == start || i == n)
+      {
+         return false;
+      }
+
+      if (str.charAt(i) == '.')
+      {
+         i++;
+         start = i;
+
+         while (i < n && isAsciiDigit(str.charAt(i)))
+         {
+            i++;
+         }
+
+         if (i == start || i == n)
+         {
+            return false;
+         }
+      }
+
+      char c = str.charAt(i);
+
+      if (c != 'E' && c != 'e')
+      {
+         return false;
+      }
+
+      i++;
+
+      if (i < n && (str.charAt(i) == '+' || str.charAt(i) == '-'))
+      {
+         i++;
+      }
+
+      start = i;
+
+      while (i < n && isAsciiDigit(str.charAt(i)))
+      {
+         i++;
+      }
+
+      return i > start && i == n;
+   }
+
+   private static boolean isAsciiDigit(char c)
+   {
+      return c >= '0' && c <= '9';
+   }
+
    public boolean isParseTemporalOn()
    {
       return TeXParserUtils.isTrue(PARSE_DATETIME_BOOL, getParser());
@@ -1549,6 +1658,9 @@ public class DataToolBaseSty extends LaTeXSty
    private Locale numericLocale;
 
    private Vector<TeXObject> currencySymbolList;
+   private HashSet<String> currencyCsNames;
+   private HashSet<Integer> currencyCharCodes;
+   private Vector<TeXObject> otherCurrencySymbols;
 
    private CountRegister sortCountReg;
 
@@ -35,7 +35,7 @@ public class DataToolEntry extends AbstractTeXObject
    {
       this.sty = sty;
       setColumnIndex(column);
-      setContents(contents);
+      assignContents(contents);
    }
 
    public Object clone()
@@ -63,7 +63,19 @@ public class DataToolEntry extends AbstractTeXObject
       return contents;
    }
 
+   /**
+    * Sets the contents of this entry. This notifies the sty that
+    * the contents of an existing entry have changed, so that any
+    * column store derived from the data is recreated.
+    * @param contents the new contents
+    */
    public void setContents(TeXObject contents)
+   {
+      assignContents(contents);
+      sty.contentsModified();
+   }
+
+   private void assignContents(TeXObject contents)
    {
       if (contents instanceof DataElement)
       {
@@ -19,6 +19,7 @@
 package com.dickimawbooks.texparserlib.latex.datatool;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Vector;
 
 import com.dickimawbooks.texparserlib.*;
@@ -142,17 +143,101 @@ public class DataToolEntryRow extends Vector<DataToolEntry>
       return row;
    }
 
-   public DataToolEntry getEntry(int columnIndex)
+   /**
+    * Gets the entry for the given column. This uses a lookup table
+    * indexed by column that's rebuilt when the row is modified, so
+    * the entry's column index shouldn't be changed while it's in the
+    * row.
+    * @param columnIndex the column index
+    * @return the first entry with the given column index or null if
+    * not found
+    */
+   public synchronized DataToolEntry getEntry(int columnIndex)
    {
-      for (DataToolEntry entry : this)
+      if (columnLookup == null || lookupModCount != modCount)
+      {
+         updateColumnLookup();
+      }
+
+      if (columnIndex < 0 || columnIndex >= columnLookup.length)
       {
-         if (entry.getColumnIndex() == columnIndex)
+         return null;
+      }
+
+      DataToolEntry entry = columnLookup[columnIndex];
+
+      if (entry != null && entry.getColumnIndex() != columnIndex)
+      {
+         updateColumnLookup();
+
+         entry = (columnIndex < columnLookup.length ?
+                  columnLookup[columnIndex] : null);
+      }
+
+      return entry;
+   }
+
+   private void updateColumnLookup()
+   {
+      int maxIndex = 0;
+
+      for (int i = 0; i < elementCount; i++)
+      {
+         int idx = ((DataToolEntry)elementData[i]).getColumnIndex();
+
+         if (idx > maxIndex)
          {
-            return entry;
+            maxIndex = idx;
          }
       }
 
-      return null;
+      if (columnLookup == null || columnLookup.length <= maxIndex)
+      {
+         columnLookup = new DataToolEntry[maxIndex+1];
+      }
+      else
+      {
+         Arrays.fill(columnLookup, null);
+      }
+
+      for (int i = 0; i < elementCount; i++)
+      {
+         DataToolEntry entry = (DataToolEntry)elementData[i];
+         int idx = entry.getColumnIndex();
+
+         if (idx >= 0 && columnLookup[idx] == null)
+         {
+            columnLookup[idx] = entry;
+         }
+      }
+
+      lookupModCount = modCount;
+   }
+
+   @Override
+   public synchronized DataToolEntry set(int index, DataToolEntry entry)
+   {
+      columnLookup = null;
+      replaceCount++;
+      return super.set(index, entry);
+   }
+
+   @Override
+   public synchronized void setElementAt(DataToolEntry entry, int index)
+   {
+      columnLookup = null;
+      replaceCount++;
+      super.setElementAt(entry, index);
+   }
+
+   /**
+    * Gets a number that changes whenever elements are added,
+    * removed or replaced. This can be used to check whether data
+    * derived from this row is out of date.
+    */
+   public synchronized int getModificationCount()
+   {
+      return modCount + replaceCount;
    }
 
    public TeXObjectList expandonce(TeXParser parser)
@@ -252,4 +337,8 @@ public class DataToolEntryRow extends Vector<DataToolEntry>
 
    private DataToolSty sty;
    int rowIndex;
+
+   private DataToolEntry[] columnLookup;
+   private int lookupModCount;
+   private int replaceCount = 0;
 }
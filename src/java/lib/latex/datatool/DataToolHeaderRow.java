@@ -19,6 +19,8 @@
 package com.dickimawbooks.texparserlib.latex.datatool;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Vector;
 
 import com.dickimawbooks.texparserlib.*;
@@ -79,47 +81,151 @@ public class DataToolHeaderRow extends Vector<DataToolHeader>
       return row;
    }
 
-   public DataToolHeader getHeader(String key)
+   /**
+    * Gets the header with the given label. This uses a hash map
+    * that's rebuilt when the row is modified, so the header's label
+    * and column index shouldn't be changed while it's in the row.
+    * @param key the column label
+    * @return the first header with the given label or null if not
+    * found
+    */
+   public synchronized DataToolHeader getHeader(String key)
    {
-      for (DataToolHeader header : this)
+      checkLookup();
+
+      DataToolHeader header = keyLookup.get(key);
+
+      if (header != null && !header.getColumnLabel().equals(key))
       {
-         if (header.getColumnLabel().equals(key))
-         {
-            return header;
-         }
+         updateLookup();
+
+         header = keyLookup.get(key);
       }
 
-      return null;
+      return header;
    }
 
-   public DataToolHeader getHeader(int columnIndex)
+   /**
+    * Gets the header for the given column. This uses a lookup table
+    * indexed by column that's rebuilt when the row is modified.
+    * @param columnIndex the column index
+    * @return the first header with the given column index or null
+    * if not found
+    */
+   public synchronized DataToolHeader getHeader(int columnIndex)
    {
-      for (DataToolHeader header : this)
+      checkLookup();
+
+      if (columnIndex < 0 || columnIndex >= columnLookup.length)
       {
-         if (header.getColumnIndex() == columnIndex)
-         {
-            return header;
-         }
+         return null;
+      }
+
+      DataToolHeader header = columnLookup[columnIndex];
+
+      if (header != null && header.getColumnIndex() != columnIndex)
+      {
+         updateLookup();
+
+         header = (columnIndex < columnLookup.length ?
+                   columnLookup[columnIndex] : null);
       }
 
-      return null;
+      return header;
    }
 
-   public int getMaxIndex()
+   public synchronized int getMaxIndex()
    {
-      int index = 0;
+      checkLookup();
 
-      for (DataToolHeader header : this)
+      return columnLookup.length-1;
+   }
+
+   private void checkLookup()
+   {
+      if (columnLookup == null || lookupModCount != modCount)
+      {
+         updateLookup();
+      }
+   }
+
+   private void updateLookup()
+   {
+      int maxIndex = 0;
+
+      for (int i = 0; i < elementCount; i++)
       {
-         int colIndex = header.getColumnIndex();
+         int idx = ((DataToolHeader)elementData[i]).getColumnIndex();
 
-         if (colIndex > index)
+         if (idx > maxIndex)
          {
-            index = colIndex;
+            maxIndex = idx;
          }
       }
 
-      return index;
+      if (columnLookup == null || columnLookup.length != maxIndex+1)
+      {
+         columnLookup = new DataToolHeader[maxIndex+1];
+      }
+      else
+      {
+         Arrays.fill(columnLookup, null);
+      }
+
+      if (keyLookup == null)
+      {
+         keyLookup = new HashMap<String,DataToolHeader>(2*elementCount+1);
+      }
+      else
+      {
+         keyLookup.clear();
+      }
+
+      for (int i = 0; i < elementCount; i++)
+      {
+         DataToolHeader header = (DataToolHeader)elementData[i];
+         int idx = header.getColumnIndex();
+
+         if (columnLookup[idx] == null)
+         {
+            columnLookup[idx] = header;
+         }
+
+         String key = header.getColumnLabel();
+
+         if (!keyLookup.containsKey(key))
+         {
+            keyLookup.put(key, header);
+         }
+      }
+
+      lookupModCount = modCount;
+   }
+
+   @Override
+   public synchronized DataToolHeader set(int index, DataToolHeader header)
+   {
+      columnLookup = null;
+      replaceCount++;
+      return super.set(index, header);
+   }
+
+   @Override
+   public synchronized void setElementAt(DataToolHeader header, int index)
+   {
+      columnLookup = null;
+      replaceCount++;
+      super.setElementAt(header, index);
+   }
+
+   /**
+    * Gets a number that changes whenever elements are added,
+    * removed or replaced. This can be used to check whether data
+    * derived from this row is out of date.
+    */
+   public synchronized int getModificationCount()
+   {
+      return modCount + replaceCount;
    }
 
    public TeXObjectList expandonce(TeXParser parser)
@@ -229,4 +335,9 @@ public class DataToolHeaderRow extends Vector<DataToolHeader>
    }
 
    private DataToolSty sty;
+
+   private DataToolHeader[] columnLookup;
+   private HashMap<String,DataToolHeader> keyLookup;
+   private int lookupModCount;
+   private int replaceCount = 0;
 }
@@ -40,6 +40,11 @@ public class DataToolRows extends Vector<DataToolEntryRow>
       this.sty = sty;
    }
 
+   public DataToolSty getSty()
+   {
+      return sty;
+   }
+
    @Override
    public Object clone()
    {
@@ -88,6 +93,7 @@ public class DataToolRows extends Vector<DataToolEntryRow>
    public synchronized DataToolEntryRow set(int index, DataToolEntryRow row)
    {
       DataToolEntryRow oldRow = super.set(index, row);
+      replaceCount++;
 
       for (int i = index; i < size(); i++)
       {
@@ -101,6 +107,7 @@ public class DataToolRows extends Vector<DataToolEntryRow>
    public synchronized void setElementAt(DataToolEntryRow row, int index)
    {
       super.setElementAt(row, index);
+      replaceCount++;
 
       for (int i = index; i < size(); i++)
       {
@@ -171,6 +178,16 @@ public class DataToolRows extends Vector<DataToolEntryRow>
       }
    }
 
+   /**
+    * Gets a number that changes whenever rows are added,
+    * removed or replaced. This can be used to check whether data
+    * derived from this list is out of date.
+    */
+   public synchronized int getModificationCount()
+   {
+      return modCount + replaceCount;
+   }
+
    public static DataToolRows toRows(TeXParser parser,
      TeXObjectList stack, DataToolSty sty, int likelyRowCount)
       throws IOException
@@ -206,8 +223,26 @@ public class DataToolRows extends Vector<DataToolEntryRow>
       return rows;
    }
 
-   public DataToolEntryRow getRow(int rowIndex)
+   /**
+    * Gets the row with the given index. The rows are renumbered
+    * whenever they are added or removed through this class, so the
+    * row is normally at position rowIndex-1 and a search is only
+    * needed if a row index has been changed elsewhere.
+    * @param rowIndex the row index
+    * @return the row with the given index or null if not found
+    */
+   public synchronized DataToolEntryRow getRow(int rowIndex)
    {
+      if (rowIndex >= 1 && rowIndex <= elementCount)
+      {
+         DataToolEntryRow row = (DataToolEntryRow)elementData[rowIndex-1];
+
+         if (row.getRowIndex() == rowIndex)
+         {
+            return row;
+         }
+      }
+
       for (DataToolEntryRow row : this)
       {
          if (row.getRowIndex() == rowIndex)
@@ -329,4 +364,5 @@ public class DataToolRows extends Vector<DataToolEntryRow>
    }
 
    private DataToolSty sty;
+   private int replaceCount = 0;
 }
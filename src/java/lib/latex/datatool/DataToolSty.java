@@ -63,6 +63,27 @@ public class DataToolSty extends LaTeXSty
       csvLiteralMap.put(Integer.valueOf((int)'}'), "\\}");
       csvLiteralMap.put(Integer.valueOf((int)'^'), "\\textasciicircum ");
       csvLiteralMap.put(Integer.valueOf((int)'~'), "\\textasciitilde ");
+
+      csvLiteralAsciiMapped = new boolean[128];
+
+      for (Integer cp : csvLiteralMap.keySet())
+      {
+         setCsvLiteralAsciiMapped(cp, true);
+      }
+   }
+
+   /**
+    * Records whether an ASCII character has a literal mapping so
+    * that the map doesn't need to be checked for every character.
+    */
+   private void setCsvLiteralAsciiMapped(Integer codePoint, boolean mapped)
+   {
+      int cp = codePoint.intValue();
+
+      if (cp >= 0 && cp < csvLiteralAsciiMapped.length)
+      {
+         csvLiteralAsciiMapped[cp] = mapped;
+      }
    }
 
    @Override
@@ -91,6 +112,37 @@ public class DataToolSty extends LaTeXSty
       registerControlSequence(new DTLsetheader(this));
 
       registerControlSequence(new DTLaction(this));
+      registerControlSequence(new DTLuse(this));
+      registerControlSequence(new DTLget(this));
+
+      registerControlSequence(new DTLsortdata(this));
+      registerControlSequence(new DTLsort(this));
+
+      registerControlSequence(new DTLaggregatecolumn("DTLsumcolumn",
+        "sum", this));
+      registerControlSequence(new DTLaggregatecolumn("DTLmeanforcolumn",
+        "mean", this));
+      registerControlSequence(new DTLaggregatecolumn("DTLsdforcolumn",
+        "sd", this));
+      registerControlSequence(new DTLaggregatecolumn("DTLvarianceforcolumn",
+        "variance", this));
+      registerControlSequence(new DTLaggregatecolumn("DTLminforcolumn",
+        "min", this));
+      registerControlSequence(new DTLaggregatecolumn("DTLmaxforcolumn",
+        "max", this));
+
+      registerControlSequence(new DTLaggregateforkeys("DTLsumforkeys",
+        "sum", this));
+      registerControlSequence(new DTLaggregateforkeys("DTLmeanforkeys",
+        "mean", this));
+      registerControlSequence(new DTLaggregateforkeys("DTLsdforkeys",
+        "sd", this));
+      registerControlSequence(new DTLaggregateforkeys("DTLvarianceforkeys",
+        "variance", this));
+      registerControlSequence(new DTLaggregateforkeys("DTLminforkeys",
+        "min", this));
+      registerControlSequence(new DTLaggregateforkeys("DTLmaxforkeys",
+        "max", this));
 
       registerControlSequence(
          new DTLsetExpansion("dtlexpandnewvalue", true, this));
@@ -431,6 +483,25 @@ public class DataToolSty extends LaTeXSty
       return databases == null ? null : databases.keys();
    }
 
+   /**
+    * Records that the contents of an existing entry have been set.
+    * This is called by {@link DataToolEntry#setContents(TeXObject)}.
+    */
+   public synchronized void contentsModified()
+   {
+      contentsModCount++;
+   }
+
+   /**
+    * Gets a number that changes whenever the contents of an
+    * existing entry in any database are set. This can be used to
+    * check whether data derived from the databases is out of date.
+    */
+   public synchronized int getContentsModificationCount()
+   {
+      return contentsModCount;
+   }
+
    public DataBase getDataBase(String name)
       throws IOException
    {
@@ -906,6 +977,11 @@ public class DataToolSty extends LaTeXSty
       return accept;
    }
 
+   public boolean hasNewRowReadListeners()
+   {
+      return newRowReadListeners != null && !newRowReadListeners.isEmpty();
+   }
+
    public void addNewRowReadListener(NewRowReadListener listener)
    {
       if (newRowReadListeners == null)
@@ -942,6 +1018,47 @@ public class DataToolSty extends LaTeXSty
       return dataToolBaseSty;
    }
 
+   /**
+    * Clears the values returned by the last action. Called by
+    * DTLaction before performing an action.
+    */
+   public void clearActionReturnValues()
+   {
+      if (actionReturnValues != null)
+      {
+         actionReturnValues.clear();
+      }
+   }
+
+   /**
+    * Sets a value returned by an action. The primary return value
+    * has the empty property. These values can be accessed with
+    * <code>\DTLuse</code> and <code>\DTLget</code>.
+    * @param property the property name
+    * @param value the value
+    */
+   public void setActionReturnValue(String property, TeXObject value)
+   {
+      if (actionReturnValues == null)
+      {
+         actionReturnValues = new HashMap<String,TeXObject>();
+      }
+
+      actionReturnValues.put(property, value);
+   }
+
+   /**
+    * Gets a value returned by the last action.
+    * @param property the property name
+    * @return the value or null if the last action didn't set the
+    * property
+    */
+   public TeXObject getActionReturnValue(String property)
+   {
+      return actionReturnValues == null ? null
+        : actionReturnValues.get(property);
+   }
+
    public IfThenSty getIfThenSty()
    {
       return dataToolBaseSty.getIfThenSty();
@@ -3475,7 +3592,9 @@ public class DataToolSty extends LaTeXSty
 
    public void appendCsvLiteral(int codePoint, StringBuilder builder)
    {
-      if (csvLiteralMappingOn)
+      if (csvLiteralMappingOn
+           && (codePoint >= csvLiteralAsciiMapped.length
+                || codePoint < 0 || csvLiteralAsciiMapped[codePoint]))
       {
          String val = getCsvLiteralMap(codePoint);
 
@@ -3502,6 +3621,7 @@ public class DataToolSty extends LaTeXSty
    public void putCsvLiteralMap(Integer codePoint, String value)
    {
       csvLiteralMap.put(codePoint, value);
+      setCsvLiteralAsciiMapped(codePoint, true);
    }
 
    public void removeCsvLiteralMap(int codePoint)
@@ -3512,6 +3632,7 @@ public class DataToolSty extends LaTeXSty
    public void removeCsvLiteralMap(Integer codePoint)
    {
       csvLiteralMap.remove(codePoint);
+      setCsvLiteralAsciiMapped(codePoint, false);
    }
 
    private DataToolBaseSty dataToolBaseSty;
@@ -3526,8 +3647,13 @@ public class DataToolSty extends LaTeXSty
    private Vector<NewRowReadListener> newRowReadListeners;
 
    private HashMap<Integer,String> csvLiteralMap;
+   private boolean[] csvLiteralAsciiMapped;
    private boolean csvLiteralMappingOn = true;
 
+   private HashMap<String,TeXObject> actionReturnValues;
+
+   private int contentsModCount = 0;
+
    public static final String ERROR_DB_EXISTS="datatool.db_exists";
    public static final String ERROR_DB_DOESNT_EXIST="datatool.db_doesnt_exist";
    public static final String ERROR_MISMATCHED="datatool.mismatched";
@@ -3542,6 +3668,8 @@ public class DataToolSty extends LaTeXSty
      ="datatool.no.columns";
    public static final String ERROR_UNKNOWN_DATA_TYPE
      ="datatool.unknown_data_type";
+   public static final String ERROR_INVALID_CONDITION
+     ="datatool.invalid.condition";
 
    public static final String MESSAGE_LOADDB
      ="datatool.loaddb.message";
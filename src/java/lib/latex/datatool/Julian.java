@@ -379,8 +379,49 @@ public class Julian
       return julian;
    }
 
+   /**
+    * Creates a new instance from an ISO date, time or datetime.
+    * @param iso the ISO string
+    * @return the new instance
+    * @throws IllegalArgumentException if the string isn't a valid
+    * ISO date, time or datetime
+    */
    public static Julian create(String iso)
     throws IllegalArgumentException
+   {
+      return create(iso, true);
+   }
+
+   /**
+    * Creates a new instance from an ISO date, time or datetime
+    * without throwing an exception if the string is invalid. This
+    * is intended for testing whether arbitrary content is a
+    * date/time.
+    * @param iso the ISO string
+    * @return the new instance or null if the string isn't a valid
+    * ISO date, time or datetime
+    */
+   public static Julian parse(String iso)
+   {
+      if (iso.isEmpty())
+      {
+         return null;
+      }
+
+      // a valid string must start with a date or time
+
+      char c = iso.charAt(0);
+
+      if (!(c >= '0' && c <= '9') && c != '+' && c != '-')
+      {
+         return null;
+      }
+
+      return create(iso, false);
+   }
+
+   private static Julian create(String iso, boolean throwError)
+    throws IllegalArgumentException
    {
       Julian julian = null;
 
@@ -393,7 +434,30 @@ public class Julian
 
          julian.hasDate = true;
 
-         julian.year = Integer.parseInt(matcher.group(1));
+         String yearStr = matcher.group(1);
+
+         if (!throwError)
+         {
+            // guard against the year being too large for an int
+            // (leading zeros are allowed so the length can't be used)
+
+            try
+            {
+               long year = Long.parseLong(yearStr);
+
+               if (year < Integer.MIN_VALUE || year > Integer.MAX_VALUE)
+               {
+                  return null;
+               }
+            }
+            catch (NumberFormatException e)
+            {
+               // too large for a long
+               return null;
+            }
+         }
+
+         julian.year = Integer.parseInt(yearStr);
          julian.month = Integer.parseInt(matcher.group(2));
          julian.day = Integer.parseInt(matcher.group(3));
 
@@ -420,6 +484,11 @@ public class Julian
 
          if (start != offset)
          {
+            if (!throwError)
+            {
+               return null;
+            }
+
             throw new IllegalArgumentException(
                String.format("Invalid argument (time) '%s'", iso));
          }
@@ -466,6 +535,11 @@ public class Julian
                   }
                   else
                   {
+                    if (!throwError)
+                    {
+                       return null;
+                    }
+
                     throw new IllegalArgumentException(
                       String.format("Invalid argument (time zone) '%s'", iso));
                   }
@@ -474,6 +548,11 @@ public class Julian
          }
          else if (offset != iso.length())
          {
+            if (!throwError)
+            {
+               return null;
+            }
+
             throw new IllegalArgumentException(
                String.format("Invalid argument (time) '%s'", iso));
          }
@@ -481,6 +560,11 @@ public class Julian
 
       if (julian == null)
       {
+         if (!throwError)
+         {
+            return null;
+         }
+
          throw new IllegalArgumentException(
             String.format("Invalid date/time argument '%s'", iso));
       }
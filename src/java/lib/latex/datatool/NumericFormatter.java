@@ -53,6 +53,15 @@ public class NumericFormatter extends Command
       this.numFormat = numFormat;
       this.decimalChar = decimalChar;
       this.prohibitDecimal = prohibitDecimal;
+
+      if (numFormat instanceof DecimalFormat)
+      {
+         DecimalFormatSymbols symbols
+           = ((DecimalFormat)numFormat).getDecimalFormatSymbols();
+
+         nanSymbol = symbols.getNaN();
+         infinitySymbol = symbols.getInfinity();
+      }
    }
 
    @Override
@@ -61,6 +70,63 @@ public class NumericFormatter extends Command
       return this;
    }
 
+   /**
+    * Parses the given string without throwing an exception. This
+    * is intended for testing whether arbitrary content is a number
+    * and avoids the parse altogether if the string doesn't contain
+    * a digit.
+    * @param source the string to parse
+    * @return the number or null if the whole string couldn't be
+    * parsed as a number
+    */
+   public Number parseIfValid(String source)
+   {
+      if (decimalChar != null && prohibitDecimal
+           && source.indexOf(decimalChar) > -1)
+      {
+         return null;
+      }
+
+      if (!mayBeNumber(source))
+      {
+         return null;
+      }
+
+      ParsePosition pos = new ParsePosition(0);
+
+      Number num = numFormat.parse(source, pos);
+
+      if (num == null || pos.getIndex() < source.length())
+      {
+         return null;
+      }
+
+      return num;
+   }
+
+   /**
+    * Quick test that returns false if the string can't possibly be
+    * parsed by a DecimalFormat. The only numbers that don't contain
+    * a digit are NaN and infinity.
+    */
+   protected boolean mayBeNumber(String source)
+   {
+      if (nanSymbol == null)
+      {
+         return true;
+      }
+
+      for (int i = 0, n = source.length(); i < n; i++)
+      {
+         if (Character.isDigit(source.charAt(i)))
+         {
+            return true;
+         }
+      }
+
+      return source.contains(nanSymbol) || source.contains(infinitySymbol);
+   }
+
    public Number parse(String source) throws ParseException
    {
       if (decimalChar != null && prohibitDecimal)
@@ -176,4 +242,5 @@ public class NumericFormatter extends Command
    private NumberFormat numFormat;
    private String decimalChar = null;
    private boolean prohibitDecimal = false;
+   private String nanSymbol = null, infinitySymbol = null;
 }
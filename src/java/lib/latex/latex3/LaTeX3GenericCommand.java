@@ -190,9 +190,15 @@ public class LaTeX3GenericCommand extends GenericCommand
          args[i] = object;
       }
 
-      TeXObjectList replacement = new TeXObjectList();
+      TeXObjectList replacement = expandTemplate(args, true);
 
-      addReplacements(parser, replacement, args, getDefinition());
+      if (replacement == null)
+      {
+         replacement = new TeXObjectList();
+
+         // throws an error for the missing argument
+         addReplacements(parser, replacement, args, getDefinition());
+      }
 
       if (parser.isDebugMode(TeXParser.DEBUG_EXPANSION_LIST))
       {
@@ -290,9 +296,15 @@ public class LaTeX3GenericCommand extends GenericCommand
          args[i] = object;
       }
 
-      TeXObjectList replacement = new TeXObjectList();
+      TeXObjectList replacement = expandTemplate(args, true);
 
-      addReplacements(parser, replacement, args, getDefinition());
+      if (replacement == null)
+      {
+         replacement = new TeXObjectList();
+
+         // throws an error for the missing argument
+         addReplacements(parser, replacement, args, getDefinition());
+      }
 
       if (parser.isDebugMode(TeXParser.DEBUG_EXPANSION_LIST))
       {
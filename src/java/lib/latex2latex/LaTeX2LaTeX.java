@@ -26,6 +26,9 @@ import java.nio.charset.Charset;
 import java.util.Hashtable;
 import java.util.Vector;
 import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 import java.nio.file.Path;
 import java.nio.file.Files;
 
@@ -239,7 +242,7 @@ public class LaTeX2LaTeX extends LaTeXParserListener
    }
 
    @Override
-   public Other getOther(int charCode)
+   public Other createOther(int charCode)
    {
       return new L2LOther(charCode);
    }
@@ -508,13 +511,18 @@ public class LaTeX2LaTeX extends LaTeXParserListener
       getTeXApp().copyFile(file, destFile);
 
       String name = destFile.getName();
+      CompletableFuture<Void> conversion = null;
+
+      // The conversions are queued (if TeXAppExecutor has a pool)
+      // and checked at the end of the document since the converted
+      // file isn't referenced in the output.
 
       if (name.toLowerCase().endsWith(".wmf"))
       {
          File epsFile = new File(destFile.getParentFile(),
             name.substring(0, name.length()-3)+"eps");
 
-         getTeXApp().wmftoeps(destFile, epsFile);
+         conversion = getTeXApp().wmftoepsAsync(destFile, epsFile);
 
          destFile = epsFile;
          name = destFile.getName();
@@ -522,10 +530,31 @@ public class LaTeX2LaTeX extends LaTeXParserListener
 
       if (name.toLowerCase().endsWith(".eps"))
       {
-         File pdfFile = new File(destFile.getParentFile(),
+         final File epsFile = destFile;
+         final File pdfFile = new File(destFile.getParentFile(),
             name.substring(0, name.length()-3)+"pdf");
 
-         getTeXApp().epstopdf(destFile, pdfFile);
+         if (conversion == null)
+         {
+            conversion = getTeXApp().epstopdfAsync(epsFile, pdfFile);
+         }
+         else
+         {
+            conversion = conversion.thenCompose(
+              new Function<Void,CompletionStage<Void>>()
+              {
+                 @Override
+                 public CompletionStage<Void> apply(Void result)
+                 {
+                    return getTeXApp().epstopdfAsync(epsFile, pdfFile);
+                 }
+              });
+         }
+      }
+
+      if (conversion != null)
+      {
+         addPendingConversion(conversion);
       }
    }
 
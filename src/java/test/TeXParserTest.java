@@ -21,6 +21,7 @@ package com.dickimawbooks.texparsertest;
 
 import java.util.Properties;
 import java.util.Vector;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Locale;
 import java.util.regex.Pattern;
@@ -54,7 +55,9 @@ import com.dickimawbooks.texparsertest.io.*;
  * replace obsolete code. Both need a separate output directory and
  * will copy image files over.
  *
- * This application may spawn processes: kpsewhich is used to find files, and
+ * This application may spawn processes: kpsewhich is used to find files
+ * (once to locate the TEXMF trees, which are then indexed, and as a
+ * fallback if the index isn't available), and
  * latex or conversion tools are used to create or process images.
  *
  * Note that the TeX Java Help Library has newer classes that can be
@@ -168,6 +171,15 @@ public class TeXParserTest implements TeXApp
 
       LaTeX2LaTeX listener = new LaTeX2LaTeX(this, outDir, outCharset);
       listener.setImageDestinationPath(imageDest);
+      listener.setInternCharTokens(internCharTokens);
+      listener.setPrefetchAuxEnabled(prefetchAux);
+      listener.setAuxSnapshotEnabled(auxSnapshot);
+
+      TeXPathCache.setEnabled(pathCache);
+      TeXFileTokenCache.setEnabled(tokenCache);
+      TeXFileTokenCache.setDirectory(tokenCacheDir);
+
+      TeXAppExecutor.setPoolSize(converterThreads);
 
       TeXParser parser = new TeXParser(listener);
 
@@ -183,6 +195,11 @@ public class TeXParserTest implements TeXApp
       try
       {
          parser.parse(inFileName);
+
+         listener.waitForConversions();
+
+         debugPathCache();
+         debugTokenCache();
       }
       finally
       {
@@ -256,6 +273,15 @@ public class TeXParserTest implements TeXApp
       listener.setSplitUseBaseNamePrefix(splitUseBaseNamePrefix);
 
       listener.setUseEntities(useHtmlEntities);
+      listener.setInternCharTokens(internCharTokens);
+      listener.setPrefetchAuxEnabled(prefetchAux);
+      listener.setAuxSnapshotEnabled(auxSnapshot);
+
+      TeXPathCache.setEnabled(pathCache);
+      TeXFileTokenCache.setEnabled(tokenCache);
+      TeXFileTokenCache.setDirectory(tokenCacheDir);
+
+      TeXAppExecutor.setPoolSize(converterThreads);
 
       if (extraHead != null)
       {
@@ -275,6 +301,11 @@ public class TeXParserTest implements TeXApp
       try
       {
          parser.parse(inFileName);
+
+         listener.waitForConversions();
+
+         debugPathCache();
+         debugTokenCache();
       }
       finally
       {
@@ -290,6 +321,28 @@ public class TeXParserTest implements TeXApp
       }
    }
 
+   private void debugPathCache()
+   {
+      TeXPathCache cache = TeXPathCache.getCache(this);
+
+      if (cache != null)
+      {
+         debug(String.format("path cache: %d hit(s), %d miss(es)",
+           cache.getHits(), cache.getMisses()));
+      }
+   }
+
+   private void debugTokenCache()
+   {
+      TeXFileTokenCache cache = TeXFileTokenCache.getCache(this);
+
+      if (cache != null)
+      {
+         debug(String.format("token cache: %d hit(s), %d miss(es)",
+           cache.getHits(), cache.getMisses()));
+      }
+   }
+
    private void deleteTempDir() throws IOException
    {
       if (tmpDir == null) return;
@@ -661,7 +714,128 @@ public class TeXParserTest implements TeXApp
          throw new IOException(getMessage("error.bksl_in_kpsewhich", name));
       }
 
-      return kpsewhich(name, "kpsewhich");
+      if (!name.startsWith("-"))
+      {
+         // kpsewhich searches the current directory first. This
+         // isn't cached as the file may be created during the run.
+
+         File file = new File(name);
+
+         if (file.isFile())
+         {
+            return file.isAbsolute() ? name : "./"+name;
+         }
+      }
+
+      synchronized (kpsewhichResults)
+      {
+         String result = kpsewhichResults.get(name);
+
+         if (result != null)
+         {
+            return result;
+         }
+      }
+
+      String result = null;
+      boolean found = false;
+
+      if (!name.startsWith("-"))
+      {
+         TeXFileDatabase db = getFileDatabase();
+
+         if (db != null)
+         {
+            Vector<String> candidates = db.findCandidates(name);
+
+            // If there's more than one candidate in the same
+            // path element, let kpsewhich decide.
+
+            if (candidates.size() == 1)
+            {
+               result = candidates.firstElement();
+               found = true;
+            }
+            else
+            {
+               found = (candidates.isEmpty() && fileDatabaseComplete);
+            }
+         }
+      }
+
+      if (!found)
+      {
+         result = kpsewhich(name, "kpsewhich");
+      }
+
+      // Misses aren't cached in case the file is created later.
+
+      if (result != null)
+      {
+         synchronized (kpsewhichResults)
+         {
+            kpsewhichResults.put(name, result);
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Gets the index of the TEXMF trees, creating it if this is the
+    * first time it's needed. The list of trees is obtained with a
+    * single call to kpsewhich. If a relevant search path has been
+    * set in the environment, the index may be incomplete, in which
+    * case kpsewhich is still used for files that aren't found in
+    * the index.
+    * @return the index or null if not available or disabled
+    */
+   protected TeXFileDatabase getFileDatabase()
+   {
+      // Don't synchronize on this object as the process reader
+      // thread may need it while kpsewhich is running.
+
+      synchronized (fileDatabaseLock)
+      {
+         if (fileDatabase == null && useFileDatabase)
+         {
+            // only try once
+            useFileDatabase = false;
+
+            try
+            {
+               String path = kpsewhich("-expand-path=$TEXMF", "kpsewhich");
+
+               if (path != null)
+               {
+                  TeXFileDatabase db = new TeXFileDatabase();
+
+                  for (String dir : path.split(File.pathSeparator))
+                  {
+                     if (!dir.isEmpty())
+                     {
+                        db.addTree(new File(dir));
+                     }
+                  }
+
+                  if (db.getTreeCount() > 0)
+                  {
+                     fileDatabaseComplete = (System.getenv("TEXINPUTS") == null
+                      && System.getenv("BIBINPUTS") == null
+                      && System.getenv("BSTINPUTS") == null);
+
+                     fileDatabase = db;
+                  }
+               }
+            }
+            catch (IOException|InterruptedException e)
+            {
+               debug(e);
+            }
+         }
+
+         return fileDatabase;
+      }
    }
 
    public String kpsewhich(String name, String app)
@@ -679,6 +853,8 @@ public class TeXParserTest implements TeXApp
          return null; // not found
       }
 
+      listener.waitForOutput();
+
       return listener.getResult();
    }
 
@@ -989,6 +1165,21 @@ public class TeXParserTest implements TeXApp
       return settings.getMaxProcessTime();
    }
 
+   /**
+    * Gets the timer used to interrupt processes that run for too
+    * long. A single timer is shared by all processes, which may be
+    * run concurrently by TeXAppExecutor.
+    */
+   protected synchronized java.util.Timer getProcessTimer()
+   {
+      if (processTimer == null)
+      {
+         processTimer = new java.util.Timer("process timeout", true);
+      }
+
+      return processTimer;
+   }
+
    public int execCommandAndWaitFor(String[] cmd)
      throws IOException,InterruptedException
    {
@@ -1026,7 +1217,6 @@ public class TeXParserTest implements TeXApp
       ProcessListener listener, boolean writeInfo)
      throws IOException,InterruptedException
    {
-      java.util.Timer timer = null;
       Process p = null;
       int exitCode = -1;
 
@@ -1034,9 +1224,8 @@ public class TeXParserTest implements TeXApp
 
       try
       {
-         timer = new java.util.Timer(true);
          interruptor = new InterruptTimerTask(this, Thread.currentThread());
-         timer.schedule(interruptor, getMaxProcessTime());
+         getProcessTimer().schedule(interruptor, getMaxProcessTime());
          listener.setInterruptor(interruptor);
 
          p = execCommand(cmd, envp, dir, listener, writeInfo);
@@ -1053,7 +1242,7 @@ public class TeXParserTest implements TeXApp
       }
       finally
       {
-         timer.cancel();
+         interruptor.cancel();
          Thread.interrupted();
          removeProcessListener(listener);
       }
@@ -1217,6 +1406,14 @@ public class TeXParserTest implements TeXApp
       System.out.println(getMessage("syntax.in", "--in", "-i", APP_NAME));
       System.out.println();
       System.out.println(getMessage("syntax.timeout", "--timeout"));
+      System.out.println(getMessage("syntax.intern_tokens", "--[no-]intern-tokens"));
+      System.out.println(getMessage("syntax.texmf_database", "--[no-]texmf-database"));
+      System.out.println(getMessage("syntax.prefetch_aux", "--[no-]prefetch-aux"));
+      System.out.println(getMessage("syntax.aux_snapshot", "--[no-]aux-snapshot"));
+      System.out.println(getMessage("syntax.path_cache", "--[no-]path-cache"));
+      System.out.println(getMessage("syntax.token_cache", "--[no-]token-cache"));
+      System.out.println(getMessage("syntax.token_cache_dir", "--token-cache-dir"));
+      System.out.println(getMessage("syntax.converter_threads", "--converter-threads"));
       System.out.println(getMessage("syntax.debug", "--debug"));
       System.out.println(getMessage("syntax.nodebug", "--nodebug"));
       System.out.println(getMessage("syntax.debug-mode", "--debug-mode"));
@@ -1742,6 +1939,88 @@ public class TeXParserTest implements TeXApp
          {
             deleteTempDirOnExit = true;
          }
+         else if (args[i].equals("--intern-tokens"))
+         {
+            internCharTokens = true;
+         }
+         else if (args[i].equals("--no-intern-tokens"))
+         {
+            internCharTokens = false;
+         }
+         else if (args[i].equals("--texmf-database"))
+         {
+            useFileDatabase = true;
+         }
+         else if (args[i].equals("--no-texmf-database"))
+         {
+            useFileDatabase = false;
+         }
+         else if (args[i].equals("--prefetch-aux"))
+         {
+            prefetchAux = true;
+         }
+         else if (args[i].equals("--no-prefetch-aux"))
+         {
+            prefetchAux = false;
+         }
+         else if (args[i].equals("--aux-snapshot"))
+         {
+            auxSnapshot = true;
+         }
+         else if (args[i].equals("--no-aux-snapshot"))
+         {
+            auxSnapshot = false;
+         }
+         else if (args[i].equals("--path-cache"))
+         {
+            pathCache = true;
+         }
+         else if (args[i].equals("--no-path-cache"))
+         {
+            pathCache = false;
+         }
+         else if (args[i].equals("--token-cache"))
+         {
+            tokenCache = true;
+         }
+         else if (args[i].equals("--no-token-cache"))
+         {
+            tokenCache = false;
+         }
+         else if (args[i].equals("--token-cache-dir"))
+         {
+            i++;
+
+            if (i == args.length)
+            {
+               throw new InvalidSyntaxException(
+                 getMessage("error.syntax.missing_filename",
+                   args[i-1]));
+            }
+
+            tokenCacheDir = new File(args[i]);
+            tokenCache = true;
+         }
+         else if (args[i].equals("--converter-threads"))
+         {
+            i++;
+
+            if (i == args.length)
+            {
+               throw new InvalidSyntaxException(
+                 getMessage("error.syntax.missing_value", args[i-1]));
+            }
+
+            try
+            {
+               converterThreads = Integer.parseInt(args[i]);
+            }
+            catch (NumberFormatException e)
+            {
+               throw new InvalidSyntaxException(
+                 getMessage("error.syntax.number_expected", args[i-1], args[i]), e);
+            }
+         }
          else if (args[i].equals("--no-convert-images"))
          {
             convertImages = false;
@@ -1879,6 +2158,20 @@ public class TeXParserTest implements TeXApp
 
    private boolean deleteTempDirOnExit = true;
    private boolean convertImages = true;
+   private boolean internCharTokens = false;
+   private boolean prefetchAux = false;
+   private boolean auxSnapshot = false;
+   private boolean pathCache = false;
+   private boolean tokenCache = false;
+   private File tokenCacheDir = null;
+   private int converterThreads = 0;
+   private java.util.Timer processTimer = null;
+   private boolean useFileDatabase = false;
+   private boolean fileDatabaseComplete = false;
+   private TeXFileDatabase fileDatabase = null;
+   private final Object fileDatabaseLock = new Object();
+   private HashMap<String,String> kpsewhichResults
+     = new HashMap<String,String>();
    private Path imageDest = null;
    private boolean mathJax = true;
    private boolean useHtmlEntities = false;
@@ -55,6 +55,18 @@ public class KpsewhichListener implements ProcessListener
       return result;
    }
 
+   /**
+    * Waits for the thread reading the process output to finish,
+    * since the process may end before its output has been read.
+    */
+   public void waitForOutput() throws InterruptedException
+   {
+      if (thread != null)
+      {
+         thread.join();
+      }
+   }
+
    public void setProcess(Process process)
    {
       this.process = process;
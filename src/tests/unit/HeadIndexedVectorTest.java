@@ -0,0 +1,88 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimawbooks.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+import java.util.Spliterator;
+import java.util.Vector;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import com.dickimawbooks.texparserlib.*;
+
+/**
+ * Checks that HeadIndexedVector (and so TeXObjectList) can be
+ * streamed. The elements are stored outside of the inherited
+ * Vector storage so the spliterator has to be overridden.
+ */
+public class HeadIndexedVectorTest
+{
+   public static void main(String[] args)
+   {
+      TeXObjectList list = new TeXObjectList();
+      list.add(new TeXCsRef("foo"));
+      list.add(new TeXCsRef("bar"));
+
+      check(list.stream().count() == 2, "stream().count() of 2 element list");
+
+      check(StreamSupport.stream(list.spliterator(), false).count() == 2,
+        "StreamSupport.stream(spliterator()) of 2 element list");
+
+      // remove from the head so that the live range doesn't start
+      // at the beginning of the backing array
+
+      HeadIndexedVector<String> vec = new HeadIndexedVector<String>();
+
+      for (int i = 0; i < 100; i++)
+      {
+         vec.add("item"+i);
+      }
+
+      vec.remove(0);
+      vec.remove(0);
+      vec.add(0, "first");
+
+      Vector<String> expected = new Vector<String>(vec.size());
+
+      for (int i = 0; i < vec.size(); i++)
+      {
+         expected.add(vec.get(i));
+      }
+
+      check(vec.stream().collect(Collectors.toList()).equals(expected),
+        "sequential stream order");
+
+      check(vec.parallelStream().collect(Collectors.toList()).equals(expected),
+        "parallel stream order");
+
+      Spliterator<String> split = vec.spliterator();
+
+      check(split.estimateSize() == vec.size(), "spliterator size");
+
+      check(new HeadIndexedVector<String>().stream().count() == 0,
+        "empty stream");
+
+      System.out.println("HeadIndexedVectorTest: OK");
+   }
+
+   private static void check(boolean condition, String test)
+   {
+      if (!condition)
+      {
+         throw new AssertionError("HeadIndexedVectorTest failed: "+test);
+      }
+   }
+}
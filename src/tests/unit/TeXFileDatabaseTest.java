@@ -0,0 +1,127 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimawbooks.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Vector;
+
+import com.dickimawbooks.texparserlib.TeXFileDatabase;
+
+/**
+ * Checks that TeXFileDatabase chooses between files with the same
+ * name in the same order as kpsewhich.
+ */
+public class TeXFileDatabaseTest
+{
+   public static void main(String[] args) throws IOException
+   {
+      Path tmpDir = Files.createTempDirectory("texmf");
+
+      try
+      {
+         File tree1 = new File(tmpDir.toFile(), "tree1");
+         File tree2 = new File(tmpDir.toFile(), "tree2");
+
+         // dup.sty is in each part of the LaTeX input path of the
+         // second tree
+
+         createFile(tree2, "tex/generic/pkg/dup.sty");
+         createFile(tree2, "tex/plain/pkg/dup.sty");
+         File latexDup = createFile(tree2, "tex/latex/pkg/dup.sty");
+
+         // generic.tex is in tex/generic and tex/plain
+
+         createFile(tree2, "tex/plain/pkg/generic.tex");
+         File genericFile = createFile(tree2, "tex/generic/pkg/generic.tex");
+
+         // first.sty is in both trees
+
+         File firstTree = createFile(tree1, "tex/plain/first.sty");
+         createFile(tree2, "tex/latex/first.sty");
+
+         // ambiguous.sty is in two subdirectories of tex/latex
+
+         createFile(tree2, "tex/latex/a/ambiguous.sty");
+         createFile(tree2, "tex/latex/b/ambiguous.sty");
+
+         TeXFileDatabase db = new TeXFileDatabase();
+         db.addTree(tree1);
+         db.addTree(tree2);
+
+         check(latexDup.getPath().equals(db.find("dup.sty")),
+           "tex/latex// should be searched before tex/generic// and tex//");
+
+         check(genericFile.getPath().equals(db.find("generic.tex")),
+           "tex/generic// should be searched before tex//");
+
+         check(firstTree.getPath().equals(db.find("first.sty")),
+           "trees should be searched in order");
+
+         Vector<String> candidates = db.findCandidates("ambiguous.sty");
+
+         check(candidates.size() == 2,
+           "both files in the same path element should be candidates");
+
+         check(db.findCandidates("dup.sty").size() == 1,
+           "only the first path element should provide candidates");
+
+         check(db.find("missing.sty") == null, "missing file found");
+      }
+      finally
+      {
+         delete(tmpDir.toFile());
+      }
+
+      System.out.println("TeXFileDatabaseTest: OK");
+   }
+
+   private static File createFile(File root, String relPath)
+     throws IOException
+   {
+      File file = new File(root, relPath);
+      file.getParentFile().mkdirs();
+      file.createNewFile();
+
+      return file.getAbsoluteFile();
+   }
+
+   private static void delete(File file)
+   {
+      File[] files = file.listFiles();
+
+      if (files != null)
+      {
+         for (File f : files)
+         {
+            delete(f);
+         }
+      }
+
+      file.delete();
+   }
+
+   private static void check(boolean condition, String test)
+   {
+      if (!condition)
+      {
+         throw new AssertionError("TeXFileDatabaseTest failed: "+test);
+      }
+   }
+}
@@ -0,0 +1,76 @@
+/*
+    Copyright (C) 2026 Nicola L.C. Talbot
+    www.dickimawbooks.com
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+import com.dickimawbooks.texparserlib.*;
+
+/**
+ * Checks that cloning a list doesn't modify the tokens in the
+ * original list and that shared tokens are shared with the copy.
+ */
+public class TeXObjectListCloneTest
+{
+   public static void main(String[] args)
+   {
+      Letter letter = new Letter('a');
+      Space space = new Space();
+
+      TeXObjectList list = new TeXObjectList();
+      list.add(letter);
+      list.add(space);
+
+      TeXObjectList copy = (TeXObjectList)list.clone();
+
+      check(!letter.isShared() && !space.isShared(),
+        "clone() marked the original tokens as shared");
+
+      check(copy.get(0) != letter && copy.get(1) != space,
+        "unshared tokens weren't cloned");
+
+      // the original tokens must still be modifiable
+      letter.setCharCode('b');
+      space.setSpace(' ');
+
+      check(((Letter)copy.get(0)).getCharCode() == 'a',
+        "modifying the original changed the copy");
+
+      Letter shared = new Letter('c');
+      shared.setShared();
+
+      TeXObjectList sharedList = new TeXObjectList();
+      sharedList.add(shared);
+
+      copy = (TeXObjectList)sharedList.clone();
+
+      check(copy.size() == 1 && copy.get(0) == shared,
+        "shared token wasn't shared with the copy");
+
+      copy.add(new Letter('d'));
+
+      check(sharedList.size() == 1, "modifying the copy changed the original");
+
+      System.out.println("TeXObjectListCloneTest: OK");
+   }
+
+   private static void check(boolean condition, String test)
+   {
+      if (!condition)
+      {
+         throw new AssertionError("TeXObjectListCloneTest failed: "+test);
+      }
+   }
+}